@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) 2019 Acmedcare+
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.acmedcare.framework.cpcdp;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntFunction;
+
+/**
+ * {@link BatchExecutor}
+ *
+ * <p>Runs batch validation & serialization on a dedicated {@link ForkJoinPool}, the parallelism is
+ * configured by system property <code>cpcdp.batch.parallelism</code> (default: available
+ * processors). Records are split into contiguous ranges, every result is written to the index of
+ * its record, so results keep the input order.
+ *
+ * @author <a href="mailto:iskp.me@gmail.com">Elve.Xu</a>
+ * @version ${project.version} - 2019/11/17.
+ */
+final class BatchExecutor {
+
+  private static final Logger log = LoggerFactory.getLogger(BatchExecutor.class);
+
+  private static final String PARALLELISM_KEY = "cpcdp.batch.parallelism";
+
+  /** ranges per worker, small enough for work stealing to balance uneven records */
+  private static final int RANGES_PER_WORKER = 8;
+
+  private BatchExecutor() {}
+
+  /**
+   * Apply function to every record
+   *
+   * @param records records of batch
+   * @param function function applied to record, exception thrown fails the whole batch
+   * @param generator result array generator
+   * @param <T> result type
+   * @return results, in input order
+   */
+  static <T> T[] map(
+      Collection<?> records, RecordFunction<T> function, IntFunction<T[]> generator) {
+    Object[] sources = records.toArray();
+    T[] results = generator.apply(sources.length);
+    if (sources.length == 0) {
+      return results;
+    }
+
+    ForkJoinPool pool = PoolHolder.POOL;
+    int threshold = Math.max(1, sources.length / (pool.getParallelism() * RANGES_PER_WORKER));
+
+    MapTask<T> task = new MapTask<>(sources, results, function, 0, sources.length, threshold);
+    if (sources.length <= threshold) {
+      task.compute();
+    } else if (ForkJoinTask.getPool() == pool) {
+      task.invoke();
+    } else {
+      pool.invoke(task);
+    }
+    return results;
+  }
+
+  /**
+   * Function applied to record of batch
+   *
+   * @param <T> result type
+   */
+  @FunctionalInterface
+  interface RecordFunction<T> {
+
+    /**
+     * Apply to record
+     *
+     * @param index index of record in batch
+     * @param record record
+     * @return result of record
+     */
+    T apply(int index, Object record);
+  }
+
+  /** Lazy holder of the batch pool, created on first batch. */
+  private static final class PoolHolder {
+
+    private static final ForkJoinPool POOL = create();
+
+    private static ForkJoinPool create() {
+      int parallelism =
+          Integer.getInteger(PARALLELISM_KEY, Runtime.getRuntime().availableProcessors());
+      if (parallelism < 1) {
+        parallelism = 1;
+      }
+
+      log.info("Create cpcdp batch pool, parallelism: {}", parallelism);
+
+      return new ForkJoinPool(
+          parallelism,
+          pool -> {
+            ForkJoinWorkerThread thread =
+                ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("cpcdp-batch-" + thread.getPoolIndex());
+            thread.setDaemon(true);
+            return thread;
+          },
+          null,
+          false);
+    }
+  }
+
+  private static final class MapTask<T> extends RecursiveAction {
+
+    private final Object[] sources;
+
+    private final T[] results;
+
+    private final RecordFunction<T> function;
+
+    private final int from;
+
+    private final int to;
+
+    private final int threshold;
+
+    MapTask(
+        Object[] sources,
+        T[] results,
+        RecordFunction<T> function,
+        int from,
+        int to,
+        int threshold) {
+      this.sources = sources;
+      this.results = results;
+      this.function = function;
+      this.from = from;
+      this.to = to;
+      this.threshold = threshold;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from <= threshold) {
+        for (int i = from; i < to; i++) {
+          results[i] = function.apply(i, sources[i]);
+        }
+        return;
+      }
+
+      int middle = (from + to) >>> 1;
+      invokeAll(
+          new MapTask<>(sources, results, function, from, middle, threshold),
+          new MapTask<>(sources, results, function, middle, to, threshold));
+    }
+  }
+}
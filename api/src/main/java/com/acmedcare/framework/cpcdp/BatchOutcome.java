@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2019 Acmedcare+
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.acmedcare.framework.cpcdp;
+
+/**
+ * {@link BatchOutcome}
+ *
+ * <p>Outcome of one record of batch serialization, either the json result or the exception.
+ *
+ * @author <a href="mailto:iskp.me@gmail.com">Elve.Xu</a>
+ * @version ${project.version} - 2019/11/17.
+ */
+public final class BatchOutcome {
+
+  private final int index;
+
+  private final String json;
+
+  private final CpcdpException error;
+
+  BatchOutcome(int index, String json, CpcdpException error) {
+    this.index = index;
+    this.json = json;
+    this.error = error;
+  }
+
+  /**
+   * Returns the index of record in batch
+   *
+   * @return index of record
+   */
+  public int getIndex() {
+    return index;
+  }
+
+  /**
+   * Returns json result
+   *
+   * @return json result, null if record is invalid
+   */
+  public String getJson() {
+    return json;
+  }
+
+  /**
+   * Returns exception of invalid record
+   *
+   * @return exception, null if record is serialized
+   */
+  public CpcdpException getError() {
+    return error;
+  }
+
+  public boolean isSuccess() {
+    return error == null;
+  }
+}
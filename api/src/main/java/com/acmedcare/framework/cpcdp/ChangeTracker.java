@@ -0,0 +1,241 @@
+/*
+ * Copyright (c) 2019 Acmedcare+
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.acmedcare.framework.cpcdp;
+
+import com.acmedcare.framework.cpcdp.gson.BeanMetadata;
+import com.acmedcare.framework.cpcdp.kits.Reflections;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * {@link ChangeTracker}
+ *
+ * <p>Tracks the fields of one bean changed since its last submission, for partial payloads of
+ * records submitted many times while being filled in, see {@link
+ * SerializerFactory#toJsonPatch(ChangeTracker)}.
+ *
+ * <p>The setters & builders of beans are generated by lombok, so a field is dirty if its value
+ * differs from the snapshot taken at the last submission, or if it is {@link #mark(String...)
+ * marked} explicitly. Scalars and dates are compared by value, arrays & collections element by
+ * element, other values by their json form. Nested beans (e.g. the elements of <code>ecgs</code>)
+ * don't implement equals, they are compared by identity: a change made inside them must be {@link
+ * #mark(String...) marked}. So the cost of {@link #dirty()} is linear in the count of fields and
+ * elements, not in the size of json. A new tracker has nothing submitted yet: all non-null fields
+ * are dirty and the first patch is validated like the whole record, call {@link #commit()} if the
+ * bean is already in sync. Fields of a patch are committed by {@link JsonPatch#commit()} once the
+ * platform accepted it.
+ *
+ * <p>Not thread safe, a tracker is bound to the editing of one bean.
+ *
+ * @author <a href="mailto:iskp.me@gmail.com">Elve.Xu</a>
+ * @version ${project.version} - 2019/11/25.
+ * @param <T> bean type
+ */
+public final class ChangeTracker<T> {
+
+  /** snapshot of primitive fields never submitted */
+  private static final Object UNSET = new Object();
+
+  private final T bean;
+
+  private final BeanMetadata metadata;
+
+  /** submitted values by field index */
+  private final Object[] snapshot;
+
+  private final BitSet marked;
+
+  /** true once any field is committed, the platform holds the record */
+  private boolean committed;
+
+  private ChangeTracker(T bean) {
+    this.bean = bean;
+    this.metadata = BeanMetadata.of(bean.getClass());
+    this.snapshot = new Object[metadata.size()];
+    this.marked = new BitSet(metadata.size());
+    for (int i = 0; i < snapshot.length; i++) {
+      if (metadata.field(i).getType().isPrimitive()) {
+        snapshot[i] = UNSET;
+      }
+    }
+  }
+
+  /**
+   * Start tracking bean, nothing is submitted yet
+   *
+   * @param bean bean instance
+   * @param <T> bean type
+   * @return instance of {@link ChangeTracker}
+   */
+  public static <T> ChangeTracker<T> of(T bean) {
+    return new ChangeTracker<>(bean);
+  }
+
+  public T getBean() {
+    return bean;
+  }
+
+  public BeanMetadata getMetadata() {
+    return metadata;
+  }
+
+  /**
+   * Mark fields changed, e.g. by custom setters
+   *
+   * @param fields field names
+   * @return this tracker
+   * @throws IllegalArgumentException if field is not serialized
+   */
+  public ChangeTracker<T> mark(String... fields) {
+    for (String field : fields) {
+      int index = metadata.indexOf(field);
+      if (index < 0) {
+        throw new IllegalArgumentException(
+            "Field [" + field + "] is not serialized by " + metadata.type().getName());
+      }
+      marked.set(index);
+    }
+    return this;
+  }
+
+  /**
+   * Returns indexes of dirty fields in {@link BeanMetadata}
+   *
+   * @return new bit set of dirty fields
+   */
+  public BitSet dirty() {
+    BitSet result = (BitSet) marked.clone();
+    for (int i = 0; i < snapshot.length; i++) {
+      if (!result.get(i) && !Objects.deepEquals(snapshot[i], snapshot(read(i)))) {
+        result.set(i);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Returns names of dirty fields
+   *
+   * @return field names, in the order of {@link BeanMetadata}
+   */
+  public List<String> getDirtyFields() {
+    return names(dirty());
+  }
+
+  /** Take snapshot of all fields, the bean is in sync with the submitted one. */
+  public void commit() {
+    BitSet all = new BitSet(snapshot.length);
+    all.set(0, snapshot.length);
+    commit(all, snapshot(all));
+  }
+
+  /**
+   * Take snapshots of fields, e.g. when they are serialized
+   *
+   * @param fields indexes of fields
+   * @return snapshots by field index
+   */
+  Object[] snapshot(BitSet fields) {
+    Object[] snapshots = new Object[snapshot.length];
+    for (int i = fields.nextSetBit(0); i >= 0; i = fields.nextSetBit(i + 1)) {
+      snapshots[i] = snapshot(read(i));
+    }
+    return snapshots;
+  }
+
+  /**
+   * Commit submitted fields, a field changed since its snapshot was taken stays dirty
+   *
+   * @param fields indexes of submitted fields
+   * @param snapshots snapshots of submitted fields, see {@link #snapshot(BitSet)}
+   */
+  void commit(BitSet fields, Object[] snapshots) {
+    for (int i = fields.nextSetBit(0); i >= 0; i = fields.nextSetBit(i + 1)) {
+      snapshot[i] = snapshots[i];
+      marked.clear(i);
+    }
+    committed = true;
+  }
+
+  /**
+   * Check whether the bean was ever submitted
+   *
+   * @return true if any field is committed
+   */
+  boolean isCommitted() {
+    return committed;
+  }
+
+  boolean isIdentity(int index) {
+    return metadata.isIdentity(index);
+  }
+
+  List<String> names(BitSet fields) {
+    List<String> names = new ArrayList<>(fields.cardinality());
+    for (int i = fields.nextSetBit(0); i >= 0; i = fields.nextSetBit(i + 1)) {
+      names.add(metadata.field(i).getName());
+    }
+    return names;
+  }
+
+  Object read(int index) {
+    try {
+      return metadata.field(index).get(bean);
+    } catch (IllegalAccessException e) {
+      throw Reflections.convertReflectionExceptionToUnchecked(e);
+    }
+  }
+
+  /**
+   * Immutable snapshot of value, compared by {@link Objects#deepEquals(Object, Object)}
+   *
+   * @param value field value
+   * @return snapshot
+   */
+  private static Object snapshot(Object value) {
+    if (value == null
+        || value instanceof String
+        || value instanceof Number
+        || value instanceof Boolean
+        || value instanceof Character
+        || value instanceof Enum) {
+      return value;
+    }
+    if (value instanceof Date) {
+      return ((Date) value).getTime();
+    }
+    if (value instanceof Object[]) {
+      return ((Object[]) value).clone();
+    }
+    if (value instanceof Collection) {
+      return ((Collection<?>) value).toArray();
+    }
+    return SerializerFactory.fingerprint(value);
+  }
+}
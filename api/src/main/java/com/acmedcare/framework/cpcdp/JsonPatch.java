@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2019 Acmedcare+
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.acmedcare.framework.cpcdp;
+
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * {@link JsonPatch}
+ *
+ * <p>Partial json of the fields of bean changed since its last submission, see {@link
+ * SerializerFactory#toJsonPatch(ChangeTracker)}. The fields are not committed to tracker until the
+ * platform accepts the patch: call {@link #commit()} on success, a failed patch leaves the fields
+ * dirty so that the next patch carries them again.
+ *
+ * @author <a href="mailto:iskp.me@gmail.com">Elve.Xu</a>
+ * @version ${project.version} - 2019/11/30.
+ */
+public final class JsonPatch {
+
+  private final ChangeTracker<?> tracker;
+
+  private final String json;
+
+  private final BitSet fields;
+
+  /** snapshots of patched fields, taken when serialized */
+  private final Object[] snapshots;
+
+  JsonPatch(ChangeTracker<?> tracker, String json, BitSet fields, Object[] snapshots) {
+    this.tracker = tracker;
+    this.json = json;
+    this.fields = fields;
+    this.snapshots = snapshots;
+  }
+
+  /**
+   * Returns partial json representation of bean
+   *
+   * @return json
+   */
+  public String getJson() {
+    return json;
+  }
+
+  /**
+   * Returns names of patched fields
+   *
+   * @return field names, in the order of {@link com.acmedcare.framework.cpcdp.gson.BeanMetadata}
+   */
+  public List<String> getFields() {
+    return tracker.names(fields);
+  }
+
+  /**
+   * Commit patched fields to tracker, once the platform accepted the patch. Fields changed again
+   * since the patch was serialized stay dirty.
+   */
+  public void commit() {
+    tracker.commit(fields, snapshots);
+  }
+
+  @Override
+  public String toString() {
+    return json;
+  }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2019 Acmedcare+
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.acmedcare.framework.cpcdp;
+
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * {@link JsonRecordReader}
+ *
+ * <p>Streaming reader of one json array of records, records are read one at a time, so the memory
+ * used doesn't grow with the size of array. An empty document or <code>null</code> is read as no
+ * record. Not thread-safe.
+ *
+ * <pre class="code">
+ * try (JsonRecordReader&lt;TreatmentBean&gt; records =
+ *     SerializerFactory.readRecords(in, TreatmentBean.class)) {
+ *   while (records.hasNext()) {
+ *     TreatmentBean record = records.next();
+ *   }
+ * }
+ * </pre>
+ *
+ * @author <a href="mailto:iskp.me@gmail.com">Elve.Xu</a>
+ * @version ${project.version} - 2019/11/23.
+ * @param <T> record type
+ */
+public final class JsonRecordReader<T> implements Iterator<T>, Closeable {
+
+  private final JsonReader in;
+
+  private final TypeAdapter<T> adapter;
+
+  private boolean started;
+
+  private boolean finished;
+
+  JsonRecordReader(JsonReader in, TypeAdapter<T> adapter) {
+    this.in = in;
+    this.adapter = adapter;
+    // same as Gson#fromJson(JsonReader, Type)
+    this.in.setLenient(true);
+  }
+
+  /**
+   * Check is there any record left
+   *
+   * @return true if there is
+   * @throws JsonSyntaxException if json is malformed
+   * @throws JsonIOException if read failed
+   */
+  @Override
+  public boolean hasNext() {
+    if (finished) {
+      return false;
+    }
+    try {
+      if (!started) {
+        started = true;
+        JsonToken token;
+        try {
+          token = in.peek();
+        } catch (EOFException e) {
+          // empty document
+          finished = true;
+          return false;
+        }
+        if (token == JsonToken.NULL) {
+          in.nextNull();
+          finished = true;
+          return false;
+        }
+        in.beginArray();
+      }
+      if (in.hasNext()) {
+        return true;
+      }
+      in.endArray();
+      finished = true;
+      return false;
+    } catch (IOException e) {
+      throw exception(e);
+    } catch (IllegalStateException e) {
+      throw new JsonSyntaxException(e);
+    }
+  }
+
+  /**
+   * Read next record
+   *
+   * @return record, may be null if the element is <code>null</code>
+   * @throws NoSuchElementException if there is no record left
+   * @throws JsonSyntaxException if json is malformed
+   * @throws JsonIOException if read failed
+   */
+  @Override
+  public T next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    try {
+      return adapter.read(in);
+    } catch (IOException e) {
+      throw exception(e);
+    } catch (IllegalStateException e) {
+      throw new JsonSyntaxException(e);
+    }
+  }
+
+  /**
+   * Returns sequential stream of the records left, closing the stream closes the reader.
+   *
+   * @return stream of records
+   */
+  public Stream<T> stream() {
+    return StreamSupport.stream(
+            Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED), false)
+        .onClose(
+            () -> {
+              try {
+                close();
+              } catch (IOException e) {
+                throw new JsonIOException(e);
+              }
+            });
+  }
+
+  @Override
+  public void close() throws IOException {
+    finished = true;
+    in.close();
+  }
+
+  private static RuntimeException exception(IOException e) {
+    if (e instanceof MalformedJsonException || e instanceof EOFException) {
+      return new JsonSyntaxException(e);
+    }
+    return new JsonIOException(e);
+  }
+}
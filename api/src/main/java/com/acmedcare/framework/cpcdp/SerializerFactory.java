@@ -22,34 +22,52 @@
 
 package com.acmedcare.framework.cpcdp;
 
-import com.acmedcare.framework.cpcdp.annotation.*;
-import com.acmedcare.framework.cpcdp.consts.DistressCaseDetail;
-import com.acmedcare.framework.cpcdp.consts.NstemiGraceEstimate;
-import com.acmedcare.framework.cpcdp.consts.NstemiGraceHrCondition;
+import com.acmedcare.framework.cpcdp.bean.FirstAidBean;
+import com.acmedcare.framework.cpcdp.bean.PatientRegisterBean;
+import com.acmedcare.framework.cpcdp.bean.TreatmentBean;
+import com.acmedcare.framework.cpcdp.binary.BinaryCodec;
+import com.acmedcare.framework.cpcdp.gson.BeanMetadata;
 import com.acmedcare.framework.cpcdp.gson.CpcdpFieldNamingStrategy;
+import com.acmedcare.framework.cpcdp.gson.CpcdpJsonWriterFactory;
 import com.acmedcare.framework.cpcdp.gson.CpcdpTypeAdapterFactory;
-import com.acmedcare.framework.cpcdp.gson.serializer.DistressCaseDetailSerializer;
-import com.acmedcare.framework.cpcdp.gson.serializer.NstemiGraceEstimateSerializer;
-import com.acmedcare.framework.cpcdp.gson.serializer.NstemiGraceHrConditionSerializer;
-import com.acmedcare.framework.cpcdp.kits.Assert;
-import com.acmedcare.framework.cpcdp.kits.Reflections;
-import com.google.common.base.Strings;
-import com.google.common.collect.Lists;
-import com.google.common.collect.Maps;
-import com.google.common.collect.Sets;
+import com.acmedcare.framework.cpcdp.gson.GeneratedJsonWriter;
+import com.acmedcare.framework.cpcdp.gson.adapter.CpcDateTypeAdapter;
+import com.acmedcare.framework.cpcdp.gson.adapter.InstantTypeAdapter;
+import com.acmedcare.framework.cpcdp.gson.adapter.LocalDateTimeTypeAdapter;
+import com.acmedcare.framework.cpcdp.kits.TimestampCodec;
+import com.acmedcare.framework.cpcdp.kits.Utf8BufferWriter;
+import com.acmedcare.framework.cpcdp.validation.ValidationPass;
+import com.acmedcare.framework.cpcdp.validation.ValidationPlan;
+import com.acmedcare.framework.cpcdp.validation.ValidationProfile;
+import com.acmedcare.framework.cpcdp.validation.ValidationReport;
+import com.acmedcare.framework.cpcdp.validation.Violation;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonIOException;
 import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.lang.reflect.Field;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.io.Writer;
 import java.lang.reflect.Type;
-import java.util.Arrays;
-import java.util.List;
-import java.util.Map;
-import java.util.Set;
-import java.util.stream.Stream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Date;
+import java.util.TimeZone;
 
 /**
  * {@link com.acmedcare.framework.cpcdp.SerializerFactory}
@@ -63,31 +81,42 @@ public final class SerializerFactory {
 
   private static final String PRETTY_ENABLED_KEY = "cpcdp.json.pretty.enabled";
 
-  private static final String DEFAULT_DATA_FORMAT_PATTERN = "yyyy-MM-dd HH:mm:ss";
-
   private static final Boolean ENABLED_PRETTY = Boolean.valueOf(System.getProperty(PRETTY_ENABLED_KEY, "false"));
 
-  private static final String CPC_ENUM_KEY_METHOD_NAME = "key";
+  private static Gson gson;
 
-  private static final String CPC_ENUM_VALUE_METHOD_NAME = "value";
+  /** buffers of {@link #writeJson}, larger ones are not pooled */
+  private static final int MAX_POOLED_BUFFER_SIZE = 1 << 20;
 
-  private static Gson gson;
+  private static final ThreadLocal<Utf8BufferWriter> BUFFERS =
+      ThreadLocal.withInitial(() -> new Utf8BufferWriter(8192));
 
   static {
+    TimestampCodec timestampCodec = new TimestampCodec(TimeZone.getDefault());
+
     GsonBuilder builder =
         new GsonBuilder()
             .setFieldNamingStrategy(new CpcdpFieldNamingStrategy())
             .registerTypeAdapterFactory(new CpcdpTypeAdapterFactory())
-            .registerTypeAdapter(DistressCaseDetail[].class, new DistressCaseDetailSerializer())
-            .registerTypeAdapter(NstemiGraceEstimate[].class, new NstemiGraceEstimateSerializer())
-            .registerTypeAdapter(NstemiGraceHrCondition[].class, new NstemiGraceHrConditionSerializer())
-            .setDateFormat(DEFAULT_DATA_FORMAT_PATTERN);
+            .registerTypeAdapterFactory(new CpcdpJsonWriterFactory())
+            .registerTypeAdapter(Date.class, new CpcDateTypeAdapter<>(Date.class, timestampCodec))
+            .registerTypeAdapter(
+                Timestamp.class, new CpcDateTypeAdapter<>(Timestamp.class, timestampCodec))
+            .registerTypeAdapter(
+                java.sql.Date.class, new CpcDateTypeAdapter<>(java.sql.Date.class, timestampCodec))
+            .registerTypeAdapter(Instant.class, new InstantTypeAdapter(timestampCodec))
+            .registerTypeAdapter(LocalDateTime.class, new LocalDateTimeTypeAdapter(timestampCodec));
 
     if (ENABLED_PRETTY) {
       builder.setPrettyPrinting();
     }
 
     gson = builder.create();
+
+    // compile validation plans of beans eagerly, invalid condition(s) fail fast at startup
+    ValidationPlan.of(PatientRegisterBean.class);
+    ValidationPlan.of(FirstAidBean.class);
+    ValidationPlan.of(TreatmentBean.class);
   }
 
   public static String toJson(Object src) {
@@ -110,325 +139,367 @@ public final class SerializerFactory {
    * @return Json representation of {@code src}
    */
   public static String toJson(Object src, Type typeOfSrc) {
+    return toJson(src, typeOfSrc, ValidationPlan.select(src));
+  }
 
-    // Check @Condition & @Required & @AllowValues & @ComplexCondition
+  /**
+   * Serializes the specified object with the validation rules of profile, instead of the profile
+   * selected by the record status of object.
+   *
+   * @param src the object for which JSON representation is to be created
+   * @param profile validation profile
+   * @return Json representation of {@code src}
+   */
+  public static String toJson(Object src, ValidationProfile profile) {
+    return toJson(src, src.getClass(), ValidationPlan.of(src.getClass(), profile));
+  }
 
-    Field[] fields = src.getClass().getDeclaredFields();
+  private static String toJson(Object src, Type typeOfSrc, ValidationPlan plan) {
 
-    Map<String, Field> fieldsMap = Maps.newConcurrentMap();
+    // Check @Condition & @Required & @AllowValues & @ComplexCondition
+    check(src, plan);
 
-    Stream.of(fields).parallel().forEach(field -> fieldsMap.put(field.getName(), field));
+    return gson.toJson(src, typeOfSrc);
+  }
 
+  private static void check(Object src, ValidationPlan plan) {
+    Violation violation;
     try {
 
-      for (Field field : fields) {
-        validate(fieldsMap, field, src);
-      }
+      violation = plan.check(src);
 
-    } catch (InvalidBeanParameterException e) {
-      throw new CpcdpException(e.getMessage(), e);
     } catch (Exception e) {
       throw new CpcdpException("校验异常", e);
     }
 
-    return gson.toJson(src, typeOfSrc);
+    checkViolation(violation);
   }
 
-  private static void validate(Map<String, Field> fieldsMap, Field field, Object instance)
-      throws InvalidBeanParameterException {
+  /**
+   * Validate & serialize the specified object in one pass: the validation rules of every field are
+   * run right before the field is written, the buffered output is discarded at the first violation.
+   * The exceptions are the same as {@link #toJson(Object)}. Classes without generated json writer
+   * are validated & serialized in two passes.
+   *
+   * @param src the object for which JSON representation is to be created
+   * @return Json representation of {@code src}
+   */
+  public static String toJsonFused(Object src) {
+    StringWriter buffer = new StringWriter();
+    write(src, ValidationPlan.select(src), buffer);
+    return buffer.toString();
+  }
 
-    if (log.isDebugEnabled()) {
-      log.debug("------------------------------------------");
-      log.debug("Field : {}" , field.getName());
+  /**
+   * Validate & serialize the specified object as UTF-8 bytes to output stream, in one pass like
+   * {@link #toJsonFused(Object)}. The bytes are encoded into a pooled buffer, nothing is written
+   * if the object is invalid.
+   *
+   * @param src the object for which JSON representation is to be created
+   * @param out output stream, not closed
+   * @throws IOException if write to output stream failed
+   */
+  public static void writeJson(Object src, OutputStream out) throws IOException {
+    Utf8BufferWriter buffer = acquireBuffer();
+    try {
+      write(src, ValidationPlan.select(src), buffer);
+      buffer.writeTo(out);
+    } finally {
+      releaseBuffer(buffer);
     }
+  }
 
-    boolean required = field.isAnnotationPresent(Required.class);
-    boolean allowValues = field.isAnnotationPresent(AllowValues.class);
-    boolean condition = field.isAnnotationPresent(Condition.class);
-    boolean conditions = field.isAnnotationPresent(Conditions.class);
-    boolean complexCondition = field.isAnnotationPresent(ComplexCondition.class);
-
-    // Check Required
-    if (required) {
-      Object value = Reflections.getFieldValue(instance, field.getName());
-      if (value == null) {
-        if (condition || conditions || complexCondition) {
-          // empty biz
-        } else {
-          throw new InvalidBeanParameterException("属性: <" + field.getName() + "> 不能为空.");
-        }
-      } else {
-        if (allowValues) {
-          AllowValues allows = field.getAnnotation(AllowValues.class);
-          Set<String> definedAllowValues = Sets.newHashSet(allows.value());
-          String message = allows.message();
-          if (!definedAllowValues.contains(value.toString())) {
-            throw new InvalidBeanParameterException("属性: <" + field.getName() + "> 取值范围: " + (Strings.isNullOrEmpty(message) ? Arrays.toString(definedAllowValues.toArray()) : message));
-          }
-        }
-      }
-
-      if (condition || conditions || complexCondition) {
-        // Check Condition(s)
-        processConditions(fieldsMap, field, instance);
-      }
+  /**
+   * Validate & serialize the specified object as UTF-8 bytes into byte buffer, in one pass like
+   * {@link #toJsonFused(Object)}. Nothing is put if the object is invalid.
+   *
+   * @param src the object for which JSON representation is to be created
+   * @param target byte buffer, the bytes are put at its position
+   * @return count of bytes
+   * @throws java.nio.BufferOverflowException if not enough space remaining in target, nothing is
+   *     put
+   */
+  public static int writeJson(Object src, ByteBuffer target) {
+    Utf8BufferWriter buffer = acquireBuffer();
+    try {
+      write(src, ValidationPlan.select(src), buffer);
+      return buffer.writeTo(target);
+    } finally {
+      releaseBuffer(buffer);
     }
+  }
 
-    if (log.isDebugEnabled()) {
-      log.debug("{}, {}, {}", field, instance, fieldsMap);
+  /**
+   * Validate & serialize the fields of bean changed since its last submission, together with its
+   * {@link com.acmedcare.framework.cpcdp.annotation.IdentityKey} fields. Once the record was
+   * submitted, only the validation rules depending on the changed fields are run, see {@link
+   * ValidationPlan#check(Object, Collection)}; the first patch of tracker is validated like {@link
+   * #toJson(Object)}, so an incomplete record is never created on platform. Fields changed to null
+   * are written as null, so they can be cleared. The changed fields stay dirty until {@link
+   * JsonPatch#commit()} is called, once the platform accepted the patch.
+   *
+   * @param tracker change tracker of bean
+   * @return partial Json representation of bean
+   * @throws CpcdpException if bean class has no identity key field, the platform could not tell
+   *     which record the patch belongs to
+   */
+  public static JsonPatch toJsonPatch(ChangeTracker<?> tracker) {
+    Object src = tracker.getBean();
+    BeanMetadata metadata = tracker.getMetadata();
+    if (!metadata.hasIdentity()) {
+      throw new CpcdpException("未定义记录标识属性, 类: " + metadata.type().getName());
     }
-  }
+    BitSet dirty = tracker.dirty();
 
-  @SuppressWarnings("DuplicatedCode")
-  private static void processConditions(
-      Map<String, Field> fieldsMap, Field field, Object instance) throws InvalidBeanParameterException{
+    Violation violation;
+    try {
 
-    boolean condition = field.isAnnotationPresent(Condition.class);
-    boolean conditions = field.isAnnotationPresent(Conditions.class);
-    boolean complexCondition = field.isAnnotationPresent(ComplexCondition.class);
+      ValidationPlan plan = ValidationPlan.select(src);
+      violation =
+          tracker.isCommitted() ? plan.check(src, tracker.names(dirty)) : plan.check(src);
 
-    // process @Condition
-    if(condition) {
+    } catch (Exception e) {
+      throw new CpcdpException("校验异常", e);
+    }
 
-      Condition conditionAnnotation = field.getAnnotation(Condition.class);
+    checkViolation(violation);
 
-      if(isConditionMatch(conditionAnnotation,fieldsMap,field,instance)){
-        Object value = Reflections.getFieldValue(instance, field.getName());
-        if(value == null) {
-          throw new InvalidBeanParameterException("属性: <" + field.getName() + "> 不能为空.");
+    Object[] snapshots = tracker.snapshot(dirty);
+    StringWriter buffer = new StringWriter();
+    try {
+      JsonWriter out = gson.newJsonWriter(buffer);
+      out.setLenient(true);
+      out.beginObject();
+      for (int i = 0; i < metadata.size(); i++) {
+        boolean changed = dirty.get(i);
+        if (!changed && !tracker.isIdentity(i)) {
+          continue;
         }
+
+        Object value = tracker.read(i);
+        if (value == null) {
+          if (changed) {
+            // written even if nulls are not serialized
+            out.name(metadata.name(i));
+            boolean serializeNulls = out.getSerializeNulls();
+            out.setSerializeNulls(true);
+            out.nullValue();
+            out.setSerializeNulls(serializeNulls);
+          }
+          continue;
+        }
+
+        out.name(metadata.name(i));
+        @SuppressWarnings("unchecked")
+        TypeAdapter<Object> adapter =
+            (TypeAdapter<Object>) gson.getAdapter(TypeToken.get(metadata.field(i).getGenericType()));
+        adapter.write(out, value);
       }
+      out.endObject();
+    } catch (IOException e) {
+      throw new JsonIOException(e);
     }
 
-    // process @Conditions
-    if(conditions) {
-
-      Conditions conditionsAnnotation = field.getAnnotation(Conditions.class);
-      Condition[] conditionsArray = conditionsAnnotation.value();
-      List<Boolean> result = Lists.newArrayList();
+    return new JsonPatch(tracker, buffer.toString(), dirty, snapshots);
+  }
 
-      for (Condition temp : conditionsArray) {
-        result.add(isConditionMatch(temp,fieldsMap,field,instance));
-      }
+  /** Take the buffer of current thread, nested calls get a new one */
+  static Utf8BufferWriter acquireBuffer() {
+    Utf8BufferWriter buffer = BUFFERS.get();
+    BUFFERS.remove();
+    buffer.reset();
+    return buffer;
+  }
 
-      if(!result.contains(Boolean.FALSE)) {
-        Object value = Reflections.getFieldValue(instance, field.getName());
-        if(value == null) {
-          throw new InvalidBeanParameterException("属性: <" + field.getName() + "> 不能为空.");
-        }
-      }
+  static void releaseBuffer(Utf8BufferWriter buffer) {
+    if (buffer.capacity() <= MAX_POOLED_BUFFER_SIZE) {
+      BUFFERS.set(buffer);
     }
+  }
 
-    // process @ComplexCondition
-    if(complexCondition) {
+  /**
+   * Validate & serialize object to writer, the output must be discarded if any exception thrown.
+   *
+   * @param src the object for which JSON representation is to be created
+   * @param plan validation plan of object
+   * @param buffer writer never throws {@link IOException}
+   */
+  @SuppressWarnings("unchecked")
+  private static void write(Object src, ValidationPlan plan, Writer buffer) {
+
+    TypeAdapter<?> adapter = gson.getAdapter(src.getClass());
+    if (!(adapter instanceof GeneratedJsonWriter)) {
+      check(src, plan);
+      gson.toJson(src, src.getClass(), buffer);
+      return;
+    }
 
-      ComplexCondition complexConditionAnnotation = field.getAnnotation(ComplexCondition.class);
-      Conditions[] conditionsArray = complexConditionAnnotation.value();
-      ComplexCondition.Symbol symbol = complexConditionAnnotation.symbol();
+    ValidationPass pass = plan.pass(src);
+    RuntimeException writeError = null;
+    try {
+      JsonWriter out = gson.newJsonWriter(buffer);
+      // same as Gson#toJson(Object, Type, JsonWriter)
+      out.setLenient(true);
+      ((GeneratedJsonWriter<Object>) adapter).write(out, src, pass);
+    } catch (IOException e) {
+      writeError = new JsonIOException(e);
+    } catch (RuntimeException e) {
+      writeError = e;
+    }
 
-      List<Boolean> result = Lists.newArrayList();
+    // violation(s) of the fields not written yet take precedence over write error
+    Violation violation;
+    try {
 
-      for (Conditions temp : conditionsArray) {
-        result.add(isConditionsMatch(temp,fieldsMap,field,instance));
-      }
+      violation = pass.finish();
 
-      switch (symbol) {
-        case OR:
+    } catch (Exception e) {
+      throw new CpcdpException("校验异常", e);
+    }
 
-          if(result.contains(Boolean.TRUE)) {
-            Object value = Reflections.getFieldValue(instance, field.getName());
-            if(value == null) {
-              throw new InvalidBeanParameterException("属性: <" + field.getName() + "> 不能为空.");
-            }
-          }
+    checkViolation(violation);
 
-          break;
-        case AND:
+    if (writeError != null) {
+      throw writeError;
+    }
+  }
 
-          if(!result.contains(Boolean.FALSE)) {
-            Object value = Reflections.getFieldValue(instance, field.getName());
-            if(value == null) {
-              throw new InvalidBeanParameterException("属性: <" + field.getName() + "> 不能为空.");
-            }
-          }
-          break;
-        default:
-          break;
+  private static void checkViolation(Violation violation) {
+    if (violation != null) {
+      if (violation.getType() == Violation.Type.CONDITION_VALUE) {
+        throw new CpcdpException("校验异常", new IllegalArgumentException(violation.getMessage()));
       }
+      throw new CpcdpException(violation.getMessage(), violation.exception());
     }
   }
 
   /**
-   * Check is {@link Conditions} matched
+   * Validate bean, collect all violations instead of stopping at the first one. The validation
+   * profile is selected by the record status of bean.
    *
-   * @param conditionsAnnotation instance of {@link Conditions}
-   * @param fieldsMap object field(s) map cache
-   * @param field instance of object's {@link Field}
-   * @param instance object instance
-   * @return matched return true , otherwise return false
+   * @param src bean instance
+   * @return instance of {@link ValidationReport}
    */
-  private static boolean isConditionsMatch(Conditions conditionsAnnotation, Map<String, Field> fieldsMap, Field field, Object instance) {
-
-    Condition[] conditionsArray = conditionsAnnotation.value();
-    List<Boolean> result = Lists.newArrayList();
-
-    for (Condition temp : conditionsArray) {
-      result.add(isConditionMatch(temp,fieldsMap,field,instance));
-    }
-
-    return !result.contains(Boolean.FALSE);
+  public static ValidationReport validate(Object src) {
+    return ValidationPlan.select(src).report(src);
   }
 
   /**
-   * Check is {@link Condition} matched
+   * Validate bean with the rules of profile, collect all violations instead of stopping at the
+   * first one.
    *
-   * @param conditionAnnotation instance of {@link Condition}
-   * @param fieldsMap object field(s) map cache
-   * @param field instance of object's {@link Field}
-   * @param instance object instance
-   * @return matched return true , otherwise return false
+   * @param src bean instance
+   * @param profile validation profile
+   * @return instance of {@link ValidationReport}
    */
-  @SuppressWarnings({"DuplicatedCode", "AlibabaMethodTooLong"})
-  private static boolean isConditionMatch(Condition conditionAnnotation, Map<String, Field> fieldsMap, Field field, Object instance) {
-
-    String fieldName = conditionAnnotation.field();
-    Set<String> expectValues = Sets.newHashSet(conditionAnnotation.expectValue());
-
-    Class clazz = conditionAnnotation.type();
-    boolean isCpcEnum = conditionAnnotation.isCpcEnum();
-    Class typeClass = conditionAnnotation.type();
-    Condition.MatchingStrategy strategy = conditionAnnotation.strategy();
-
-    String expectFieldName = conditionAnnotation.field();
-    Object expectFieldOriginValue = Reflections.getFieldValue(instance,fieldName);
-    Object expectFieldRealValue = expectFieldOriginValue;
-
-    if(isCpcEnum && expectFieldOriginValue != null) {
-      expectFieldRealValue = Reflections.invokeMethod(expectFieldOriginValue,CPC_ENUM_KEY_METHOD_NAME,null,null);
-    }
-
-    Field expectField = fieldsMap.get(expectFieldName);
-    boolean condition = expectField.isAnnotationPresent(Condition.class);
-    boolean conditions = expectField.isAnnotationPresent(Conditions.class);
-    boolean complexCondition = expectField.isAnnotationPresent(ComplexCondition.class);
-
-    // recursion check
-    if(fieldsMap.containsKey(expectFieldName)){
-      if(condition || conditions || complexCondition) {
-
-        // Matching Strategy Check
-        switch (strategy) {
-          case ANY_VALUE_WITHIN_ENUMS_ARRAY:
-
-            Object[] anyValueWithinEnumsArraysValues = (Object[]) Reflections.getFieldValue(instance,fieldName);
-            if(anyValueWithinEnumsArraysValues == null || anyValueWithinEnumsArraysValues.length == 0) {
-              return false;
-            }
-
-            break;
-          case DEFAULT:
-          default:
-
-            if(expectFieldRealValue != null && !expectValues.contains(expectFieldRealValue.toString())) {
-              return false;
-            }
-
-            break;
-        }
-
-        if(condition) {
-
-          Condition f0 = expectField.getAnnotation(Condition.class);
-          boolean match = isConditionMatch(f0,fieldsMap,expectField,instance);
-          if(match) {
-            Object value = Reflections.getFieldValue(instance, expectField.getName());
-            if(value == null) {
-              throw new InvalidBeanParameterException("属性: <" + expectField.getName() + "> 不能为空.");
-            }
-          }
-
-        }
-
-        if(conditions) {
-          Conditions conditionsAnnotation = expectField.getAnnotation(Conditions.class);
-          Condition[] conditionsArray = conditionsAnnotation.value();
-          List<Boolean> result = Lists.newArrayList();
-
-          for (Condition temp : conditionsArray) {
-            result.add(isConditionMatch(temp,fieldsMap,expectField,instance));
-          }
-
-          if(!result.contains(Boolean.FALSE)) {
-            Object value = Reflections.getFieldValue(instance, expectField.getName());
-            if(value == null) {
-              throw new InvalidBeanParameterException("属性: <" + expectField.getName() + "> 不能为空.");
-            }
-          }
-        }
-
-        if(complexCondition) {
-
-          ComplexCondition complexConditionAnnotation = expectField.getAnnotation(ComplexCondition.class);
-          Conditions[] conditionsArray = complexConditionAnnotation.value();
-          ComplexCondition.Symbol symbol = complexConditionAnnotation.symbol();
-
-          List<Boolean> result = Lists.newArrayList();
+  public static ValidationReport validate(Object src, ValidationProfile profile) {
+    return ValidationPlan.of(src.getClass(), profile).report(src);
+  }
 
-          for (Conditions temp : conditionsArray) {
-            result.add(isConditionsMatch(temp,fieldsMap,expectField,instance));
-          }
+  /**
+   * Validate records of batch in parallel, on the dedicated batch pool (system property <code>
+   * cpcdp.batch.parallelism</code>). Null records and records whose rules can not be compiled
+   * don't fail the batch, see {@link ValidationPlan#reportRecord(Object)}.
+   *
+   * @param records records of batch
+   * @return reports of records, in input order
+   */
+  public static ValidationReport[] validateAll(Collection<?> records) {
+    return BatchExecutor.map(
+        records, (index, record) -> ValidationPlan.reportRecord(record), ValidationReport[]::new);
+  }
 
-          switch (symbol) {
-            case OR:
-
-              if(result.contains(Boolean.TRUE)) {
-                Object value = Reflections.getFieldValue(instance, expectField.getName());
-                if(value == null) {
-                  throw new InvalidBeanParameterException("属性: <" + expectField.getName() + "> 不能为空.");
-                }
-              }
-
-              break;
-            case AND:
-
-              if(!result.contains(Boolean.FALSE)) {
-                Object value = Reflections.getFieldValue(instance, expectField.getName());
-                if(value == null) {
-                  throw new InvalidBeanParameterException("属性: <" + expectField.getName() + "> 不能为空.");
-                }
-              }
-              break;
-            default:
-              break;
+  /**
+   * Validate & serialize records of batch in parallel, on the dedicated batch pool (system
+   * property <code>cpcdp.batch.parallelism</code>). Invalid records don't fail the batch, their
+   * exceptions are returned in the outcomes.
+   *
+   * @param records records of batch
+   * @return outcomes of records, in input order
+   */
+  public static BatchOutcome[] toJsonAll(Collection<?> records) {
+    return BatchExecutor.map(
+        records,
+        (index, record) -> {
+          try {
+            return new BatchOutcome(index, toJson(record), null);
+          } catch (CpcdpException e) {
+            return new BatchOutcome(index, null, e);
+          } catch (Exception e) {
+            return new BatchOutcome(index, null, new CpcdpException("序列化异常", e));
           }
-        }
-
-      }
-    }
+        },
+        BatchOutcome[]::new);
+  }
 
-    Assert.notNull(expectFieldRealValue,"条件属性: <" + fieldName + "> 值不能为空.");
+  public static <T> T fromJson(String json, Class<T> classOfT) throws JsonSyntaxException {
+    return gson.fromJson(json, classOfT);
+  }
 
-    if(log.isDebugEnabled()) {
-      log.debug("Condition V: {} | {}, {}, {}, {}, {} ,{}", field.getName(), fieldName, expectValues, isCpcEnum, clazz, typeClass, strategy);
-    }
+  /**
+   * Json form of value, used to compare values without equals
+   *
+   * @param value value, not null
+   * @return json result
+   */
+  static String fingerprint(Object value) {
+    return gson.toJson(value);
+  }
 
-    //
-    switch (strategy) {
-      case ANY_VALUE_WITHIN_ENUMS_ARRAY:
+  /**
+   * Open streaming reader of json array of records, the records are read one at a time.
+   *
+   * @param reader json source, closed with the returned reader
+   * @param classOfT class of record
+   * @param <T> record type
+   * @return instance of {@link JsonRecordReader}
+   */
+  public static <T> JsonRecordReader<T> readRecords(Reader reader, Class<T> classOfT) {
+    return new JsonRecordReader<>(gson.newJsonReader(reader), gson.getAdapter(classOfT));
+  }
 
-        Object[] anyValueWithinEnumsArraysValues = (Object[]) Reflections.getFieldValue(instance, fieldName);
+  /**
+   * Open streaming reader of UTF-8 json array of records, the records are read one at a time.
+   *
+   * @param in json source, closed with the returned reader
+   * @param classOfT class of record
+   * @param <T> record type
+   * @return instance of {@link JsonRecordReader}
+   */
+  public static <T> JsonRecordReader<T> readRecords(InputStream in, Class<T> classOfT) {
+    return readRecords(new InputStreamReader(in, StandardCharsets.UTF_8), classOfT);
+  }
 
-        return anyValueWithinEnumsArraysValues != null && anyValueWithinEnumsArraysValues.length > 0;
+  /**
+   * Encode bean into compact binary form for internal queues and storage, the bean is not
+   * validated.
+   *
+   * @param src bean instance
+   * @return binary form, see {@link BinaryCodec}
+   */
+  @SuppressWarnings("unchecked")
+  public static byte[] toBinary(Object src) {
+    return BinaryCodec.of((Class<Object>) src.getClass()).encode(src);
+  }
 
-      case DEFAULT:
-      default:
+  public static <T> T fromBinary(byte[] bytes, Class<T> classOfT) {
+    return BinaryCodec.of(classOfT).decode(bytes);
+  }
 
-        return expectValues.contains(expectFieldRealValue.toString());
-    }
+  /**
+   * Convert binary form into json without validation, use {@link #toJson(Object)} of {@link
+   * #fromBinary(byte[], Class)} for validated json.
+   *
+   * @param bytes binary form
+   * @param classOfT class of bean
+   * @return json result
+   */
+  public static String binaryToJson(byte[] bytes, Class<?> classOfT) {
+    return gson.toJson(fromBinary(bytes, classOfT), classOfT);
   }
 
-  public <T> T fromJson(String json, Class<T> classOfT) throws JsonSyntaxException {
-    return gson.fromJson(json, classOfT);
+  public static byte[] jsonToBinary(String json, Class<?> classOfT) throws JsonSyntaxException {
+    return toBinary(fromJson(json, classOfT));
   }
 
   /**
@@ -441,5 +512,9 @@ public final class SerializerFactory {
     public InvalidBeanParameterException(String message) {
       super(message);
     }
+
+    public InvalidBeanParameterException(String message, boolean writableStackTrace) {
+      super(message, null, false, writableStackTrace);
+    }
   }
 }
@@ -22,13 +22,15 @@
 
 package com.acmedcare.framework.cpcdp;
 
+import com.acmedcare.framework.cpcdp.consts.CpcEnum;
+
 /**
  * {@link Status}
  *
  * @author <a href="mailto:iskp.me@gmail.com">Elve.Xu</a>
  * @version ${project.version} - 2019/11/7.
  */
-public enum Status {
+public enum Status implements CpcEnum {
 
   /** */
   S01("1", "填报中"),
@@ -42,10 +44,12 @@ public enum Status {
     this.value = value;
   }
 
+  @Override
   public String key() {
     return this.key;
   }
 
+  @Override
   public String value() {
     return value;
   }
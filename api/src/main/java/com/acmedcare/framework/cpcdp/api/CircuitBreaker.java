@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2019 Acmedcare+
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.acmedcare.framework.cpcdp.api;
+
+import com.acmedcare.framework.cpcdp.api.SubmissionMetrics.CircuitState;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * {@link CircuitBreaker}
+ *
+ * <p>Opens after so many consecutive failures (5xx or no response), submissions are rejected
+ * while open. Once the open duration elapsed, one probe submission is let through (half open):
+ * its success closes the breaker, its failure opens it again. A probe never completed lets
+ * another one through after the open duration. Outcomes are reported with the state submission
+ * was admitted under, so only the current probe leaves half open: late outcomes of submissions
+ * admitted before the breaker opened, or of a superseded probe, change nothing.
+ *
+ * <p>Lock free, the state is swapped by CAS.
+ *
+ * @author <a href="mailto:iskp.me@gmail.com">Elve.Xu</a>
+ * @version ${project.version} - 2019/11/28.
+ */
+final class CircuitBreaker {
+
+  private static final State CLOSED = new State(CircuitState.CLOSED, 0);
+
+  private final int failureThreshold;
+
+  private final long openNanos;
+
+  private final AtomicReference<State> state = new AtomicReference<>(CLOSED);
+
+  private final AtomicInteger failures = new AtomicInteger();
+
+  CircuitBreaker(int failureThreshold, long openNanos) {
+    this.failureThreshold = Math.max(1, failureThreshold);
+    this.openNanos = openNanos;
+  }
+
+  /**
+   * Check whether submission is allowed
+   *
+   * @return state submission is admitted under, to report its outcome with; null if open, or half
+   *     open with probe in flight
+   */
+  State allow() {
+    for (; ; ) {
+      State current = state.get();
+      if (current.type == CircuitState.CLOSED) {
+        return current;
+      }
+      long now = System.nanoTime();
+      if (now - current.since < openNanos) {
+        return null;
+      }
+      State probe = new State(CircuitState.HALF_OPEN, now);
+      if (state.compareAndSet(current, probe)) {
+        return probe;
+      }
+    }
+  }
+
+  /**
+   * Record success of submission, only the probe of half open breaker closes it
+   *
+   * @param admitted state submission was admitted under, see {@link #allow()}
+   */
+  void onSuccess(State admitted) {
+    State current = state.get();
+    if (current.type == CircuitState.CLOSED) {
+      failures.set(0);
+    } else if (admitted == current && state.compareAndSet(current, CLOSED)) {
+      // failures counted before the probe are not consecutive to it
+      failures.set(0);
+    }
+  }
+
+  /**
+   * Record failure of submission, only the probe of half open breaker opens it again
+   *
+   * @param admitted state submission was admitted under, see {@link #allow()}
+   */
+  void onFailure(State admitted) {
+    State current = state.get();
+    boolean open =
+        current.type == CircuitState.HALF_OPEN
+            ? admitted == current
+            : current.type == CircuitState.CLOSED
+                && failures.incrementAndGet() >= failureThreshold;
+    if (open && state.compareAndSet(current, new State(CircuitState.OPEN, System.nanoTime()))) {
+      failures.set(0);
+    }
+  }
+
+  CircuitState state() {
+    return state.get().type;
+  }
+
+  /** State of breaker, a new instance for every transition but closing */
+  static final class State {
+
+    private final CircuitState type;
+
+    /** time of last transition */
+    private final long since;
+
+    State(CircuitState type, long since) {
+      this.type = type;
+      this.since = since;
+    }
+  }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2019 Acmedcare+
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.acmedcare.framework.cpcdp.api;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link ConcurrencyLimiter}
+ *
+ * <p>Adaptive limit of in-flight submissions, TCP Vegas style: the queue built up at platform is
+ * estimated from the sampled round trip time against the minimal one, <code>queue = limit * (1 -
+ * minRtt / rtt)</code>. The limit grows while the queue is short, shrinks while it is long, and
+ * shrinks on every dropped submission (5xx or timeout). The minimal round trip time is re-probed
+ * periodically, so the limit recovers once platform is slower for good.
+ *
+ * <p>Lock free, the limit is updated by CAS.
+ *
+ * @author <a href="mailto:iskp.me@gmail.com">Elve.Xu</a>
+ * @version ${project.version} - 2019/11/28.
+ */
+final class ConcurrencyLimiter {
+
+  /** the minimal round trip time is reset every so many samples */
+  private static final long PROBE_SAMPLES = 1000;
+
+  private final int minLimit;
+
+  private final int maxLimit;
+
+  private final AtomicInteger inFlight = new AtomicInteger();
+
+  /** raw bits of the double limit estimate, the limit is its integral part */
+  private final AtomicLong estimate;
+
+  private final AtomicLong minRtt = new AtomicLong(Long.MAX_VALUE);
+
+  private final AtomicLong samples = new AtomicLong();
+
+  ConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit) {
+    this.minLimit = Math.max(1, minLimit);
+    this.maxLimit = Math.max(this.minLimit, maxLimit);
+    int limit = Math.min(this.maxLimit, Math.max(this.minLimit, initialLimit));
+    this.estimate = new AtomicLong(Double.doubleToLongBits(limit));
+  }
+
+  /**
+   * Acquire one slot of the in-flight window
+   *
+   * @return false if the window is full
+   */
+  boolean tryAcquire() {
+    for (; ; ) {
+      int current = inFlight.get();
+      if (current >= limit()) {
+        return false;
+      }
+      if (inFlight.compareAndSet(current, current + 1)) {
+        return true;
+      }
+    }
+  }
+
+  /** Release slot without sample, e.g. submission cancelled. */
+  void release() {
+    inFlight.decrementAndGet();
+  }
+
+  /**
+   * Release slot and adjust the limit
+   *
+   * @param rtt round trip time of submission, in nanoseconds
+   * @param dropped true if platform failed the submission (5xx or timeout)
+   */
+  void release(long rtt, boolean dropped) {
+    int current = inFlight.getAndDecrement();
+    rtt = Math.max(1, rtt);
+    if (samples.incrementAndGet() % PROBE_SAMPLES == 0) {
+      minRtt.set(rtt);
+    } else {
+      minRtt.accumulateAndGet(rtt, Math::min);
+    }
+
+    long baseRtt = minRtt.get();
+    for (; ; ) {
+      long bits = estimate.get();
+      double before = Double.longBitsToDouble(bits);
+      double after = next(before, baseRtt, rtt, dropped, current);
+      if (after == before) {
+        return;
+      }
+      if (estimate.compareAndSet(bits, Double.doubleToLongBits(after))) {
+        return;
+      }
+    }
+  }
+
+  private double next(double before, long baseRtt, long rtt, boolean dropped, int inFlight) {
+    double log = Math.max(1, Math.log10(before));
+    double after;
+    if (dropped) {
+      after = before - log;
+    } else if (inFlight * 2 < before) {
+      // window is not used, the round trip time says nothing about the limit
+      return before;
+    } else {
+      double queue = before * (1 - (double) baseRtt / rtt);
+      if (queue <= log) {
+        after = before + 6 * log;
+      } else if (queue < 3 * log) {
+        after = before + log;
+      } else if (queue > 6 * log) {
+        after = before - log;
+      } else {
+        return before;
+      }
+    }
+    return Math.min(maxLimit, Math.max(minLimit, after));
+  }
+
+  int limit() {
+    return (int) Double.longBitsToDouble(estimate.get());
+  }
+
+  int inFlight() {
+    return inFlight.get();
+  }
+
+  /**
+   * Returns the minimal round trip time sampled
+   *
+   * @return nanoseconds, -1 if nothing sampled yet
+   */
+  long minRtt() {
+    long rtt = minRtt.get();
+    return rtt == Long.MAX_VALUE ? -1 : rtt;
+  }
+}
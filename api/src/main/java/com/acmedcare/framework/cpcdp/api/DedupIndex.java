@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2019 Acmedcare+
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.acmedcare.framework.cpcdp.api;
+
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * {@link DedupIndex}
+ *
+ * <p>Bounded index of the idempotency keys acknowledged by platform, the least recently used keys
+ * are evicted. A bloom filter in front answers most lookups of new keys without taking the lock of
+ * the map. Keys evicted stay in the filter, so the filter is rebuilt from the map once it took
+ * twice the capacity, new filter is swapped in whole, lookups never miss a key of the map.
+ *
+ * @author <a href="mailto:iskp.me@gmail.com">Elve.Xu</a>
+ * @version ${project.version} - 2019/11/29.
+ */
+final class DedupIndex {
+
+  private static final double FALSE_POSITIVE_RATE = 0.01;
+
+  private final int capacity;
+
+  /** acknowledged keys in access order, guards the fields below */
+  private final Map<String, Boolean> keys;
+
+  private volatile BloomFilter<CharSequence> filter;
+
+  /** keys put into filter */
+  private int added;
+
+  DedupIndex(int capacity) {
+    this.capacity = capacity;
+    this.keys =
+        new LinkedHashMap<String, Boolean>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+            return size() > DedupIndex.this.capacity;
+          }
+        };
+    this.filter = newFilter();
+  }
+
+  /**
+   * Check whether key is acknowledged
+   *
+   * @param key idempotency key
+   * @return true if key is in index
+   */
+  boolean contains(String key) {
+    if (!filter.mightContain(key)) {
+      return false;
+    }
+    synchronized (keys) {
+      return keys.get(key) != null;
+    }
+  }
+
+  void add(String key) {
+    synchronized (keys) {
+      if (keys.put(key, Boolean.TRUE) != null) {
+        return;
+      }
+      if (++added > capacity * 2) {
+        BloomFilter<CharSequence> rebuilt = newFilter();
+        for (String each : keys.keySet()) {
+          rebuilt.put(each);
+        }
+        added = keys.size();
+        filter = rebuilt;
+      } else {
+        filter.put(key);
+      }
+    }
+  }
+
+  int size() {
+    synchronized (keys) {
+      return keys.size();
+    }
+  }
+
+  private BloomFilter<CharSequence> newFilter() {
+    return BloomFilter.create(
+        Funnels.stringFunnel(StandardCharsets.UTF_8), capacity * 2, FALSE_POSITIVE_RATE);
+  }
+}
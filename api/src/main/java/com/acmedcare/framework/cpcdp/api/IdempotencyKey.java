@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2019 Acmedcare+
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.acmedcare.framework.cpcdp.api;
+
+import com.acmedcare.framework.cpcdp.annotation.IdentityKey;
+import com.acmedcare.framework.cpcdp.gson.BeanMetadata;
+import com.acmedcare.framework.cpcdp.kits.Reflections;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * {@link IdempotencyKey}
+ *
+ * <p>Stable key of one submission: bean class, values of its {@link IdentityKey} fields (e.g.
+ * <code>id</code> & <code>registerId</code> of register) and the 128-bit murmur3 hash of its json.
+ * A retry or a resubmission of the same record with the same content gets the same key, any
+ * change of content gets a new one.
+ *
+ * @author <a href="mailto:iskp.me@gmail.com">Elve.Xu</a>
+ * @version ${project.version} - 2019/11/29.
+ */
+public final class IdempotencyKey {
+
+  private IdempotencyKey() {}
+
+  /**
+   * Returns idempotency key of submission
+   *
+   * @param bean submitted bean
+   * @param json json of bean, see {@link com.acmedcare.framework.cpcdp.SerializerFactory#writeJson}
+   * @return key, e.g. <code>PatientRegisterBean:1001:R20191129001:9f86d081884c7d65...</code>
+   */
+  public static String of(Object bean, byte[] json) {
+    BeanMetadata metadata = BeanMetadata.of(bean.getClass());
+    StringBuilder key = new StringBuilder(96).append(bean.getClass().getSimpleName());
+    for (int i = 0; i < metadata.size(); i++) {
+      if (metadata.isIdentity(i)) {
+        try {
+          key.append(':').append(metadata.field(i).get(bean));
+        } catch (IllegalAccessException e) {
+          throw Reflections.convertReflectionExceptionToUnchecked(e);
+        }
+      }
+    }
+    return key.append(':').append(Hashing.murmur3_128().hashBytes(json)).toString();
+  }
+
+  /**
+   * Returns idempotency key of batch, the 128-bit murmur3 hash of the keys of its records in order.
+   * A batch resent with the same records gets the same key.
+   *
+   * @param keys idempotency keys of records, see {@link #of(Object, byte[])}
+   * @return key, e.g. <code>batch:100:9f86d081884c7d65...</code>
+   */
+  public static String ofBatch(List<String> keys) {
+    Hasher hasher = Hashing.murmur3_128().newHasher();
+    for (String key : keys) {
+      hasher.putString(key, StandardCharsets.UTF_8).putByte((byte) 0);
+    }
+    return "batch:" + keys.size() + ':' + hasher.hash();
+  }
+}
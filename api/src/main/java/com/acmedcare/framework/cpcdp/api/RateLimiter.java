@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2019 Acmedcare+
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.acmedcare.framework.cpcdp.api;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link RateLimiter}
+ *
+ * <p>Token bucket as generic cell rate algorithm: instead of counting tokens, the theoretical
+ * arrival time of next submission is kept in one atomic value. A permit reserved ahead of time
+ * tells the exact time to wait, so waiting submissions need no polling.
+ *
+ * @author <a href="mailto:iskp.me@gmail.com">Elve.Xu</a>
+ * @version ${project.version} - 2019/11/28.
+ */
+final class RateLimiter {
+
+  /** nanoseconds per permit */
+  private final long interval;
+
+  private final int burst;
+
+  /** nanoseconds a submission may arrive ahead of its theoretical time */
+  private final long tolerance;
+
+  /** theoretical arrival time of next submission */
+  private final AtomicLong arrival;
+
+  /**
+   * Create rate limiter
+   *
+   * @param permitsPerSecond rate
+   * @param burst permits available at once, the bucket is full initially
+   */
+  RateLimiter(double permitsPerSecond, int burst) {
+    this.interval = Math.max(1, (long) (1_000_000_000L / permitsPerSecond));
+    this.burst = Math.max(1, burst);
+    this.tolerance = interval * (this.burst - 1);
+    this.arrival = new AtomicLong(System.nanoTime());
+  }
+
+  /**
+   * Reserve one permit
+   *
+   * @param maxWait max nanoseconds to wait
+   * @return nanoseconds to wait for the reserved permit, -1 if it would take longer than max wait
+   *     (nothing reserved)
+   */
+  long reserve(long maxWait) {
+    for (; ; ) {
+      long now = System.nanoTime();
+      long current = arrival.get();
+      long wait = Math.max(0, current - tolerance - now);
+      if (wait > maxWait) {
+        return -1;
+      }
+      long next = (current - now > 0 ? current : now) + interval;
+      if (arrival.compareAndSet(current, next)) {
+        return wait;
+      }
+    }
+  }
+
+  /**
+   * Returns permits available without waiting
+   *
+   * @return count of permits
+   */
+  long available() {
+    long ahead = arrival.get() - System.nanoTime();
+    if (ahead > tolerance) {
+      return 0;
+    }
+    return Math.min(burst, (tolerance - Math.max(0, ahead)) / interval + 1);
+  }
+}
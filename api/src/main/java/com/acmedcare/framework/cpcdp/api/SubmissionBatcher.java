@@ -0,0 +1,302 @@
+/*
+ * Copyright (c) 2019 Acmedcare+
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.acmedcare.framework.cpcdp.api;
+
+import com.acmedcare.framework.cpcdp.CpcdpException;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link SubmissionBatcher}
+ *
+ * <p>Collects beans into batches per batch endpoint, a batch is flushed at {@link
+ * SubmissionOptions#getBatchMaxRecords()} records, {@link SubmissionOptions#getBatchMaxBytes()}
+ * bytes or {@link SubmissionOptions#getBatchLinger()}, whichever comes first. Beans are validated &
+ * serialized as they are added, the json of a batch is composed into one pooled buffer as a json
+ * array and posted in a single call. The result of every record is fanned back to its future, see
+ * {@link SubmissionResult#ofBatch(Object[], int, String)}.
+ *
+ * <p>Records acknowledged before are dropped by their {@link IdempotencyKey}, a batch is sent with
+ * the key hashed from the keys of its records, see {@link IdempotencyKey#ofBatch(List)}. A record
+ * failed with 5xx, timeout or io error joins a later batch after its own backoff, up to {@link
+ * SubmissionOptions#getMaxRetries()} times.
+ *
+ * <p>Beans whose class has no batch endpoint are submitted one by one.
+ *
+ * @author <a href="mailto:iskp.me@gmail.com">Elve.Xu</a>
+ * @version ${project.version} - 2019/11/26.
+ */
+public final class SubmissionBatcher implements Closeable {
+
+  private final SubmissionClient client;
+
+  private final int maxRecords;
+
+  private final int maxBytes;
+
+  private final long lingerMillis;
+
+  private final ScheduledExecutorService timer;
+
+  /** accumulators by batch endpoint path */
+  private final ConcurrentMap<String, Accumulator> accumulators = new ConcurrentHashMap<>();
+
+  private volatile boolean closed;
+
+  private SubmissionBatcher(SubmissionClient client) {
+    SubmissionOptions options = client.options();
+    this.client = client;
+    this.maxRecords = Math.max(1, options.getBatchMaxRecords());
+    this.maxBytes = Math.max(1, options.getBatchMaxBytes());
+    this.lingerMillis = Math.max(0, options.getBatchLinger().toMillis());
+    this.timer =
+        Executors.newSingleThreadScheduledExecutor(
+            runnable -> {
+              Thread thread = new Thread(runnable, "cpcdp-batcher");
+              thread.setDaemon(true);
+              return thread;
+            });
+  }
+
+  public static SubmissionBatcher create(SubmissionClient client) {
+    return new SubmissionBatcher(client);
+  }
+
+  /**
+   * Add bean to the batch of its endpoint
+   *
+   * @param bean register, first-aid or treatment bean
+   * @return future of result, completed exceptionally if bean is invalid, or no response is
+   *     received
+   */
+  public CompletableFuture<SubmissionResult> submit(Object bean) {
+    CompletableFuture<SubmissionResult> future = new CompletableFuture<>();
+    if (closed) {
+      future.completeExceptionally(new CpcdpException("批量提交已关闭"));
+      return future;
+    }
+
+    String path = bean == null ? null : client.batchPath(bean.getClass());
+    if (path == null) {
+      client.submit(bean).subscribe(future::complete, future::completeExceptionally);
+      return future;
+    }
+
+    byte[] json;
+    try {
+      json = client.encode(bean);
+    } catch (CpcdpException e) {
+      future.completeExceptionally(e);
+      return future;
+    }
+
+    String key = IdempotencyKey.of(bean, json);
+    if (client.isAcknowledged(key)) {
+      future.complete(SubmissionResult.duplicate(bean));
+      return future;
+    }
+
+    accumulator(path).add(new Pending(bean, json, key, future));
+    return future;
+  }
+
+  /** Flush all pending batches now. */
+  public void flush() {
+    for (Accumulator accumulator : accumulators.values()) {
+      accumulator.flush();
+    }
+  }
+
+  /** Flush pending batches, beans submitted afterwards are rejected. */
+  @Override
+  public void close() {
+    closed = true;
+    flush();
+    timer.shutdown();
+  }
+
+  private Accumulator accumulator(String path) {
+    return accumulators.computeIfAbsent(path, Accumulator::new);
+  }
+
+  private void send(String path, List<Pending> batch) {
+    if (batch == null) {
+      return;
+    }
+
+    Object[] beans = new Object[batch.size()];
+    List<String> keys = new ArrayList<>(batch.size());
+    int size = batch.size() + 1;
+    for (int i = 0; i < beans.length; i++) {
+      beans[i] = batch.get(i).bean;
+      keys.add(batch.get(i).key);
+      size += batch.get(i).json.length;
+    }
+
+    ByteBuf body = ByteBufAllocator.DEFAULT.buffer(size);
+    body.writeByte('[');
+    for (int i = 0; i < beans.length; i++) {
+      if (i > 0) {
+        body.writeByte(',');
+      }
+      body.writeBytes(batch.get(i).json);
+    }
+    body.writeByte(']');
+
+    client
+        .exchange(
+            path,
+            body,
+            IdempotencyKey.ofBatch(keys),
+            (status, text) -> SubmissionResult.ofBatch(beans, status, text))
+        .subscribe(
+            results -> {
+              for (int i = 0; i < results.length; i++) {
+                complete(path, batch.get(i), results[i]);
+              }
+            },
+            error -> {
+              for (Pending pending : batch) {
+                complete(path, pending, SubmissionResult.failed(pending.bean, error));
+              }
+            });
+  }
+
+  private void complete(String path, Pending pending, SubmissionResult result) {
+    if (pending.retries < client.maxRetries() && SubmissionClient.isRetryable(result)) {
+      pending.retries++;
+      pending.delay = client.retryDelay(pending.delay);
+      try {
+        timer.schedule(() -> accumulator(path).add(pending), pending.delay, TimeUnit.NANOSECONDS);
+        return;
+      } catch (RejectedExecutionException e) {
+        // closed, the result is final
+      }
+    }
+
+    if (result.getError() != null) {
+      pending.future.completeExceptionally(result.getError());
+    } else {
+      client.acknowledge(pending.key, result);
+      pending.future.complete(result);
+    }
+  }
+
+  private final class Pending {
+
+    private final Object bean;
+
+    private final byte[] json;
+
+    private final String key;
+
+    private final CompletableFuture<SubmissionResult> future;
+
+    private int retries;
+
+    /** delay of last retry in nanoseconds */
+    private long delay;
+
+    Pending(Object bean, byte[] json, String key, CompletableFuture<SubmissionResult> future) {
+      this.bean = bean;
+      this.json = json;
+      this.key = key;
+      this.future = future;
+      this.delay = client.options().getRetryBaseDelay().toNanos();
+    }
+  }
+
+  /** Pending batch of one endpoint, batches are sent outside of its lock. */
+  private final class Accumulator {
+
+    private final String path;
+
+    private List<Pending> records = new ArrayList<>();
+
+    /** bytes of json array composed of records */
+    private int bytes;
+
+    private ScheduledFuture<?> linger;
+
+    Accumulator(String path) {
+      this.path = path;
+    }
+
+    void add(Pending pending) {
+      List<Pending> full = null;
+      List<Pending> ready = null;
+      synchronized (this) {
+        int size = pending.json.length + 1;
+        if (!records.isEmpty() && bytes + size > maxBytes) {
+          full = drain();
+        }
+
+        records.add(pending);
+        bytes += size;
+        if (records.size() >= maxRecords || bytes >= maxBytes) {
+          ready = drain();
+        } else if (records.size() == 1) {
+          try {
+            linger = timer.schedule(this::flush, lingerMillis, TimeUnit.MILLISECONDS);
+          } catch (RejectedExecutionException e) {
+            // closed, retried records are sent at once
+            ready = drain();
+          }
+        }
+      }
+      send(path, full);
+      send(path, ready);
+    }
+
+    void flush() {
+      List<Pending> batch;
+      synchronized (this) {
+        batch = records.isEmpty() ? null : drain();
+      }
+      send(path, batch);
+    }
+
+    private List<Pending> drain() {
+      List<Pending> batch = records;
+      records = new ArrayList<>();
+      bytes = 0;
+      if (linger != null) {
+        linger.cancel(false);
+        linger = null;
+      }
+      return batch;
+    }
+  }
+}
@@ -0,0 +1,595 @@
+/*
+ * Copyright (c) 2019 Acmedcare+
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.acmedcare.framework.cpcdp.api;
+
+import com.acmedcare.framework.cpcdp.CpcdpException;
+import com.acmedcare.framework.cpcdp.SerializerFactory;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelOption;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.util.ReferenceCountUtil;
+import org.reactivestreams.Publisher;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.publisher.SignalType;
+import reactor.core.scheduler.Schedulers;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.netty.resources.LoopResources;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+
+/**
+ * {@link SubmissionClient}
+ *
+ * <p>Non-blocking client submitting register, first-aid and treatment beans to platform. Beans are
+ * validated & serialized before any connection is acquired, invalid beans fail with {@link
+ * CpcdpException} without network call. Requests share one fixed connection pool, so the in-flight
+ * submissions are bounded by {@link SubmissionOptions#getMaxConnections()} while a few event loop
+ * threads serve all of them.
+ *
+ * <p>Every submission is admitted by a circuit breaker, a token bucket rate limit and an adaptive
+ * limit of in-flight submissions, in this order. Submissions wait for the permits of limits up to
+ * {@link SubmissionOptions#getAcquireTimeout()}, then fail with {@link
+ * SubmissionRejectedException}, as they do at once while the breaker is open. Submissions waiting
+ * for the in-flight window are queued, each released slot is handed to the oldest one. None of
+ * them takes a lock, see {@link #metrics()} for their state.
+ *
+ * <pre>
+ *   SubmissionClient client = SubmissionClient.create(options);
+ *   client.submit(registerBean).subscribe(result -> ...);
+ * </pre>
+ *
+ * @author <a href="mailto:iskp.me@gmail.com">Elve.Xu</a>
+ * @version ${project.version} - 2019/11/26.
+ */
+public final class SubmissionClient implements Closeable {
+
+  private static final String NAME = "cpcdp-submission";
+
+  private final SubmissionOptions options;
+
+  private final ConnectionProvider provider;
+
+  /** null if the default loops of reactor-netty are shared */
+  private final LoopResources loops;
+
+  private final HttpClient client;
+
+  private final ConcurrencyLimiter limiter;
+
+  /** null if rate is not limited */
+  private final RateLimiter rateLimiter;
+
+  private final CircuitBreaker breaker;
+
+  /** submissions waiting for a slot of the in-flight window, oldest first */
+  private final Queue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+
+  private final LongAdder succeeded = new LongAdder();
+
+  private final LongAdder failed = new LongAdder();
+
+  private final LongAdder rejected = new LongAdder();
+
+  private final LongAdder retried = new LongAdder();
+
+  private final LongAdder deduplicated = new LongAdder();
+
+  /** null if resubmissions are not dropped */
+  private final DedupIndex dedup;
+
+  private SubmissionClient(SubmissionOptions options) {
+    if (options.getBaseUrl() == null) {
+      throw new CpcdpException("未配置平台地址");
+    }
+    this.options = options;
+    this.provider =
+        ConnectionProvider.fixed(
+            NAME, options.getMaxConnections(), options.getAcquireTimeout().toMillis());
+    this.loops =
+        options.getEventLoopThreads() > 0
+            ? LoopResources.create(NAME, options.getEventLoopThreads(), true)
+            : null;
+
+    int connectTimeout = (int) options.getConnectTimeout().toMillis();
+    this.client =
+        HttpClient.create(provider)
+            .baseUrl(options.getBaseUrl())
+            .keepAlive(options.isKeepAlive())
+            .headers(h -> h.set(HttpHeaderNames.CONTENT_TYPE, HttpHeaderValues.APPLICATION_JSON))
+            .tcpConfiguration(
+                tcp -> {
+                  tcp = tcp.option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeout);
+                  return loops == null ? tcp : tcp.runOn(loops);
+                });
+
+    this.limiter =
+        new ConcurrencyLimiter(
+            options.getConcurrencyLimit(),
+            options.getMinConcurrencyLimit(),
+            options.getMaxConnections());
+    this.rateLimiter =
+        options.getRateLimit() > 0
+            ? new RateLimiter(
+                options.getRateLimit(),
+                options.getRateBurst() > 0
+                    ? options.getRateBurst()
+                    : (int) Math.ceil(options.getRateLimit()))
+            : null;
+    this.breaker =
+        new CircuitBreaker(options.getFailureThreshold(), options.getOpenDuration().toNanos());
+    this.dedup = options.getDedupCapacity() > 0 ? new DedupIndex(options.getDedupCapacity()) : null;
+  }
+
+  public static SubmissionClient create(SubmissionOptions options) {
+    return new SubmissionClient(options);
+  }
+
+  /**
+   * Submit bean to the endpoint configured for its class. The submission carries its {@link
+   * IdempotencyKey}, it is dropped if platform acknowledged the same key before, and retried with
+   * decorrelated jitter backoff on 5xx, timeout, io error or rejection by limits, up to {@link
+   * SubmissionOptions#getMaxRetries()} times.
+   *
+   * @param bean register, first-aid or treatment bean
+   * @return result of platform response, error if bean is invalid, or no response is received
+   *     (e.g. connect or response timeout) after the last retry
+   */
+  public Mono<SubmissionResult> submit(Object bean) {
+    return Mono.fromCallable(() -> encode(bean))
+        .flatMap(
+            body -> {
+              String key = IdempotencyKey.of(bean, body);
+              if (isAcknowledged(key)) {
+                return Mono.just(SubmissionResult.duplicate(bean));
+              }
+              long delay = options.getRetryBaseDelay().toNanos();
+              return submit(bean, path(bean.getClass()), body, key, 0, delay);
+            });
+  }
+
+  private Mono<SubmissionResult> submit(
+      Object bean, String path, byte[] body, String key, int retries, long delay) {
+    return exchange(
+            path,
+            Unpooled.wrappedBuffer(body),
+            key,
+            (status, text) -> SubmissionResult.of(bean, status, text))
+        .onErrorResume(
+            e -> isRetryable(e) ? Mono.just(SubmissionResult.failed(bean, e)) : Mono.error(e))
+        .flatMap(
+            result -> {
+              if (retries < options.getMaxRetries() && isRetryable(result)) {
+                long next = retryDelay(delay);
+                return Mono.delay(Duration.ofNanos(next))
+                    .then(submit(bean, path, body, key, retries + 1, next));
+              }
+              if (result.getError() != null) {
+                return Mono.error(result.getError());
+              }
+              acknowledge(key, result);
+              return Mono.just(result);
+            });
+  }
+
+  /**
+   * Submit beans concurrently, up to {@link SubmissionOptions#getMaxConnections()} in flight. A
+   * failed submission does not cancel the others, it is emitted as result with {@link
+   * SubmissionResult#getError()}.
+   *
+   * @param beans beans to submit
+   * @return results, in the order of beans
+   */
+  public Flux<SubmissionResult> submitAll(Publisher<?> beans) {
+    return Flux.from(beans)
+        .flatMapSequential(
+            bean ->
+                submit(bean).onErrorResume(e -> Mono.just(SubmissionResult.failed(bean, e))),
+            options.getMaxConnections());
+  }
+
+  public Flux<SubmissionResult> submitAll(Iterable<?> beans) {
+    return submitAll(Flux.fromIterable(beans));
+  }
+
+  /** Dispose connection pool and event loops of client. */
+  @Override
+  public void close() {
+    provider.dispose();
+    if (loops != null) {
+      loops.dispose();
+    }
+  }
+
+  /**
+   * Post json body to platform
+   *
+   * @param path endpoint path
+   * @param body json body, released once written or once the request failed
+   * @param key idempotency key sent in header, null to send no key
+   * @param mapper maps http status and response body to result
+   * @param <R> result type
+   * @return result, error if no response is received
+   */
+  <R> Mono<R> exchange(
+      String path, ByteBuf body, String key, BiFunction<Integer, String, R> mapper) {
+    return admit(System.nanoTime() + options.getAcquireTimeout().toNanos())
+        .flatMap(
+            permit ->
+                client
+                    .headers(
+                        headers -> {
+                          if (key != null && options.getIdempotencyHeader() != null) {
+                            headers.set(options.getIdempotencyHeader(), key);
+                          }
+                          options.getSigner().sign(headers, body);
+                        })
+                    .post()
+                    .uri(path)
+                    .send(Mono.just(body))
+                    .responseSingle(
+                        (response, content) -> {
+                          permit.status = response.status().code();
+                          return content
+                              .asString(StandardCharsets.UTF_8)
+                              .defaultIfEmpty("")
+                              .map(text -> mapper.apply(permit.status, text));
+                        })
+                    .timeout(options.getResponseTimeout())
+                    .doOnSuccess(result -> permit.complete(null))
+                    .doOnError(permit::complete)
+                    .doOnCancel(permit::cancel))
+        .doFinally(
+            signal -> {
+              // body is never written if the connection failed
+              if (signal != SignalType.ON_COMPLETE && body.refCnt() > 0) {
+                ReferenceCountUtil.safeRelease(body);
+              }
+            });
+  }
+
+  /**
+   * Returns snapshot of the limits and counters of client
+   *
+   * @return metrics
+   */
+  public SubmissionMetrics metrics() {
+    long minRtt = limiter.minRtt();
+    return new SubmissionMetrics(
+        limiter.limit(),
+        limiter.inFlight(),
+        minRtt < 0 ? null : Duration.ofNanos(minRtt),
+        rateLimiter == null ? -1 : rateLimiter.available(),
+        breaker.state(),
+        succeeded.sum(),
+        failed.sum(),
+        rejected.sum(),
+        retried.sum(),
+        deduplicated.sum());
+  }
+
+  /**
+   * Check whether platform acknowledged the submission of key before
+   *
+   * @param key idempotency key
+   * @return true if the submission is to be dropped
+   */
+  boolean isAcknowledged(String key) {
+    if (dedup != null && dedup.contains(key)) {
+      deduplicated.increment();
+      return true;
+    }
+    return false;
+  }
+
+  void acknowledge(String key, SubmissionResult result) {
+    if (dedup != null && result.isSuccess()) {
+      dedup.add(key);
+    }
+  }
+
+  /**
+   * Check whether failed submission is worth a retry
+   *
+   * @param result result of submission
+   * @return true if no response is received, or platform responded 5xx
+   */
+  static boolean isRetryable(SubmissionResult result) {
+    return result.getError() != null ? isRetryable(result.getError()) : result.getStatus() >= 500;
+  }
+
+  private static boolean isRetryable(Throwable e) {
+    // invalid beans & configuration are never retried
+    return !(e instanceof CpcdpException) || e instanceof SubmissionRejectedException;
+  }
+
+  /**
+   * Returns delay of next retry, decorrelated jitter: random between base delay and 3 times the
+   * previous delay, capped by max delay
+   *
+   * @param previous previous delay in nanoseconds, base delay before the first retry
+   * @return delay in nanoseconds
+   */
+  long retryDelay(long previous) {
+    retried.increment();
+    long base = options.getRetryBaseDelay().toNanos();
+    long upper = Math.max(base + 1, previous * 3);
+    return Math.min(
+        options.getRetryMaxDelay().toNanos(), ThreadLocalRandom.current().nextLong(base, upper));
+  }
+
+  int maxRetries() {
+    return options.getMaxRetries();
+  }
+
+  private Mono<Permit> admit(long deadline) {
+    return Mono.defer(
+        () -> {
+          CircuitBreaker.State admitted = breaker.allow();
+          if (admitted == null) {
+            return reject("熔断中, 平台连续失败");
+          }
+          if (rateLimiter != null) {
+            long wait = rateLimiter.reserve(deadline - System.nanoTime());
+            if (wait < 0) {
+              return reject("超过提交速率限制");
+            }
+            if (wait > 0) {
+              return Mono.delay(Duration.ofNanos(wait)).then(acquire(admitted, deadline));
+            }
+          }
+          return acquire(admitted, deadline);
+        });
+  }
+
+  private Mono<Permit> acquire(CircuitBreaker.State admitted, long deadline) {
+    return Mono.defer(
+        () -> {
+          // a free slot is taken at once only if nobody waits for it
+          if (waiters.isEmpty() && limiter.tryAcquire()) {
+            return Mono.just(new Permit(admitted));
+          }
+          long timeout = deadline - System.nanoTime();
+          if (timeout <= 0) {
+            return reject("超过并发提交限制: " + limiter.limit());
+          }
+          return Mono.create(sink -> new Waiter(sink, admitted, timeout).enqueue());
+        });
+  }
+
+  /** Hand the free slots of in-flight window to waiters, oldest first. */
+  private void drain() {
+    for (Waiter waiter = waiters.peek(); waiter != null; waiter = waiters.peek()) {
+      if (!waiter.isWaiting()) {
+        // timed out or cancelled
+        waiters.remove(waiter);
+        continue;
+      }
+      if (!limiter.tryAcquire()) {
+        return;
+      }
+      // the head may have been taken by another thread meanwhile
+      waiter = waiters.poll();
+      if (waiter == null || !waiter.grant()) {
+        limiter.release();
+      }
+    }
+  }
+
+  private Mono<Permit> reject(String message) {
+    return Mono.error(rejection(message));
+  }
+
+  private SubmissionRejectedException rejection(String message) {
+    rejected.increment();
+    return new SubmissionRejectedException(message);
+  }
+
+  SubmissionOptions options() {
+    return options;
+  }
+
+  String path(Class<?> type) {
+    String path = find(options.getPaths(), type);
+    if (path == null) {
+      throw new CpcdpException("未配置提交路径, 类: " + type.getName());
+    }
+    return path;
+  }
+
+  /**
+   * Returns batch endpoint path of bean class
+   *
+   * @param type bean class
+   * @return path, null if no batch endpoint is configured
+   */
+  String batchPath(Class<?> type) {
+    return find(options.getBatchPaths(), type);
+  }
+
+  private static String find(Map<Class<?>, String> paths, Class<?> type) {
+    for (Class<?> clazz = type; clazz != null; clazz = clazz.getSuperclass()) {
+      String path = paths.get(clazz);
+      if (path != null) {
+        return path;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Validate & serialize bean
+   *
+   * @param bean bean to submit
+   * @return json bytes
+   * @throws CpcdpException if bean is invalid
+   */
+  byte[] encode(Object bean) {
+    if (bean == null) {
+      throw new CpcdpException("提交对象不能为空");
+    }
+    ByteArrayOutputStream out = new ByteArrayOutputStream(1024);
+    try {
+      SerializerFactory.writeJson(bean, out);
+    } catch (IOException e) {
+      throw new CpcdpException("序列化异常", e);
+    }
+    return out.toByteArray();
+  }
+
+  /** Slot of the in-flight window, released once with the outcome of submission. */
+  private final class Permit {
+
+    private final long start = System.nanoTime();
+
+    /** breaker state of admission, outcome of probe only changes half open breaker */
+    private final CircuitBreaker.State admitted;
+
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    /** http status, set once responded */
+    private volatile int status;
+
+    Permit(CircuitBreaker.State admitted) {
+      this.admitted = admitted;
+    }
+
+    /**
+     * Release with outcome, 5xx status and errors (e.g. timeout) count as failure
+     *
+     * @param error error of submission, null if responded
+     */
+    void complete(Throwable error) {
+      if (!released.compareAndSet(false, true)) {
+        return;
+      }
+      boolean failure = error != null || status >= 500;
+      limiter.release(System.nanoTime() - start, failure);
+      drain();
+      if (failure) {
+        failed.increment();
+        breaker.onFailure(admitted);
+      } else {
+        succeeded.increment();
+        breaker.onSuccess(admitted);
+      }
+    }
+
+    void cancel() {
+      if (released.compareAndSet(false, true)) {
+        limiter.release();
+        drain();
+      }
+    }
+  }
+
+  /**
+   * Submission waiting for a slot of the in-flight window. It ends exactly once: granted a permit
+   * by {@link #drain()}, rejected at deadline, or cancelled by subscriber.
+   */
+  private final class Waiter {
+
+    private static final int WAITING = 0;
+
+    private static final int GRANTED = 1;
+
+    private static final int DONE = 2;
+
+    private final MonoSink<Permit> sink;
+
+    private final CircuitBreaker.State admitted;
+
+    private final AtomicInteger state = new AtomicInteger(WAITING);
+
+    private final Disposable timer;
+
+    /** set before granted */
+    private volatile Permit permit;
+
+    Waiter(MonoSink<Permit> sink, CircuitBreaker.State admitted, long timeout) {
+      this.sink = sink;
+      this.admitted = admitted;
+      this.timer = Schedulers.parallel().schedule(this::expire, timeout, TimeUnit.NANOSECONDS);
+      sink.onCancel(this::cancel);
+    }
+
+    void enqueue() {
+      waiters.offer(this);
+      // a slot may have been released before queued
+      drain();
+    }
+
+    boolean isWaiting() {
+      return state.get() == WAITING;
+    }
+
+    /**
+     * Grant the acquired slot
+     *
+     * @return false if no longer waiting, the slot is to be released
+     */
+    boolean grant() {
+      Permit granted = new Permit(admitted);
+      permit = granted;
+      if (!state.compareAndSet(WAITING, GRANTED)) {
+        return false;
+      }
+      timer.dispose();
+      sink.success(granted);
+      return true;
+    }
+
+    private void expire() {
+      if (state.compareAndSet(WAITING, DONE)) {
+        sink.error(rejection("超过并发提交限制: " + limiter.limit()));
+      }
+    }
+
+    private void cancel() {
+      if (state.compareAndSet(WAITING, DONE)) {
+        timer.dispose();
+      } else if (state.get() == GRANTED) {
+        // cancelled before the permit was delivered, it is never released by submission
+        permit.cancel();
+      }
+    }
+  }
+}
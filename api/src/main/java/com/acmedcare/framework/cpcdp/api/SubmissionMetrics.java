@@ -0,0 +1,187 @@
+/*
+ * Copyright (c) 2019 Acmedcare+
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.acmedcare.framework.cpcdp.api;
+
+import java.time.Duration;
+
+/**
+ * {@link SubmissionMetrics}
+ *
+ * <p>Snapshot of the limits and counters of {@link SubmissionClient}, see {@link
+ * SubmissionClient#metrics()}.
+ *
+ * @author <a href="mailto:iskp.me@gmail.com">Elve.Xu</a>
+ * @version ${project.version} - 2019/11/28.
+ */
+public final class SubmissionMetrics {
+
+  private final int concurrencyLimit;
+
+  private final int inFlight;
+
+  private final Duration minRtt;
+
+  private final long availablePermits;
+
+  private final CircuitState circuitState;
+
+  private final long succeeded;
+
+  private final long failed;
+
+  private final long rejected;
+
+  private final long retried;
+
+  private final long deduplicated;
+
+  SubmissionMetrics(
+      int concurrencyLimit,
+      int inFlight,
+      Duration minRtt,
+      long availablePermits,
+      CircuitState circuitState,
+      long succeeded,
+      long failed,
+      long rejected,
+      long retried,
+      long deduplicated) {
+    this.concurrencyLimit = concurrencyLimit;
+    this.inFlight = inFlight;
+    this.minRtt = minRtt;
+    this.availablePermits = availablePermits;
+    this.circuitState = circuitState;
+    this.succeeded = succeeded;
+    this.failed = failed;
+    this.rejected = rejected;
+    this.retried = retried;
+    this.deduplicated = deduplicated;
+  }
+
+  /**
+   * Returns the current adaptive limit of in-flight submissions
+   *
+   * @return limit
+   */
+  public int getConcurrencyLimit() {
+    return concurrencyLimit;
+  }
+
+  public int getInFlight() {
+    return inFlight;
+  }
+
+  /**
+   * Returns the minimal round trip time, the baseline of adaptive limit
+   *
+   * @return round trip time, null if nothing sampled yet
+   */
+  public Duration getMinRtt() {
+    return minRtt;
+  }
+
+  /**
+   * Returns permits of rate limit available without waiting
+   *
+   * @return count of permits, -1 if rate is not limited
+   */
+  public long getAvailablePermits() {
+    return availablePermits;
+  }
+
+  public CircuitState getCircuitState() {
+    return circuitState;
+  }
+
+  /**
+   * Returns count of submissions responded without 5xx status
+   *
+   * @return count of submissions
+   */
+  public long getSucceeded() {
+    return succeeded;
+  }
+
+  /**
+   * Returns count of submissions failed with 5xx status, timeout or io error
+   *
+   * @return count of submissions
+   */
+  public long getFailed() {
+    return failed;
+  }
+
+  /**
+   * Returns count of submissions rejected by limits or circuit breaker
+   *
+   * @return count of submissions
+   */
+  public long getRejected() {
+    return rejected;
+  }
+
+  public long getRetried() {
+    return retried;
+  }
+
+  /**
+   * Returns count of submissions dropped, because platform acknowledged the same content before
+   *
+   * @return count of submissions
+   */
+  public long getDeduplicated() {
+    return deduplicated;
+  }
+
+  @Override
+  public String toString() {
+    return "SubmissionMetrics{concurrencyLimit="
+        + concurrencyLimit
+        + ", inFlight="
+        + inFlight
+        + ", minRtt="
+        + minRtt
+        + ", availablePermits="
+        + availablePermits
+        + ", circuitState="
+        + circuitState
+        + ", succeeded="
+        + succeeded
+        + ", failed="
+        + failed
+        + ", rejected="
+        + rejected
+        + ", retried="
+        + retried
+        + ", deduplicated="
+        + deduplicated
+        + '}';
+  }
+
+  /** State of circuit breaker */
+  public enum CircuitState {
+    CLOSED,
+    OPEN,
+    HALF_OPEN
+  }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2019 Acmedcare+
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.acmedcare.framework.cpcdp.api;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Singular;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * {@link SubmissionOptions}
+ *
+ * <p>Options of {@link SubmissionClient}. The endpoint of every bean class must be configured,
+ * e.g. <code>.path(PatientRegisterBean.class, "/Services/V2/ChestPainCenter/...")</code>. Bean
+ * classes whose endpoint accepts a json array of records may also configure a batch endpoint, used
+ * by {@link SubmissionBatcher}.
+ *
+ * @author <a href="mailto:iskp.me@gmail.com">Elve.Xu</a>
+ * @version ${project.version} - 2019/11/26.
+ */
+@Getter
+@Builder
+public class SubmissionOptions {
+
+  /** base url of platform, e.g. <code>http://[ip]:[port]</code> */
+  private final String baseUrl;
+
+  /** endpoint paths by bean class */
+  @Singular private final Map<Class<?>, String> paths;
+
+  /** batch endpoint paths by bean class */
+  @Singular private final Map<Class<?>, String> batchPaths;
+
+  /** max pooled connections, which is also the max in-flight submissions */
+  @Builder.Default private final int maxConnections = 500;
+
+  /** max time to wait for the permits of limits, and for a pooled connection */
+  @Builder.Default private final Duration acquireTimeout = Duration.ofSeconds(45);
+
+  @Builder.Default private final Duration connectTimeout = Duration.ofSeconds(10);
+
+  /** max time of one submission, including connection acquisition */
+  @Builder.Default private final Duration responseTimeout = Duration.ofSeconds(60);
+
+  @Builder.Default private final boolean keepAlive = true;
+
+  /** event loop threads of client, 0 to share the default loops of reactor-netty */
+  @Builder.Default private final int eventLoopThreads = 0;
+
+  @Builder.Default private final SubmissionSigner signer = SubmissionSigner.NONE;
+
+  /** initial in-flight submissions, the limit adapts to the round trip time of platform */
+  @Builder.Default private final int concurrencyLimit = 20;
+
+  /** the adaptive limit never goes below, it goes up to max connections */
+  @Builder.Default private final int minConcurrencyLimit = 1;
+
+  /** submissions per second, 0 for no rate limit */
+  @Builder.Default private final double rateLimit = 0;
+
+  /** submissions allowed at once under rate limit, 0 for one second of rate */
+  @Builder.Default private final int rateBurst = 0;
+
+  /** circuit breaker opens after so many consecutive 5xx or timeouts */
+  @Builder.Default private final int failureThreshold = 20;
+
+  /** circuit breaker lets a probe through once open so long */
+  @Builder.Default private final Duration openDuration = Duration.ofSeconds(30);
+
+  /** max retries of one record, retried on 5xx, timeout, io error or rejection by limits */
+  @Builder.Default private final int maxRetries = 3;
+
+  /** base of decorrelated jitter backoff between retries */
+  @Builder.Default private final Duration retryBaseDelay = Duration.ofMillis(200);
+
+  @Builder.Default private final Duration retryMaxDelay = Duration.ofSeconds(10);
+
+  /** header carrying idempotency key of single submission, null to send no key */
+  @Builder.Default private final String idempotencyHeader = "Idempotency-Key";
+
+  /** acknowledged idempotency keys remembered to drop resubmissions, 0 to disable */
+  @Builder.Default private final int dedupCapacity = 100_000;
+
+  /** batch is flushed once it has so many records */
+  @Builder.Default private final int batchMaxRecords = 100;
+
+  /** batch is flushed once its records have so many bytes of json */
+  @Builder.Default private final int batchMaxBytes = 1 << 20;
+
+  /** batch is flushed once its first record has waited so long */
+  @Builder.Default private final Duration batchLinger = Duration.ofMillis(50);
+}
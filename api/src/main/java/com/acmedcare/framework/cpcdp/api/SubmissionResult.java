@@ -0,0 +1,213 @@
+/*
+ * Copyright (c) 2019 Acmedcare+
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.acmedcare.framework.cpcdp.api;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+
+/**
+ * {@link SubmissionResult}
+ *
+ * <p>Result of one submission, either the response of platform (<code>{"ResultCode":"200",
+ * "Message":"..."}</code>) or the exception of failed submission.
+ *
+ * @author <a href="mailto:iskp.me@gmail.com">Elve.Xu</a>
+ * @version ${project.version} - 2019/11/26.
+ */
+public final class SubmissionResult {
+
+  private static final String SUCCESS_CODE = "200";
+
+  private final Object bean;
+
+  private final int status;
+
+  private final String resultCode;
+
+  private final String message;
+
+  private final Throwable error;
+
+  private final boolean duplicate;
+
+  private SubmissionResult(
+      Object bean, int status, String resultCode, String message, Throwable error) {
+    this(bean, status, resultCode, message, error, false);
+  }
+
+  private SubmissionResult(
+      Object bean,
+      int status,
+      String resultCode,
+      String message,
+      Throwable error,
+      boolean duplicate) {
+    this.bean = bean;
+    this.status = status;
+    this.resultCode = resultCode;
+    this.message = message;
+    this.error = error;
+    this.duplicate = duplicate;
+  }
+
+  /**
+   * Create result of platform response
+   *
+   * @param bean submitted bean
+   * @param status http status
+   * @param body response body, the raw body is kept as message if it is not json
+   * @return result
+   */
+  static SubmissionResult of(Object bean, int status, String body) {
+    return of(bean, status, body, parse(body));
+  }
+
+  /**
+   * Create results of batch response, fanned out to the records of batch. A json array of as many
+   * elements as records carries the result of every record, any other response is shared by all.
+   *
+   * @param beans submitted beans
+   * @param status http status
+   * @param body response body
+   * @return results, in the order of beans
+   */
+  static SubmissionResult[] ofBatch(Object[] beans, int status, String body) {
+    JsonElement element = parse(body);
+    SubmissionResult[] results = new SubmissionResult[beans.length];
+    if (element != null
+        && element.isJsonArray()
+        && element.getAsJsonArray().size() == beans.length) {
+      JsonArray array = element.getAsJsonArray();
+      for (int i = 0; i < beans.length; i++) {
+        results[i] = of(beans[i], status, array.get(i).toString(), array.get(i));
+      }
+    } else {
+      for (int i = 0; i < beans.length; i++) {
+        results[i] = of(beans[i], status, body, element);
+      }
+    }
+    return results;
+  }
+
+  private static SubmissionResult of(Object bean, int status, String body, JsonElement element) {
+    String resultCode = null;
+    String message = body;
+    if (element != null && element.isJsonObject()) {
+      JsonObject object = element.getAsJsonObject();
+      resultCode = string(object.get("ResultCode"));
+      message = string(object.get("Message"));
+    }
+    return new SubmissionResult(bean, status, resultCode, message, null);
+  }
+
+  private static JsonElement parse(String body) {
+    try {
+      return new JsonParser().parse(body);
+    } catch (JsonParseException e) {
+      // 非Json响应, 如网关错误页
+      return null;
+    }
+  }
+
+  /**
+   * Create result of submission dropped, because platform acknowledged the same content before
+   *
+   * @param bean submitted bean
+   * @return successful result
+   */
+  static SubmissionResult duplicate(Object bean) {
+    return new SubmissionResult(bean, 0, SUCCESS_CODE, "重复提交, 平台已确认", null, true);
+  }
+
+  static SubmissionResult failed(Object bean, Throwable error) {
+    return new SubmissionResult(bean, 0, null, error.getMessage(), error);
+  }
+
+  private static String string(JsonElement element) {
+    return element == null || element.isJsonNull() ? null : element.getAsString();
+  }
+
+  public Object getBean() {
+    return bean;
+  }
+
+  /**
+   * Returns http status of response
+   *
+   * @return http status, 0 if no response
+   */
+  public int getStatus() {
+    return status;
+  }
+
+  /**
+   * Returns <code>ResultCode</code> of response
+   *
+   * @return result code, null if no response or response is not json
+   */
+  public String getResultCode() {
+    return resultCode;
+  }
+
+  public String getMessage() {
+    return message;
+  }
+
+  /**
+   * Returns exception of failed submission, e.g. invalid bean, connect or response timeout
+   *
+   * @return exception, null if platform responded
+   */
+  public Throwable getError() {
+    return error;
+  }
+
+  /**
+   * Check whether submission is dropped before sent, see {@link IdempotencyKey}
+   *
+   * @return true if platform acknowledged the same content before
+   */
+  public boolean isDuplicate() {
+    return duplicate;
+  }
+
+  public boolean isSuccess() {
+    return duplicate || (error == null && status == 200 && SUCCESS_CODE.equals(resultCode));
+  }
+
+  @Override
+  public String toString() {
+    return "SubmissionResult{status="
+        + status
+        + ", resultCode="
+        + resultCode
+        + ", message="
+        + message
+        + (error == null ? "" : ", error=" + error)
+        + (duplicate ? ", duplicate" : "")
+        + '}';
+  }
+}
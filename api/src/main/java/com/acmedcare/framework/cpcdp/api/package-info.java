@@ -23,6 +23,8 @@
 /**
  * Api Package
  *
- * <p>
+ * <p>Non-blocking client submitting beans to platform, see {@link
+ * com.acmedcare.framework.cpcdp.api.SubmissionClient}. Requires <code>reactor-netty</code> on the
+ * classpath, which is an optional dependency of this module.
  */
 package com.acmedcare.framework.cpcdp.api;
@@ -32,6 +32,9 @@ import java.io.Serializable;
 /**
  * {@link Ctntbean}
  *
+ * <p>Element of {@link TreatmentBean#getCtnts()}. Its fields are not modelled yet, so the {@link
+ * javax.validation.Valid} cascade of treatment bean checks nothing inside it.
+ *
  * @author <a href="mailto:iskp.me@gmail.com">Elve.Xu</a>
  * @version ${project.version} - 2019/11/11.
  */
@@ -48,10 +48,10 @@ public class FirstAidBean implements Serializable {
   // ************************ 基本信息 ************************
 
   /** 住院 ID */
-  private String inpatientId;
+  @IdentityKey private String inpatientId;
 
   /** 门诊 ID */
-  private String outpatientId;
+  @IdentityKey private String outpatientId;
 
   /** 发病时间 */
   @Required private Date attackTime;
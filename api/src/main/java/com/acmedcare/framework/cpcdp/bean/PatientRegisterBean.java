@@ -25,6 +25,7 @@ package com.acmedcare.framework.cpcdp.bean;
 import com.acmedcare.framework.cpcdp.Status;
 import com.acmedcare.framework.cpcdp.annotation.Condition;
 import com.acmedcare.framework.cpcdp.annotation.Conditions;
+import com.acmedcare.framework.cpcdp.annotation.IdentityKey;
 import com.acmedcare.framework.cpcdp.annotation.JsonKey;
 import com.acmedcare.framework.cpcdp.annotation.Required;
 import com.acmedcare.framework.cpcdp.consts.*;
@@ -48,10 +49,10 @@ import java.io.Serializable;
 @SuppressWarnings("ALL")
 public class PatientRegisterBean implements Serializable {
 
-  private String id;
+  @IdentityKey private String id;
 
   /** 注册编号 */
-  private String registerId;
+  @IdentityKey private String registerId;
 
   /** 医院 ID */
   @Required private String hospitalId;
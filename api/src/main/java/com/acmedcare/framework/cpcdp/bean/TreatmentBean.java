@@ -27,6 +27,8 @@ import com.acmedcare.framework.cpcdp.annotation.*;
 import com.acmedcare.framework.cpcdp.consts.*;
 import lombok.*;
 
+import javax.validation.Valid;
+import javax.validation.constraints.Size;
 import java.io.Serializable;
 import java.util.Date;
 import java.util.List;
@@ -88,6 +90,8 @@ public class TreatmentBean extends SerializerBean implements Serializable {
    */
   @Required
   @Condition(field = "hasEcgImage", type = String.class, expectValue = "1")
+  @Size(max = 3)
+  @Valid
   private List<EcgBean> ecgs;
 
   /**
@@ -163,6 +167,7 @@ public class TreatmentBean extends SerializerBean implements Serializable {
    */
   @Required
   @Condition(field = "isCtnt", expectValue = "1", type = String.class)
+  @Valid
   private List<Ctntbean> ctnts;
 
   /**
@@ -0,0 +1,323 @@
+/*
+ * Copyright (c) 2019 Acmedcare+
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.acmedcare.framework.cpcdp.binary;
+
+import com.acmedcare.framework.cpcdp.CpcdpException;
+import com.acmedcare.framework.cpcdp.gson.BeanMetadata;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * {@link BinaryCodec}
+ *
+ * <p>Compact binary form of bean, for internal queues and storage. Fields are identified by id,
+ * the index of field in {@link BeanMetadata} (the order gson serializes them), and enum constants
+ * by ordinal. Both follow the declaration order, so the record starts with a hash of the schema
+ * (see {@link #schema(Class)}): a record written before fields or constants were added, removed
+ * or reordered is rejected instead of read into the wrong fields.
+ *
+ * <pre>
+ * record  := version(1 byte) schema(4 bytes) message
+ * message := varint(bitmapLength &lt;&lt; 1) bitmap value*
+ *          | varint(count &lt;&lt; 1 | 1) (varint(idGap) value)*
+ * </pre>
+ *
+ * <p>Only present fields are written, either marked in a presence bitmap or as varint id gaps,
+ * whichever is shorter for the record. Values are written as zigzag varints (integral numbers),
+ * fixed width floats, length prefixed UTF-8 strings, varint enum ordinals and epoch seconds of
+ * dates. Absent fields are exactly those absent from (or read back as null from) the json form,
+ * so json converts to binary and back without loss.
+ *
+ * @author <a href="mailto:iskp.me@gmail.com">Elve.Xu</a>
+ * @version ${project.version} - 2019/11/24.
+ * @param <T> bean type
+ */
+public final class BinaryCodec<T> {
+
+  static final int VERSION = 2;
+
+  private static final ClassValue<BinaryCodec<?>> codecs =
+      new ClassValue<BinaryCodec<?>>() {
+        @Override
+        protected BinaryCodec<?> computeValue(Class<?> type) {
+          return new BinaryCodec<>(type);
+        }
+      };
+
+  private final Class<T> type;
+
+  private final Constructor<T> constructor;
+
+  private final FieldCodec[] fields;
+
+  /** schema hash of type, see {@link #schema(Class)} */
+  private final int schema;
+
+  private BinaryCodec(Class<T> type) {
+    this.type = type;
+    try {
+      this.constructor = type.getDeclaredConstructor();
+      this.constructor.setAccessible(true);
+    } catch (NoSuchMethodException e) {
+      throw new CpcdpException("缺少无参构造方法, 类: " + type.getName(), e);
+    }
+
+    BeanMetadata metadata = BeanMetadata.of(type);
+    this.fields = new FieldCodec[metadata.size()];
+    for (int i = 0; i < fields.length; i++) {
+      fields[i] = FieldCodec.of(metadata.field(i));
+    }
+    this.schema = schema(type);
+  }
+
+  /**
+   * Returns codec of bean type, the codec is created once per class
+   *
+   * @param type bean type
+   * @param <T> bean type
+   * @return codec
+   * @throws CpcdpException if type has field of unsupported type
+   */
+  @SuppressWarnings("unchecked")
+  public static <T> BinaryCodec<T> of(Class<T> type) {
+    return (BinaryCodec<T>) codecs.get(type);
+  }
+
+  public Class<T> type() {
+    return type;
+  }
+
+  /**
+   * Encode bean
+   *
+   * @param bean bean instance, not null
+   * @return binary form
+   */
+  public byte[] encode(T bean) {
+    BinaryOutput out = new BinaryOutput(256);
+    out.writeByte(VERSION);
+    out.writeFixed32(schema);
+    write(out, bean);
+    return out.toByteArray();
+  }
+
+  /**
+   * Decode bean
+   *
+   * @param bytes binary form
+   * @return bean instance
+   * @throws CpcdpException if bytes are malformed
+   */
+  public T decode(byte[] bytes) {
+    return decode(bytes, 0, bytes.length);
+  }
+
+  /**
+   * Decode bean
+   *
+   * @param bytes bytes containing binary form
+   * @param offset offset of binary form
+   * @param length length of binary form
+   * @return bean instance
+   * @throws CpcdpException if bytes are malformed
+   */
+  public T decode(byte[] bytes, int offset, int length) {
+    try {
+      BinaryInput in = new BinaryInput(bytes, offset, length);
+      int version = in.readByte();
+      if (version != VERSION) {
+        throw new IllegalArgumentException("unsupported version: " + version);
+      }
+      int schema = in.readFixed32();
+      if (schema != this.schema) {
+        throw new IllegalArgumentException(
+            "schema mismatch: " + Integer.toHexString(schema) + ", class: " + type.getName());
+      }
+      T bean = read(in);
+      if (!in.exhausted()) {
+        throw new IllegalArgumentException("trailing bytes");
+      }
+      return bean;
+    } catch (CpcdpException e) {
+      throw e;
+    } catch (RuntimeException e) {
+      throw new CpcdpException("反序列化异常", e);
+    }
+  }
+
+  void write(BinaryOutput out, Object bean) {
+    try {
+      boolean[] present = new boolean[fields.length];
+      int count = 0;
+      int last = -1;
+      int gapsLength = 0;
+      for (int i = 0; i < fields.length; i++) {
+        if (fields[i].present(bean)) {
+          present[i] = true;
+          count++;
+          gapsLength += BinaryOutput.varintLength(i - last - 1);
+          last = i;
+        }
+      }
+
+      int bitmapLength = last / 8 + 1;
+      if (gapsLength < bitmapLength) {
+        out.writeVarint((long) count << 1 | 1);
+        last = -1;
+        for (int i = 0; i < fields.length; i++) {
+          if (present[i]) {
+            out.writeVarint(i - last - 1);
+            fields[i].write(out, bean);
+            last = i;
+          }
+        }
+        return;
+      }
+
+      out.writeVarint((long) bitmapLength << 1);
+      for (int i = 0; i < bitmapLength; i++) {
+        int bits = 0;
+        for (int bit = 0; bit < 8 && i * 8 + bit < fields.length; bit++) {
+          if (present[i * 8 + bit]) {
+            bits |= 1 << bit;
+          }
+        }
+        out.writeByte(bits);
+      }
+      for (int i = 0; i <= last; i++) {
+        if (present[i]) {
+          fields[i].write(out, bean);
+        }
+      }
+    } catch (IllegalAccessException e) {
+      throw new CpcdpException("序列化异常", e);
+    }
+  }
+
+  T read(BinaryInput in) {
+    try {
+      T bean = constructor.newInstance();
+      long header = in.readVarint();
+      int length = (int) Math.min(header >>> 1, Integer.MAX_VALUE);
+
+      if ((header & 1) != 0) {
+        long id = -1L;
+        for (int i = 0; i < length; i++) {
+          id += 1 + in.readVarint();
+          field(id).read(in, bean);
+        }
+        return bean;
+      }
+
+      if (length > (fields.length + 7) / 8) {
+        throw new IllegalArgumentException("bitmap length out of range: " + length);
+      }
+      byte[] bitmap = new byte[length];
+      for (int i = 0; i < length; i++) {
+        bitmap[i] = (byte) in.readByte();
+      }
+      for (int i = 0; i < length * 8; i++) {
+        if ((bitmap[i >>> 3] & (1 << (i & 7))) != 0) {
+          field(i).read(in, bean);
+        }
+      }
+      return bean;
+    } catch (ReflectiveOperationException e) {
+      throw new CpcdpException("反序列化异常", e);
+    }
+  }
+
+  /**
+   * Hash the schema of bean type: json names & generic types of fields in id order, the constants
+   * of enums in ordinal order and the schemas of nested beans.
+   *
+   * @param type bean type
+   * @return 32-bit murmur3 hash
+   */
+  static int schema(Class<?> type) {
+    Hasher hasher = Hashing.murmur3_32().newHasher();
+    Set<Class<?>> visited = new HashSet<>();
+    visited.add(type);
+    schema(type, hasher, visited);
+    return hasher.hash().asInt();
+  }
+
+  private static void schema(Class<?> type, Hasher hasher, Set<Class<?>> visited) {
+    BeanMetadata metadata = BeanMetadata.of(type);
+    List<Class<?>> referenced = new ArrayList<>();
+    for (int i = 0; i < metadata.size(); i++) {
+      Type fieldType = metadata.field(i).getGenericType();
+      hasher.putString(metadata.name(i), StandardCharsets.UTF_8).putByte((byte) 0);
+      hasher.putString(fieldType.getTypeName(), StandardCharsets.UTF_8).putByte((byte) 0);
+      collect(fieldType, referenced);
+    }
+
+    for (Class<?> clazz : referenced) {
+      if (clazz.isPrimitive() || clazz.getName().startsWith("java.") || !visited.add(clazz)) {
+        continue;
+      }
+      if (clazz.isEnum()) {
+        for (Object constant : clazz.getEnumConstants()) {
+          hasher.putString(((Enum<?>) constant).name(), StandardCharsets.UTF_8);
+          hasher.putByte((byte) 0);
+        }
+      } else {
+        // nested bean, its fields are identified by id too
+        schema(clazz, hasher, visited);
+      }
+    }
+  }
+
+  /** Collect the classes of type, e.g. <code>List</code> & <code>EcgBean</code> of a list */
+  private static void collect(Type type, List<Class<?>> classes) {
+    if (type instanceof Class) {
+      Class<?> clazz = (Class<?>) type;
+      if (clazz.isArray()) {
+        collect(clazz.getComponentType(), classes);
+      } else {
+        classes.add(clazz);
+      }
+    } else if (type instanceof ParameterizedType) {
+      collect(((ParameterizedType) type).getRawType(), classes);
+      for (Type argument : ((ParameterizedType) type).getActualTypeArguments()) {
+        collect(argument, classes);
+      }
+    }
+  }
+
+  private FieldCodec field(long id) {
+    if (id < 0 || id >= fields.length) {
+      throw new IllegalArgumentException("unknown field id: " + id + ", class: " + type.getName());
+    }
+    return fields[(int) id];
+  }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2019 Acmedcare+
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.acmedcare.framework.cpcdp.binary;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * {@link BinaryInput}
+ *
+ * <p>Reader of the encodings written by {@link BinaryOutput}, truncated or malformed input is
+ * reported as {@link IllegalArgumentException}.
+ *
+ * @author <a href="mailto:iskp.me@gmail.com">Elve.Xu</a>
+ * @version ${project.version} - 2019/11/24.
+ */
+final class BinaryInput {
+
+  private final byte[] bytes;
+
+  private int position;
+
+  private final int limit;
+
+  BinaryInput(byte[] bytes, int offset, int length) {
+    if (offset < 0 || length < 0 || offset + length > bytes.length) {
+      throw new IndexOutOfBoundsException("offset: " + offset + ", length: " + length);
+    }
+    this.bytes = bytes;
+    this.position = offset;
+    this.limit = offset + length;
+  }
+
+  boolean exhausted() {
+    return position == limit;
+  }
+
+  private void require(int length) {
+    if (length < 0 || length > limit - position) {
+      throw new IllegalArgumentException("truncated input at " + position);
+    }
+  }
+
+  int readByte() {
+    require(1);
+    return bytes[position++] & 0xFF;
+  }
+
+  long readVarint() {
+    long value = 0L;
+    for (int shift = 0; shift < 64; shift += 7) {
+      int b = readByte();
+      value |= (long) (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw new IllegalArgumentException("malformed varint at " + position);
+  }
+
+  /**
+   * Read unsigned varint which is a length or count
+   *
+   * @return value, not greater than the remaining bytes
+   */
+  int readLength() {
+    long value = readVarint();
+    if (value < 0 || value > limit - position) {
+      throw new IllegalArgumentException("length out of range: " + value + " at " + position);
+    }
+    return (int) value;
+  }
+
+  long readZigZag() {
+    long value = readVarint();
+    return (value >>> 1) ^ -(value & 1);
+  }
+
+  int readFixed32() {
+    require(4);
+    int value =
+        (bytes[position] & 0xFF)
+            | (bytes[position + 1] & 0xFF) << 8
+            | (bytes[position + 2] & 0xFF) << 16
+            | (bytes[position + 3] & 0xFF) << 24;
+    position += 4;
+    return value;
+  }
+
+  long readFixed64() {
+    long low = readFixed32() & 0xFFFFFFFFL;
+    return low | (long) readFixed32() << 32;
+  }
+
+  String readString() {
+    int length = readLength();
+    String value = new String(bytes, position, length, StandardCharsets.UTF_8);
+    position += length;
+    return value;
+  }
+}
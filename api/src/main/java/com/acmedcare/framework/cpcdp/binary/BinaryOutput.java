@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2019 Acmedcare+
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.acmedcare.framework.cpcdp.binary;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * {@link BinaryOutput}
+ *
+ * <p>Growable byte buffer with the primitive encodings of {@link BinaryCodec}: unsigned and
+ * zigzag varints, little endian fixed width floats, length prefixed UTF-8 strings.
+ *
+ * @author <a href="mailto:iskp.me@gmail.com">Elve.Xu</a>
+ * @version ${project.version} - 2019/11/24.
+ */
+final class BinaryOutput {
+
+  private byte[] bytes;
+
+  private int size;
+
+  BinaryOutput(int capacity) {
+    this.bytes = new byte[capacity];
+  }
+
+  int size() {
+    return size;
+  }
+
+  byte[] toByteArray() {
+    return Arrays.copyOf(bytes, size);
+  }
+
+  private void ensure(int length) {
+    if (size + length > bytes.length) {
+      bytes = Arrays.copyOf(bytes, Math.max(bytes.length << 1, size + length));
+    }
+  }
+
+  void writeByte(int value) {
+    ensure(1);
+    bytes[size++] = (byte) value;
+  }
+
+  void writeBytes(byte[] value, int offset, int length) {
+    ensure(length);
+    System.arraycopy(value, offset, bytes, size, length);
+    size += length;
+  }
+
+  void writeVarint(long value) {
+    ensure(10);
+    while ((value & ~0x7FL) != 0) {
+      bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    bytes[size++] = (byte) value;
+  }
+
+  void writeZigZag(long value) {
+    writeVarint((value << 1) ^ (value >> 63));
+  }
+
+  void writeFixed32(int value) {
+    ensure(4);
+    bytes[size++] = (byte) value;
+    bytes[size++] = (byte) (value >>> 8);
+    bytes[size++] = (byte) (value >>> 16);
+    bytes[size++] = (byte) (value >>> 24);
+  }
+
+  void writeFixed64(long value) {
+    writeFixed32((int) value);
+    writeFixed32((int) (value >>> 32));
+  }
+
+  void writeString(String value) {
+    byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+    writeVarint(utf8.length);
+    writeBytes(utf8, 0, utf8.length);
+  }
+
+  /**
+   * Returns encoded length of unsigned varint
+   *
+   * @param value value
+   * @return length in bytes, 1 ~ 10
+   */
+  static int varintLength(long value) {
+    int length = 1;
+    while ((value & ~0x7FL) != 0) {
+      value >>>= 7;
+      length++;
+    }
+    return length;
+  }
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright (c) 2019 Acmedcare+
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.acmedcare.framework.cpcdp.binary;
+
+import com.acmedcare.framework.cpcdp.CpcdpException;
+import com.acmedcare.framework.cpcdp.kits.Reflections;
+
+import java.lang.reflect.Field;
+
+/**
+ * {@link FieldCodec}
+ *
+ * <p>Binary encoding of one bean field. Primitive fields are accessed without boxing and are
+ * absent when zero (<code>false</code>), which reads back as the default value.
+ *
+ * @author <a href="mailto:iskp.me@gmail.com">Elve.Xu</a>
+ * @version ${project.version} - 2019/11/24.
+ */
+abstract class FieldCodec {
+
+  final Field field;
+
+  FieldCodec(Field field) {
+    Reflections.makeAccessible(field);
+    this.field = field;
+  }
+
+  abstract boolean present(Object bean) throws IllegalAccessException;
+
+  abstract void write(BinaryOutput out, Object bean) throws IllegalAccessException;
+
+  abstract void read(BinaryInput in, Object bean) throws IllegalAccessException;
+
+  static FieldCodec of(Field field) {
+    Class<?> type = field.getType();
+    if (type == int.class) {
+      return new IntField(field);
+    } else if (type == long.class) {
+      return new LongField(field);
+    } else if (type == float.class) {
+      return new FloatField(field);
+    } else if (type == double.class) {
+      return new DoubleField(field);
+    } else if (type == boolean.class) {
+      return new BooleanField(field);
+    }
+
+    ValueCodec codec = ValueCodec.of(field.getGenericType());
+    if (codec == null) {
+      throw new CpcdpException(
+          "不支持的属性类型: <" + field.getName() + ">, 类: " + field.getDeclaringClass().getName());
+    }
+    return new ObjectField(field, codec);
+  }
+
+  private static final class ObjectField extends FieldCodec {
+
+    private final ValueCodec codec;
+
+    ObjectField(Field field, ValueCodec codec) {
+      super(field);
+      this.codec = codec;
+    }
+
+    @Override
+    boolean present(Object bean) throws IllegalAccessException {
+      Object value = field.get(bean);
+      return value != null && codec.present(value);
+    }
+
+    @Override
+    void write(BinaryOutput out, Object bean) throws IllegalAccessException {
+      codec.write(out, field.get(bean));
+    }
+
+    @Override
+    void read(BinaryInput in, Object bean) throws IllegalAccessException {
+      field.set(bean, codec.read(in));
+    }
+  }
+
+  private static final class IntField extends FieldCodec {
+
+    IntField(Field field) {
+      super(field);
+    }
+
+    @Override
+    boolean present(Object bean) throws IllegalAccessException {
+      return field.getInt(bean) != 0;
+    }
+
+    @Override
+    void write(BinaryOutput out, Object bean) throws IllegalAccessException {
+      out.writeZigZag(field.getInt(bean));
+    }
+
+    @Override
+    void read(BinaryInput in, Object bean) throws IllegalAccessException {
+      field.setInt(bean, (int) in.readZigZag());
+    }
+  }
+
+  private static final class LongField extends FieldCodec {
+
+    LongField(Field field) {
+      super(field);
+    }
+
+    @Override
+    boolean present(Object bean) throws IllegalAccessException {
+      return field.getLong(bean) != 0L;
+    }
+
+    @Override
+    void write(BinaryOutput out, Object bean) throws IllegalAccessException {
+      out.writeZigZag(field.getLong(bean));
+    }
+
+    @Override
+    void read(BinaryInput in, Object bean) throws IllegalAccessException {
+      field.setLong(bean, in.readZigZag());
+    }
+  }
+
+  private static final class FloatField extends FieldCodec {
+
+    FloatField(Field field) {
+      super(field);
+    }
+
+    @Override
+    boolean present(Object bean) throws IllegalAccessException {
+      // -0.0f is written
+      return Float.floatToRawIntBits(field.getFloat(bean)) != 0;
+    }
+
+    @Override
+    void write(BinaryOutput out, Object bean) throws IllegalAccessException {
+      out.writeFixed32(Float.floatToRawIntBits(field.getFloat(bean)));
+    }
+
+    @Override
+    void read(BinaryInput in, Object bean) throws IllegalAccessException {
+      field.setFloat(bean, Float.intBitsToFloat(in.readFixed32()));
+    }
+  }
+
+  private static final class DoubleField extends FieldCodec {
+
+    DoubleField(Field field) {
+      super(field);
+    }
+
+    @Override
+    boolean present(Object bean) throws IllegalAccessException {
+      return Double.doubleToRawLongBits(field.getDouble(bean)) != 0L;
+    }
+
+    @Override
+    void write(BinaryOutput out, Object bean) throws IllegalAccessException {
+      out.writeFixed64(Double.doubleToRawLongBits(field.getDouble(bean)));
+    }
+
+    @Override
+    void read(BinaryInput in, Object bean) throws IllegalAccessException {
+      field.setDouble(bean, Double.longBitsToDouble(in.readFixed64()));
+    }
+  }
+
+  private static final class BooleanField extends FieldCodec {
+
+    BooleanField(Field field) {
+      super(field);
+    }
+
+    @Override
+    boolean present(Object bean) throws IllegalAccessException {
+      return field.getBoolean(bean);
+    }
+
+    @Override
+    void write(BinaryOutput out, Object bean) {
+      // presence is the value
+    }
+
+    @Override
+    void read(BinaryInput in, Object bean) throws IllegalAccessException {
+      field.setBoolean(bean, true);
+    }
+  }
+}
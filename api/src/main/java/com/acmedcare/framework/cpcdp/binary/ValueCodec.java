@@ -0,0 +1,351 @@
+/*
+ * Copyright (c) 2019 Acmedcare+
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.acmedcare.framework.cpcdp.binary;
+
+import com.acmedcare.framework.cpcdp.consts.CpcEnum;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * {@link ValueCodec}
+ *
+ * <p>Binary encoding of one non-primitive value type. A value is either written or absent, the
+ * values absent in binary are exactly the ones gson leaves out of (or reads back as null from) the
+ * json form, so both forms convert into each other without loss.
+ *
+ * @author <a href="mailto:iskp.me@gmail.com">Elve.Xu</a>
+ * @version ${project.version} - 2019/11/24.
+ */
+abstract class ValueCodec {
+
+  static final ValueCodec STRING =
+      new ValueCodec() {
+        @Override
+        void write(BinaryOutput out, Object value) {
+          out.writeString((String) value);
+        }
+
+        @Override
+        Object read(BinaryInput in) {
+          return in.readString();
+        }
+      };
+
+  static final ValueCodec INTEGER =
+      new ValueCodec() {
+        @Override
+        void write(BinaryOutput out, Object value) {
+          out.writeZigZag((Integer) value);
+        }
+
+        @Override
+        Object read(BinaryInput in) {
+          return (int) in.readZigZag();
+        }
+      };
+
+  static final ValueCodec LONG =
+      new ValueCodec() {
+        @Override
+        void write(BinaryOutput out, Object value) {
+          out.writeZigZag((Long) value);
+        }
+
+        @Override
+        Object read(BinaryInput in) {
+          return in.readZigZag();
+        }
+      };
+
+  static final ValueCodec FLOAT =
+      new ValueCodec() {
+        @Override
+        void write(BinaryOutput out, Object value) {
+          out.writeFixed32(Float.floatToRawIntBits((Float) value));
+        }
+
+        @Override
+        Object read(BinaryInput in) {
+          return Float.intBitsToFloat(in.readFixed32());
+        }
+      };
+
+  static final ValueCodec DOUBLE =
+      new ValueCodec() {
+        @Override
+        void write(BinaryOutput out, Object value) {
+          out.writeFixed64(Double.doubleToRawLongBits((Double) value));
+        }
+
+        @Override
+        Object read(BinaryInput in) {
+          return Double.longBitsToDouble(in.readFixed64());
+        }
+      };
+
+  static final ValueCodec BOOLEAN =
+      new ValueCodec() {
+        @Override
+        void write(BinaryOutput out, Object value) {
+          out.writeByte((Boolean) value ? 1 : 0);
+        }
+
+        @Override
+        Object read(BinaryInput in) {
+          return in.readByte() != 0;
+        }
+      };
+
+  /** Epoch seconds, json form of date has second precision. */
+  static final ValueCodec DATE =
+      new ValueCodec() {
+        @Override
+        void write(BinaryOutput out, Object value) {
+          out.writeZigZag(Math.floorDiv(((Date) value).getTime(), 1000L));
+        }
+
+        @Override
+        Object read(BinaryInput in) {
+          return new Date(Math.multiplyExact(in.readZigZag(), 1000L));
+        }
+      };
+
+  /**
+   * Check is value written
+   *
+   * @param value value, not null
+   * @return true if value is written, false if it is absent as null
+   */
+  boolean present(Object value) {
+    return true;
+  }
+
+  abstract void write(BinaryOutput out, Object value);
+
+  abstract Object read(BinaryInput in);
+
+  /**
+   * Resolve codec of type
+   *
+   * @param type declared type of field or element
+   * @return codec, null if type is not supported
+   */
+  static ValueCodec of(Type type) {
+    if (type instanceof ParameterizedType) {
+      ParameterizedType parameterized = (ParameterizedType) type;
+      Type raw = parameterized.getRawType();
+      if (raw == List.class || raw == Collection.class || raw == ArrayList.class) {
+        ValueCodec element = of(parameterized.getActualTypeArguments()[0]);
+        return element == null ? null : new ListCodec(element);
+      }
+      return null;
+    }
+    if (!(type instanceof Class)) {
+      return null;
+    }
+
+    Class<?> clazz = (Class<?>) type;
+    if (clazz == String.class) {
+      return STRING;
+    } else if (clazz == Integer.class) {
+      return INTEGER;
+    } else if (clazz == Long.class) {
+      return LONG;
+    } else if (clazz == Float.class) {
+      return FLOAT;
+    } else if (clazz == Double.class) {
+      return DOUBLE;
+    } else if (clazz == Boolean.class) {
+      return BOOLEAN;
+    } else if (clazz == Date.class) {
+      return DATE;
+    } else if (clazz.isEnum()) {
+      return new EnumCodec(clazz);
+    } else if (clazz.isArray()) {
+      Class<?> componentType = clazz.getComponentType();
+      return componentType.isEnum() && CpcEnum.class.isAssignableFrom(componentType)
+          ? new CpcEnumArrayCodec(componentType)
+          : null;
+    } else if (clazz.isPrimitive()
+        || clazz.isInterface()
+        || clazz.getName().startsWith("java")
+        || Modifier.isAbstract(clazz.getModifiers())) {
+      return null;
+    }
+    return new BeanCodec(clazz);
+  }
+
+  /** Enum constant as ordinal, one byte for enums of less than 128 constants. */
+  private static final class EnumCodec extends ValueCodec {
+
+    private final Object[] constants;
+
+    EnumCodec(Class<?> type) {
+      this.constants = type.getEnumConstants();
+    }
+
+    @Override
+    void write(BinaryOutput out, Object value) {
+      out.writeVarint(((Enum<?>) value).ordinal());
+    }
+
+    @Override
+    Object read(BinaryInput in) {
+      long ordinal = in.readVarint();
+      if (ordinal < 0 || ordinal >= constants.length) {
+        throw new IllegalArgumentException("ordinal out of range: " + ordinal);
+      }
+      return constants[(int) ordinal];
+    }
+  }
+
+  /**
+   * Cpc enum array as count and ordinals. As the delimited keys of json form, null constants and
+   * blank keys are skipped, an array without any key is absent.
+   */
+  private static final class CpcEnumArrayCodec extends ValueCodec {
+
+    private final Class<?> type;
+
+    private final Object[] constants;
+
+    /** is constant of ordinal written */
+    private final boolean[] written;
+
+    CpcEnumArrayCodec(Class<?> type) {
+      this.type = type;
+      this.constants = type.getEnumConstants();
+      this.written = new boolean[constants.length];
+      for (int i = 0; i < constants.length; i++) {
+        String key = ((CpcEnum) constants[i]).key();
+        written[i] = key != null && key.trim().length() > 0;
+      }
+    }
+
+    private boolean written(Object constant) {
+      return constant != null && written[((Enum<?>) constant).ordinal()];
+    }
+
+    @Override
+    boolean present(Object value) {
+      for (Object constant : (Object[]) value) {
+        if (written(constant)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    @Override
+    void write(BinaryOutput out, Object value) {
+      Object[] array = (Object[]) value;
+      int count = 0;
+      for (Object constant : array) {
+        if (written(constant)) {
+          count++;
+        }
+      }
+      out.writeVarint(count);
+      for (Object constant : array) {
+        if (written(constant)) {
+          out.writeVarint(((Enum<?>) constant).ordinal());
+        }
+      }
+    }
+
+    @Override
+    Object read(BinaryInput in) {
+      int count = in.readLength();
+      Object array = Array.newInstance(type, count);
+      for (int i = 0; i < count; i++) {
+        long ordinal = in.readVarint();
+        if (ordinal < 0 || ordinal >= constants.length) {
+          throw new IllegalArgumentException("ordinal out of range: " + ordinal);
+        }
+        Array.set(array, i, constants[(int) ordinal]);
+      }
+      return array;
+    }
+  }
+
+  /** List as count and elements, each element is prefixed by a null flag. */
+  private static final class ListCodec extends ValueCodec {
+
+    private final ValueCodec element;
+
+    ListCodec(ValueCodec element) {
+      this.element = element;
+    }
+
+    @Override
+    void write(BinaryOutput out, Object value) {
+      Collection<?> collection = (Collection<?>) value;
+      out.writeVarint(collection.size());
+      for (Object item : collection) {
+        if (item == null || !element.present(item)) {
+          out.writeByte(0);
+        } else {
+          out.writeByte(1);
+          element.write(out, item);
+        }
+      }
+    }
+
+    @Override
+    Object read(BinaryInput in) {
+      int count = in.readLength();
+      List<Object> list = new ArrayList<>(count);
+      for (int i = 0; i < count; i++) {
+        list.add(in.readByte() == 0 ? null : element.read(in));
+      }
+      return list;
+    }
+  }
+
+  /** Nested bean, the codec is resolved on first use so beans may refer to each other. */
+  private static final class BeanCodec extends ValueCodec {
+
+    private final Class<?> type;
+
+    BeanCodec(Class<?> type) {
+      this.type = type;
+    }
+
+    @Override
+    void write(BinaryOutput out, Object value) {
+      BinaryCodec.of(type).write(out, value);
+    }
+
+    @Override
+    Object read(BinaryInput in) {
+      return BinaryCodec.of(type).read(in);
+    }
+  }
+}
@@ -28,7 +28,7 @@ package com.acmedcare.framework.cpcdp.consts;
  * @author <a href="mailto:iskp.me@gmail.com">Elve.Xu</a>
  * @version ${project.version}
  */
-public enum AnticoagulationDrug {
+public enum AnticoagulationDrug implements CpcEnum {
 
   /** */
   SAD1("1", "普通肝素"),
@@ -44,10 +44,12 @@ public enum AnticoagulationDrug {
     this.value = value;
   }
 
+  @Override
   public String key() {
     return this.key;
   }
 
+  @Override
   public String value() {
     return value;
   }
@@ -28,7 +28,7 @@ package com.acmedcare.framework.cpcdp.consts;
  * @author <a href="mailto:iskp.me@gmail.com">Elve.Xu</a>
  * @version ${project.version}
  */
-public enum AttackZone {
+public enum AttackZone implements CpcEnum {
 
   /** */
   A1("1", "凌晨(0 点到 6 点)"),
@@ -47,10 +47,12 @@ public enum AttackZone {
     this.value = value;
   }
 
+  @Override
   public String key() {
     return this.key;
   }
 
+  @Override
   public String value() {
     return value;
   }
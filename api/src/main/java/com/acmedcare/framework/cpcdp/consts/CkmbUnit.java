@@ -28,7 +28,7 @@ package com.acmedcare.framework.cpcdp.consts;
  * @author <a href="mailto:iskp.me@gmail.com">Elve.Xu</a>
  * @version ${project.version}
  */
-public enum CkmbUnit {
+public enum CkmbUnit implements CpcEnum {
 
   /** */
   CKMB_U1("1", "ng/mL"),
@@ -43,10 +43,12 @@ public enum CkmbUnit {
     this.value = value;
   }
 
+  @Override
   public String key() {
     return this.key;
   }
 
+  @Override
   public String value() {
     return value;
   }
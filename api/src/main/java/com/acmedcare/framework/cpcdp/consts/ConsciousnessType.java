@@ -28,7 +28,7 @@ package com.acmedcare.framework.cpcdp.consts;
  * @author <a href="mailto:iskp.me@gmail.com">Elve.Xu</a>
  * @version ${project.version}
  */
-public enum ConsciousnessType {
+public enum ConsciousnessType implements CpcEnum {
 
   /** */
   C1("1", "清醒"),
@@ -45,10 +45,12 @@ public enum ConsciousnessType {
     this.value = value;
   }
 
+  @Override
   public String key() {
     return this.key;
   }
 
+  @Override
   public String value() {
     return value;
   }
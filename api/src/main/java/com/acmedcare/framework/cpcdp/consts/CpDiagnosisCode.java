@@ -28,7 +28,7 @@ package com.acmedcare.framework.cpcdp.consts;
  * @author <a href="mailto:iskp.me@gmail.com">Elve.Xu</a>
  * @version ${project.version}
  */
-public enum CpDiagnosisCode {
+public enum CpDiagnosisCode implements CpcEnum {
 
   /** */
   CPD_C1("1", "STEMI"),
@@ -48,10 +48,12 @@ public enum CpDiagnosisCode {
     this.value = value;
   }
 
+  @Override
   public String key() {
     return this.key;
   }
 
+  @Override
   public String value() {
     return value;
   }
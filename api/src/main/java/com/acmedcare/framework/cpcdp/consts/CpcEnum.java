@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2019 Acmedcare+
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.acmedcare.framework.cpcdp.consts;
+
+/**
+ * {@link CpcEnum}
+ *
+ * <p>Contract of the enums of CPCDP, the constant is serialized as its {@link #key()}. Every enum
+ * implementing it gets a json adapter registered automatically, see {@link
+ * com.acmedcare.framework.cpcdp.gson.CpcdpTypeAdapterFactory}.
+ *
+ * @author <a href="mailto:iskp.me@gmail.com">Elve.Xu</a>
+ * @version ${project.version} - 2019/11/22.
+ */
+public interface CpcEnum {
+
+  /**
+   * Key of constant, the value exchanged with CPCDP platform
+   *
+   * @return key, unique in enum
+   */
+  String key();
+
+  /**
+   * Description of constant
+   *
+   * @return description
+   */
+  String value();
+}
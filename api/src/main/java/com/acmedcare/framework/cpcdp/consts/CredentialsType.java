@@ -28,7 +28,7 @@ package com.acmedcare.framework.cpcdp.consts;
  * @author <a href="mailto:iskp.me@gmail.com">Elve.Xu</a>
  * @since ${project.version}
  */
-public enum CredentialsType {
+public enum CredentialsType implements CpcEnum {
 
   /** 无 */
   NON("0", "无"),
@@ -47,10 +47,12 @@ public enum CredentialsType {
     this.value = value;
   }
 
+  @Override
   public String key() {
     return this.key;
   }
 
+  @Override
   public String value() {
     return value;
   }
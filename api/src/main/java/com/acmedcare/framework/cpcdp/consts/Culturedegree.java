@@ -28,7 +28,7 @@ package com.acmedcare.framework.cpcdp.consts;
  * @author <a href="mailto:iskp.me@gmail.com">Elve.Xu</a>
  * @since ${project.version}
  */
-public enum Culturedegree {
+public enum Culturedegree implements CpcEnum {
 
   /** */
   C01("01", "没上过学"),
@@ -47,10 +47,12 @@ public enum Culturedegree {
     this.value = value;
   }
 
+  @Override
   public String key() {
     return this.key;
   }
 
+  @Override
   public String value() {
     return value;
   }
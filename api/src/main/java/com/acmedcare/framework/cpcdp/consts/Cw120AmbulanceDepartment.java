@@ -28,7 +28,7 @@ package com.acmedcare.framework.cpcdp.consts;
  * @author <a href="mailto:iskp.me@gmail.com">Elve.Xu</a>
  * @version ${project.version}
  */
-public enum Cw120AmbulanceDepartment {
+public enum Cw120AmbulanceDepartment implements CpcEnum {
 
   /** */
   CD1("1", "120 救护车"),
@@ -44,10 +44,12 @@ public enum Cw120AmbulanceDepartment {
     this.value = value;
   }
 
+  @Override
   public String key() {
     return this.key;
   }
 
+  @Override
   public String value() {
     return value;
   }
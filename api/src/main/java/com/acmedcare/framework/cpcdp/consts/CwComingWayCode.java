@@ -28,7 +28,7 @@ package com.acmedcare.framework.cpcdp.consts;
  * @author <a href="mailto:iskp.me@gmail.com">Elve.Xu</a>
  * @version ${project.version}
  */
-public enum CwComingWayCode {
+public enum CwComingWayCode implements CpcEnum {
 
   /** */
   C1("1", "呼叫(120 或其他)出车"),
@@ -45,10 +45,12 @@ public enum CwComingWayCode {
     this.value = value;
   }
 
+  @Override
   public String key() {
     return this.key;
   }
 
+  @Override
   public String value() {
     return value;
   }
@@ -28,7 +28,7 @@ package com.acmedcare.framework.cpcdp.consts;
  * @author <a href="mailto:iskp.me@gmail.com">Elve.Xu</a>
  * @version ${project.version}
  */
-public enum CwZyTransType {
+public enum CwZyTransType implements CpcEnum {
 
   /** */
   T1("1", "网络医院"),
@@ -43,10 +43,12 @@ public enum CwZyTransType {
     this.value = value;
   }
 
+  @Override
   public String key() {
     return this.key;
   }
 
+  @Override
   public String value() {
     return value;
   }
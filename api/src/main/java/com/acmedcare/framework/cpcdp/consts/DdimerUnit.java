@@ -28,7 +28,7 @@ package com.acmedcare.framework.cpcdp.consts;
  * @author <a href="mailto:iskp.me@gmail.com">Elve.Xu</a>
  * @version ${project.version}
  */
-public enum DdimerUnit {
+public enum DdimerUnit implements CpcEnum {
 
   /** */
   DDU1("1", "ng/mL"),
@@ -43,10 +43,12 @@ public enum DdimerUnit {
     this.value = value;
   }
 
+  @Override
   public String key() {
     return this.key;
   }
 
+  @Override
   public String value() {
     return value;
   }
@@ -28,7 +28,7 @@ package com.acmedcare.framework.cpcdp.consts;
  * @author <a href="mailto:iskp.me@gmail.com">Elve.Xu</a>
  * @version ${project.version}
  */
-public enum DistressCase {
+public enum DistressCase implements CpcEnum {
 
   /** */
   DC1("1", "持续性胸闷/胸痛"),
@@ -44,10 +44,12 @@ public enum DistressCase {
     this.value = value;
   }
 
+  @Override
   public String key() {
     return this.key;
   }
 
+  @Override
   public String value() {
     return value;
   }
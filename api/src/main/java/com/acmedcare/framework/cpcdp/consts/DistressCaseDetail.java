@@ -28,7 +28,7 @@ package com.acmedcare.framework.cpcdp.consts;
  * @author <a href="mailto:iskp.me@gmail.com">Elve.Xu</a>
  * @version ${project.version}
  */
-public enum DistressCaseDetail {
+public enum DistressCaseDetail implements CpcEnum {
 
   /** */
   DCD1("1", "呼吸困难"),
@@ -56,10 +56,12 @@ public enum DistressCaseDetail {
     this.value = value;
   }
 
+  @Override
   public String key() {
     return this.key;
   }
 
+  @Override
   public String value() {
     return value;
   }
@@ -28,7 +28,7 @@ package com.acmedcare.framework.cpcdp.consts;
  * @author <a href="mailto:iskp.me@gmail.com">Elve.Xu</a>
  * @since ${project.version}
  */
-public enum Gender {
+public enum Gender implements CpcEnum {
 
   /** 男 */
   MALE("1", "男"),
@@ -44,10 +44,12 @@ public enum Gender {
     this.value = value;
   }
 
+  @Override
   public String key() {
     return this.key;
   }
 
+  @Override
   public String value() {
     return value;
   }
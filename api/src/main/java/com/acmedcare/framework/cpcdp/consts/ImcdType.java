@@ -28,7 +28,7 @@ package com.acmedcare.framework.cpcdp.consts;
  * @author <a href="mailto:iskp.me@gmail.com">Elve.Xu</a>
  * @version ${project.version}
  */
-public enum ImcdType {
+public enum ImcdType implements CpcEnum {
 
   /** */
   IMCD_T1("1", "现场会诊"),
@@ -42,10 +42,12 @@ public enum ImcdType {
     this.value = value;
   }
 
+  @Override
   public String key() {
     return this.key;
   }
 
+  @Override
   public String value() {
     return value;
   }
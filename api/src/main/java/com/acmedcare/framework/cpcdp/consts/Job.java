@@ -28,7 +28,7 @@ package com.acmedcare.framework.cpcdp.consts;
  * @author <a href="mailto:iskp.me@gmail.com">Elve.Xu</a>
  * @since ${project.version}
  */
-public enum Job {
+public enum Job implements CpcEnum {
 
   /** */
   J01("01", "国家机关、党群组织、企事业单位 负责人"),
@@ -52,10 +52,12 @@ public enum Job {
     this.value = value;
   }
 
+  @Override
   public String key() {
     return this.key;
   }
 
+  @Override
   public String value() {
     return value;
   }
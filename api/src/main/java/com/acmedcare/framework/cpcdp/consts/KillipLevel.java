@@ -28,7 +28,7 @@ package com.acmedcare.framework.cpcdp.consts;
  * @author <a href="mailto:iskp.me@gmail.com">Elve.Xu</a>
  * @version ${project.version}
  */
-public enum KillipLevel {
+public enum KillipLevel implements CpcEnum {
 
   /** */
   SK_L1("1", "I 级(no CHF)"),
@@ -44,10 +44,12 @@ public enum KillipLevel {
     this.value = value;
   }
 
+  @Override
   public String key() {
     return this.key;
   }
 
+  @Override
   public String value() {
     return value;
   }
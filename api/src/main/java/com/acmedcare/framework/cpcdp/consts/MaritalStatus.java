@@ -28,7 +28,7 @@ package com.acmedcare.framework.cpcdp.consts;
  * @author <a href="mailto:iskp.me@gmail.com">Elve.Xu</a>
  * @since ${project.version}
  */
-public enum MaritalStatus {
+public enum MaritalStatus implements CpcEnum {
 
   /** */
   M01("01", "未婚"),
@@ -45,10 +45,12 @@ public enum MaritalStatus {
     this.value = value;
   }
 
+  @Override
   public String key() {
     return this.key;
   }
 
+  @Override
   public String value() {
     return value;
   }
@@ -28,7 +28,7 @@ package com.acmedcare.framework.cpcdp.consts;
  * @author <a href="mailto:iskp.me@gmail.com">Elve.Xu</a>
  * @version ${project.version}
  */
-public enum MedicalInsuranceType {
+public enum MedicalInsuranceType implements CpcEnum {
 
   /** */
   MI1("1", "城镇职工基本医疗保险"),
@@ -45,10 +45,12 @@ public enum MedicalInsuranceType {
     this.value = value;
   }
 
+  @Override
   public String key() {
     return this.key;
   }
 
+  @Override
   public String value() {
     return value;
   }
@@ -28,7 +28,7 @@ package com.acmedcare.framework.cpcdp.consts;
  * @author <a href="mailto:iskp.me@gmail.com">Elve.Xu</a>
  * @version ${project.version}
  */
-public enum NstemiGraceEstimate {
+public enum NstemiGraceEstimate implements CpcEnum {
 
   /** */
   NSGE_1("1", "发病后曾出现心脏骤停"),
@@ -44,10 +44,12 @@ public enum NstemiGraceEstimate {
     this.value = value;
   }
 
+  @Override
   public String key() {
     return this.key;
   }
 
+  @Override
   public String value() {
     return value;
   }
@@ -28,7 +28,7 @@ package com.acmedcare.framework.cpcdp.consts;
  * @author <a href="mailto:iskp.me@gmail.com">Elve.Xu</a>
  * @version ${project.version}
  */
-public enum NstemiGraceHrCondition {
+public enum NstemiGraceHrCondition implements CpcEnum {
 
   /** */
   NSGRC_1("1", "急性心力衰竭伴难治性心绞痛和 ST 段改变"),
@@ -46,10 +46,12 @@ public enum NstemiGraceHrCondition {
     this.value = value;
   }
 
+  @Override
   public String key() {
     return this.key;
   }
 
+  @Override
   public String value() {
     return value;
   }
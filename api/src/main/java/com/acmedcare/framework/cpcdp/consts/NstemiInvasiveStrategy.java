@@ -28,7 +28,7 @@ package com.acmedcare.framework.cpcdp.consts;
  * @author <a href="mailto:iskp.me@gmail.com">Elve.Xu</a>
  * @version ${project.version}
  */
-public enum NstemiInvasiveStrategy {
+public enum NstemiInvasiveStrategy implements CpcEnum {
 
   /** */
   NSIS1("1", "紧急介入治疗"),
@@ -45,10 +45,12 @@ public enum NstemiInvasiveStrategy {
     this.value = value;
   }
 
+  @Override
   public String key() {
     return this.key;
   }
 
+  @Override
   public String value() {
     return value;
   }
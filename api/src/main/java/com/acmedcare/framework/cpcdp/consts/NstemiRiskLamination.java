@@ -28,7 +28,7 @@ package com.acmedcare.framework.cpcdp.consts;
  * @author <a href="mailto:iskp.me@gmail.com">Elve.Xu</a>
  * @version ${project.version}
  */
-public enum NstemiRiskLamination {
+public enum NstemiRiskLamination implements CpcEnum {
 
   /** */
   RL1("1", "极高危"),
@@ -44,10 +44,12 @@ public enum NstemiRiskLamination {
     this.value = value;
   }
 
+  @Override
   public String key() {
     return this.key;
   }
 
+  @Override
   public String value() {
     return value;
   }
@@ -28,7 +28,7 @@ package com.acmedcare.framework.cpcdp.consts;
  * @author <a href="mailto:iskp.me@gmail.com">Elve.Xu</a>
  * @version ${project.version}
  */
-public enum NstemiRiskLaminationAG {
+public enum NstemiRiskLaminationAG implements CpcEnum {
 
   /** */
   RLX0("0", "未做"),
@@ -46,10 +46,12 @@ public enum NstemiRiskLaminationAG {
     this.value = value;
   }
 
+  @Override
   public String key() {
     return this.key;
   }
 
+  @Override
   public String value() {
     return value;
   }
@@ -28,7 +28,7 @@ package com.acmedcare.framework.cpcdp.consts;
  * @author <a href="mailto:iskp.me@gmail.com">Elve.Xu</a>
  * @version ${project.version}
  */
-public enum NstemiStrategy {
+public enum NstemiStrategy implements CpcEnum {
 
   /** */
   NSS1("1", "保守治疗(仅药物治疗)"),
@@ -42,10 +42,12 @@ public enum NstemiStrategy {
     this.value = value;
   }
 
+  @Override
   public String key() {
     return this.key;
   }
 
+  @Override
   public String value() {
     return value;
   }
@@ -28,7 +28,7 @@ package com.acmedcare.framework.cpcdp.consts;
  * @author <a href="mailto:iskp.me@gmail.com">Elve.Xu</a>
  * @version ${project.version}
  */
-public enum StemiDiagnosisUnitCodeDT {
+public enum StemiDiagnosisUnitCodeDT implements CpcEnum {
 
   /** */
   SDUC_DT1("1", "本院急诊科"),
@@ -43,10 +43,12 @@ public enum StemiDiagnosisUnitCodeDT {
     this.value = value;
   }
 
+  @Override
   public String key() {
     return this.key;
   }
 
+  @Override
   public String value() {
     return value;
   }
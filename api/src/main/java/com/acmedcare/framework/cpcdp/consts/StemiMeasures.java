@@ -28,7 +28,7 @@ package com.acmedcare.framework.cpcdp.consts;
  * @author <a href="mailto:iskp.me@gmail.com">Elve.Xu</a>
  * @version ${project.version}
  */
-public enum StemiMeasures {
+public enum StemiMeasures implements CpcEnum {
 
   /** */
   SM1("1", "直接 PCI"),
@@ -45,10 +45,12 @@ public enum StemiMeasures {
     this.value = value;
   }
 
+  @Override
   public String key() {
     return this.key;
   }
 
+  @Override
   public String value() {
     return value;
   }
@@ -28,7 +28,7 @@ package com.acmedcare.framework.cpcdp.consts;
  * @author <a href="mailto:iskp.me@gmail.com">Elve.Xu</a>
  * @version ${project.version}
  */
-public enum StemiMeasuresThrombolysis {
+public enum StemiMeasuresThrombolysis implements CpcEnum {
 
   /** */
   SMT1("1", "补救 PCI"),
@@ -42,10 +42,12 @@ public enum StemiMeasuresThrombolysis {
     this.value = value;
   }
 
+  @Override
   public String key() {
     return this.key;
   }
 
+  @Override
   public String value() {
     return value;
   }
@@ -28,7 +28,7 @@ package com.acmedcare.framework.cpcdp.consts;
  * @author <a href="mailto:iskp.me@gmail.com">Elve.Xu</a>
  * @version ${project.version}
  */
-public enum StemiNoReperfusionReason {
+public enum StemiNoReperfusionReason implements CpcEnum {
 
   /** */
   SNR_R1("1", "无明确胸痛，生命体征平稳"),
@@ -47,10 +47,12 @@ public enum StemiNoReperfusionReason {
     this.value = value;
   }
 
+  @Override
   public String key() {
     return this.key;
   }
 
+  @Override
   public String value() {
     return value;
   }
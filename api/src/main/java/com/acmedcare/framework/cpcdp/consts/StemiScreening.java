@@ -28,7 +28,7 @@ package com.acmedcare.framework.cpcdp.consts;
  * @author <a href="mailto:iskp.me@gmail.com">Elve.Xu</a>
  * @version ${project.version}
  */
-public enum StemiScreening {
+public enum StemiScreening implements CpcEnum {
 
   /** */
   SS1("1", "合适"),
@@ -43,10 +43,12 @@ public enum StemiScreening {
     this.value = value;
   }
 
+  @Override
   public String key() {
     return this.key;
   }
 
+  @Override
   public String value() {
     return value;
   }
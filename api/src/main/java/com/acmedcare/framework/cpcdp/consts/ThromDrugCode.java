@@ -28,7 +28,7 @@ package com.acmedcare.framework.cpcdp.consts;
  * @author <a href="mailto:iskp.me@gmail.com">Elve.Xu</a>
  * @version ${project.version}
  */
-public enum ThromDrugCode {
+public enum ThromDrugCode implements CpcEnum {
 
   /** */
   DTC1("1", "全量"),
@@ -42,10 +42,12 @@ public enum ThromDrugCode {
     this.value = value;
   }
 
+  @Override
   public String key() {
     return this.key;
   }
 
+  @Override
   public String value() {
     return value;
   }
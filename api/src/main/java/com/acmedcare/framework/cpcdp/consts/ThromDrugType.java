@@ -28,7 +28,7 @@ package com.acmedcare.framework.cpcdp.consts;
  * @author <a href="mailto:iskp.me@gmail.com">Elve.Xu</a>
  * @version ${project.version}
  */
-public enum ThromDrugType {
+public enum ThromDrugType implements CpcEnum {
 
   /** */
   DT1("1", "第一代"),
@@ -43,10 +43,12 @@ public enum ThromDrugType {
     this.value = value;
   }
 
+  @Override
   public String key() {
     return this.key;
   }
 
+  @Override
   public String value() {
     return value;
   }
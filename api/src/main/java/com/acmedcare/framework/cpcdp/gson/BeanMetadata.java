@@ -0,0 +1,201 @@
+/*
+ * Copyright (c) 2019 Acmedcare+
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.acmedcare.framework.cpcdp.gson;
+
+import com.acmedcare.framework.cpcdp.annotation.IdentityKey;
+import com.acmedcare.framework.cpcdp.kits.Reflections;
+import com.google.gson.annotations.SerializedName;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link BeanMetadata}
+ *
+ * <p>Serialized fields of bean class and their json names, computed once per class. Fields are in
+ * the order gson serializes them (declared fields of class, then of super class), static and
+ * transient fields are excluded, fields are made accessible. Json names are translated by {@link
+ * CpcdpFieldNamingStrategy} unless overridden by {@link SerializedName}, so the json writers,
+ * readers and validation reports share the very same names.
+ *
+ * @author <a href="mailto:iskp.me@gmail.com">Elve.Xu</a>
+ * @version ${project.version} - 2019/11/25.
+ */
+public final class BeanMetadata {
+
+  private static final ClassValue<BeanMetadata> metadata =
+      new ClassValue<BeanMetadata>() {
+        @Override
+        protected BeanMetadata computeValue(Class<?> type) {
+          return new BeanMetadata(type);
+        }
+      };
+
+  private final Class<?> type;
+
+  private final Field[] fields;
+
+  /** json names by index */
+  private final String[] names;
+
+  /** indexes by field name, fields of class shadow the ones of super class */
+  private final Map<String, Integer> fieldIndexes;
+
+  /** indexes by json name */
+  private final Map<String, Integer> nameIndexes;
+
+  /** indexes of {@link IdentityKey} fields */
+  private final BitSet identities;
+
+  private BeanMetadata(Class<?> type) {
+    this.type = type;
+
+    List<Field> list = new ArrayList<>();
+    for (Class<?> clazz = type;
+        clazz != null && clazz != Object.class && !clazz.isInterface();
+        clazz = clazz.getSuperclass()) {
+      for (Field field : clazz.getDeclaredFields()) {
+        int modifiers = field.getModifiers();
+        if (!Modifier.isStatic(modifiers)
+            && !Modifier.isTransient(modifiers)
+            && !field.isSynthetic()) {
+          Reflections.makeAccessible(field);
+          list.add(field);
+        }
+      }
+    }
+
+    this.fields = list.toArray(new Field[0]);
+    this.names = new String[fields.length];
+    Map<String, Integer> byField = new HashMap<>(fields.length * 2);
+    Map<String, Integer> byName = new HashMap<>(fields.length * 2);
+    this.identities = new BitSet(fields.length);
+    for (int i = 0; i < fields.length; i++) {
+      SerializedName serializedName = fields[i].getAnnotation(SerializedName.class);
+      names[i] =
+          serializedName == null
+              ? CpcdpFieldNamingStrategy.translate(fields[i])
+              : serializedName.value();
+      byField.putIfAbsent(fields[i].getName(), i);
+      byName.putIfAbsent(names[i], i);
+      if (fields[i].isAnnotationPresent(IdentityKey.class)) {
+        identities.set(i);
+      }
+    }
+    this.fieldIndexes = Collections.unmodifiableMap(byField);
+    this.nameIndexes = Collections.unmodifiableMap(byName);
+  }
+
+  /**
+   * Returns metadata of bean class, the metadata is created once per class
+   *
+   * @param type bean class
+   * @return metadata
+   */
+  public static BeanMetadata of(Class<?> type) {
+    return metadata.get(type);
+  }
+
+  /**
+   * Returns json name of field
+   *
+   * @param field field of bean class
+   * @return json name, from the metadata of declaring class if field is serialized
+   */
+  public static String jsonName(Field field) {
+    BeanMetadata declaring = of(field.getDeclaringClass());
+    Integer index = declaring.fieldIndexes.get(field.getName());
+    if (index != null && declaring.fields[index].equals(field)) {
+      return declaring.names[index];
+    }
+    return CpcdpFieldNamingStrategy.translate(field);
+  }
+
+  public Class<?> type() {
+    return type;
+  }
+
+  /**
+   * Returns count of serialized fields
+   *
+   * @return count of fields
+   */
+  public int size() {
+    return fields.length;
+  }
+
+  public Field field(int index) {
+    return fields[index];
+  }
+
+  public String name(int index) {
+    return names[index];
+  }
+
+  /**
+   * Check whether the field identifies the record
+   *
+   * @param index index of field
+   * @return true if field is annotated with {@link IdentityKey}
+   */
+  public boolean isIdentity(int index) {
+    return identities.get(index);
+  }
+
+  /**
+   * Check whether the record can be identified, e.g. by partial payloads
+   *
+   * @return true if any field is annotated with {@link IdentityKey}
+   */
+  public boolean hasIdentity() {
+    return !identities.isEmpty();
+  }
+
+  /**
+   * Returns index of field
+   *
+   * @param fieldName field name
+   * @return index, -1 if field is not serialized
+   */
+  public int indexOf(String fieldName) {
+    Integer index = fieldIndexes.get(fieldName);
+    return index == null ? -1 : index;
+  }
+
+  /**
+   * Returns index of field by json name, e.g. to resolve field of json key
+   *
+   * @param name json name
+   * @return index, -1 if no field has the json name
+   */
+  public int indexOfName(String name) {
+    Integer index = nameIndexes.get(name);
+    return index == null ? -1 : index;
+  }
+}
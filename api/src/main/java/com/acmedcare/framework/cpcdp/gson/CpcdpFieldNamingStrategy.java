@@ -31,6 +31,9 @@ import java.util.Locale;
 /**
  * {@link CpcdpFieldNamingStrategy}
  *
+ * <p>Json name of field is the value of {@link JsonKey}, or the upper snake case of field name.
+ * Names are translated once per field and kept by {@link BeanMetadata}.
+ *
  * @author <a href="mailto:iskp.me@gmail.com">Elve.Xu</a>
  * @version ${project.version} - 2019/11/6.
  */
@@ -44,21 +47,29 @@ public class CpcdpFieldNamingStrategy implements FieldNamingStrategy {
    */
   @Override
   public String translateName(Field f) {
-    if (f.isAnnotationPresent(JsonKey.class)) {
-      JsonKey key = f.getAnnotation(JsonKey.class);
-      if (key != null && key.value().trim().length() > 0) {
-        return key.value().toUpperCase(Locale.ENGLISH);
-      }
+    return BeanMetadata.jsonName(f);
+  }
+
+  /**
+   * Translate field name without cache
+   *
+   * @param f field
+   * @return the translated field name.
+   */
+  static String translate(Field f) {
+    JsonKey key = f.getAnnotation(JsonKey.class);
+    if (key != null && key.value().trim().length() > 0) {
+      return key.value().toUpperCase(Locale.ENGLISH);
     }
-    return separateCamelCase(f.getName(), "_").toUpperCase(Locale.ENGLISH);
+    return separateCamelCase(f.getName(), '_').toUpperCase(Locale.ENGLISH);
   }
 
   /**
    * Converts the field name that uses camel-case define word separation into separate words that
-   * are separated by the provided {@code separatorString}.
+   * are separated by the provided {@code separator}.
    */
-  private static String separateCamelCase(String name, String separator) {
-    StringBuilder translation = new StringBuilder();
+  private static String separateCamelCase(String name, char separator) {
+    StringBuilder translation = new StringBuilder(name.length() + 8);
     for (int i = 0, length = name.length(); i < length; i++) {
       char character = name.charAt(i);
       if (Character.isUpperCase(character) && translation.length() != 0) {
@@ -68,34 +79,4 @@ public class CpcdpFieldNamingStrategy implements FieldNamingStrategy {
     }
     return translation.toString();
   }
-
-  /** Ensures the JSON field names begins with an upper case letter. */
-  static String upperCaseFirstLetter(String name) {
-    StringBuilder fieldNameBuilder = new StringBuilder();
-    int index = 0;
-    char firstCharacter = name.charAt(index);
-    int length = name.length();
-
-    while (index < length - 1) {
-      if (Character.isLetter(firstCharacter)) {
-        break;
-      }
-
-      fieldNameBuilder.append(firstCharacter);
-      firstCharacter = name.charAt(++index);
-    }
-
-    if (!Character.isUpperCase(firstCharacter)) {
-      String modifiedTarget = modifyString(Character.toUpperCase(firstCharacter), name, ++index);
-      return fieldNameBuilder.append(modifiedTarget).toString();
-    } else {
-      return name;
-    }
-  }
-
-  private static String modifyString(char firstCharacter, String srcString, int indexOfSubstring) {
-    return (indexOfSubstring < srcString.length())
-        ? firstCharacter + srcString.substring(indexOfSubstring)
-        : String.valueOf(firstCharacter);
-  }
 }
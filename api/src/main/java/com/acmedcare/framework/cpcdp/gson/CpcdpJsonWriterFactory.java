@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2019 Acmedcare+
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.acmedcare.framework.cpcdp.gson;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link CpcdpJsonWriterFactory}
+ *
+ * <p>Serialize bean classes with the {@link GeneratedJsonWriter} generated by annotation processor,
+ * classes without generated writer fallback to the reflective adapter of gson.
+ *
+ * @author <a href="mailto:iskp.me@gmail.com">Elve.Xu</a>
+ * @version ${project.version} - 2019/11/21.
+ */
+public class CpcdpJsonWriterFactory implements TypeAdapterFactory {
+
+  private static final Logger log = LoggerFactory.getLogger(CpcdpJsonWriterFactory.class);
+
+  /**
+   * Returns a type adapter for {@code type}, or null if this factory doesn't support {@code type}.
+   *
+   * @param gson {@link Gson} instance
+   * @param type {@link TypeToken} instance
+   */
+  @Override
+  @SuppressWarnings("unchecked")
+  public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+
+    Class<? super T> clazz = type.getRawType();
+
+    // JDK classes, arrays, enums and parameterized types are never generated
+    if (type.getType() != clazz
+        || clazz.getClassLoader() == null
+        || clazz.isArray()
+        || clazz.isEnum()) {
+      return null;
+    }
+
+    GeneratedJsonWriter<T> writer = (GeneratedJsonWriter<T>) GeneratedJsonWriter.find(clazz);
+    if (writer == null) {
+      return null;
+    }
+
+    try {
+      writer.bind(gson, gson.getDelegateAdapter(this, type));
+      return writer;
+    } catch (Exception e) {
+      log.warn("Generated json writer of {} can't be bound, fallback to reflection", clazz, e);
+      return null;
+    }
+  }
+}
@@ -22,66 +22,45 @@
 
 package com.acmedcare.framework.cpcdp.gson;
 
-import com.acmedcare.framework.cpcdp.consts.*;
-import com.acmedcare.framework.cpcdp.gson.adapter.*;
-import com.google.common.collect.Maps;
+import com.acmedcare.framework.cpcdp.consts.CpcEnum;
+import com.acmedcare.framework.cpcdp.gson.adapter.CpcEnumArrayTypeAdapter;
+import com.acmedcare.framework.cpcdp.gson.adapter.CpcEnumTypeAdapter;
 import com.google.gson.Gson;
 import com.google.gson.TypeAdapter;
 import com.google.gson.TypeAdapterFactory;
 import com.google.gson.reflect.TypeToken;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
-import java.util.Map;
 
 /**
  * {@link CpcdpTypeAdapterFactory}
  *
+ * <p>Registers a {@link CpcEnumTypeAdapter} for every enum implementing {@link CpcEnum}, and a
+ * {@link CpcEnumArrayTypeAdapter} for arrays of such enum, the adapters are created once per class.
+ * Constants with body are classes of their own, they share the adapter of their enum class.
+ *
  * @author <a href="mailto:iskp.me@gmail.com">Elve.Xu</a>
  * @version ${project.version} - 2019/11/6.
  */
 public class CpcdpTypeAdapterFactory implements TypeAdapterFactory {
 
-  private static final Logger log = LoggerFactory.getLogger(CpcdpTypeAdapterFactory.class);
-
-  private static Map<Class, TypeAdapter> typeAdapters = Maps.newConcurrentMap();
-
-  static {
-    typeAdapters.put(Gender.class, new GenderEnumTypeAdapter());
-    typeAdapters.put(Job.class, new JobEnumTypeAdapter());
-    typeAdapters.put(MaritalStatus.class, new MaritalStatusEnumTypeAdapter());
-    typeAdapters.put(Culturedegree.class, new CulturedegreeEnumTypeAdapter());
-    typeAdapters.put(CredentialsType.class, new CredentialsTypeEnumTypeAdapter());
-    typeAdapters.put(AttackZone.class, new AttackZoneEnumTypeAdapter());
-    typeAdapters.put(Cw120AmbulanceDepartment.class, new Cw120AmbulanceDepartmentEnumTypeAdapter());
-    typeAdapters.put(CwComingWayCode.class, new CwComingWayCodeEnumTypeAdapter());
-    typeAdapters.put(CwZyTransType.class, new CwZyTransTypeEnumTypeAdapter());
-    typeAdapters.put(DistressCase.class, new DistressCaseEnumTypeAdapter());
-    typeAdapters.put(HospitalPosition.class, new HospitalPositionEnumTypeAdapter());
-    typeAdapters.put(MedicalInsuranceType.class, new MedicalInsuranceTypeEnumTypeAdapter());
-    typeAdapters.put(Screening.class, new ScreeningEnumTypeAdapter());
-    typeAdapters.put(ThromDrugCode.class, new ThromDrugCodeEnumTypeAdapter());
-    typeAdapters.put(ThromDrugType.class, new ThromDrugTypeEnumTypeAdapter());
-
-    typeAdapters.put(CkmbUnit.class, new CkmbUnitEnumTypeAdapter());
-    typeAdapters.put(CpDiagnosisCode.class, new CpDiagnosisCodeEnumTypeAdapter());
-    typeAdapters.put(DdimerUnit.class, new DdimerUnitEnumTypeAdapter());
-    typeAdapters.put(ImcdType.class, new ImcdTypeEnumTypeAdapter());
-    typeAdapters.put(MyoUnit.class, new MyoUnitEnumTypeAdapter());
-    typeAdapters.put(AnticoagulationDrug.class, new AnticoagulationDrugEnumTypeAdapter());
-    typeAdapters.put(KillipLevel.class, new KillipLevelEnumTypeAdapter());
-    typeAdapters.put(StemiMeasures.class, new StemiMeasuresEnumTypeAdapter());
-    typeAdapters.put(StemiMeasuresThrombolysis.class, new StemiMeasuresThrombolysisEnumTypeAdapter());
-    typeAdapters.put(StemiNoReperfusionReason.class, new StemiNoReperfusionReasonEnumTypeAdapter());
+  private static final ClassValue<TypeAdapter<?>> typeAdapters =
+      new ClassValue<TypeAdapter<?>>() {
+        @Override
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        protected TypeAdapter<?> computeValue(Class<?> type) {
+          return new CpcEnumTypeAdapter(type);
+        }
+      };
 
-    typeAdapters.put(StemiDiagnosisUnitCodeDT.class, new StemiDiagnosisUnitCodeDTEnumTypeAdapter());
-    typeAdapters.put(StemiScreening.class, new StemiScreeningEnumTypeAdapter());
-
-    typeAdapters.put(NstemiInvasiveStrategy.class, new NstemiInvasiveStrategyEnumTypeAdapter());
-    typeAdapters.put(NstemiRiskLaminationAG.class, new NstemiRiskLaminationAGEnumTypeAdapter());
-    typeAdapters.put(NstemiRiskLamination.class, new NstemiRiskLaminationEnumTypeAdapter());
-    typeAdapters.put(NstemiStrategy.class, new NstemiStrategyEnumTypeAdapter());
-  }
+  private static final ClassValue<TypeAdapter<?>> arrayTypeAdapters =
+      new ClassValue<TypeAdapter<?>>() {
+        @Override
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        protected TypeAdapter<?> computeValue(Class<?> type) {
+          Class<?> componentType = cpcEnum(type.getComponentType());
+          return new CpcEnumArrayTypeAdapter(
+              componentType, (CpcEnumTypeAdapter) typeAdapters.get(componentType));
+        }
+      };
 
   /**
    * Returns a type adapter for {@code type}, or null if this factory doesn't support {@code type}.
@@ -95,11 +74,45 @@ public class CpcdpTypeAdapterFactory implements TypeAdapterFactory {
 
     Class<?> clazz = type.getRawType();
 
-    if (typeAdapters.containsKey(clazz)) {
-      return typeAdapters.get(clazz);
+    Class<?> enumType = cpcEnum(clazz);
+    if (enumType != null) {
+      return (TypeAdapter<T>) typeAdapters.get(enumType);
+    }
+
+    if (clazz.isArray() && cpcEnum(clazz.getComponentType()) != null) {
+      return (TypeAdapter<T>) arrayTypeAdapters.get(clazz);
     }
 
     // default null
     return null;
   }
+
+  /**
+   * Check is the adapter registered by this factory, which writes the <code>key()</code> of cpc
+   * enum.
+   *
+   * @param type enum class
+   * @param adapter adapter of enum class
+   * @return true if {@code adapter} writes the key of {@code type}
+   */
+  static boolean isKeyAdapter(Class<?> type, TypeAdapter<?> adapter) {
+    Class<?> enumType = cpcEnum(type);
+    return adapter != null && enumType != null && typeAdapters.get(enumType) == adapter;
+  }
+
+  /**
+   * Resolve cpc enum class of type, as gson resolves enums: a constant with body is an anonymous
+   * subclass of its enum class
+   *
+   * @param type enum class, or class of constant
+   * @return enum class, null if type isn't cpc enum
+   */
+  private static Class<?> cpcEnum(Class<?> type) {
+    if (!Enum.class.isAssignableFrom(type)
+        || type == Enum.class
+        || !CpcEnum.class.isAssignableFrom(type)) {
+      return null;
+    }
+    return type.isEnum() ? type : type.getSuperclass();
+  }
 }
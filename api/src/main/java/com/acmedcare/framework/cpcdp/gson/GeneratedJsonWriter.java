@@ -0,0 +1,299 @@
+/*
+ * Copyright (c) 2019 Acmedcare+
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.acmedcare.framework.cpcdp.gson;
+
+import com.acmedcare.framework.cpcdp.validation.ValidationPass;
+import com.acmedcare.framework.cpcdp.validation.ValidationPlan;
+import com.acmedcare.framework.cpcdp.validation.ValidationProfile;
+import com.google.gson.FieldNamingStrategy;
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.annotations.SerializedName;
+import com.google.gson.internal.bind.ReflectiveTypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Type;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * {@link GeneratedJsonWriter}
+ *
+ * <p>Base class of the <code>XxxJsonWriter</code> classes generated by the CPCDP annotation
+ * processor (module <code>cpcdp-processor</code>). Generated writers emit the translated field
+ * names and the field values straight to {@link JsonWriter}, with direct getter calls and direct
+ * <code>key()</code> calls of cpc enums. Values of other types are delegated to the adapters of
+ * {@link Gson}, so the output is the same as the reflective adapter of gson.
+ *
+ * <p>Writing with a {@link ValidationPass}, the validation rules of every field are run right
+ * before the field is written, and writing stops at the first violation.
+ *
+ * <p>Reading is always delegated to the reflective adapter.
+ *
+ * @author <a href="mailto:iskp.me@gmail.com">Elve.Xu</a>
+ * @version ${project.version} - 2019/11/21.
+ * @param <T> bean type
+ */
+public abstract class GeneratedJsonWriter<T> extends TypeAdapter<T> {
+
+  private static final Logger log = LoggerFactory.getLogger(GeneratedJsonWriter.class);
+
+  /** Generated class name suffix */
+  public static final String SUFFIX = "JsonWriter";
+
+  private final Class<T> type;
+
+  /** serialized fields, in declaration order */
+  private final String[] fields;
+
+  private Gson gson;
+
+  private TypeAdapter<T> reader;
+
+  /** translated json names by slot */
+  private String[] names;
+
+  /** declared types by slot */
+  private Type[] types;
+
+  /** adapters of declared types by slot, null for primitive fields */
+  private TypeAdapter<Object>[] adapters;
+
+  /** cpc enum fields written by <code>key()</code> directly */
+  private boolean[] keyed;
+
+  /** rule positions by slot, indexed by {@link ValidationProfile#ordinal()}, resolved lazily */
+  private final AtomicReferenceArray<int[]> positions =
+      new AtomicReferenceArray<>(ValidationProfile.values().length);
+
+  protected GeneratedJsonWriter(Class<T> type, String[] fields) {
+    this.type = type;
+    this.fields = fields;
+  }
+
+  public Class<T> type() {
+    return type;
+  }
+
+  /**
+   * Write all fields of not null bean instance, generated by annotation processor.
+   *
+   * @param out json writer
+   * @param bean bean instance, not null
+   * @param pass validation pass of bean, may be null
+   * @throws IOException if write failed
+   */
+  protected abstract void writeFields(JsonWriter out, T bean, ValidationPass pass)
+      throws IOException;
+
+  @Override
+  public void write(JsonWriter out, T value) throws IOException {
+    write(out, value, null);
+  }
+
+  /**
+   * Validate and write bean in one pass, the output must be discarded if any violation found.
+   *
+   * @param out json writer
+   * @param value bean instance
+   * @param pass validation pass of bean, may be null
+   * @throws IOException if write failed
+   */
+  public void write(JsonWriter out, T value, ValidationPass pass) throws IOException {
+    if (value == null) {
+      out.nullValue();
+      return;
+    }
+    out.beginObject();
+    writeFields(out, value, pass);
+    out.endObject();
+  }
+
+  @Override
+  public T read(JsonReader in) throws IOException {
+    return reader.read(in);
+  }
+
+  /**
+   * Run the validation rules up to the field, then write the field name.
+   *
+   * @param out json writer
+   * @param slot field slot
+   * @param pass validation pass of bean, may be null
+   * @return false if any violation found, the field is not written
+   * @throws IOException if write failed
+   */
+  protected final boolean name(JsonWriter out, int slot, ValidationPass pass)
+      throws IOException {
+    if (pass != null && !pass.advance(positions(pass.plan())[slot])) {
+      return false;
+    }
+    out.name(names[slot]);
+    return true;
+  }
+
+  private int[] positions(ValidationPlan plan) {
+    int[] result = positions.get(plan.profile().ordinal());
+    if (result == null) {
+      result = new int[fields.length];
+      for (int i = 0; i < fields.length; i++) {
+        result[i] = plan.position(fields[i]);
+      }
+      positions.set(plan.profile().ordinal(), result);
+    }
+    return result;
+  }
+
+  /**
+   * Check is cpc enum value written by <code>key()</code> directly, otherwise it's written by
+   * {@link #write(JsonWriter, int, Object)}.
+   *
+   * @param slot field slot
+   * @param value field value
+   * @return true if value is not null, and the field is written by the cpc enum adapter
+   */
+  protected final boolean keyed(int slot, Object value) {
+    return value != null && keyed[slot];
+  }
+
+  /**
+   * Write field value with the adapter of gson, the adapter of runtime type is preferred the same
+   * way as the reflective adapter of gson.
+   *
+   * @param out json writer
+   * @param slot field slot
+   * @param value field value, may be null
+   * @throws IOException if write failed
+   */
+  @SuppressWarnings("unchecked")
+  protected final void write(JsonWriter out, int slot, Object value) throws IOException {
+    TypeAdapter<Object> adapter = adapters[slot];
+    Type declaredType = types[slot];
+    if (value != null && declaredType instanceof Class && value.getClass() != declaredType) {
+      TypeAdapter<Object> runtimeAdapter = (TypeAdapter<Object>) gson.getAdapter(value.getClass());
+      if (!isReflective(runtimeAdapter) || isReflective(adapter)) {
+        adapter = runtimeAdapter;
+      }
+    }
+    adapter.write(out, value);
+  }
+
+  /** Same as the float adapter of gson: special values are not allowed. */
+  protected static void writeFloat(JsonWriter out, float value) throws IOException {
+    checkValidFloatingPoint(value);
+    out.jsonValue(Float.toString(value));
+  }
+
+  /** Same as the double adapter of gson: special values are not allowed. */
+  protected static void writeDouble(JsonWriter out, double value) throws IOException {
+    checkValidFloatingPoint(value);
+    out.jsonValue(Double.toString(value));
+  }
+
+  private static void checkValidFloatingPoint(double value) {
+    if (Double.isNaN(value) || Double.isInfinite(value)) {
+      throw new IllegalArgumentException(
+          value
+              + " is not a valid double value as per JSON specification. To override this"
+              + " behavior, use GsonBuilder.serializeSpecialFloatingPointValues() method.");
+    }
+  }
+
+  private static boolean isReflective(TypeAdapter<?> adapter) {
+    return adapter instanceof ReflectiveTypeAdapterFactory.Adapter
+        || adapter instanceof GeneratedJsonWriter;
+  }
+
+  /**
+   * Bind writer to gson instance: translate field names, resolve the adapters of field types.
+   *
+   * @param gson gson instance
+   * @param reader reflective adapter of bean class
+   */
+  @SuppressWarnings("unchecked")
+  void bind(Gson gson, TypeAdapter<T> reader) throws NoSuchFieldException {
+    FieldNamingStrategy namingStrategy = gson.fieldNamingStrategy();
+
+    this.gson = gson;
+    this.reader = reader;
+    this.names = new String[fields.length];
+    this.types = new Type[fields.length];
+    this.adapters = new TypeAdapter[fields.length];
+    this.keyed = new boolean[fields.length];
+
+    for (int i = 0; i < fields.length; i++) {
+      Field field = type.getDeclaredField(fields[i]);
+      SerializedName serializedName = field.getAnnotation(SerializedName.class);
+      names[i] =
+          serializedName == null ? namingStrategy.translateName(field) : serializedName.value();
+      types[i] = field.getGenericType();
+
+      Class<?> fieldType = field.getType();
+      if (fieldType.isPrimitive()) {
+        continue;
+      }
+      adapters[i] = (TypeAdapter<Object>) gson.getAdapter(TypeToken.get(types[i]));
+      keyed[i] =
+          fieldType.isEnum()
+              && !hasConstantBody(fieldType)
+              && CpcdpTypeAdapterFactory.isKeyAdapter(fieldType, adapters[i]);
+    }
+  }
+
+  /** Constants with body are subclasses, gson writes them with the adapter of runtime type. */
+  private static boolean hasConstantBody(Class<?> enumType) {
+    for (Object constant : enumType.getEnumConstants()) {
+      if (constant.getClass() != enumType) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Find generated writer of bean class, a new instance is returned every time.
+   *
+   * @param type bean class
+   * @return generated writer, or null if bean class was not processed
+   */
+  static GeneratedJsonWriter<?> find(Class<?> type) {
+    try {
+      Class<?> clazz = Class.forName(type.getName() + SUFFIX, true, type.getClassLoader());
+      if (GeneratedJsonWriter.class.isAssignableFrom(clazz)) {
+        GeneratedJsonWriter<?> writer = (GeneratedJsonWriter<?>) clazz.newInstance();
+        if (writer.type() == type) {
+          return writer;
+        }
+      }
+    } catch (ClassNotFoundException e) {
+      // not processed, fallback to reflection
+    } catch (Exception e) {
+      log.warn("Generated json writer of {} can't be used, fallback to reflection", type.getName(), e);
+    }
+    return null;
+  }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2019 Acmedcare+
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.acmedcare.framework.cpcdp.gson.adapter;
+
+import com.acmedcare.framework.cpcdp.kits.TimestampCodec;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.internal.bind.util.ISO8601Utils;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.text.ParseException;
+import java.text.ParsePosition;
+import java.util.Date;
+
+/**
+ * {@link CpcDateTypeAdapter}
+ *
+ * <p>Adapter of {@link Date}, {@link Timestamp} and {@link java.sql.Date} with {@link
+ * TimestampCodec}, replaces the date adapter of <code>GsonBuilder#setDateFormat</code>, which
+ * locks a shared {@link java.text.DateFormat}. Texts not in the pattern of codec are parsed as ISO
+ * 8601, the same as gson.
+ *
+ * @author <a href="mailto:iskp.me@gmail.com">Elve.Xu</a>
+ * @version ${project.version} - 2019/11/22.
+ * @param <T> date type
+ */
+public class CpcDateTypeAdapter<T extends Date> extends TypeAdapter<T> {
+
+  private final Class<T> dateType;
+
+  private final TimestampCodec codec;
+
+  public CpcDateTypeAdapter(Class<T> dateType, TimestampCodec codec) {
+    if (dateType != Date.class && dateType != Timestamp.class && dateType != java.sql.Date.class) {
+      throw new IllegalArgumentException(
+          "Date type must be one of "
+              + Date.class
+              + ", "
+              + Timestamp.class
+              + ", or "
+              + java.sql.Date.class
+              + " but was "
+              + dateType);
+    }
+    this.dateType = dateType;
+    this.codec = codec;
+  }
+
+  @Override
+  public void write(JsonWriter out, T value) throws IOException {
+    if (value == null) {
+      out.nullValue();
+      return;
+    }
+    out.value(codec.format(value.getTime()));
+  }
+
+  @Override
+  public T read(JsonReader in) throws IOException {
+    if (in.peek() == JsonToken.NULL) {
+      in.nextNull();
+      return null;
+    }
+
+    long millis = parse(in.nextString(), codec);
+    if (dateType == Timestamp.class) {
+      return dateType.cast(new Timestamp(millis));
+    } else if (dateType == java.sql.Date.class) {
+      return dateType.cast(new java.sql.Date(millis));
+    }
+    return dateType.cast(new Date(millis));
+  }
+
+  static long parse(String text, TimestampCodec codec) {
+    try {
+      return codec.parse(text);
+    } catch (ParseException ignored) {
+      // fallback to ISO 8601
+    }
+    try {
+      return ISO8601Utils.parse(text, new ParsePosition(0)).getTime();
+    } catch (ParseException e) {
+      throw new JsonSyntaxException(text, e);
+    }
+  }
+}
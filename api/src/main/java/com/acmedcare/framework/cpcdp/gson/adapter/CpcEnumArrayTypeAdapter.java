@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2019 Acmedcare+
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.acmedcare.framework.cpcdp.gson.adapter;
+
+import com.acmedcare.framework.cpcdp.consts.CpcEnum;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.util.Arrays;
+
+/**
+ * {@link CpcEnumArrayTypeAdapter}
+ *
+ * <p>Adapter of any {@link CpcEnum} array, the constants are written as their keys delimited by
+ * <code>|</code>, e.g. <code>"1|10|99"</code>. Null constants and blank keys are skipped, an array
+ * without any key is written as null.
+ *
+ * <p>Keys are copied into one buffer sized up front, reading scans the text for delimiters and
+ * resolves each key in place by {@link CpcEnumTypeAdapter#of(String, int, int)}, unknown keys are
+ * skipped.
+ *
+ * @author <a href="mailto:iskp.me@gmail.com">Elve.Xu</a>
+ * @version ${project.version} - 2019/11/24.
+ * @param <E> enum type
+ */
+public class CpcEnumArrayTypeAdapter<E extends Enum<E> & CpcEnum> extends TypeAdapter<E[]> {
+
+  private static final char DELIMITER = '|';
+
+  private final Class<E> type;
+
+  private final CpcEnumTypeAdapter<E> keyAdapter;
+
+  /** keys indexed by ordinal, null if blank */
+  private final String[] keys;
+
+  public CpcEnumArrayTypeAdapter(Class<E> type, CpcEnumTypeAdapter<E> keyAdapter) {
+    this.type = type;
+    this.keyAdapter = keyAdapter;
+
+    E[] constants = type.getEnumConstants();
+    this.keys = new String[constants.length];
+    for (E constant : constants) {
+      String key = constant.key();
+      keys[constant.ordinal()] = isBlank(key) ? null : key;
+    }
+  }
+
+  private static boolean isBlank(String key) {
+    if (key != null) {
+      for (int i = 0; i < key.length(); i++) {
+        if (key.charAt(i) > ' ') {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public void write(JsonWriter out, E[] value) throws IOException {
+    if (value == null) {
+      out.nullValue();
+      return;
+    }
+
+    int length = -1;
+    for (E constant : value) {
+      String key = constant == null ? null : keys[constant.ordinal()];
+      if (key != null) {
+        length += key.length() + 1;
+      }
+    }
+    if (length < 0) {
+      out.nullValue();
+      return;
+    }
+
+    char[] buffer = new char[length];
+    int position = 0;
+    for (E constant : value) {
+      String key = constant == null ? null : keys[constant.ordinal()];
+      if (key != null) {
+        if (position > 0) {
+          buffer[position++] = DELIMITER;
+        }
+        key.getChars(0, key.length(), buffer, position);
+        position += key.length();
+      }
+    }
+    out.value(new String(buffer));
+  }
+
+  @Override
+  public E[] read(JsonReader in) throws IOException {
+    if (in.peek() == JsonToken.NULL) {
+      in.nextNull();
+      return null;
+    }
+
+    String text;
+    try {
+      text = in.nextString();
+    } catch (Exception e) {
+      throw new JsonSyntaxException(e);
+    }
+    return parse(text);
+  }
+
+  /**
+   * Parse delimited keys
+   *
+   * @param text delimited keys
+   * @return constants in order of keys, empty if no key is known
+   */
+  public E[] parse(String text) {
+    int count = 1;
+    for (int i = 0; i < text.length(); i++) {
+      if (text.charAt(i) == DELIMITER) {
+        count++;
+      }
+    }
+
+    @SuppressWarnings("unchecked")
+    E[] result = (E[]) Array.newInstance(type, count);
+    int size = 0;
+    int start = 0;
+    for (int i = 0; i <= text.length(); i++) {
+      if (i == text.length() || text.charAt(i) == DELIMITER) {
+        E constant = keyAdapter.of(text, start, i);
+        if (constant != null) {
+          result[size++] = constant;
+        }
+        start = i + 1;
+      }
+    }
+    return size == count ? result : Arrays.copyOf(result, size);
+  }
+}
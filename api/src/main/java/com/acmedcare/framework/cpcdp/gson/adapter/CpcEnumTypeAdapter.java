@@ -0,0 +1,203 @@
+/*
+ * Copyright (c) 2019 Acmedcare+
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.acmedcare.framework.cpcdp.gson.adapter;
+
+import com.acmedcare.framework.cpcdp.consts.CpcEnum;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.lang.reflect.Array;
+
+/**
+ * {@link CpcEnumTypeAdapter}
+ *
+ * <p>Adapter of any {@link CpcEnum}, the constant is written as its key. Reading resolves the key
+ * in constant time: the keys of most enums are small decimal numbers (<code>"1"</code>, <code>
+ * "09"</code>), which are looked up in a dense array indexed by number, others in an open
+ * addressing hash table. Keys can be resolved from a range of text without substring, see {@link
+ * #of(String, int, int)}. Unknown key is read as null.
+ *
+ * @author <a href="mailto:iskp.me@gmail.com">Elve.Xu</a>
+ * @version ${project.version} - 2019/11/22.
+ * @param <E> enum type
+ */
+public class CpcEnumTypeAdapter<E extends Enum<E> & CpcEnum> extends TypeAdapter<E> {
+
+  /** max length of dense lookup table */
+  private static final int DENSE_LIMIT = 1024;
+
+  /** constants indexed by the numeric value of key, null if keys are not dense numbers */
+  private final E[] dense;
+
+  /** constants by hash of key (linear probing), used if keys are not dense numbers */
+  private final E[] hashed;
+
+  public CpcEnumTypeAdapter(Class<E> type) {
+    E[] constants = type.getEnumConstants();
+    this.dense = dense(type, constants);
+    this.hashed = dense == null ? hashed(type, constants) : null;
+  }
+
+  private static <E extends Enum<E> & CpcEnum> E[] dense(Class<E> type, E[] constants) {
+    int max = -1;
+    for (E constant : constants) {
+      String key = constant.key();
+      int number = key == null ? -1 : number(key, 0, key.length());
+      if (number < 0) {
+        return null;
+      }
+      max = Math.max(max, number);
+    }
+    if (max >= DENSE_LIMIT) {
+      return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    E[] table = (E[]) Array.newInstance(type, max + 1);
+    for (E constant : constants) {
+      String key = constant.key();
+      int number = number(key, 0, key.length());
+      if (table[number] != null) {
+        // e.g. "1" & "01"
+        return null;
+      }
+      table[number] = constant;
+    }
+    return table;
+  }
+
+  private static <E extends Enum<E> & CpcEnum> E[] hashed(Class<E> type, E[] constants) {
+    // power of two, at most half full
+    int size = Integer.highestOneBit(Math.max(constants.length, 1) * 2 - 1) << 1;
+
+    @SuppressWarnings("unchecked")
+    E[] table = (E[]) Array.newInstance(type, size);
+    for (E constant : constants) {
+      String key = constant.key();
+      if (key == null) {
+        continue;
+      }
+      int slot = key.hashCode() & (size - 1);
+      while (table[slot] != null && !table[slot].key().equals(key)) {
+        slot = (slot + 1) & (size - 1);
+      }
+      if (table[slot] == null) {
+        // the first constant of duplicated key wins
+        table[slot] = constant;
+      }
+    }
+    return table;
+  }
+
+  /**
+   * Parse decimal key
+   *
+   * @param text text containing key
+   * @param start start index of key, inclusive
+   * @param end end index of key, exclusive
+   * @return numeric value of key, -1 if key isn't a decimal number less than {@link #DENSE_LIMIT}
+   */
+  private static int number(String text, int start, int end) {
+    if (start >= end || end - start > 4) {
+      return -1;
+    }
+    int number = 0;
+    for (int i = start; i < end; i++) {
+      char c = text.charAt(i);
+      if (c < '0' || c > '9') {
+        return -1;
+      }
+      number = number * 10 + (c - '0');
+    }
+    return number < DENSE_LIMIT ? number : -1;
+  }
+
+  /**
+   * Resolve constant of key
+   *
+   * @param key key
+   * @return constant, null if key is unknown
+   */
+  public E of(String key) {
+    return key == null ? null : of(key, 0, key.length());
+  }
+
+  /**
+   * Resolve constant of key within text, e.g. one key of delimited keys.
+   *
+   * @param text text containing key
+   * @param start start index of key, inclusive
+   * @param end end index of key, exclusive
+   * @return constant, null if key is unknown
+   */
+  public E of(String text, int start, int end) {
+    if (dense != null) {
+      int number = number(text, start, end);
+      if (number < 0 || number >= dense.length) {
+        return null;
+      }
+      E constant = dense[number];
+      return constant != null && matches(constant, text, start, end) ? constant : null;
+    }
+
+    // same as String.hashCode() of key
+    int hash = 0;
+    for (int i = start; i < end; i++) {
+      hash = 31 * hash + text.charAt(i);
+    }
+    int mask = hashed.length - 1;
+    for (int slot = hash & mask; hashed[slot] != null; slot = (slot + 1) & mask) {
+      if (matches(hashed[slot], text, start, end)) {
+        return hashed[slot];
+      }
+    }
+    return null;
+  }
+
+  private static boolean matches(CpcEnum constant, String text, int start, int end) {
+    String key = constant.key();
+    return key.length() == end - start && key.regionMatches(0, text, start, end - start);
+  }
+
+  @Override
+  public void write(JsonWriter out, E value) throws IOException {
+    out.value(value == null ? null : value.key());
+  }
+
+  @Override
+  public E read(JsonReader in) throws IOException {
+    if (in.peek() == JsonToken.NULL) {
+      in.nextNull();
+      return null;
+    }
+
+    try {
+      return of(in.nextString());
+    } catch (Exception e) {
+      throw new JsonSyntaxException(e);
+    }
+  }
+}
@@ -19,65 +19,48 @@
  * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
  * SOFTWARE.
  */
-
 package com.acmedcare.framework.cpcdp.gson.adapter;
 
-import com.acmedcare.framework.cpcdp.Status;
-import com.google.gson.JsonSyntaxException;
+import com.acmedcare.framework.cpcdp.kits.TimestampCodec;
 import com.google.gson.TypeAdapter;
 import com.google.gson.stream.JsonReader;
 import com.google.gson.stream.JsonToken;
 import com.google.gson.stream.JsonWriter;
 
 import java.io.IOException;
+import java.time.Instant;
 
 /**
- * {@link StatusEnumTypeAdapter}
+ * {@link InstantTypeAdapter}
+ *
+ * <p>Adapter of {@link Instant}, in the same format as {@link CpcDateTypeAdapter}.
  *
  * @author <a href="mailto:iskp.me@gmail.com">Elve.Xu</a>
- * @version ${project.version} - 2019/11/6.
+ * @version ${project.version} - 2019/11/22.
  */
-public class StatusEnumTypeAdapter extends TypeAdapter<Status> {
+public class InstantTypeAdapter extends TypeAdapter<Instant> {
 
-  private Status[] values = Status.values();
+  private final TimestampCodec codec;
+
+  public InstantTypeAdapter(TimestampCodec codec) {
+    this.codec = codec;
+  }
 
-  /**
-   * Writes one JSON value (an array, object, string, number, boolean or null) for {@code value}.
-   *
-   * @param out
-   * @param value the Java object to write. May be null.
-   */
   @Override
-  public void write(JsonWriter out, Status value) throws IOException {
-    out.value(value == null ? null : value.key());
+  public void write(JsonWriter out, Instant value) throws IOException {
+    if (value == null) {
+      out.nullValue();
+      return;
+    }
+    out.value(codec.format(value.toEpochMilli()));
   }
 
-  /**
-   * Reads one JSON value (an array, object, string, number, boolean or null) and converts it to a
-   * Java object. Returns the converted object.
-   *
-   * @param in
-   * @return the converted Java object. May be null.
-   */
   @Override
-  public Status read(JsonReader in) throws IOException {
+  public Instant read(JsonReader in) throws IOException {
     if (in.peek() == JsonToken.NULL) {
       in.nextNull();
       return null;
     }
-
-    try {
-      String key = in.nextString();
-      for (Status temp : values) {
-        if (temp.key().equals(key)) {
-          return temp;
-        }
-      }
-
-      // default
-      return null;
-    } catch (Exception e) {
-      throw new JsonSyntaxException(e);
-    }
+    return Instant.ofEpochMilli(CpcDateTypeAdapter.parse(in.nextString(), codec));
   }
 }
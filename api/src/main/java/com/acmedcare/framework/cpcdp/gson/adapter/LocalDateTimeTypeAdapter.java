@@ -19,10 +19,9 @@
  * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
  * SOFTWARE.
  */
-
 package com.acmedcare.framework.cpcdp.gson.adapter;
 
-import com.acmedcare.framework.cpcdp.consts.Job;
+import com.acmedcare.framework.cpcdp.kits.TimestampCodec;
 import com.google.gson.JsonSyntaxException;
 import com.google.gson.TypeAdapter;
 import com.google.gson.stream.JsonReader;
@@ -30,54 +29,47 @@ import com.google.gson.stream.JsonToken;
 import com.google.gson.stream.JsonWriter;
 
 import java.io.IOException;
+import java.text.ParseException;
+import java.time.LocalDateTime;
 
 /**
- * {@link JobEnumTypeAdapter}
+ * {@link LocalDateTimeTypeAdapter}
+ *
+ * <p>Adapter of {@link LocalDateTime}, in the pattern of {@link TimestampCodec}, without time zone
+ * conversion.
  *
  * @author <a href="mailto:iskp.me@gmail.com">Elve.Xu</a>
- * @version ${project.version} - 2019/11/6.
+ * @version ${project.version} - 2019/11/22.
  */
-public class JobEnumTypeAdapter extends TypeAdapter<Job> {
+public class LocalDateTimeTypeAdapter extends TypeAdapter<LocalDateTime> {
 
-  private Job[] values = Job.values();
+  private final TimestampCodec codec;
+
+  public LocalDateTimeTypeAdapter(TimestampCodec codec) {
+    this.codec = codec;
+  }
 
-  /**
-   * Writes one JSON value (an array, object, string, number, boolean or null) for {@code value}.
-   *
-   * @param out
-   * @param value the Java object to write. May be null.
-   */
   @Override
-  public void write(JsonWriter out, Job value) throws IOException {
-    out.value(value == null ? null : value.key());
+  public void write(JsonWriter out, LocalDateTime value) throws IOException {
+    if (value == null) {
+      out.nullValue();
+      return;
+    }
+    out.value(codec.format(value));
   }
 
-  /**
-   * Reads one JSON value (an array, object, string, number, boolean or null) and converts it to a
-   * Java object. Returns the converted object.
-   *
-   * @param in
-   * @return the converted Java object. May be null.
-   */
   @Override
-  public Job read(JsonReader in) throws IOException {
+  public LocalDateTime read(JsonReader in) throws IOException {
     if (in.peek() == JsonToken.NULL) {
       in.nextNull();
       return null;
     }
 
+    String text = in.nextString();
     try {
-      String key = in.nextString();
-      for (Job temp : values) {
-        if (temp.key().equals(key)) {
-          return temp;
-        }
-      }
-
-      // default
-      return null;
-    } catch (Exception e) {
-      throw new JsonSyntaxException(e);
+      return codec.parseLocalDateTime(text);
+    } catch (ParseException e) {
+      throw new JsonSyntaxException(text, e);
     }
   }
 }
@@ -0,0 +1,295 @@
+/*
+ * Copyright (c) 2019 Acmedcare+
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.acmedcare.framework.cpcdp.kits;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * {@link TimestampCodec}
+ *
+ * <p>Thread-safe codec of timestamp pattern <code>yyyy-MM-dd HH:mm:ss</code>, same output as
+ * {@link SimpleDateFormat} of the pattern (locale {@link Locale#US}). Timestamps are formatted by
+ * hand, without lock and without {@link java.util.Calendar}, the <code>yyyy-MM-dd </code> prefix of
+ * the last formatted day is cached. Timestamps out of years 1600 ~ 9999, and texts not exactly in
+ * the pattern, fallback to a thread local {@link SimpleDateFormat}.
+ *
+ * @author <a href="mailto:iskp.me@gmail.com">Elve.Xu</a>
+ * @version ${project.version} - 2019/11/22.
+ */
+public final class TimestampCodec {
+
+  public static final String PATTERN = "yyyy-MM-dd HH:mm:ss";
+
+  /** length of formatted timestamp */
+  public static final int LENGTH = PATTERN.length();
+
+  private static final long MILLIS_PER_SECOND = 1000L;
+
+  private static final long MILLIS_PER_DAY = 24 * 60 * 60 * MILLIS_PER_SECOND;
+
+  private static final DateTimeFormatter FORMATTER =
+      DateTimeFormatter.ofPattern(PATTERN, Locale.US);
+
+  /** local millis of 1600-01-01 00:00:00 */
+  private static final long MIN_LOCAL = LocalDate.of(1600, 1, 1).toEpochDay() * MILLIS_PER_DAY;
+
+  /** local millis of 10000-01-01 00:00:00 */
+  private static final long MAX_LOCAL = LocalDate.of(10000, 1, 1).toEpochDay() * MILLIS_PER_DAY;
+
+  /** local time offset never changes twice in that period, see {@link #parse(String)} */
+  private static final long TRANSITION_MARGIN = MILLIS_PER_DAY / 2;
+
+  private final TimeZone zone;
+
+  private final ThreadLocal<SimpleDateFormat> fallback;
+
+  private final ThreadLocal<char[]> buffers = ThreadLocal.withInitial(() -> new char[LENGTH]);
+
+  /** the last formatted day, replaced as a whole */
+  private volatile Day day = new Day(0L, LocalDate.ofEpochDay(0L));
+
+  public TimestampCodec(TimeZone zone) {
+    this.zone = (TimeZone) zone.clone();
+    this.fallback =
+        ThreadLocal.withInitial(
+            () -> {
+              SimpleDateFormat format = new SimpleDateFormat(PATTERN, Locale.US);
+              format.setTimeZone(this.zone);
+              return format;
+            });
+  }
+
+  public TimeZone zone() {
+    return (TimeZone) zone.clone();
+  }
+
+  /**
+   * Format timestamp in the time zone of codec
+   *
+   * @param millis milliseconds since epoch
+   * @return formatted timestamp
+   */
+  public String format(long millis) {
+    long local = millis + zone.getOffset(millis);
+    if (local < MIN_LOCAL || local >= MAX_LOCAL) {
+      return fallback.get().format(new Date(millis));
+    }
+    char[] buffer = buffers.get();
+    formatLocal(local, buffer, 0);
+    return new String(buffer, 0, LENGTH);
+  }
+
+  /**
+   * Format timestamp in the time zone of codec into buffer
+   *
+   * @param millis milliseconds since epoch
+   * @param buffer buffer
+   * @param offset offset of buffer
+   * @return count of chars written
+   */
+  public int format(long millis, char[] buffer, int offset) {
+    long local = millis + zone.getOffset(millis);
+    if (local < MIN_LOCAL || local >= MAX_LOCAL) {
+      String text = fallback.get().format(new Date(millis));
+      text.getChars(0, text.length(), buffer, offset);
+      return text.length();
+    }
+    formatLocal(local, buffer, offset);
+    return LENGTH;
+  }
+
+  /**
+   * Format local date time, seconds fraction is truncated
+   *
+   * @param dateTime local date time
+   * @return formatted timestamp
+   */
+  public String format(LocalDateTime dateTime) {
+    int year = dateTime.getYear();
+    if (year < 0 || year > 9999) {
+      return FORMATTER.format(dateTime);
+    }
+    char[] buffer = buffers.get();
+    write4(buffer, 0, year);
+    buffer[4] = '-';
+    write2(buffer, 5, dateTime.getMonthValue());
+    buffer[7] = '-';
+    write2(buffer, 8, dateTime.getDayOfMonth());
+    buffer[10] = ' ';
+    writeTime(buffer, 0, dateTime.getHour(), dateTime.getMinute(), dateTime.getSecond());
+    return new String(buffer, 0, LENGTH);
+  }
+
+  private void formatLocal(long local, char[] buffer, int offset) {
+    long epochDay = Math.floorDiv(local, MILLIS_PER_DAY);
+    Day cached = day;
+    if (cached.epochDay != epochDay) {
+      cached = day = new Day(epochDay, LocalDate.ofEpochDay(epochDay));
+    }
+    System.arraycopy(cached.prefix, 0, buffer, offset, Day.PREFIX_LENGTH);
+
+    int secondOfDay = (int) (Math.floorMod(local, MILLIS_PER_DAY) / MILLIS_PER_SECOND);
+    writeTime(buffer, offset, secondOfDay / 3600, secondOfDay / 60 % 60, secondOfDay % 60);
+  }
+
+  private static void writeTime(char[] buffer, int offset, int hour, int minute, int second) {
+    write2(buffer, offset + 11, hour);
+    buffer[offset + 13] = ':';
+    write2(buffer, offset + 14, minute);
+    buffer[offset + 16] = ':';
+    write2(buffer, offset + 17, second);
+  }
+
+  private static void write2(char[] buffer, int offset, int value) {
+    buffer[offset] = (char) ('0' + value / 10);
+    buffer[offset + 1] = (char) ('0' + value % 10);
+  }
+
+  private static void write4(char[] buffer, int offset, int value) {
+    write2(buffer, offset, value / 100);
+    write2(buffer, offset + 2, value % 100);
+  }
+
+  /**
+   * Parse timestamp in the time zone of codec
+   *
+   * @param text text of timestamp
+   * @return milliseconds since epoch
+   * @throws ParseException if text can't be parsed
+   */
+  public long parse(String text) throws ParseException {
+    long local = parseLocal(text);
+    if (local != Long.MIN_VALUE) {
+      // no offset transition around: the local time maps to exactly one instant
+      int offset = zone.getOffset(local - zone.getRawOffset());
+      long millis = local - offset;
+      if (zone.getOffset(millis - TRANSITION_MARGIN) == offset
+          && zone.getOffset(millis + TRANSITION_MARGIN) == offset) {
+        return millis;
+      }
+    }
+    return fallback.get().parse(text).getTime();
+  }
+
+  /**
+   * Parse local date time
+   *
+   * @param text text of timestamp
+   * @return local date time
+   * @throws ParseException if text can't be parsed
+   */
+  public LocalDateTime parseLocalDateTime(String text) throws ParseException {
+    long local = parseLocal(text);
+    if (local != Long.MIN_VALUE) {
+      return LocalDateTime.ofEpochSecond(local / MILLIS_PER_SECOND, 0, ZoneOffset.UTC);
+    }
+    try {
+      return LocalDateTime.parse(text, FORMATTER);
+    } catch (DateTimeParseException e) {
+      ParseException exception = new ParseException(e.getMessage(), e.getErrorIndex());
+      exception.initCause(e);
+      throw exception;
+    }
+  }
+
+  /**
+   * Parse text exactly in the pattern, fields in range
+   *
+   * @return local millis, {@link Long#MIN_VALUE} if text is not exactly in the pattern
+   */
+  private static long parseLocal(String text) {
+    if (text == null
+        || text.length() != LENGTH
+        || text.charAt(4) != '-'
+        || text.charAt(7) != '-'
+        || text.charAt(10) != ' '
+        || text.charAt(13) != ':'
+        || text.charAt(16) != ':') {
+      return Long.MIN_VALUE;
+    }
+    int year = digits(text, 0, 4);
+    int month = digits(text, 5, 2);
+    int dayOfMonth = digits(text, 8, 2);
+    int hour = digits(text, 11, 2);
+    int minute = digits(text, 14, 2);
+    int second = digits(text, 17, 2);
+    if (year < 1600
+        || month < 1
+        || month > 12
+        || dayOfMonth < 1
+        || dayOfMonth > LocalDate.of(year, month, 1).lengthOfMonth()
+        || hour > 23
+        || minute > 59
+        || second > 59) {
+      return Long.MIN_VALUE;
+    }
+    long epochDay = LocalDate.of(year, month, dayOfMonth).toEpochDay();
+    return epochDay * MILLIS_PER_DAY + (hour * 3600L + minute * 60L + second) * MILLIS_PER_SECOND;
+  }
+
+  /** @return value of digits, negative if any char is not digit */
+  private static int digits(String text, int offset, int length) {
+    int value = 0;
+    for (int i = offset; i < offset + length; i++) {
+      char c = text.charAt(i);
+      if (c < '0' || c > '9') {
+        return Integer.MIN_VALUE;
+      }
+      value = value * 10 + (c - '0');
+    }
+    return value;
+  }
+
+  /** Formatted <code>yyyy-MM-dd </code> prefix of one day */
+  private static final class Day {
+
+    static final int PREFIX_LENGTH = 11;
+
+    final long epochDay;
+
+    final char[] prefix;
+
+    Day(long epochDay, char[] prefix) {
+      this.epochDay = epochDay;
+      this.prefix = prefix;
+    }
+
+    Day(long epochDay, LocalDate date) {
+      this(epochDay, new char[PREFIX_LENGTH]);
+      write4(prefix, 0, date.getYear());
+      prefix[4] = '-';
+      write2(prefix, 5, date.getMonthValue());
+      prefix[7] = '-';
+      write2(prefix, 8, date.getDayOfMonth());
+      prefix[10] = ' ';
+    }
+  }
+}
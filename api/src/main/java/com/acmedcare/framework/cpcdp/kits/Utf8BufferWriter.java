@@ -0,0 +1,208 @@
+/*
+ * Copyright (c) 2019 Acmedcare+
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.acmedcare.framework.cpcdp.kits;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * {@link Utf8BufferWriter}
+ *
+ * <p>{@link Writer} encoding chars to UTF-8 straight into a growable byte array, the same bytes as
+ * {@link String#getBytes(java.nio.charset.Charset)} (unpaired surrogate is encoded as <code>'?'
+ * </code>). The buffer is reusable by {@link #reset()}, not thread-safe.
+ *
+ * @author <a href="mailto:iskp.me@gmail.com">Elve.Xu</a>
+ * @version ${project.version} - 2019/11/23.
+ */
+public final class Utf8BufferWriter extends Writer {
+
+  private static final byte REPLACEMENT = '?';
+
+  private byte[] buffer;
+
+  private int count;
+
+  /** pending high surrogate, 0 if none */
+  private char highSurrogate;
+
+  public Utf8BufferWriter(int initialCapacity) {
+    this.buffer = new byte[Math.max(initialCapacity, 16)];
+  }
+
+  @Override
+  public void write(int c) {
+    ensureCapacity(4);
+    encode((char) c);
+  }
+
+  @Override
+  public void write(char[] chars, int offset, int length) {
+    ensureCapacity(length * 3L);
+    for (int i = offset, end = offset + length; i < end; i++) {
+      encode(chars[i]);
+    }
+  }
+
+  @Override
+  public void write(String text, int offset, int length) {
+    ensureCapacity(length * 3L);
+    for (int i = offset, end = offset + length; i < end; i++) {
+      encode(text.charAt(i));
+    }
+  }
+
+  @Override
+  public Writer append(CharSequence text) {
+    String value = String.valueOf(text);
+    write(value, 0, value.length());
+    return this;
+  }
+
+  @Override
+  public Writer append(char c) {
+    write(c);
+    return this;
+  }
+
+  /** capacity must be ensured, at most 4 bytes written per char */
+  private void encode(char c) {
+    byte[] bytes = buffer;
+    int position = count;
+
+    if (highSurrogate != 0) {
+      char high = highSurrogate;
+      highSurrogate = 0;
+      if (Character.isLowSurrogate(c)) {
+        int codePoint = Character.toCodePoint(high, c);
+        bytes[position++] = (byte) (0xF0 | codePoint >> 18);
+        bytes[position++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+        bytes[position++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+        bytes[position++] = (byte) (0x80 | codePoint & 0x3F);
+        count = position;
+        return;
+      }
+      bytes[position++] = REPLACEMENT;
+    }
+
+    if (c < 0x80) {
+      bytes[position++] = (byte) c;
+    } else if (c < 0x800) {
+      bytes[position++] = (byte) (0xC0 | c >> 6);
+      bytes[position++] = (byte) (0x80 | c & 0x3F);
+    } else if (Character.isHighSurrogate(c)) {
+      highSurrogate = c;
+    } else if (Character.isLowSurrogate(c)) {
+      bytes[position++] = REPLACEMENT;
+    } else {
+      bytes[position++] = (byte) (0xE0 | c >> 12);
+      bytes[position++] = (byte) (0x80 | c >> 6 & 0x3F);
+      bytes[position++] = (byte) (0x80 | c & 0x3F);
+    }
+    count = position;
+  }
+
+  private void ensureCapacity(long bytes) {
+    // a pending high surrogate may flush one more byte
+    long required = count + bytes + 4;
+    if (required > buffer.length) {
+      if (required > Integer.MAX_VALUE - 8) {
+        throw new OutOfMemoryError("Required UTF-8 buffer too large: " + required);
+      }
+      long grown = Math.min(buffer.length * 2L, Integer.MAX_VALUE - 8);
+      buffer = Arrays.copyOf(buffer, (int) Math.max(required, grown));
+    }
+  }
+
+  /** Encode pending high surrogate, called before the bytes are read. */
+  private void complete() {
+    if (highSurrogate != 0) {
+      ensureCapacity(0);
+      highSurrogate = 0;
+      buffer[count++] = REPLACEMENT;
+    }
+  }
+
+  @Override
+  public void flush() {
+    // nothing to flush
+  }
+
+  @Override
+  public void close() {
+    // nothing to close
+  }
+
+  /** Discard the bytes written, the buffer is kept. */
+  public void reset() {
+    count = 0;
+    highSurrogate = 0;
+  }
+
+  /** @return count of bytes written */
+  public int size() {
+    complete();
+    return count;
+  }
+
+  /** @return length of the underlying buffer */
+  public int capacity() {
+    return buffer.length;
+  }
+
+  /**
+   * Write bytes to output stream, without copy.
+   *
+   * @param out output stream
+   * @throws IOException if write failed
+   */
+  public void writeTo(OutputStream out) throws IOException {
+    complete();
+    out.write(buffer, 0, count);
+  }
+
+  /**
+   * Put bytes into byte buffer
+   *
+   * @param target byte buffer
+   * @return count of bytes
+   * @throws BufferOverflowException if not enough space remaining in target, nothing is put
+   */
+  public int writeTo(ByteBuffer target) {
+    complete();
+    if (target.remaining() < count) {
+      throw new BufferOverflowException();
+    }
+    target.put(buffer, 0, count);
+    return count;
+  }
+
+  /** @return copy of the bytes written */
+  public byte[] toByteArray() {
+    complete();
+    return Arrays.copyOf(buffer, count);
+  }
+}
@@ -0,0 +1,259 @@
+/*
+ * Copyright (c) 2019 Acmedcare+
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.acmedcare.framework.cpcdp.validation;
+
+import com.acmedcare.framework.cpcdp.annotation.Condition;
+import com.acmedcare.framework.cpcdp.annotation.Conditions;
+import com.acmedcare.framework.cpcdp.kits.Reflections;
+import com.google.common.collect.Sets;
+
+import java.util.Collections;
+import java.util.Set;
+
+import static com.acmedcare.framework.cpcdp.annotation.Condition.MatchingStrategy.ANY_VALUE_WITHIN_ENUMS_ARRAY;
+
+/**
+ * {@link ConditionRule}
+ *
+ * <p>Compiled {@link Condition}, the expect value(s) and the accessor of condition field are
+ * resolved when plan compiled.
+ *
+ * @author <a href="mailto:iskp.me@gmail.com">Elve.Xu</a>
+ * @version ${project.version} - 2019/11/13.
+ */
+final class ConditionRule {
+
+  /** index of condition in plan, match results are memoized by index in {@link ValidationContext} */
+  private final int index;
+
+  private final String fieldName;
+
+  /** accessor of condition field */
+  private final FieldAccessor accessor;
+
+  /** rule of condition field, only present if condition field has condition(s) itself */
+  private final FieldRule target;
+
+  private final Set<String> expectValues;
+
+  private final boolean isCpcEnum;
+
+  private final boolean anyValueWithinEnumsArray;
+
+  /** cpc enum condition resolved to ordinal bitmask, see {@link #mask} */
+  private final boolean bitmask;
+
+  /**
+   * ordinals of expected cpc enum values, bit <code>n</code> is set if the key of enum constant
+   * with ordinal <code>n</code> is expected.
+   */
+  private final long mask;
+
+  /** violation reported when condition field is null */
+  private final Violation nullValue;
+
+  ConditionRule(
+      Condition condition,
+      int index,
+      Class<?> fieldType,
+      FieldAccessor accessor,
+      FieldRule target,
+      Violation nullValue) {
+    this.index = index;
+    this.fieldName = condition.field();
+    this.accessor = accessor;
+    this.target = target;
+    this.expectValues = Collections.unmodifiableSet(Sets.newHashSet(condition.expectValue()));
+    this.isCpcEnum = condition.isCpcEnum();
+    this.anyValueWithinEnumsArray = condition.strategy() == ANY_VALUE_WITHIN_ENUMS_ARRAY;
+    this.nullValue = nullValue;
+
+    Class<?> enumType = isCpcEnum ? enumType(fieldType) : null;
+    this.bitmask = enumType != null;
+    this.mask = bitmask ? mask(enumType) : 0L;
+  }
+
+  /**
+   * Resolve enum type of cpc enum condition. The value read is always of the type of condition
+   * field, so the mask is built over that type whatever {@link Condition#type()} declares. {@link
+   * Condition.MatchingStrategy#ANY_VALUE_WITHIN_ENUMS_ARRAY} matches any non-empty array whatever
+   * its elements are, it is never matched by bitmask.
+   *
+   * @param fieldType type of condition field
+   * @return enum type, null if condition can't be matched by ordinal bitmask
+   */
+  private Class<?> enumType(Class<?> fieldType) {
+    if (anyValueWithinEnumsArray) {
+      return null;
+    }
+    if (!fieldType.isEnum()
+        || fieldType.getEnumConstants().length > Long.SIZE
+        || FieldAccessor.keyMethod(fieldType) == null) {
+      return null;
+    }
+    return fieldType;
+  }
+
+  private long mask(Class<?> enumType) {
+    long bits = 0L;
+    for (Object constant : enumType.getEnumConstants()) {
+      Object key =
+          Reflections.invokeMethod(constant, FieldAccessor.CPC_ENUM_KEY_METHOD_NAME, null, null);
+      if (key != null && expectValues.contains(key.toString())) {
+        bits |= 1L << ((Enum<?>) constant).ordinal();
+      }
+    }
+    return bits;
+  }
+
+  static ConditionRule[] of(Conditions conditions, PlanCompiler compiler) {
+    Condition[] conditionsArray = conditions.value();
+    ConditionRule[] result = new ConditionRule[conditionsArray.length];
+    for (int i = 0; i < conditionsArray.length; i++) {
+      result[i] = compiler.condition(conditionsArray[i]);
+    }
+    return result;
+  }
+
+  /**
+   * Check all conditions matched, every condition is evaluated (no short-circuit).
+   *
+   * @param rules condition rules
+   * @param context validation context
+   * @return matched return true , otherwise return false
+   */
+  static boolean allMatch(ConditionRule[] rules, ValidationContext context) {
+    boolean all = true;
+    for (ConditionRule rule : rules) {
+      all &= rule.matches(context);
+    }
+    return all;
+  }
+
+  String fieldName() {
+    return fieldName;
+  }
+
+  FieldRule target() {
+    return target;
+  }
+
+  /**
+   * Check is condition matched, the result is memoized in validation context.
+   *
+   * @param context validation context
+   * @return matched return true , otherwise return false
+   */
+  boolean matches(ValidationContext context) {
+    if (context.done()) {
+      return false;
+    }
+    Boolean matched = context.matched(index);
+    if (matched == null) {
+      matched = evaluate(context);
+      context.matched(index, matched);
+    }
+    return matched;
+  }
+
+  /**
+   * Evaluate condition, if the condition field has condition(s) itself, they are checked first. A
+   * null condition field is reported as violation, and the condition does not match.
+   *
+   * @param context validation context
+   * @return matched return true , otherwise return false
+   */
+  private boolean evaluate(ValidationContext context) {
+
+    Object value = context.value(accessor);
+    boolean matched = value != null && test(value, context);
+
+    // dependency check
+    if (target != null) {
+      if (!checksTarget(value, matched)) {
+        return false;
+      }
+
+      target.checkConditions(context);
+    }
+
+    if (value == null) {
+      context.report(nullValue);
+      return false;
+    }
+
+    return matched;
+  }
+
+  /**
+   * Check is condition matched by the current value of condition field, without side effect.
+   *
+   * @param bean bean instance
+   * @return matched return true , otherwise return false
+   */
+  boolean test(Object bean) {
+    Object value = accessor.read(bean);
+    return value != null && test(value, null);
+  }
+
+  /**
+   * Check is the condition(s) of condition field checked when this condition is evaluated, without
+   * side effect.
+   *
+   * @param bean bean instance
+   * @return true if {@link #target()} is checked
+   */
+  boolean checksTarget(Object bean) {
+    Object value = accessor.read(bean);
+    return checksTarget(value, value != null && test(value, null));
+  }
+
+  /** A null value still checks target, except for enums array: null & empty ones never match. */
+  private boolean checksTarget(Object value, boolean matched) {
+    return matched || value == null && !anyValueWithinEnumsArray;
+  }
+
+  /**
+   * Test non-null value of condition field
+   *
+   * @param value value of condition field, not null
+   * @param context validation context caching cpc enum key, may be null
+   * @return matched return true , otherwise return false
+   */
+  private boolean test(Object value, ValidationContext context) {
+    if (bitmask) {
+      // ordinal bit test, without key lookup and allocation
+      return (mask & (1L << ((Enum<?>) value).ordinal())) != 0;
+    }
+
+    if (anyValueWithinEnumsArray) {
+      return ((Object[]) value).length != 0;
+    }
+
+    Object realValue = value;
+    if (isCpcEnum) {
+      realValue = context != null ? context.key(accessor, value) : accessor.key(value);
+    }
+    return realValue != null && expectValues.contains(realValue.toString());
+  }
+}
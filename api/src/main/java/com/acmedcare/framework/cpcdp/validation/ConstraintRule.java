@@ -0,0 +1,549 @@
+/*
+ * Copyright (c) 2019 Acmedcare+
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.acmedcare.framework.cpcdp.validation;
+
+import javax.validation.Valid;
+import javax.validation.constraints.DecimalMax;
+import javax.validation.constraints.DecimalMin;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.Negative;
+import javax.validation.constraints.NegativeOrZero;
+import javax.validation.constraints.Pattern;
+import javax.validation.constraints.Positive;
+import javax.validation.constraints.PositiveOrZero;
+import javax.validation.constraints.Size;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link ConstraintRule}
+ *
+ * <p>Compiled <code>javax.validation</code> constraint of field, null values are valid (use {@link
+ * com.acmedcare.framework.cpcdp.annotation.Required} for them).
+ *
+ * <ul>
+ *   <li>{@link Min}, {@link Max}, {@link DecimalMin}, {@link DecimalMax}, {@link Positive}, {@link
+ *       PositiveOrZero}, {@link Negative}, {@link NegativeOrZero}: bound of number or numeric char
+ *       sequence, primitive fields are read without boxing
+ *   <li>{@link Size}: length of collection, map, array or char sequence
+ *   <li>{@link Pattern}: char sequence matching the precompiled regular expression
+ *   <li>{@link Valid}: cascade into nested bean, or the elements of collection / array, with the
+ *       validation plans of their classes. A bean already being validated up the path (e.g. a
+ *       child referencing its parent) is not cascaded into again
+ * </ul>
+ *
+ * @author <a href="mailto:iskp.me@gmail.com">Elve.Xu</a>
+ * @version ${project.version} - 2019/11/19.
+ */
+abstract class ConstraintRule {
+
+  private static final ConstraintRule[] NONE = new ConstraintRule[0];
+
+  private static final List<Class<? extends Annotation>> CONSTRAINTS =
+      Arrays.asList(
+          Min.class,
+          Max.class,
+          DecimalMin.class,
+          DecimalMax.class,
+          Positive.class,
+          PositiveOrZero.class,
+          Negative.class,
+          NegativeOrZero.class,
+          Size.class,
+          Pattern.class,
+          Valid.class);
+
+  final FieldAccessor accessor;
+
+  ConstraintRule(FieldAccessor accessor) {
+    this.accessor = accessor;
+  }
+
+  /**
+   * Check field value of bean
+   *
+   * @param context validation context
+   */
+  abstract void check(ValidationContext context);
+
+  static boolean isConstrained(Field field) {
+    for (Class<? extends Annotation> constraint : CONSTRAINTS) {
+      if (field.isAnnotationPresent(constraint)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Compile constraints of field, in check order
+   *
+   * @param field bean field
+   * @param accessor accessor of field
+   * @param compiler compiler of bean class
+   * @return constraint rules, empty if field has no constraint
+   */
+  static ConstraintRule[] of(Field field, FieldAccessor accessor, PlanCompiler compiler) {
+    List<ConstraintRule> rules = new ArrayList<>();
+    String name = field.getName();
+
+    Min min = field.getAnnotation(Min.class);
+    if (min != null) {
+      rules.add(
+          new BoundRule(
+              field,
+              accessor,
+              BigDecimal.valueOf(min.value()),
+              true,
+              true,
+              compiler.violation(
+                  field,
+                  Violation.Type.MIN,
+                  message(name, min.message(), "不能小于 " + min.value() + "."))));
+    }
+
+    Max max = field.getAnnotation(Max.class);
+    if (max != null) {
+      rules.add(
+          new BoundRule(
+              field,
+              accessor,
+              BigDecimal.valueOf(max.value()),
+              false,
+              true,
+              compiler.violation(
+                  field,
+                  Violation.Type.MAX,
+                  message(name, max.message(), "不能大于 " + max.value() + "."))));
+    }
+
+    DecimalMin decimalMin = field.getAnnotation(DecimalMin.class);
+    if (decimalMin != null) {
+      rules.add(
+          new BoundRule(
+              field,
+              accessor,
+              new BigDecimal(decimalMin.value()),
+              true,
+              decimalMin.inclusive(),
+              compiler.violation(
+                  field,
+                  Violation.Type.MIN,
+                  message(
+                      name,
+                      decimalMin.message(),
+                      (decimalMin.inclusive() ? "不能小于 " : "必须大于 ")
+                          + decimalMin.value()
+                          + "."))));
+    }
+
+    DecimalMax decimalMax = field.getAnnotation(DecimalMax.class);
+    if (decimalMax != null) {
+      rules.add(
+          new BoundRule(
+              field,
+              accessor,
+              new BigDecimal(decimalMax.value()),
+              false,
+              decimalMax.inclusive(),
+              compiler.violation(
+                  field,
+                  Violation.Type.MAX,
+                  message(
+                      name,
+                      decimalMax.message(),
+                      (decimalMax.inclusive() ? "不能大于 " : "必须小于 ")
+                          + decimalMax.value()
+                          + "."))));
+    }
+
+    Positive positive = field.getAnnotation(Positive.class);
+    if (positive != null) {
+      rules.add(
+          new BoundRule(
+              field,
+              accessor,
+              BigDecimal.ZERO,
+              true,
+              false,
+              compiler.violation(
+                  field, Violation.Type.MIN, message(name, positive.message(), "必须大于 0."))));
+    }
+
+    PositiveOrZero positiveOrZero = field.getAnnotation(PositiveOrZero.class);
+    if (positiveOrZero != null) {
+      rules.add(
+          new BoundRule(
+              field,
+              accessor,
+              BigDecimal.ZERO,
+              true,
+              true,
+              compiler.violation(
+                  field,
+                  Violation.Type.MIN,
+                  message(name, positiveOrZero.message(), "不能小于 0."))));
+    }
+
+    Negative negative = field.getAnnotation(Negative.class);
+    if (negative != null) {
+      rules.add(
+          new BoundRule(
+              field,
+              accessor,
+              BigDecimal.ZERO,
+              false,
+              false,
+              compiler.violation(
+                  field, Violation.Type.MAX, message(name, negative.message(), "必须小于 0."))));
+    }
+
+    NegativeOrZero negativeOrZero = field.getAnnotation(NegativeOrZero.class);
+    if (negativeOrZero != null) {
+      rules.add(
+          new BoundRule(
+              field,
+              accessor,
+              BigDecimal.ZERO,
+              false,
+              true,
+              compiler.violation(
+                  field,
+                  Violation.Type.MAX,
+                  message(name, negativeOrZero.message(), "不能大于 0."))));
+    }
+
+    Size size = field.getAnnotation(Size.class);
+    if (size != null) {
+      rules.add(new SizeRule(field, accessor, size, compiler));
+    }
+
+    Pattern pattern = field.getAnnotation(Pattern.class);
+    if (pattern != null) {
+      rules.add(new PatternRule(field, accessor, pattern, compiler));
+    }
+
+    if (field.isAnnotationPresent(Valid.class)) {
+      rules.add(new CascadeRule(accessor, name, compiler.jsonKey(field)));
+    }
+
+    return rules.isEmpty() ? NONE : rules.toArray(NONE);
+  }
+
+  /**
+   * Build violation message, the message of annotation is used unless it is a default message
+   * template (e.g. <code>{javax.validation.constraints.Min.message}</code>).
+   */
+  private static String message(String name, String annotationMessage, String defaultMessage) {
+    boolean template = annotationMessage.startsWith("{") && annotationMessage.endsWith("}");
+    return "属性: <" + name + "> " + (template ? defaultMessage : annotationMessage);
+  }
+
+  /**
+   * Lower or upper bound of number. Primitive integral fields are compared as <code>long</code>,
+   * primitive floating fields as <code>double</code>, without boxing.
+   */
+  private static final class BoundRule extends ConstraintRule {
+
+    private static final int OBJECT = 0;
+
+    private static final int LONG = 1;
+
+    private static final int DOUBLE = 2;
+
+    private final int kind;
+
+    private final BigDecimal bound;
+
+    /** bound as long, valid if {@link #integralBound} */
+    private final long longBound;
+
+    private final boolean integralBound;
+
+    private final double doubleBound;
+
+    private final boolean lower;
+
+    private final boolean inclusive;
+
+    private final Violation violation;
+
+    BoundRule(
+        Field field,
+        FieldAccessor accessor,
+        BigDecimal bound,
+        boolean lower,
+        boolean inclusive,
+        Violation violation) {
+      super(accessor);
+      Class<?> type = field.getType();
+      if (type == byte.class || type == short.class || type == int.class || type == long.class) {
+        this.kind = LONG;
+      } else if (type == float.class || type == double.class) {
+        this.kind = DOUBLE;
+      } else {
+        this.kind = OBJECT;
+      }
+      this.bound = bound;
+      this.integralBound = isLong(bound);
+      this.longBound = integralBound ? bound.longValueExact() : 0L;
+      this.doubleBound = bound.doubleValue();
+      this.lower = lower;
+      this.inclusive = inclusive;
+      this.violation = violation;
+    }
+
+    @Override
+    void check(ValidationContext context) {
+      boolean valid;
+      switch (kind) {
+        case LONG:
+          valid = check(accessor.readLong(context.bean()));
+          break;
+        case DOUBLE:
+          valid = check(accessor.readDouble(context.bean()));
+          break;
+        default:
+          valid = check(context.value(accessor));
+          break;
+      }
+      if (!valid) {
+        context.report(violation);
+      }
+    }
+
+    private boolean check(long value) {
+      if (!integralBound) {
+        return accept(BigDecimal.valueOf(value).compareTo(bound));
+      }
+      return accept(Long.compare(value, longBound));
+    }
+
+    private boolean check(double value) {
+      if (Double.isInfinite(value)) {
+        return accept(value > 0 ? 1 : -1);
+      }
+      return accept(Double.compare(value, doubleBound));
+    }
+
+    private boolean check(Object value) {
+      if (value == null) {
+        return true;
+      }
+      if (value instanceof Long
+          || value instanceof Integer
+          || value instanceof Short
+          || value instanceof Byte) {
+        return check(((Number) value).longValue());
+      }
+      if (value instanceof Double || value instanceof Float) {
+        return check(((Number) value).doubleValue());
+      }
+      if (value instanceof BigDecimal) {
+        return accept(((BigDecimal) value).compareTo(bound));
+      }
+      if (value instanceof BigInteger) {
+        return accept(new BigDecimal((BigInteger) value).compareTo(bound));
+      }
+      if (value instanceof CharSequence) {
+        try {
+          return accept(new BigDecimal(value.toString()).compareTo(bound));
+        } catch (NumberFormatException e) {
+          return false;
+        }
+      }
+      if (value instanceof Number) {
+        return check(((Number) value).doubleValue());
+      }
+      return true;
+    }
+
+    /**
+     * @param comparison value compared to bound
+     * @return true if value is within bound
+     */
+    private boolean accept(int comparison) {
+      if (lower) {
+        return inclusive ? comparison >= 0 : comparison > 0;
+      }
+      return inclusive ? comparison <= 0 : comparison < 0;
+    }
+
+    private static boolean isLong(BigDecimal value) {
+      try {
+        value.longValueExact();
+        return true;
+      } catch (ArithmeticException e) {
+        return false;
+      }
+    }
+  }
+
+  /** {@link Pattern} of char sequence, compiled once. */
+  private static final class PatternRule extends ConstraintRule {
+
+    private final java.util.regex.Pattern pattern;
+
+    private final Violation violation;
+
+    PatternRule(Field field, FieldAccessor accessor, Pattern annotation, PlanCompiler compiler) {
+      super(accessor);
+      int flags = 0;
+      for (Pattern.Flag flag : annotation.flags()) {
+        flags |= flag.getValue();
+      }
+      this.pattern = java.util.regex.Pattern.compile(annotation.regexp(), flags);
+      this.violation =
+          compiler.violation(
+              field,
+              Violation.Type.PATTERN,
+              message(
+                  field.getName(), annotation.message(), "格式不匹配: " + annotation.regexp()));
+    }
+
+    @Override
+    void check(ValidationContext context) {
+      Object value = context.value(accessor);
+      if (value instanceof CharSequence && !pattern.matcher((CharSequence) value).matches()) {
+        context.report(violation);
+      }
+    }
+  }
+
+  /** {@link Size} of collection, map, array or char sequence. */
+  private static final class SizeRule extends ConstraintRule {
+
+    private final int min;
+
+    private final int max;
+
+    private final Violation violation;
+
+    SizeRule(Field field, FieldAccessor accessor, Size size, PlanCompiler compiler) {
+      super(accessor);
+      this.min = size.min();
+      this.max = size.max();
+
+      String name = field.getName();
+      String message;
+      if (min <= 0) {
+        message = "长度不能大于 " + max + ".";
+      } else if (max == Integer.MAX_VALUE) {
+        message = "长度不能小于 " + min + ".";
+      } else {
+        message = "长度范围: [" + min + ", " + max + "].";
+      }
+      this.violation =
+          compiler.violation(field, Violation.Type.SIZE, message(name, size.message(), message));
+    }
+
+    @Override
+    void check(ValidationContext context) {
+      Object value = context.value(accessor);
+      int length = value == null ? -1 : length(value);
+      if (length >= 0 && (length < min || length > max)) {
+        context.report(violation);
+      }
+    }
+
+    private static int length(Object value) {
+      if (value instanceof Collection) {
+        return ((Collection<?>) value).size();
+      }
+      if (value instanceof Map) {
+        return ((Map<?, ?>) value).size();
+      }
+      if (value instanceof CharSequence) {
+        return ((CharSequence) value).length();
+      }
+      if (value.getClass().isArray()) {
+        return Array.getLength(value);
+      }
+      return -1;
+    }
+  }
+
+  /**
+   * {@link Valid} cascade, nested beans are validated with the cached plans of their classes, so no
+   * reflection is involved per element. Cycles are cut by identity against the beans up the path.
+   */
+  private static final class CascadeRule extends ConstraintRule {
+
+    private final String name;
+
+    private final String jsonKey;
+
+    CascadeRule(FieldAccessor accessor, String name, String jsonKey) {
+      super(accessor);
+      this.name = name;
+      this.jsonKey = jsonKey;
+    }
+
+    @Override
+    void check(ValidationContext context) {
+      Object value = context.value(accessor);
+      if (value instanceof Collection) {
+        int index = 0;
+        for (Object element : (Collection<?>) value) {
+          cascade(element, index++, context);
+          if (context.done()) {
+            return;
+          }
+        }
+      } else if (value instanceof Object[]) {
+        Object[] elements = (Object[]) value;
+        for (int index = 0; index < elements.length && !context.done(); index++) {
+          cascade(elements[index], index, context);
+        }
+      } else if (value != null) {
+        cascade(value, -1, context);
+      }
+    }
+
+    private void cascade(Object element, int index, ValidationContext context) {
+      if (element == null || context.validating(element)) {
+        return;
+      }
+
+      ValidationContext nested = ValidationPlan.cascade(element, context);
+      if (nested.violations().isEmpty()) {
+        return;
+      }
+
+      String path = index < 0 ? name : name + '[' + index + ']';
+      String jsonPath = index < 0 ? jsonKey : jsonKey + '[' + index + ']';
+      for (Violation violation : nested.violations()) {
+        context.report(violation.nested(path, jsonPath));
+      }
+    }
+  }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2019 Acmedcare+
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.acmedcare.framework.cpcdp.validation;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * {@link DependencyGraph}
+ *
+ * <p>Reverse dependency edges of compiled rules, used by {@link ValidationSession} to re-evaluate
+ * only the rules affected by changed fields.
+ *
+ * <ul>
+ *   <li>dependents: field name -&gt; rules reading the field, the rule of field itself and the
+ *       rules having condition(s) on it
+ *   <li>incoming: conditional field -&gt; conditions of other fields checking it
+ * </ul>
+ *
+ * @author <a href="mailto:iskp.me@gmail.com">Elve.Xu</a>
+ * @version ${project.version} - 2019/11/18.
+ */
+final class DependencyGraph {
+
+  private static final FieldRule[] NONE = new FieldRule[0];
+
+  /** all compiled rules, in declaration order */
+  private final FieldRule[] rules;
+
+  /** conditional rules, in topological order (dependencies first) */
+  private final FieldRule[] nodes;
+
+  private final Map<String, FieldRule[]> dependents;
+
+  /** sources[n][i] checks node n with condition incoming[n][i] */
+  private final FieldRule[][] sources;
+
+  private final ConditionRule[][] incoming;
+
+  /** targets[n]: conditional fields checked by the condition(s) of node n */
+  private final FieldRule[][] targets;
+
+  DependencyGraph(Collection<FieldRule> rules, FieldRule[] nodes) {
+    this.rules = rules.toArray(new FieldRule[0]);
+    this.nodes = nodes;
+
+    Map<String, Set<FieldRule>> dependents = new HashMap<>();
+    List<List<FieldRule>> sources = new ArrayList<>();
+    List<List<ConditionRule>> incoming = new ArrayList<>();
+    for (int i = 0; i < nodes.length; i++) {
+      sources.add(new ArrayList<>());
+      incoming.add(new ArrayList<>());
+    }
+
+    for (FieldRule rule : rules) {
+      dependents.computeIfAbsent(rule.name(), name -> new LinkedHashSet<>()).add(rule);
+      for (ConditionRule condition : rule.conditionRules()) {
+        dependents.computeIfAbsent(condition.fieldName(), name -> new LinkedHashSet<>()).add(rule);
+        if (condition.target() != null) {
+          sources.get(condition.target().node()).add(rule);
+          incoming.get(condition.target().node()).add(condition);
+        }
+      }
+    }
+
+    this.dependents = new HashMap<>(dependents.size() * 2);
+    dependents.forEach((name, set) -> this.dependents.put(name, set.toArray(NONE)));
+
+    this.sources = new FieldRule[nodes.length][];
+    this.incoming = new ConditionRule[nodes.length][];
+    this.targets = new FieldRule[nodes.length][];
+    for (int i = 0; i < nodes.length; i++) {
+      this.sources[i] = sources.get(i).toArray(NONE);
+      this.incoming[i] = incoming.get(i).toArray(new ConditionRule[0]);
+      this.targets[i] = nodes[i].dependencies().toArray(NONE);
+    }
+  }
+
+  FieldRule[] rules() {
+    return rules;
+  }
+
+  FieldRule[] nodes() {
+    return nodes;
+  }
+
+  /**
+   * Returns rules reading field
+   *
+   * @param field field name
+   * @return rules, empty if field is not read by any rule
+   */
+  FieldRule[] dependents(String field) {
+    return dependents.getOrDefault(field, NONE);
+  }
+
+  FieldRule[] sources(int node) {
+    return sources[node];
+  }
+
+  ConditionRule[] incoming(int node) {
+    return incoming[node];
+  }
+
+  FieldRule[] targets(int node) {
+    return targets[node];
+  }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2019 Acmedcare+
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.acmedcare.framework.cpcdp.validation;
+
+import com.acmedcare.framework.cpcdp.consts.CpcEnum;
+import com.acmedcare.framework.cpcdp.kits.Reflections;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+
+/**
+ * {@link FieldAccessor}
+ *
+ * <p>Resolved reader of one bean field, backed by {@link GeneratedValidator} when the bean class
+ * was processed at compile time, otherwise by reflection.
+ *
+ * @author <a href="mailto:iskp.me@gmail.com">Elve.Xu</a>
+ * @version ${project.version} - 2019/11/14.
+ */
+abstract class FieldAccessor {
+
+  static final String CPC_ENUM_KEY_METHOD_NAME = "key";
+
+  /** index of accessor in plan, values read are cached by index in {@link ValidationContext} */
+  private final int index;
+
+  FieldAccessor(int index) {
+    this.index = index;
+  }
+
+  int index() {
+    return index;
+  }
+
+  /**
+   * Read field value of bean
+   *
+   * @param bean bean instance
+   * @return field value
+   */
+  abstract Object read(Object bean);
+
+  /**
+   * Read primitive integral field value without boxing
+   *
+   * @param bean bean instance
+   * @return field value
+   */
+  long readLong(Object bean) {
+    return ((Number) read(bean)).longValue();
+  }
+
+  /**
+   * Read primitive numeric field value without boxing
+   *
+   * @param bean bean instance
+   * @return field value
+   */
+  double readDouble(Object bean) {
+    return ((Number) read(bean)).doubleValue();
+  }
+
+  /**
+   * Read key of cpc enum field value
+   *
+   * @param value field value, not null
+   * @return value of enum's <code>key()</code>
+   */
+  Object key(Object value) {
+    if (value instanceof CpcEnum) {
+      return ((CpcEnum) value).key();
+    }
+    return Reflections.invokeMethod(value, CPC_ENUM_KEY_METHOD_NAME, null, null);
+  }
+
+  static FieldAccessor of(Field field, GeneratedValidator<?> generated, int index) {
+    if (generated != null) {
+      int slot = generated.slot(field.getName());
+      if (slot >= 0 && generated.type() == field.getDeclaringClass()) {
+        return generated.accessor(slot, index);
+      }
+    }
+    return new ReflectiveAccessor(field, index);
+  }
+
+  /**
+   * Resolve <code>key()</code> method of cpc enum type
+   *
+   * @param type field type
+   * @return key method, null if not defined
+   */
+  static Method keyMethod(Class<?> type) {
+    for (Class<?> searchType = type;
+        searchType != null && searchType != Object.class;
+        searchType = searchType.getSuperclass()) {
+      try {
+        Method method = searchType.getDeclaredMethod(CPC_ENUM_KEY_METHOD_NAME);
+        Reflections.makeAccessible(method);
+        return method;
+      } catch (NoSuchMethodException e) {
+        // Method不在当前类定义,继续向上转型
+      }
+    }
+    return null;
+  }
+
+  /** Reflection based accessor, used for beans not processed at compile time. */
+  private static final class ReflectiveAccessor extends FieldAccessor {
+
+    private final Field field;
+
+    /** key method of cpc enum field, null if not resolved */
+    private final Method keyMethod;
+
+    ReflectiveAccessor(Field field, int index) {
+      super(index);
+      Reflections.makeAccessible(field);
+      this.field = field;
+      this.keyMethod = keyMethod(field.getType());
+    }
+
+    @Override
+    Object read(Object bean) {
+      try {
+        return field.get(bean);
+      } catch (IllegalAccessException e) {
+        return null;
+      }
+    }
+
+    @Override
+    long readLong(Object bean) {
+      try {
+        return field.getLong(bean);
+      } catch (IllegalAccessException e) {
+        throw Reflections.convertReflectionExceptionToUnchecked(e);
+      }
+    }
+
+    @Override
+    double readDouble(Object bean) {
+      try {
+        return field.getDouble(bean);
+      } catch (IllegalAccessException e) {
+        throw Reflections.convertReflectionExceptionToUnchecked(e);
+      }
+    }
+
+    @Override
+    Object key(Object value) {
+      if (value instanceof CpcEnum
+          || keyMethod == null
+          || !keyMethod.getDeclaringClass().isInstance(value)) {
+        return super.key(value);
+      }
+      try {
+        return keyMethod.invoke(value);
+      } catch (Exception e) {
+        throw Reflections.convertReflectionExceptionToUnchecked(e);
+      }
+    }
+  }
+}
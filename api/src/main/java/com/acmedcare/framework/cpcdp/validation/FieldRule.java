@@ -0,0 +1,365 @@
+/*
+ * Copyright (c) 2019 Acmedcare+
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.acmedcare.framework.cpcdp.validation;
+
+import com.acmedcare.framework.cpcdp.annotation.*;
+import com.google.common.base.Strings;
+import com.google.common.collect.Sets;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * {@link FieldRule}
+ *
+ * <p>Compiled rules of one annotated bean field.
+ *
+ * @author <a href="mailto:iskp.me@gmail.com">Elve.Xu</a>
+ * @version ${project.version} - 2019/11/13.
+ */
+final class FieldRule {
+
+  private final String name;
+
+  private final Field field;
+
+  private final FieldAccessor accessor;
+
+  private final boolean required;
+
+  private final boolean conditional;
+
+  /** <code>javax.validation</code> constraints, checked against non-null value */
+  private final ConstraintRule[] constraints;
+
+  private final Set<String> allowValues;
+
+  private final Violation notAllowed;
+
+  private final Violation missing;
+
+  // ===== resolved by PlanCompiler =====
+
+  /** index of node in dependency graph, -1 if field has no condition */
+  private int node = -1;
+
+  private ConditionRule condition;
+
+  private ConditionRule[] conditions;
+
+  private ConditionRule[][] complexConditions;
+
+  private ComplexCondition.Symbol symbol;
+
+  FieldRule(Field field, PlanCompiler compiler) {
+    this.name = field.getName();
+    this.field = field;
+    this.accessor = compiler.accessor(field);
+    this.required = field.isAnnotationPresent(Required.class);
+    this.conditional =
+        field.isAnnotationPresent(Condition.class)
+            || field.isAnnotationPresent(Conditions.class)
+            || field.isAnnotationPresent(ComplexCondition.class);
+    this.constraints = ConstraintRule.of(field, accessor, compiler);
+    this.missing =
+        compiler.violation(
+            field,
+            conditional ? Violation.Type.CONDITION : Violation.Type.REQUIRED,
+            "属性: <" + name + "> 不能为空.");
+
+    AllowValues allows = field.getAnnotation(AllowValues.class);
+    if (allows != null) {
+      Set<String> definedAllowValues = Sets.newHashSet(allows.value());
+      String message = allows.message();
+      this.allowValues = Collections.unmodifiableSet(definedAllowValues);
+      this.notAllowed =
+          compiler.violation(
+              field,
+              Violation.Type.ALLOW_VALUES,
+              "属性: <"
+                  + name
+                  + "> 取值范围: "
+                  + (Strings.isNullOrEmpty(message)
+                      ? Arrays.toString(definedAllowValues.toArray())
+                      : message));
+    } else {
+      this.allowValues = null;
+      this.notAllowed = null;
+    }
+  }
+
+  static boolean isAnnotated(Field field) {
+    return field.isAnnotationPresent(Required.class)
+        || field.isAnnotationPresent(AllowValues.class)
+        || field.isAnnotationPresent(Condition.class)
+        || field.isAnnotationPresent(Conditions.class)
+        || field.isAnnotationPresent(ComplexCondition.class)
+        || ConstraintRule.isConstrained(field);
+  }
+
+  /**
+   * Resolve the condition(s) of this field against the other compiled rules of bean class.
+   *
+   * @param compiler compiler of bean class
+   */
+  void link(PlanCompiler compiler) {
+
+    Condition conditionAnnotation = field.getAnnotation(Condition.class);
+    if (conditionAnnotation != null) {
+      this.condition = compiler.condition(conditionAnnotation);
+    }
+
+    Conditions conditionsAnnotation = field.getAnnotation(Conditions.class);
+    if (conditionsAnnotation != null) {
+      this.conditions = ConditionRule.of(conditionsAnnotation, compiler);
+    }
+
+    ComplexCondition complexConditionAnnotation = field.getAnnotation(ComplexCondition.class);
+    if (complexConditionAnnotation != null) {
+      Conditions[] conditionsArray = complexConditionAnnotation.value();
+      this.complexConditions = new ConditionRule[conditionsArray.length][];
+      for (int i = 0; i < conditionsArray.length; i++) {
+        this.complexConditions[i] = ConditionRule.of(conditionsArray[i], compiler);
+      }
+      this.symbol = complexConditionAnnotation.symbol();
+    }
+  }
+
+  /**
+   * Returns all compiled conditions of this field
+   *
+   * @return condition rules, in declaration order
+   */
+  List<ConditionRule> conditionRules() {
+    List<ConditionRule> result = new ArrayList<>();
+    if (condition != null) {
+      result.add(condition);
+    }
+    if (conditions != null) {
+      result.addAll(Arrays.asList(conditions));
+    }
+    if (complexConditions != null) {
+      for (ConditionRule[] group : complexConditions) {
+        result.addAll(Arrays.asList(group));
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Returns the conditional fields referenced by the condition(s) of this field
+   *
+   * @return rules of referenced fields, in declaration order of condition(s)
+   */
+  List<FieldRule> dependencies() {
+    List<FieldRule> dependencies = new ArrayList<>();
+    for (ConditionRule rule : conditionRules()) {
+      if (rule.target() != null && !dependencies.contains(rule.target())) {
+        dependencies.add(rule.target());
+      }
+    }
+    return dependencies;
+  }
+
+  void node(int node) {
+    this.node = node;
+  }
+
+  int node() {
+    return node;
+  }
+
+  boolean isRequired() {
+    return required;
+  }
+
+  /**
+   * Returns true if field is checked by {@link ValidationPlan} of profile directly, fields only
+   * having condition(s) are checked when they are reached by the condition(s) of other fields.
+   *
+   * @param profile validation profile
+   * @return true if field is required (with allow values for draft) or constrained
+   */
+  boolean isChecked(ValidationProfile profile) {
+    if (constraints.length > 0) {
+      return true;
+    }
+    return required && (profile == ValidationProfile.FINAL || allowValues != null);
+  }
+
+  boolean isConditional() {
+    return conditional;
+  }
+
+  String name() {
+    return name;
+  }
+
+  Field field() {
+    return field;
+  }
+
+  FieldAccessor accessor() {
+    return accessor;
+  }
+
+  /**
+   * Check {@link Required} & {@link AllowValues} and the condition(s) of required field, then the
+   * constraints of field. {@link ValidationProfile#DRAFT} only checks the allow values of non-null
+   * value and the constraints.
+   *
+   * @param context validation context
+   */
+  void validate(ValidationContext context) {
+
+    boolean draft = context.profile() == ValidationProfile.DRAFT;
+
+    if (required) {
+      Object value = context.value(accessor);
+      if (value == null) {
+        if (!conditional && !draft) {
+          context.report(missing);
+          return;
+        }
+      } else if (allowValues != null && !allowValues.contains(value.toString())) {
+        context.report(notAllowed);
+      }
+
+      if (conditional && !draft) {
+        checkConditions(context);
+      }
+    }
+
+    for (ConstraintRule constraint : constraints) {
+      if (context.done()) {
+        return;
+      }
+      constraint.check(context);
+    }
+  }
+
+  /**
+   * Check {@link Condition} & {@link Conditions} & {@link ComplexCondition}, the field value must
+   * not be null when any of them matched. The condition(s) of field are checked at most once per
+   * validation run.
+   *
+   * @param context validation context
+   */
+  void checkConditions(ValidationContext context) {
+
+    if (context.done() || !context.check(node)) {
+      return;
+    }
+
+    if (condition != null && condition.matches(context)) {
+      requireValue(context);
+    }
+
+    if (conditions != null && ConditionRule.allMatch(conditions, context)) {
+      requireValue(context);
+    }
+
+    if (complexConditions != null) {
+      boolean any = false;
+      boolean all = true;
+      for (ConditionRule[] group : complexConditions) {
+        boolean match = ConditionRule.allMatch(group, context);
+        any |= match;
+        all &= match;
+      }
+
+      switch (symbol) {
+        case OR:
+          if (any) {
+            requireValue(context);
+          }
+          break;
+        case AND:
+          if (all) {
+            requireValue(context);
+          }
+          break;
+        default:
+          break;
+      }
+    }
+  }
+
+  /**
+   * Check is field required by the current values of bean, without side effect. The condition(s) are
+   * matched like {@link #checkConditions(ValidationContext)} does.
+   *
+   * @param bean bean instance
+   * @return true if field is required
+   */
+  boolean isRequiredBy(Object bean) {
+    if (!conditional) {
+      return required;
+    }
+
+    boolean result = false;
+
+    if (condition != null && condition.test(bean)) {
+      result = true;
+    }
+
+    if (conditions != null && allTest(conditions, bean)) {
+      result = true;
+    }
+
+    if (complexConditions != null) {
+      boolean any = false;
+      boolean all = true;
+      for (ConditionRule[] group : complexConditions) {
+        boolean match = allTest(group, bean);
+        any |= match;
+        all &= match;
+      }
+      if (symbol == ComplexCondition.Symbol.OR && any
+          || symbol == ComplexCondition.Symbol.AND && all) {
+        result = true;
+      }
+    }
+
+    return result;
+  }
+
+  private static boolean allTest(ConditionRule[] rules, Object bean) {
+    for (ConditionRule rule : rules) {
+      if (!rule.test(bean)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void requireValue(ValidationContext context) {
+    if (context.value(accessor) == null) {
+      context.report(missing);
+    }
+  }
+}
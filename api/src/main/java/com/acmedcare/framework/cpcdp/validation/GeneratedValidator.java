@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) 2019 Acmedcare+
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.acmedcare.framework.cpcdp.validation;
+
+import com.acmedcare.framework.cpcdp.SerializerFactory.InvalidBeanParameterException;
+import com.acmedcare.framework.cpcdp.consts.CpcEnum;
+import com.acmedcare.framework.cpcdp.kits.Reflections;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * {@link GeneratedValidator}
+ *
+ * <p>Base class of the <code>XxxValidator</code> classes generated by the CPCDP annotation
+ * processor (module <code>cpcdp-processor</code>). Generated validators read bean fields with
+ * direct getter calls and the keys of cpc enums with direct <code>key()</code> calls, {@link
+ * ValidationPlan} prefers them to reflection.
+ *
+ * @author <a href="mailto:iskp.me@gmail.com">Elve.Xu</a>
+ * @version ${project.version} - 2019/11/14.
+ * @param <T> bean type
+ */
+public abstract class GeneratedValidator<T> {
+
+  private static final Logger log = LoggerFactory.getLogger(GeneratedValidator.class);
+
+  /** Generated class name suffix */
+  public static final String SUFFIX = "Validator";
+
+  private final Class<T> type;
+
+  private final Map<String, Integer> slots;
+
+  protected GeneratedValidator(Class<T> type, String[] fields) {
+    this.type = type;
+    this.slots = new HashMap<>(fields.length * 2);
+    for (int i = 0; i < fields.length; i++) {
+      this.slots.put(fields[i], i);
+    }
+  }
+
+  public Class<T> type() {
+    return type;
+  }
+
+  /**
+   * Validate bean instance with the profile selected by its record status, stop at the first
+   * invalid field.
+   *
+   * @param bean bean instance
+   * @throws InvalidBeanParameterException if any field is invalid
+   */
+  public void validate(T bean) throws InvalidBeanParameterException {
+    ValidationPlan.select(bean).validate(bean);
+  }
+
+  /**
+   * Read field value by slot
+   *
+   * @param bean bean instance
+   * @param slot field slot
+   * @return field value
+   */
+  protected abstract Object read(T bean, int slot);
+
+  /**
+   * Read primitive integral field value by slot without boxing, generated classes override it for
+   * <code>byte / short / int / long</code> fields.
+   *
+   * @param bean bean instance
+   * @param slot field slot
+   * @return field value
+   */
+  protected long readLong(T bean, int slot) {
+    return ((Number) read(bean, slot)).longValue();
+  }
+
+  /**
+   * Read primitive numeric field value by slot without boxing, generated classes override it for
+   * primitive numeric fields.
+   *
+   * @param bean bean instance
+   * @param slot field slot
+   * @return field value
+   */
+  protected double readDouble(T bean, int slot) {
+    return ((Number) read(bean, slot)).doubleValue();
+  }
+
+  /**
+   * Read key of cpc enum field value by slot, generated classes override it for enum fields.
+   *
+   * @param slot field slot
+   * @param value field value, not null
+   * @return value of enum's <code>key()</code>
+   */
+  protected Object key(int slot, Object value) {
+    if (value instanceof CpcEnum) {
+      return ((CpcEnum) value).key();
+    }
+    return Reflections.invokeMethod(value, FieldAccessor.CPC_ENUM_KEY_METHOD_NAME, null, null);
+  }
+
+  int slot(String field) {
+    Integer slot = slots.get(field);
+    return slot == null ? -1 : slot;
+  }
+
+  FieldAccessor accessor(int slot, int index) {
+    return new SlotAccessor(slot, index);
+  }
+
+  /**
+   * Find generated validator of bean class
+   *
+   * @param type bean class
+   * @return generated validator, or null if bean class was not processed
+   */
+  static GeneratedValidator<?> find(Class<?> type) {
+    try {
+      Class<?> clazz = Class.forName(type.getName() + SUFFIX, true, type.getClassLoader());
+      if (GeneratedValidator.class.isAssignableFrom(clazz)) {
+        GeneratedValidator<?> validator = (GeneratedValidator<?>) clazz.newInstance();
+        if (validator.type() == type) {
+          return validator;
+        }
+      }
+    } catch (ClassNotFoundException e) {
+      // not processed, fallback to reflection
+    } catch (Exception e) {
+      log.warn("Generated validator of {} can't be used, fallback to reflection", type.getName(), e);
+    }
+    return null;
+  }
+
+  /** Accessor of one generated slot */
+  private final class SlotAccessor extends FieldAccessor {
+
+    private final int slot;
+
+    SlotAccessor(int slot, int index) {
+      super(index);
+      this.slot = slot;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    Object read(Object bean) {
+      return GeneratedValidator.this.read((T) bean, slot);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    long readLong(Object bean) {
+      return GeneratedValidator.this.readLong((T) bean, slot);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    double readDouble(Object bean) {
+      return GeneratedValidator.this.readDouble((T) bean, slot);
+    }
+
+    @Override
+    Object key(Object value) {
+      return GeneratedValidator.this.key(slot, value);
+    }
+  }
+}
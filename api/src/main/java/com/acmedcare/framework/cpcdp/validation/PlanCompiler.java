@@ -0,0 +1,254 @@
+/*
+ * Copyright (c) 2019 Acmedcare+
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.acmedcare.framework.cpcdp.validation;
+
+import com.acmedcare.framework.cpcdp.CpcdpException;
+import com.acmedcare.framework.cpcdp.Status;
+import com.acmedcare.framework.cpcdp.annotation.Condition;
+import com.acmedcare.framework.cpcdp.gson.BeanMetadata;
+import com.acmedcare.framework.cpcdp.kits.Reflections;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * {@link PlanCompiler}
+ *
+ * <p>Compiles the annotated fields of bean class into {@link FieldRule}s and the <code>field=
+ * </code> references of their condition(s) into a dependency graph of fields. Dangling and cyclic
+ * references are rejected with {@link CpcdpException}, nodes of graph are numbered in topological
+ * order (dependencies first).
+ *
+ * @author <a href="mailto:iskp.me@gmail.com">Elve.Xu</a>
+ * @version ${project.version} - 2019/11/15.
+ */
+final class PlanCompiler {
+
+  private static final String STATUS_FIELD_NAME = "status";
+
+  private final Class<?> type;
+
+  private final GeneratedValidator<?> generated;
+
+  private final Map<String, FieldRule> rules = new LinkedHashMap<>();
+
+  private final Map<Field, FieldAccessor> accessors = new HashMap<>();
+
+  /** identical conditions declared on different fields are shared */
+  private final Map<String, ConditionRule> conditions = new HashMap<>();
+
+  /** violation of null condition field, shared by all conditions on the same field */
+  private final Map<String, Violation> nullValues = new HashMap<>();
+
+  private int violations;
+
+  private FieldRule[] nodes;
+
+  private DependencyGraph graph;
+
+  private FieldAccessor status;
+
+  PlanCompiler(Class<?> type) {
+    this.type = type;
+    // prefer the validator generated at compile time
+    this.generated = GeneratedValidator.find(type);
+  }
+
+  PlanCompiler compile() {
+
+    for (Field field : type.getDeclaredFields()) {
+      if (FieldRule.isAnnotated(field)) {
+        rules.put(field.getName(), new FieldRule(field, this));
+      }
+    }
+
+    for (FieldRule rule : rules.values()) {
+      rule.link(this);
+    }
+
+    sort();
+    graph = new DependencyGraph(rules.values(), nodes);
+
+    Field statusField = findField(type, STATUS_FIELD_NAME);
+    if (statusField != null && statusField.getType() == Status.class) {
+      status = accessor(statusField);
+    }
+    return this;
+  }
+
+  boolean isGenerated() {
+    return generated != null;
+  }
+
+  Map<String, FieldRule> rules() {
+    return rules;
+  }
+
+  FieldRule[] nodes() {
+    return nodes;
+  }
+
+  DependencyGraph graph() {
+    return graph;
+  }
+
+  /**
+   * Returns accessor of record status field
+   *
+   * @return accessor, null if bean class has no {@link Status} field named <code>status</code>
+   */
+  FieldAccessor status() {
+    return status;
+  }
+
+  int accessorCount() {
+    return accessors.size();
+  }
+
+  int conditionCount() {
+    return conditions.size();
+  }
+
+  int violationCount() {
+    return violations;
+  }
+
+  Violation violation(Field field, Violation.Type type, String message) {
+    return new Violation(violations++, field.getName(), jsonKey(field), type, message);
+  }
+
+  String jsonKey(Field field) {
+    return BeanMetadata.jsonName(field);
+  }
+
+  FieldAccessor accessor(Field field) {
+    FieldAccessor accessor = accessors.get(field);
+    if (accessor == null) {
+      accessor = FieldAccessor.of(field, generated, accessors.size());
+      accessors.put(field, accessor);
+    }
+    return accessor;
+  }
+
+  ConditionRule condition(Condition condition) {
+    String key =
+        condition.field()
+            + '|'
+            + condition.isCpcEnum()
+            + '|'
+            + condition.strategy()
+            + '|'
+            + new TreeSet<>(Arrays.asList(condition.expectValue()));
+
+    ConditionRule rule = conditions.get(key);
+    if (rule == null) {
+      String fieldName = condition.field();
+      FieldRule target = rules.get(fieldName);
+      Field field = target != null ? target.field() : findField(type, fieldName);
+      if (field == null) {
+        throw new CpcdpException("条件属性: <" + fieldName + "> 未定义, 类: " + type.getName());
+      }
+
+      Violation nullValue = nullValues.get(fieldName);
+      if (nullValue == null) {
+        nullValue =
+            violation(
+                field, Violation.Type.CONDITION_VALUE, "条件属性: <" + fieldName + "> 值不能为空.");
+        nullValues.put(fieldName, nullValue);
+      }
+
+      rule =
+          new ConditionRule(
+              condition,
+              conditions.size(),
+              field.getType(),
+              target != null ? target.accessor() : accessor(field),
+              target != null && target.isConditional() ? target : null,
+              nullValue);
+      conditions.put(key, rule);
+    }
+    return rule;
+  }
+
+  /** Number the conditional fields in topological order, reject cyclic references. */
+  private void sort() {
+    List<FieldRule> sorted = new ArrayList<>();
+    Map<FieldRule, Boolean> visiting = new HashMap<>();
+    for (FieldRule rule : rules.values()) {
+      if (rule.isConditional()) {
+        visit(rule, visiting, new ArrayList<>(), sorted);
+      }
+    }
+
+    this.nodes = sorted.toArray(new FieldRule[0]);
+    for (int i = 0; i < nodes.length; i++) {
+      nodes[i].node(i);
+    }
+  }
+
+  private void visit(
+      FieldRule rule, Map<FieldRule, Boolean> visiting, List<String> path, List<FieldRule> sorted) {
+    Boolean state = visiting.get(rule);
+    if (Boolean.FALSE.equals(state)) {
+      return;
+    }
+
+    path.add(rule.name());
+
+    if (Boolean.TRUE.equals(state)) {
+      List<String> cycle = path.subList(path.indexOf(rule.name()), path.size());
+      throw new CpcdpException(
+          "条件属性循环依赖: " + String.join(" -> ", cycle) + ", 类: " + type.getName());
+    }
+
+    visiting.put(rule, Boolean.TRUE);
+    for (FieldRule dependency : rule.dependencies()) {
+      visit(dependency, visiting, path, sorted);
+    }
+    visiting.put(rule, Boolean.FALSE);
+
+    path.remove(path.size() - 1);
+    sorted.add(rule);
+  }
+
+  private static Field findField(Class<?> type, String fieldName) {
+    for (Class<?> superClass = type;
+        superClass != null && superClass != Object.class;
+        superClass = superClass.getSuperclass()) {
+      try {
+        Field field = superClass.getDeclaredField(fieldName);
+        Reflections.makeAccessible(field);
+        return field;
+      } catch (NoSuchFieldException e) {
+        // Field不在当前类定义,继续向上转型
+      }
+    }
+    return null;
+  }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2019 Acmedcare+
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.acmedcare.framework.cpcdp.validation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link ValidationContext}
+ *
+ * <p>State of one validation run: field values and cpc enum keys are read at most once, every
+ * condition is matched at most once and the condition(s) of every field are checked at most once.
+ * Violations are collected instead of thrown, in fail-fast mode the run is done at the first one.
+ *
+ * @author <a href="mailto:iskp.me@gmail.com">Elve.Xu</a>
+ * @version ${project.version} - 2019/11/15.
+ */
+final class ValidationContext {
+
+  private static final Object UNREAD = new Object();
+
+  private static final byte UNKNOWN = 0;
+
+  private static final byte MATCHED = 1;
+
+  private static final byte UNMATCHED = 2;
+
+  private final Object bean;
+
+  private final ValidationProfile profile;
+
+  private final Object[] values;
+
+  private final Object[] keys;
+
+  private final byte[] matches;
+
+  private final boolean[] checked;
+
+  private final boolean failFast;
+
+  private final boolean[] reported;
+
+  private final List<Violation> violations;
+
+  /** context of the bean this one is nested in, null if not nested */
+  private final ValidationContext parent;
+
+  ValidationContext(
+      Object bean,
+      ValidationProfile profile,
+      int accessors,
+      int conditions,
+      int nodes,
+      int descriptors,
+      boolean failFast,
+      ValidationContext parent) {
+    this.bean = bean;
+    this.parent = parent;
+    this.profile = profile;
+    this.failFast = failFast;
+    this.reported = new boolean[descriptors];
+    this.violations = failFast ? new ArrayList<>(1) : new ArrayList<>();
+    this.values = new Object[accessors];
+    this.keys = new Object[accessors];
+    this.matches = new byte[conditions];
+    this.checked = new boolean[nodes];
+    for (int i = 0; i < accessors; i++) {
+      this.values[i] = UNREAD;
+      this.keys[i] = UNREAD;
+    }
+  }
+
+  Object bean() {
+    return bean;
+  }
+
+  ValidationProfile profile() {
+    return profile;
+  }
+
+  /**
+   * Check whether bean is validated by this context or by one it is nested in
+   *
+   * @param bean bean, compared by identity
+   * @return true if cascading into bean would cycle
+   */
+  boolean validating(Object bean) {
+    for (ValidationContext context = this; context != null; context = context.parent) {
+      if (context.bean == bean) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  Object value(FieldAccessor accessor) {
+    int index = accessor.index();
+    Object value = values[index];
+    if (value == UNREAD) {
+      value = values[index] = accessor.read(bean);
+    }
+    return value;
+  }
+
+  Object key(FieldAccessor accessor, Object value) {
+    int index = accessor.index();
+    Object key = keys[index];
+    if (key == UNREAD) {
+      key = keys[index] = accessor.key(value);
+    }
+    return key;
+  }
+
+  /**
+   * Returns memoized match result of condition
+   *
+   * @param condition index of condition
+   * @return {@link Boolean#TRUE} or {@link Boolean#FALSE}, null if not matched yet
+   */
+  Boolean matched(int condition) {
+    byte state = matches[condition];
+    return state == UNKNOWN ? null : state == MATCHED;
+  }
+
+  void matched(int condition, boolean matched) {
+    matches[condition] = matched ? MATCHED : UNMATCHED;
+  }
+
+  /**
+   * Mark condition(s) of node checked
+   *
+   * @param node index of node
+   * @return true if node was not checked before
+   */
+  boolean check(int node) {
+    if (checked[node]) {
+      return false;
+    }
+    checked[node] = true;
+    return true;
+  }
+
+  /**
+   * Report violation, the same preallocated violation is reported only once.
+   *
+   * @param violation preallocated violation
+   */
+  void report(Violation violation) {
+    if (done()) {
+      return;
+    }
+    if (violation.index() >= 0) {
+      if (reported[violation.index()]) {
+        return;
+      }
+      reported[violation.index()] = true;
+    }
+    violations.add(violation);
+  }
+
+  /**
+   * Returns true if validation run should stop
+   *
+   * @return true if fail-fast and any violation reported
+   */
+  boolean failFast() {
+    return failFast;
+  }
+
+  boolean done() {
+    return failFast && !violations.isEmpty();
+  }
+
+  List<Violation> violations() {
+    return violations;
+  }
+
+  Violation first() {
+    return violations.isEmpty() ? null : violations.get(0);
+  }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2019 Acmedcare+
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.acmedcare.framework.cpcdp.validation;
+
+/**
+ * {@link ValidationPass}
+ *
+ * <p>Fail-fast validation of one bean, driven by the caller field by field: {@link #advance(int)}
+ * runs the rules up to the position of current field, {@link #finish()} runs the rest. The rules
+ * are always run in plan order, so the first violation is the same as {@link
+ * ValidationPlan#check(Object)}, whatever the order of fields visited.
+ *
+ * <p>Not thread-safe, one pass per bean.
+ *
+ * @author <a href="mailto:iskp.me@gmail.com">Elve.Xu</a>
+ * @version ${project.version} - 2019/11/21.
+ */
+public final class ValidationPass {
+
+  private final ValidationPlan plan;
+
+  private final FieldRule[] rules;
+
+  private final ValidationContext context;
+
+  /** position of next rule to run */
+  private int next;
+
+  /** exception thrown by rule, rethrown by {@link #finish()} */
+  private RuntimeException error;
+
+  ValidationPass(ValidationPlan plan, FieldRule[] rules, ValidationContext context) {
+    this.plan = plan;
+    this.rules = rules;
+    this.context = context;
+  }
+
+  public ValidationPlan plan() {
+    return plan;
+  }
+
+  /**
+   * Run the rules not run yet, up to position (inclusive).
+   *
+   * @param position position of rule, see {@link ValidationPlan#position(String)}
+   * @return true if bean is still valid, false if any violation found or any rule failed
+   */
+  public boolean advance(int position) {
+    if (error != null) {
+      return false;
+    }
+    try {
+      while (next <= position && !context.done()) {
+        rules[next++].validate(context);
+      }
+    } catch (RuntimeException e) {
+      error = e;
+      return false;
+    }
+    return !context.done();
+  }
+
+  /**
+   * Run all the rest rules
+   *
+   * @return the first violation, null if bean is valid
+   * @throws RuntimeException exception thrown by any rule
+   */
+  public Violation finish() {
+    advance(rules.length - 1);
+    if (error != null) {
+      throw error;
+    }
+    return context.first();
+  }
+}
@@ -0,0 +1,345 @@
+/*
+ * Copyright (c) 2019 Acmedcare+
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.acmedcare.framework.cpcdp.validation;
+
+import com.acmedcare.framework.cpcdp.CpcdpException;
+import com.acmedcare.framework.cpcdp.SerializerFactory.InvalidBeanParameterException;
+import com.acmedcare.framework.cpcdp.Status;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * {@link ValidationPlan}
+ *
+ * <p>Immutable validation plan of one bean class. The {@link
+ * com.acmedcare.framework.cpcdp.annotation.Required}, {@link
+ * com.acmedcare.framework.cpcdp.annotation.AllowValues}, {@link
+ * com.acmedcare.framework.cpcdp.annotation.Condition}, {@link
+ * com.acmedcare.framework.cpcdp.annotation.Conditions} and {@link
+ * com.acmedcare.framework.cpcdp.annotation.ComplexCondition} annotations are resolved only once
+ * per class, validating a bean just walks the compiled rules in field declaration order.
+ *
+ * @author <a href="mailto:iskp.me@gmail.com">Elve.Xu</a>
+ * @version ${project.version} - 2019/11/13.
+ */
+public final class ValidationPlan {
+
+  private static final Logger log = LoggerFactory.getLogger(ValidationPlan.class);
+
+  /** plans of bean class, indexed by {@link ValidationProfile#ordinal()} */
+  private static final ClassValue<ValidationPlan[]> PLANS =
+      new ClassValue<ValidationPlan[]>() {
+        @Override
+        protected ValidationPlan[] computeValue(Class<?> type) {
+          return compile(type);
+        }
+      };
+
+  private final Class<?> type;
+
+  private final ValidationProfile profile;
+
+  /**
+   * {@link com.acmedcare.framework.cpcdp.annotation.Required} and constrained rules, in declaration
+   * order
+   */
+  private final FieldRule[] rules;
+
+  /** positions of rules by field name */
+  private final Map<String, Integer> positions;
+
+  private final int accessors;
+
+  private final int conditions;
+
+  private final int nodes;
+
+  private final int violations;
+
+  private final DependencyGraph graph;
+
+  /** accessor of record {@link Status} field, null if undefined */
+  private final FieldAccessor status;
+
+  private ValidationPlan(
+      Class<?> type,
+      ValidationProfile profile,
+      FieldRule[] rules,
+      int accessors,
+      int conditions,
+      int violations,
+      DependencyGraph graph,
+      FieldAccessor status) {
+    this.type = type;
+    this.profile = profile;
+    this.rules = rules;
+    this.positions = new HashMap<>(rules.length * 2);
+    for (int i = 0; i < rules.length; i++) {
+      positions.putIfAbsent(rules[i].name(), i);
+    }
+    this.accessors = accessors;
+    this.conditions = conditions;
+    this.nodes = graph.nodes().length;
+    this.violations = violations;
+    this.graph = graph;
+    this.status = status;
+  }
+
+  /**
+   * Returns the cached {@link ValidationProfile#FINAL} validation plan of bean class
+   *
+   * @param type bean class
+   * @return instance of {@link ValidationPlan}
+   * @throws com.acmedcare.framework.cpcdp.CpcdpException if condition(s) of bean class reference
+   *     undefined field or reference each other cyclically
+   */
+  public static ValidationPlan of(Class<?> type) {
+    return of(type, ValidationProfile.FINAL);
+  }
+
+  /**
+   * Returns the cached validation plan of bean class
+   *
+   * @param type bean class
+   * @param profile validation profile
+   * @return instance of {@link ValidationPlan}
+   * @throws com.acmedcare.framework.cpcdp.CpcdpException if condition(s) of bean class reference
+   *     undefined field or reference each other cyclically
+   */
+  public static ValidationPlan of(Class<?> type, ValidationProfile profile) {
+    return PLANS.get(type)[profile.ordinal()];
+  }
+
+  /**
+   * Returns the cached validation plan of bean, the profile is selected by the record {@link
+   * Status} field of bean, see {@link ValidationProfile#of}.
+   *
+   * @param bean bean instance
+   * @return instance of {@link ValidationPlan}
+   */
+  public static ValidationPlan select(Object bean) {
+    ValidationPlan[] plans = PLANS.get(bean.getClass());
+    FieldAccessor accessor = plans[0].status;
+    Status status = accessor == null ? null : (Status) accessor.read(bean);
+    return plans[ValidationProfile.of(status).ordinal()];
+  }
+
+  /**
+   * Validate record of batch with the plan selected by {@link #select(Object)}. A null record, or
+   * a record whose plan can not be compiled, is reported as one {@link Violation.Type#RECORD}
+   * violation, so it does not fail the other records.
+   *
+   * @param record record of batch
+   * @return instance of {@link ValidationReport}
+   */
+  public static ValidationReport reportRecord(Object record) {
+    if (record == null) {
+      return ValidationReport.rejected(null, "提交对象不能为空");
+    }
+    ValidationPlan plan;
+    try {
+      plan = select(record);
+    } catch (CpcdpException e) {
+      return ValidationReport.rejected(record.getClass(), e.getMessage());
+    }
+    return plan.report(record);
+  }
+
+  /**
+   * Validate bean instance, stop at the first invalid field.
+   *
+   * @param bean bean instance
+   * @throws InvalidBeanParameterException if any field is invalid
+   */
+  public void validate(Object bean) throws InvalidBeanParameterException {
+    Violation violation = check(bean);
+    if (violation != null) {
+      throw violation.exception();
+    }
+  }
+
+  /**
+   * Validate bean instance in fail-fast mode, without exception.
+   *
+   * @param bean bean instance
+   * @return the first violation, null if bean is valid
+   */
+  public Violation check(Object bean) {
+    return run(bean, true, null).first();
+  }
+
+  /**
+   * Validate only the rules depending on changed fields in fail-fast mode: the rules of changed
+   * fields and the rules conditioned on them, in plan order. Rules of unchanged fields are not run,
+   * e.g. for partial payloads.
+   *
+   * @param bean bean instance
+   * @param fields names of changed fields
+   * @return the first violation, null if the rules run are satisfied
+   */
+  public Violation check(Object bean, Collection<String> fields) {
+    BitSet selected = new BitSet(rules.length);
+    for (String field : fields) {
+      for (FieldRule rule : graph.dependents(field)) {
+        Integer position = positions.get(rule.name());
+        if (position != null) {
+          selected.set(position);
+        }
+      }
+    }
+
+    ValidationContext context = context(bean, true);
+    for (int i = selected.nextSetBit(0);
+        i >= 0 && !context.done();
+        i = selected.nextSetBit(i + 1)) {
+      rules[i].validate(context);
+    }
+    return context.first();
+  }
+
+  /**
+   * Validate bean instance, collect all violations in one pass.
+   *
+   * @param bean bean instance
+   * @return instance of {@link ValidationReport}
+   */
+  public ValidationReport report(Object bean) {
+    return new ValidationReport(type, run(bean, false, null).violations());
+  }
+
+  /**
+   * Open incremental validation session of bean, for records edited field by field (e.g. {@link
+   * Status#S01}). The session always tracks the {@link
+   * ValidationProfile#FINAL} rules.
+   *
+   * @param bean bean instance
+   * @return instance of {@link ValidationSession}
+   */
+  public ValidationSession session(Object bean) {
+    return new ValidationSession(type, graph, bean);
+  }
+
+  /**
+   * Open fail-fast validation pass of bean, the rules are run in plan order while the caller walks
+   * the fields of bean, see {@link ValidationPass}.
+   *
+   * @param bean bean instance
+   * @return instance of {@link ValidationPass}
+   */
+  public ValidationPass pass(Object bean) {
+    return new ValidationPass(this, rules, context(bean, true));
+  }
+
+  /**
+   * Returns position of field's rule in plan
+   *
+   * @param field field name
+   * @return position of rule, -1 if the field is not checked by plan
+   */
+  public int position(String field) {
+    Integer position = positions.get(field);
+    return position == null ? -1 : position;
+  }
+
+  /**
+   * Run nested validation with the plan of parent's profile, in the mode of parent context
+   *
+   * @param bean nested bean
+   * @param parent validation context of parent bean
+   * @return context of nested bean
+   */
+  static ValidationContext cascade(Object bean, ValidationContext parent) {
+    return of(bean.getClass(), parent.profile()).run(bean, parent.failFast(), parent);
+  }
+
+  private ValidationContext run(Object bean, boolean failFast, ValidationContext parent) {
+    ValidationContext context = context(bean, failFast, parent);
+    for (FieldRule rule : rules) {
+      if (context.done()) {
+        break;
+      }
+      rule.validate(context);
+    }
+    return context;
+  }
+
+  private ValidationContext context(Object bean, boolean failFast) {
+    return context(bean, failFast, null);
+  }
+
+  private ValidationContext context(Object bean, boolean failFast, ValidationContext parent) {
+    return new ValidationContext(
+        bean, profile, accessors, conditions, nodes, violations, failFast, parent);
+  }
+
+  public Class<?> type() {
+    return type;
+  }
+
+  public ValidationProfile profile() {
+    return profile;
+  }
+
+  private static ValidationPlan[] compile(Class<?> type) {
+
+    PlanCompiler compiler = new PlanCompiler(type).compile();
+    Map<String, FieldRule> rules = compiler.rules();
+
+    ValidationPlan[] plans = new ValidationPlan[ValidationProfile.values().length];
+    for (ValidationProfile profile : ValidationProfile.values()) {
+      FieldRule[] checked =
+          rules.values().stream()
+              .filter(rule -> rule.isChecked(profile))
+              .toArray(FieldRule[]::new);
+
+      if (log.isDebugEnabled()) {
+        log.debug(
+            "Compiled {} validation plan of {} : {} rule(s), {} checked, {} condition(s), {} conditional, generated validator: {}",
+            profile,
+            type.getName(),
+            rules.size(),
+            checked.length,
+            compiler.conditionCount(),
+            compiler.nodes().length,
+            compiler.isGenerated());
+      }
+
+      plans[profile.ordinal()] =
+          new ValidationPlan(
+              type,
+              profile,
+              checked,
+              compiler.accessorCount(),
+              compiler.conditionCount(),
+              compiler.violationCount(),
+              compiler.graph(),
+              compiler.status());
+    }
+    return plans;
+  }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2019 Acmedcare+
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.acmedcare.framework.cpcdp.validation;
+
+import com.acmedcare.framework.cpcdp.Status;
+
+/**
+ * {@link ValidationProfile}
+ *
+ * <p>Named rule set of validation plan, every profile is compiled separately per bean class.
+ *
+ * @author <a href="mailto:iskp.me@gmail.com">Elve.Xu</a>
+ * @version ${project.version} - 2019/11/20.
+ */
+public enum ValidationProfile {
+
+  /**
+   * Structural checks of records in progress ({@link Status#S01}): {@link
+   * com.acmedcare.framework.cpcdp.annotation.AllowValues} of non-null values and the <code>
+   * javax.validation</code> constraints. Missing fields and condition(s) are not checked.
+   */
+  DRAFT,
+
+  /** All rules, for completed records ({@link Status#S02}) and beans without status. */
+  FINAL;
+
+  /**
+   * Returns profile of record status
+   *
+   * @param status record status, may be null
+   * @return {@link #DRAFT} for {@link Status#S01}, otherwise {@link #FINAL}
+   */
+  public static ValidationProfile of(Status status) {
+    return status == Status.S01 ? DRAFT : FINAL;
+  }
+}
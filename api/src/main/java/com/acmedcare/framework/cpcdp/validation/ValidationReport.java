@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2019 Acmedcare+
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.acmedcare.framework.cpcdp.validation;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * {@link ValidationReport}
+ *
+ * <p>All violations of one bean, collected in one pass.
+ *
+ * @author <a href="mailto:iskp.me@gmail.com">Elve.Xu</a>
+ * @version ${project.version} - 2019/11/16.
+ */
+public final class ValidationReport {
+
+  private final Class<?> type;
+
+  private final List<Violation> violations;
+
+  ValidationReport(Class<?> type, List<Violation> violations) {
+    this.type = type;
+    this.violations = Collections.unmodifiableList(violations);
+  }
+
+  /**
+   * Report of record rejected as a whole, see {@link Violation.Type#RECORD}
+   *
+   * @param type bean class, null if record is null
+   * @param message violation message
+   * @return instance of {@link ValidationReport}
+   */
+  static ValidationReport rejected(Class<?> type, String message) {
+    return new ValidationReport(
+        type,
+        Collections.singletonList(new Violation(-1, null, null, Violation.Type.RECORD, message)));
+  }
+
+  /**
+   * Returns the bean class
+   *
+   * @return bean class, null if record is null
+   */
+  public Class<?> getType() {
+    return type;
+  }
+
+  /**
+   * Returns violations in the order they are found, the first one is the violation reported by
+   * fail-fast validation
+   *
+   * @return violations, empty if bean is valid
+   */
+  public List<Violation> getViolations() {
+    return violations;
+  }
+
+  public boolean isValid() {
+    return violations.isEmpty();
+  }
+
+  @Override
+  public String toString() {
+    return "ValidationReport{type="
+        + (type == null ? null : type.getName())
+        + ", violations="
+        + violations
+        + "}";
+  }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2019 Acmedcare+
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.acmedcare.framework.cpcdp.validation;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * {@link ValidationSession}
+ *
+ * <p>Incremental validation of one bean edited over time. The caller reports the changed fields,
+ * only the rules depending on them are re-evaluated, following the reverse edges of the condition
+ * annotations. The missing fields are the ones {@link ValidationPlan#report(Object)} reports as
+ * {@link Violation.Type#REQUIRED} or {@link Violation.Type#CONDITION}.
+ *
+ * <p>Not thread safe, a session is bound to the editing of one bean.
+ *
+ * @author <a href="mailto:iskp.me@gmail.com">Elve.Xu</a>
+ * @version ${project.version} - 2019/11/18.
+ */
+public final class ValidationSession {
+
+  private final Class<?> type;
+
+  private final DependencyGraph graph;
+
+  private final Object bean;
+
+  /** checked[n] is true if the condition(s) of node n are checked by a full validation */
+  private final boolean[] checked;
+
+  private final Set<String> missing = new HashSet<>();
+
+  private final Set<String> missingView = Collections.unmodifiableSet(missing);
+
+  ValidationSession(Class<?> type, DependencyGraph graph, Object bean) {
+    if (!type.isInstance(bean)) {
+      throw new IllegalArgumentException(
+          "Bean [" + bean + "] is not instance of " + type.getName());
+    }
+    this.type = type;
+    this.graph = graph;
+    this.bean = bean;
+    this.checked = new boolean[graph.nodes().length];
+
+    FieldRule[] nodes = graph.nodes();
+    for (int node = nodes.length - 1; node >= 0; node--) {
+      checked[node] = isChecked(node);
+    }
+    for (FieldRule rule : graph.rules()) {
+      refresh(rule);
+    }
+  }
+
+  public Class<?> getType() {
+    return type;
+  }
+
+  public Object getBean() {
+    return bean;
+  }
+
+  /**
+   * Returns the currently required but missing fields
+   *
+   * @return unmodifiable view of field names
+   */
+  public Set<String> getMissingFields() {
+    return missingView;
+  }
+
+  /**
+   * Re-evaluate the rules depending on changed fields
+   *
+   * @param fields names of changed fields
+   * @return the currently required but missing fields
+   */
+  public Set<String> update(String... fields) {
+    return update(Arrays.asList(fields));
+  }
+
+  /**
+   * Re-evaluate the rules depending on changed fields
+   *
+   * @param fields names of changed fields
+   * @return the currently required but missing fields
+   */
+  public Set<String> update(Collection<String> fields) {
+
+    FieldRule[] nodes = graph.nodes();
+    BitSet dirty = new BitSet(nodes.length);
+
+    for (String field : fields) {
+      for (FieldRule rule : graph.dependents(field)) {
+        if (rule.isConditional()) {
+          dirty.set(rule.node());
+        } else {
+          refresh(rule);
+        }
+      }
+    }
+
+    // dependents have higher index than their targets, visit them first
+    for (int node = dirty.previousSetBit(nodes.length - 1);
+        node >= 0;
+        node = dirty.previousSetBit(node - 1)) {
+      boolean before = checked[node];
+      checked[node] = isChecked(node);
+      if (before != checked[node]) {
+        for (FieldRule target : graph.targets(node)) {
+          dirty.set(target.node());
+        }
+      }
+      refresh(nodes[node]);
+    }
+
+    return missingView;
+  }
+
+  /** Required nodes are always checked, others when a checked node's condition reaches them. */
+  private boolean isChecked(int node) {
+    if (graph.nodes()[node].isRequired()) {
+      return true;
+    }
+    FieldRule[] sources = graph.sources(node);
+    ConditionRule[] incoming = graph.incoming(node);
+    for (int i = 0; i < sources.length; i++) {
+      if (checked[sources[i].node()] && incoming[i].checksTarget(bean)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private void refresh(FieldRule rule) {
+    boolean reached = !rule.isConditional() || checked[rule.node()];
+    if (reached && rule.accessor().read(bean) == null && rule.isRequiredBy(bean)) {
+      missing.add(rule.name());
+    } else {
+      missing.remove(rule.name());
+    }
+  }
+}
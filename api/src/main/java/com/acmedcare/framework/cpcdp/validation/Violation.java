@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2019 Acmedcare+
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.acmedcare.framework.cpcdp.validation;
+
+import com.acmedcare.framework.cpcdp.SerializerFactory.InvalidBeanParameterException;
+
+/**
+ * {@link Violation}
+ *
+ * <p>One violated rule of bean. Violations are error descriptors preallocated when the plan is
+ * compiled, a validation run only collects them.
+ *
+ * @author <a href="mailto:iskp.me@gmail.com">Elve.Xu</a>
+ * @version ${project.version} - 2019/11/16.
+ */
+public final class Violation {
+
+  /**
+   * index of descriptor in plan, violations are reported at most once per validation run. -1 for
+   * violations of nested beans.
+   */
+  private final int index;
+
+  private final String field;
+
+  private final String jsonKey;
+
+  private final Type type;
+
+  private final String message;
+
+  Violation(int index, String field, String jsonKey, Type type, String message) {
+    this.index = index;
+    this.field = field;
+    this.jsonKey = jsonKey;
+    this.type = type;
+    this.message = message;
+  }
+
+  int index() {
+    return index;
+  }
+
+  /**
+   * Returns violation of nested bean, located by path of its field
+   *
+   * @param path path of nested bean, e.g. <code>ecgs[2]</code>
+   * @param jsonPath json path of nested bean, e.g. <code>ECGS[2]</code>
+   * @return new violation, not preallocated
+   */
+  Violation nested(String path, String jsonPath) {
+    String nestedField = path + '.' + field;
+    return new Violation(
+        -1,
+        nestedField,
+        jsonPath + '.' + jsonKey,
+        type,
+        message.replace("<" + field + ">", "<" + nestedField + ">"));
+  }
+
+  /**
+   * Returns the name of violated field
+   *
+   * @return field name, null for {@link Type#RECORD}
+   */
+  public String getField() {
+    return field;
+  }
+
+  /**
+   * Returns the json key of violated field
+   *
+   * @return json key, null for {@link Type#RECORD}
+   */
+  public String getJsonKey() {
+    return jsonKey;
+  }
+
+  public Type getType() {
+    return type;
+  }
+
+  public String getMessage() {
+    return message;
+  }
+
+  /**
+   * Returns new exception of violation, without stack trace.
+   *
+   * @return instance of {@link InvalidBeanParameterException}
+   */
+  public InvalidBeanParameterException exception() {
+    return new InvalidBeanParameterException(message, false);
+  }
+
+  @Override
+  public String toString() {
+    if (field == null) {
+      return type + ": " + message;
+    }
+    return type + " " + field + "(" + jsonKey + "): " + message;
+  }
+
+  /** Violated Rule Type */
+  public enum Type {
+
+    /** {@link com.acmedcare.framework.cpcdp.annotation.Required} field is null */
+    REQUIRED,
+
+    /** value is not in {@link com.acmedcare.framework.cpcdp.annotation.AllowValues} */
+    ALLOW_VALUES,
+
+    /** field is null, but required by matched condition(s) */
+    CONDITION,
+
+    /** the field referenced by condition is null */
+    CONDITION_VALUE,
+
+    /** length out of {@link javax.validation.constraints.Size} */
+    SIZE,
+
+    /** less than {@link javax.validation.constraints.Min} or similar lower bound */
+    MIN,
+
+    /** greater than {@link javax.validation.constraints.Max} or similar upper bound */
+    MAX,
+
+    /** not matching {@link javax.validation.constraints.Pattern} */
+    PATTERN,
+
+    /** record of batch is null, or the rules of its class can not be compiled */
+    RECORD
+  }
+}
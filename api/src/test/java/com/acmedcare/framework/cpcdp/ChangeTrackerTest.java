@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2019 Acmedcare+
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.acmedcare.framework.cpcdp;
+
+import com.acmedcare.framework.cpcdp.bean.EcgBean;
+import com.acmedcare.framework.cpcdp.bean.FirstAidBean;
+import com.acmedcare.framework.cpcdp.bean.PatientRegisterBean;
+import com.acmedcare.framework.cpcdp.bean.TreatmentBean;
+import com.acmedcare.framework.cpcdp.consts.CredentialsType;
+import com.acmedcare.framework.cpcdp.consts.Gender;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * {@link ChangeTrackerTest}
+ *
+ * <p>Partial payloads of {@link SerializerFactory#toJsonPatch(ChangeTracker)}.
+ *
+ * @author <a href="mailto:iskp.me@gmail.com">Elve.Xu</a>
+ * @version ${project.version} - 2019/11/30.
+ */
+public class ChangeTrackerTest {
+
+  @Test
+  public void testJsonPatch() {
+
+    // nothing submitted yet, the first patch is validated like the whole record
+    PatientRegisterBean sparse = PatientRegisterBean.builder().id("2").name("Miss").build();
+    try {
+      SerializerFactory.toJsonPatch(ChangeTracker.of(sparse));
+      fail("expect CpcdpException");
+    } catch (CpcdpException e) {
+      assertEquals("属性: <hospitalId> 不能为空.", e.getMessage());
+    }
+
+    PatientRegisterBean register =
+        PatientRegisterBean.builder()
+            .id("1")
+            .hospitalId("1231ujs-88811")
+            .name("Miss")
+            .gender(Gender.MALE)
+            .birthday("2019-01-01")
+            .credentialsType(CredentialsType.NON)
+            .build();
+
+    ChangeTracker<PatientRegisterBean> tracker = ChangeTracker.of(register);
+    SerializerFactory.toJsonPatch(tracker).commit();
+    assertTrue(tracker.getDirtyFields().isEmpty());
+
+    register.setName("Mrs");
+    register.setCredentialsType(CredentialsType.ID_CARD);
+    assertEquals(Arrays.asList("name", "credentialsType"), tracker.getDirtyFields());
+
+    try {
+      SerializerFactory.toJsonPatch(tracker);
+      fail("expect CpcdpException");
+    } catch (CpcdpException e) {
+      assertEquals("属性: <idCard> 不能为空.", e.getMessage());
+    }
+
+    register.setIdCard("111123321321321312");
+    register.setBirthday(null);
+    String patch = SerializerFactory.toJsonPatch(tracker).getJson().replaceAll("\\s", "");
+    assertEquals(
+        "{\"ID\":\"1\",\"NAME\":\"Mrs\",\"BIRTHDAY\":null,\"CREDENTIALS_TYPE\":\"1\","
+            + "\"ID_CARD\":\"111123321321321312\"}",
+        patch);
+  }
+
+  @Test
+  public void testJsonPatchNotAccepted() {
+
+    PatientRegisterBean register =
+        PatientRegisterBean.builder()
+            .id("1")
+            .hospitalId("1231ujs-88811")
+            .name("Miss")
+            .gender(Gender.MALE)
+            .build();
+
+    ChangeTracker<PatientRegisterBean> tracker = ChangeTracker.of(register);
+    tracker.commit();
+
+    // the submission of first patch failed, it is not committed
+    register.setName("Mrs");
+    JsonPatch failed = SerializerFactory.toJsonPatch(tracker);
+    assertEquals(Collections.singletonList("name"), failed.getFields());
+    assertEquals(Collections.singletonList("name"), tracker.getDirtyFields());
+
+    register.setAge(30);
+    JsonPatch patch = SerializerFactory.toJsonPatch(tracker);
+    assertEquals(Arrays.asList("name", "age"), patch.getFields());
+    assertEquals(
+        "{\"ID\":\"1\",\"NAME\":\"Mrs\",\"AGE\":30}", patch.getJson().replaceAll("\\s", ""));
+
+    // changed again after serialized, the new value is not committed
+    register.setAge(31);
+    patch.commit();
+    assertEquals(Collections.singletonList("age"), tracker.getDirtyFields());
+  }
+
+  @Test
+  public void testJsonPatchIdentity() {
+
+    FirstAidBean firstAid = FirstAidBean.builder().inpatientId("Z001").build();
+    ChangeTracker<FirstAidBean> tracker = ChangeTracker.of(firstAid);
+    tracker.commit();
+    firstAid.setProvince("浙江");
+    assertEquals(
+        "{\"INPATIENT_ID\":\"Z001\",\"PROVINCE\":\"浙江\"}",
+        SerializerFactory.toJsonPatch(tracker).getJson().replaceAll("\\s", ""));
+
+    // no field identifies the record
+    try {
+      SerializerFactory.toJsonPatch(ChangeTracker.of(new TreatmentBean()));
+      fail("expect CpcdpException");
+    } catch (CpcdpException e) {
+      assertEquals("未定义记录标识属性, 类: " + TreatmentBean.class.getName(), e.getMessage());
+    }
+  }
+
+  @Test
+  public void testNestedBeansChanged() {
+
+    List<EcgBean> ecgs = new ArrayList<>(Collections.singletonList(new EcgBean()));
+    TreatmentBean treatment = TreatmentBean.builder().hasEcgImage("1").ecgs(ecgs).build();
+    ChangeTracker<TreatmentBean> tracker = ChangeTracker.of(treatment);
+    tracker.commit();
+
+    // an equal list is not a change
+    treatment.setEcgs(new ArrayList<>(ecgs));
+    assertTrue(tracker.getDirtyFields().isEmpty());
+
+    ecgs.add(new EcgBean());
+    treatment.setEcgs(ecgs);
+    assertEquals(Collections.singletonList("ecgs"), tracker.getDirtyFields());
+    tracker.commit();
+
+    // nested beans are compared by identity, changes inside them are marked
+    tracker.mark("ecgs");
+    assertEquals(Collections.singletonList("ecgs"), tracker.getDirtyFields());
+  }
+}
@@ -0,0 +1,276 @@
+/*
+ * Copyright (c) 2019 Acmedcare+
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.acmedcare.framework.cpcdp;
+
+import com.acmedcare.framework.cpcdp.annotation.Condition;
+import com.acmedcare.framework.cpcdp.annotation.Required;
+import com.acmedcare.framework.cpcdp.bean.PatientRegisterBean;
+import com.acmedcare.framework.cpcdp.bean.TreatmentBean;
+import com.acmedcare.framework.cpcdp.consts.CredentialsType;
+import com.acmedcare.framework.cpcdp.consts.Gender;
+import com.acmedcare.framework.cpcdp.kits.Utf8BufferWriter;
+import com.acmedcare.framework.cpcdp.validation.ValidationReport;
+import com.acmedcare.framework.cpcdp.validation.Violation;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+/**
+ * {@link SerializerFactoryTest}
+ *
+ * <p>{@link SerializerFactory#writeJson} must write the same bytes as the UTF-8 encoded {@link
+ * SerializerFactory#toJson(Object)}, the fused & batch entry points must agree with it too.
+ *
+ * @author <a href="mailto:iskp.me@gmail.com">Elve.Xu</a>
+ * @version ${project.version} - 2019/11/30.
+ */
+public class SerializerFactoryTest {
+
+  private static final String[] NAMES = {
+    "张三", "Zoë Müller", "患者😀🏥", "😀", "lone \uD83D high", "lone \uDE00 low", "end \uD83D"
+  };
+
+  @Test
+  public void testWriteJsonToStream() throws IOException {
+    for (String name : NAMES) {
+      PatientRegisterBean bean = register(name);
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      SerializerFactory.writeJson(bean, out);
+      assertArrayEquals(name, expected(bean), out.toByteArray());
+    }
+  }
+
+  @Test
+  public void testWriteJsonToBuffer() {
+    for (String name : NAMES) {
+      PatientRegisterBean bean = register(name);
+      byte[] expected = expected(bean);
+      for (ByteBuffer target :
+          new ByteBuffer[] {ByteBuffer.allocate(4096), ByteBuffer.allocateDirect(4096)}) {
+        target.position(7);
+        assertEquals(expected.length, SerializerFactory.writeJson(bean, target));
+        assertEquals(7 + expected.length, target.position());
+
+        byte[] actual = new byte[expected.length];
+        target.position(7);
+        target.get(actual);
+        assertArrayEquals(name, expected, actual);
+      }
+    }
+  }
+
+  @Test
+  public void testWriteJsonToSmallBuffer() {
+    PatientRegisterBean bean = register(NAMES[2]);
+    byte[] expected = expected(bean);
+    ByteBuffer target = ByteBuffer.allocate(expected.length + 1);
+    target.position(2);
+    try {
+      SerializerFactory.writeJson(bean, target);
+      fail("expect BufferOverflowException");
+    } catch (BufferOverflowException e) {
+      // nothing is put
+      assertEquals(2, target.position());
+      assertArrayEquals(new byte[target.capacity()], target.array());
+    }
+
+    // the buffer of failed call is reused
+    target.position(1);
+    assertEquals(expected.length, SerializerFactory.writeJson(bean, target));
+    assertArrayEquals(expected, Arrays.copyOfRange(target.array(), 1, target.capacity()));
+  }
+
+  @Test
+  public void testInvalidNotWritten() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ByteBuffer target = ByteBuffer.allocate(4096);
+    PatientRegisterBean invalid = PatientRegisterBean.builder().id("1").build();
+    try {
+      SerializerFactory.writeJson(invalid, out);
+      fail("expect invalid bean");
+    } catch (RuntimeException expected) {
+      assertEquals(0, out.size());
+    }
+    try {
+      SerializerFactory.writeJson(invalid, target);
+      fail("expect invalid bean");
+    } catch (RuntimeException expected) {
+      assertEquals(0, target.position());
+    }
+
+    // nothing left in the pooled buffer
+    PatientRegisterBean bean = register(NAMES[0]);
+    SerializerFactory.writeJson(bean, out);
+    assertArrayEquals(expected(bean), out.toByteArray());
+  }
+
+  @Test
+  public void testLargeBufferNotPooled() {
+    Utf8BufferWriter small = SerializerFactory.acquireBuffer();
+    SerializerFactory.releaseBuffer(small);
+    assertSame(small, SerializerFactory.acquireBuffer());
+
+    // grown beyond 1 MiB by one large record
+    char[] chars = new char[(1 << 20) / 3 + 1];
+    Arrays.fill(chars, '患');
+    small.write(chars, 0, chars.length);
+    SerializerFactory.releaseBuffer(small);
+
+    Utf8BufferWriter fresh = SerializerFactory.acquireBuffer();
+    assertNotSame(small, fresh);
+    assertEquals(8192, fresh.capacity());
+    assertEquals(0, fresh.size());
+    SerializerFactory.releaseBuffer(fresh);
+  }
+
+  @Test
+  public void testNestedBuffers() throws IOException {
+    Utf8BufferWriter outer = SerializerFactory.acquireBuffer();
+    outer.write("outer");
+
+    // a call nested in the outer one, e.g. by an adapter, gets its own buffer
+    Utf8BufferWriter inner = SerializerFactory.acquireBuffer();
+    assertNotSame(outer, inner);
+    PatientRegisterBean bean = register(NAMES[2]);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    SerializerFactory.writeJson(bean, out);
+    assertArrayEquals(expected(bean), out.toByteArray());
+    SerializerFactory.releaseBuffer(inner);
+
+    assertArrayEquals("outer".getBytes(StandardCharsets.UTF_8), outer.toByteArray());
+    SerializerFactory.releaseBuffer(outer);
+    assertSame(outer, SerializerFactory.acquireBuffer());
+    SerializerFactory.releaseBuffer(outer);
+  }
+
+  @Test
+  public void testValidateAll() {
+
+    List<Object> records = new ArrayList<>();
+    for (int i = 0; i < 10000; i++) {
+      records.add(
+          i % 3 == 0
+              ? TreatmentBean.builder().hasEcgImage("2").build()
+              : PatientRegisterBean.builder().credentialsType(CredentialsType.ID_CARD).build());
+    }
+
+    ValidationReport[] reports = SerializerFactory.validateAll(records);
+    BatchOutcome[] outcomes = SerializerFactory.toJsonAll(records);
+
+    assertEquals(records.size(), reports.length);
+    assertEquals(records.size(), outcomes.length);
+    for (int i = 0; i < reports.length; i++) {
+      assertSame(records.get(i).getClass(), reports[i].getType());
+      assertEquals(i, outcomes[i].getIndex());
+      assertFalse(outcomes[i].isSuccess());
+      assertEquals(
+          reports[i].getViolations().get(0).getMessage(), outcomes[i].getError().getMessage());
+    }
+  }
+
+  @Test
+  public void testValidateAllRejectedRecords() {
+
+    PatientRegisterBean register =
+        PatientRegisterBean.builder().credentialsType(CredentialsType.ID_CARD).build();
+    List<Object> records = Arrays.asList(register, null, new DanglingBean(), register);
+
+    ValidationReport[] reports = SerializerFactory.validateAll(records);
+
+    assertEquals(records.size(), reports.length);
+    assertEquals(SerializerFactory.validate(register).toString(), reports[0].toString());
+    assertEquals(reports[0].toString(), reports[3].toString());
+
+    assertNull(reports[1].getType());
+    assertEquals(1, reports[1].getViolations().size());
+    assertEquals(Violation.Type.RECORD, reports[1].getViolations().get(0).getType());
+    assertEquals("提交对象不能为空", reports[1].getViolations().get(0).getMessage());
+
+    assertSame(DanglingBean.class, reports[2].getType());
+    Violation violation = reports[2].getViolations().get(0);
+    assertEquals(Violation.Type.RECORD, violation.getType());
+    assertNull(violation.getField());
+    assertEquals(
+        "条件属性: <undefined> 未定义, 类: " + DanglingBean.class.getName(),
+        violation.getMessage());
+  }
+
+  @Test
+  public void testFusedSerialization() {
+
+    PatientRegisterBean register =
+        PatientRegisterBean.builder()
+            .hospitalId("1231ujs-88811")
+            .name("Miss")
+            .gender(Gender.MALE)
+            .credentialsType(CredentialsType.ID_CARD)
+            .build();
+
+    try {
+      SerializerFactory.toJsonFused(register);
+      fail("expect CpcdpException");
+    } catch (CpcdpException e) {
+      assertEquals("属性: <idCard> 不能为空.", e.getMessage());
+    }
+
+    register.setIdCard("111123321321321312");
+    assertEquals(SerializerFactory.toJson(register), SerializerFactory.toJsonFused(register));
+  }
+
+  private static byte[] expected(Object bean) {
+    return SerializerFactory.toJson(bean).getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static PatientRegisterBean register(String name) {
+    return PatientRegisterBean.builder()
+        .id("1")
+        .hospitalId("1231ujs-88811")
+        .name(name)
+        .nation("汉族")
+        .gender(Gender.MALE)
+        .credentialsType(CredentialsType.NON)
+        .build();
+  }
+
+  static class DanglingBean {
+
+    @Required
+    @Condition(field = "undefined", expectValue = "1")
+    private String a;
+  }
+}
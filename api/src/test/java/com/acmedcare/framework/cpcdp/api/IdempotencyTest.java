@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2019 Acmedcare+
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.acmedcare.framework.cpcdp.api;
+
+import com.acmedcare.framework.cpcdp.bean.PatientRegisterBean;
+import com.acmedcare.framework.cpcdp.bean.TreatmentBean;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link IdempotencyTest}
+ *
+ * @author <a href="mailto:iskp.me@gmail.com">Elve.Xu</a>
+ * @version ${project.version} - 2019/11/29.
+ */
+public class IdempotencyTest {
+
+  @Test
+  public void testIdempotencyKey() {
+    byte[] json = "{\"NAME\":\"张三\"}".getBytes(StandardCharsets.UTF_8);
+    PatientRegisterBean bean = PatientRegisterBean.builder().id("1001").registerId("R01").build();
+
+    String key = IdempotencyKey.of(bean, json);
+    assertTrue(key.startsWith("PatientRegisterBean:1001:R01:"));
+    assertEquals(key, IdempotencyKey.of(bean, json.clone()));
+    assertNotEquals(
+        key, IdempotencyKey.of(bean, "{\"NAME\":\"李四\"}".getBytes(StandardCharsets.UTF_8)));
+    assertNotEquals(
+        key,
+        IdempotencyKey.of(
+            PatientRegisterBean.builder().id("1002").registerId("R01").build(), json));
+
+    // no identity fields, content only
+    assertTrue(
+        IdempotencyKey.of(new TreatmentBean(), json).matches("TreatmentBean:[0-9a-f]{32}"));
+  }
+
+  @Test
+  public void testBatchKey() {
+    List<String> keys = Arrays.asList("PatientRegisterBean:1:a", "PatientRegisterBean:2:b");
+
+    String key = IdempotencyKey.ofBatch(keys);
+    assertTrue(key.matches("batch:2:[0-9a-f]{32}"));
+    assertEquals(key, IdempotencyKey.ofBatch(new ArrayList<>(keys)));
+    assertNotEquals(key, IdempotencyKey.ofBatch(Arrays.asList(keys.get(1), keys.get(0))));
+    // keys are delimited, not concatenated
+    assertNotEquals(
+        IdempotencyKey.ofBatch(Arrays.asList("ab", "c")),
+        IdempotencyKey.ofBatch(Arrays.asList("a", "bc")));
+  }
+
+  @Test
+  public void testDedupIndex() {
+    DedupIndex index = new DedupIndex(100);
+    for (int i = 0; i < 1000; i++) {
+      index.add("key-" + i);
+      // recently used keys are kept
+      assertTrue(index.contains("key-" + (i / 2 * 2)));
+    }
+    assertEquals(100, index.size());
+    for (int i = 900; i < 1000; i++) {
+      assertTrue(index.contains("key-" + i));
+    }
+    assertFalse(index.contains("key-0"));
+    assertFalse(index.contains("key-1"));
+    assertFalse(index.contains("other"));
+  }
+}
@@ -0,0 +1,336 @@
+/*
+ * Copyright (c) 2019 Acmedcare+
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.acmedcare.framework.cpcdp.api;
+
+import com.acmedcare.framework.cpcdp.CpcdpException;
+import com.acmedcare.framework.cpcdp.SerializerFactory;
+import com.acmedcare.framework.cpcdp.bean.PatientRegisterBean;
+import com.acmedcare.framework.cpcdp.consts.CredentialsType;
+import com.acmedcare.framework.cpcdp.consts.Gender;
+import com.google.gson.JsonParser;
+import org.junit.After;
+import org.junit.Test;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * {@link SubmissionBatcherTest}
+ *
+ * <p>Batches posted to a loopback http server.
+ *
+ * @author <a href="mailto:iskp.me@gmail.com">Elve.Xu</a>
+ * @version ${project.version} - 2019/11/30.
+ */
+public class SubmissionBatcherTest {
+
+  private static final String REGISTER_PATH = "/api/register";
+
+  private static final String BATCH_PATH = "/api/register/batch";
+
+  private static final String SUCCESS = "{\"ResultCode\":\"200\",\"Message\":\"OK\"}";
+
+  private final List<Request> requests = new CopyOnWriteArrayList<>();
+
+  private DisposableServer server;
+
+  private SubmissionClient client;
+
+  private SubmissionBatcher batcher;
+
+  @After
+  public void tearDown() {
+    if (batcher != null) {
+      batcher.close();
+    }
+    if (client != null) {
+      client.close();
+    }
+    if (server != null) {
+      server.disposeNow();
+    }
+  }
+
+  @Test
+  public void testFlushOnMaxRecords() throws Exception {
+    start(new Reply(200, SUCCESS));
+    batcher = batcher(options().batchMaxRecords(3).batchLinger(Duration.ofSeconds(10)));
+
+    List<CompletableFuture<SubmissionResult>> futures = submit(5);
+    for (int i = 0; i < 3; i++) {
+      assertTrue(get(futures.get(i)).isSuccess());
+    }
+    Thread.sleep(100);
+    assertFalse(futures.get(3).isDone());
+
+    batcher.flush();
+    assertTrue(get(futures.get(3)).isSuccess());
+    assertTrue(get(futures.get(4)).isSuccess());
+
+    assertEquals(2, requests.size());
+    assertEquals(3, requests.get(0).records());
+    assertEquals(2, requests.get(1).records());
+    for (Request request : requests) {
+      assertEquals(BATCH_PATH, request.path);
+      assertTrue(request.key.startsWith("batch:"));
+    }
+  }
+
+  @Test
+  public void testFlushOnMaxBytes() throws Exception {
+    start(new Reply(200, SUCCESS));
+    int size = SerializerFactory.toJson(register(1)).getBytes(StandardCharsets.UTF_8).length;
+    // 2 records & their separators fill a batch
+    batcher =
+        batcher(
+            options().batchMaxBytes(2 * (size + 1)).batchLinger(Duration.ofSeconds(10)));
+
+    for (CompletableFuture<SubmissionResult> future : submit(4)) {
+      assertTrue(get(future).isSuccess());
+    }
+    assertEquals(2, requests.size());
+    assertEquals(2, requests.get(0).records());
+    assertEquals(2, requests.get(1).records());
+  }
+
+  @Test
+  public void testFlushOnLinger() throws Exception {
+    start(new Reply(200, SUCCESS));
+    batcher = batcher(options().batchLinger(Duration.ofMillis(50)));
+
+    for (CompletableFuture<SubmissionResult> future : submit(3)) {
+      assertTrue(get(future).isSuccess());
+    }
+    assertEquals(1, requests.size());
+    assertEquals(3, requests.get(0).records());
+  }
+
+  @Test
+  public void testResultsFannedOut() throws Exception {
+    start(
+        new Reply(200, "[" + SUCCESS + ",{\"ResultCode\":\"400\",\"Message\":\"无效记录\"}]"),
+        new Reply(200, "{\"ResultCode\":\"500\",\"Message\":\"批量失败\"}"));
+    batcher = batcher(options().batchLinger(Duration.ofSeconds(10)).maxRetries(0));
+
+    // an array of as many results as records, one for each
+    List<CompletableFuture<SubmissionResult>> futures = submit(2);
+    batcher.flush();
+    assertTrue(get(futures.get(0)).isSuccess());
+    SubmissionResult rejected = get(futures.get(1));
+    assertFalse(rejected.isSuccess());
+    assertEquals("400", rejected.getResultCode());
+    assertEquals("无效记录", rejected.getMessage());
+
+    // any other response is shared by all records
+    futures = submit(3);
+    batcher.flush();
+    for (CompletableFuture<SubmissionResult> future : futures) {
+      SubmissionResult result = get(future);
+      assertEquals("500", result.getResultCode());
+      assertEquals("批量失败", result.getMessage());
+    }
+  }
+
+  @Test
+  public void testNoBatchPath() throws Exception {
+    start(new Reply(200, SUCCESS));
+    client =
+        SubmissionClient.create(
+            SubmissionOptions.builder()
+                .baseUrl("http://127.0.0.1:" + server.port())
+                .path(PatientRegisterBean.class, REGISTER_PATH)
+                .build());
+    batcher = SubmissionBatcher.create(client);
+
+    assertTrue(get(batcher.submit(register(1))).isSuccess());
+    assertEquals(1, requests.size());
+    assertEquals(REGISTER_PATH, requests.get(0).path);
+    assertTrue(requests.get(0).body.startsWith("{"));
+
+    // invalid records fail alone, before they are sent
+    try {
+      get(batcher.submit(PatientRegisterBean.builder().id("1").build()));
+      fail("expect CpcdpException");
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof CpcdpException);
+    }
+    assertEquals(1, requests.size());
+  }
+
+  @Test
+  public void testCloseFlushes() throws Exception {
+    start(new Reply(503, "Service Unavailable"), new Reply(200, SUCCESS));
+    batcher =
+        batcher(
+            options()
+                .batchLinger(Duration.ofSeconds(10))
+                .retryBaseDelay(Duration.ofMillis(200))
+                .retryMaxDelay(Duration.ofMillis(200))
+                .maxRetries(1));
+
+    List<CompletableFuture<SubmissionResult>> futures = submit(2);
+    batcher.flush();
+    // wait for the retries to be scheduled
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (client.metrics().getRetried() < 2 && System.nanoTime() < deadline) {
+      Thread.sleep(5);
+    }
+    assertEquals(2, client.metrics().getRetried());
+    // the delay is drawn right before its retry is scheduled
+    Thread.sleep(50);
+    futures.addAll(submit(1));
+
+    batcher.close();
+    for (CompletableFuture<SubmissionResult> future : futures) {
+      assertTrue(get(future).isSuccess());
+    }
+    // the pending record is flushed at once, the retried ones after their backoff, each sent
+    // alone since no linger can be scheduled any more
+    assertEquals(4, requests.size());
+    for (int i = 1; i < 4; i++) {
+      assertEquals(1, requests.get(i).records());
+    }
+
+    try {
+      get(batcher.submit(register(9)));
+      fail("expect CpcdpException");
+    } catch (ExecutionException e) {
+      assertEquals("批量提交已关闭", e.getCause().getMessage());
+    }
+  }
+
+  /** Start loopback server, the i-th reply answers the i-th request, the last one the others */
+  private void start(Reply... replies) {
+    AtomicInteger count = new AtomicInteger();
+    server =
+        HttpServer.create()
+            .host("127.0.0.1")
+            .port(0)
+            .handle(
+                (request, response) ->
+                    request
+                        .receive()
+                        .aggregate()
+                        .asString()
+                        .defaultIfEmpty("")
+                        .flatMap(
+                            body -> {
+                              requests.add(
+                                  new Request(
+                                      request.uri(),
+                                      body,
+                                      request.requestHeaders().get("Idempotency-Key")));
+                              Reply reply =
+                                  replies[Math.min(count.getAndIncrement(), replies.length - 1)];
+                              return response
+                                  .status(reply.status)
+                                  .sendString(Mono.just(reply.body))
+                                  .then();
+                            }))
+            .bindNow();
+  }
+
+  private SubmissionOptions.SubmissionOptionsBuilder options() {
+    return SubmissionOptions.builder()
+        .baseUrl("http://127.0.0.1:" + server.port())
+        .path(PatientRegisterBean.class, REGISTER_PATH)
+        .batchPath(PatientRegisterBean.class, BATCH_PATH)
+        .retryBaseDelay(Duration.ofMillis(1))
+        .retryMaxDelay(Duration.ofMillis(5));
+  }
+
+  private SubmissionBatcher batcher(SubmissionOptions.SubmissionOptionsBuilder options) {
+    client = SubmissionClient.create(options.build());
+    return SubmissionBatcher.create(client);
+  }
+
+  private List<CompletableFuture<SubmissionResult>> submit(int count) {
+    List<CompletableFuture<SubmissionResult>> futures = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      futures.add(batcher.submit(register(requests.size() * 10 + i)));
+    }
+    return futures;
+  }
+
+  private static SubmissionResult get(CompletableFuture<SubmissionResult> future)
+      throws Exception {
+    return future.get(10, TimeUnit.SECONDS);
+  }
+
+  private static PatientRegisterBean register(int id) {
+    return PatientRegisterBean.builder()
+        .id(String.valueOf(id))
+        .hospitalId("1231ujs-88811")
+        .name("张三")
+        .gender(Gender.MALE)
+        .credentialsType(CredentialsType.NON)
+        .build();
+  }
+
+  private static final class Reply {
+
+    private final int status;
+
+    private final String body;
+
+    Reply(int status, String body) {
+      this.status = status;
+      this.body = body;
+    }
+  }
+
+  private static final class Request {
+
+    private final String path;
+
+    private final String body;
+
+    private final String key;
+
+    Request(String path, String body, String key) {
+      this.path = path;
+      this.body = body;
+      this.key = key;
+    }
+
+    /** count of records of batch */
+    int records() {
+      return new JsonParser().parse(body).getAsJsonArray().size();
+    }
+  }
+}
@@ -0,0 +1,345 @@
+/*
+ * Copyright (c) 2019 Acmedcare+
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.acmedcare.framework.cpcdp.api;
+
+import com.acmedcare.framework.cpcdp.CpcdpException;
+import com.acmedcare.framework.cpcdp.bean.PatientRegisterBean;
+import com.acmedcare.framework.cpcdp.consts.CredentialsType;
+import com.acmedcare.framework.cpcdp.consts.Gender;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.After;
+import org.junit.Test;
+import org.reactivestreams.Publisher;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.server.HttpServerRequest;
+import reactor.netty.http.server.HttpServerResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link SubmissionClientTest}
+ *
+ * <p>Submissions against a loopback http server.
+ *
+ * @author <a href="mailto:iskp.me@gmail.com">Elve.Xu</a>
+ * @version ${project.version} - 2019/11/30.
+ */
+public class SubmissionClientTest {
+
+  private static final String REGISTER_PATH = "/api/register";
+
+  private static final String SUCCESS = "{\"ResultCode\":\"200\",\"Message\":\"OK\"}";
+
+  private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+  private DisposableServer server;
+
+  private SubmissionClient client;
+
+  @After
+  public void tearDown() {
+    if (client != null) {
+      client.close();
+    }
+    if (server != null) {
+      server.disposeNow();
+    }
+  }
+
+  @Test
+  public void testInvalidBeanNotSent() {
+    AtomicInteger requests = new AtomicInteger();
+    start(
+        (request, response) -> {
+          requests.incrementAndGet();
+          return response.status(200).sendString(Mono.just(SUCCESS));
+        });
+    client = SubmissionClient.create(options().build());
+
+    Throwable error = error(client.submit(PatientRegisterBean.builder().id("1").build()));
+    assertTrue(error instanceof CpcdpException);
+    assertEquals("属性: <hospitalId> 不能为空.", error.getMessage());
+    assertTrue(error(client.submit(null)) instanceof CpcdpException);
+    assertEquals(0, requests.get());
+  }
+
+  @Test
+  public void testMissingPath() {
+    start((request, response) -> response.status(200).sendString(Mono.just(SUCCESS)));
+    client =
+        SubmissionClient.create(
+            SubmissionOptions.builder().baseUrl("http://127.0.0.1:" + server.port()).build());
+
+    Throwable error = error(client.submit(register("1")));
+    assertTrue(error instanceof CpcdpException);
+    assertEquals(
+        "未配置提交路径, 类: " + PatientRegisterBean.class.getName(), error.getMessage());
+  }
+
+  @Test
+  public void testResponseTimeout() {
+    start(
+        (request, response) ->
+            Mono.delay(Duration.ofSeconds(1))
+                .then(response.status(200).sendString(Mono.just(SUCCESS)).then()));
+    client =
+        SubmissionClient.create(
+            options().responseTimeout(Duration.ofMillis(100)).maxRetries(0).build());
+
+    ByteBuf body = Unpooled.wrappedBuffer("{}".getBytes(StandardCharsets.UTF_8));
+    Throwable error = error(client.exchange(REGISTER_PATH, body, null, (status, text) -> status));
+    assertTrue(error instanceof TimeoutException);
+    // the body & the permit are released
+    assertEquals(0, body.refCnt());
+    assertEquals(0, client.metrics().getInFlight());
+    assertEquals(1, client.metrics().getFailed());
+
+    assertTrue(error(client.submit(register("1"))) instanceof TimeoutException);
+    assertEquals(0, client.metrics().getInFlight());
+    assertEquals(2, client.metrics().getFailed());
+  }
+
+  @Test
+  public void testSubmitAll() {
+    start(
+        (request, response) ->
+            request
+                .receive()
+                .aggregate()
+                .asString()
+                .flatMap(
+                    body ->
+                        // the first ones respond last
+                        Mono.delay(Duration.ofMillis(body.contains("\"ID\":\"1\"") ? 300 : 10))
+                            .then(response.status(200).sendString(Mono.just(SUCCESS)).then())));
+    client = SubmissionClient.create(options().build());
+
+    List<PatientRegisterBean> beans =
+        Arrays.asList(
+            register("1"),
+            register("2"),
+            PatientRegisterBean.builder().id("3").build(),
+            register("4"),
+            register("1"));
+    List<SubmissionResult> results = client.submitAll(beans).collectList().block(TIMEOUT);
+
+    assertEquals(beans.size(), results.size());
+    for (int i = 0; i < beans.size(); i++) {
+      assertSame(beans.get(i), results.get(i).getBean());
+    }
+    // the invalid bean fails alone
+    assertTrue(results.get(2).getError() instanceof CpcdpException);
+    assertTrue(results.get(0).isSuccess());
+    assertTrue(results.get(1).isSuccess());
+    assertTrue(results.get(3).isSuccess());
+    assertTrue(results.get(4).isSuccess());
+  }
+
+  @Test
+  public void testRetryDelay() {
+    Duration base = Duration.ofMillis(100);
+    Duration max = Duration.ofSeconds(1);
+    client =
+        SubmissionClient.create(
+            SubmissionOptions.builder()
+                .baseUrl("http://127.0.0.1:1")
+                .retryBaseDelay(base)
+                .retryMaxDelay(max)
+                .build());
+
+    long delay = base.toNanos();
+    boolean capped = false;
+    for (int i = 0; i < 1000; i++) {
+      long next = client.retryDelay(delay);
+      assertTrue(next >= base.toNanos());
+      assertTrue(next <= max.toNanos());
+      // decorrelated jitter: at most 3 times the previous delay
+      assertTrue(next < Math.max(base.toNanos() + 1, delay * 3));
+      capped |= next == max.toNanos();
+      delay = next;
+    }
+    assertTrue(capped);
+    assertEquals(1000, client.metrics().getRetried());
+  }
+
+  @Test
+  public void testRetryCapped() {
+    AtomicInteger requests = new AtomicInteger();
+    Set<String> keys = ConcurrentHashMap.newKeySet();
+    start(
+        (request, response) -> {
+          requests.incrementAndGet();
+          keys.add(request.requestHeaders().get("Idempotency-Key"));
+          return response.status(503).sendString(Mono.just("Service Unavailable"));
+        });
+    client = SubmissionClient.create(options().maxRetries(2).build());
+
+    SubmissionResult result = client.submit(register("1")).block(TIMEOUT);
+
+    assertEquals(503, result.getStatus());
+    assertFalse(result.isSuccess());
+    assertEquals(3, requests.get());
+    // every retry carries the key of the submission
+    assertEquals(1, keys.size());
+    assertTrue(keys.iterator().next().startsWith("PatientRegisterBean:1:"));
+    assertEquals(2, client.metrics().getRetried());
+  }
+
+  @Test
+  public void testRetrySucceeded() {
+    AtomicInteger requests = new AtomicInteger();
+    start(
+        (request, response) ->
+            requests.incrementAndGet() == 1
+                ? response.status(500).sendString(Mono.just("{\"ResultCode\":\"500\"}"))
+                : response.status(200).sendString(Mono.just(SUCCESS)));
+    client = SubmissionClient.create(options().build());
+
+    SubmissionResult result = client.submit(register("1")).block(TIMEOUT);
+    assertTrue(result.isSuccess());
+    assertFalse(result.isDuplicate());
+    assertEquals(2, requests.get());
+
+    // acknowledged, the resubmission is dropped
+    assertTrue(client.submit(register("1")).block(TIMEOUT).isDuplicate());
+    assertEquals(2, requests.get());
+    assertEquals(1, client.metrics().getDeduplicated());
+  }
+
+  @Test
+  public void testWaitersServedInOrder() throws Exception {
+    List<String> bodies = new CopyOnWriteArrayList<>();
+    start(
+        (request, response) ->
+            request
+                .receive()
+                .aggregate()
+                .asString()
+                .flatMap(
+                    body -> {
+                      bodies.add(body);
+                      return Mono.delay(Duration.ofMillis(50))
+                          .then(response.status(200).sendString(Mono.just(SUCCESS)).then());
+                    }));
+    // one submission in flight, the others wait for its slot
+    client =
+        SubmissionClient.create(
+            options().maxConnections(1).concurrencyLimit(1).maxRetries(0).build());
+
+    List<CompletableFuture<SubmissionResult>> futures = new ArrayList<>();
+    for (int i = 1; i <= 5; i++) {
+      futures.add(client.submit(register(String.valueOf(i))).toFuture());
+    }
+    for (CompletableFuture<SubmissionResult> future : futures) {
+      assertTrue(future.get(TIMEOUT.toMillis(), TimeUnit.MILLISECONDS).isSuccess());
+    }
+    assertEquals(5, bodies.size());
+    for (int i = 0; i < 5; i++) {
+      assertTrue(bodies.get(i).contains("\"ID\":\"" + (i + 1) + "\""));
+    }
+    assertEquals(0, client.metrics().getInFlight());
+  }
+
+  @Test
+  public void testWaiterTimeout() {
+    start(
+        (request, response) ->
+            Mono.delay(Duration.ofMillis(500))
+                .then(response.status(200).sendString(Mono.just(SUCCESS)).then()));
+    client =
+        SubmissionClient.create(
+            options()
+                .maxConnections(1)
+                .concurrencyLimit(1)
+                .acquireTimeout(Duration.ofMillis(100))
+                .maxRetries(0)
+                .build());
+
+    CompletableFuture<SubmissionResult> first = client.submit(register("1")).toFuture();
+    Throwable error = error(client.submit(register("2")));
+    assertTrue(error instanceof SubmissionRejectedException);
+    assertEquals(1, client.metrics().getRejected());
+
+    // the expired waiter takes no slot
+    assertTrue(first.join().isSuccess());
+    assertTrue(client.submit(register("3")).block(TIMEOUT).isSuccess());
+    assertEquals(0, client.metrics().getInFlight());
+  }
+
+  private static Throwable error(Mono<?> mono) {
+    try {
+      mono.block(TIMEOUT);
+    } catch (RuntimeException e) {
+      // checked exceptions are wrapped by block()
+      return Exceptions.unwrap(e);
+    }
+    throw new AssertionError("expect error");
+  }
+
+  /** Start loopback server on a free port */
+  private void start(
+      BiFunction<? super HttpServerRequest, ? super HttpServerResponse, ? extends Publisher<Void>>
+          handler) {
+    server = HttpServer.create().host("127.0.0.1").port(0).handle(handler).bindNow();
+  }
+
+  /** Options of loopback server, retried without waiting */
+  private SubmissionOptions.SubmissionOptionsBuilder options() {
+    return SubmissionOptions.builder()
+        .baseUrl("http://127.0.0.1:" + server.port())
+        .path(PatientRegisterBean.class, REGISTER_PATH)
+        .retryBaseDelay(Duration.ofMillis(1))
+        .retryMaxDelay(Duration.ofMillis(5));
+  }
+
+  private static PatientRegisterBean register(String id) {
+    return PatientRegisterBean.builder()
+        .id(id)
+        .hospitalId("1231ujs-88811")
+        .name("张三")
+        .gender(Gender.MALE)
+        .credentialsType(CredentialsType.NON)
+        .build();
+  }
+}
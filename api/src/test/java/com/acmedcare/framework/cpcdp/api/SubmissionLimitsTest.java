@@ -0,0 +1,224 @@
+/*
+ * Copyright (c) 2019 Acmedcare+
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.acmedcare.framework.cpcdp.api;
+
+import com.acmedcare.framework.cpcdp.api.SubmissionMetrics.CircuitState;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link SubmissionLimitsTest}
+ *
+ * @author <a href="mailto:iskp.me@gmail.com">Elve.Xu</a>
+ * @version ${project.version} - 2019/11/28.
+ */
+public class SubmissionLimitsTest {
+
+  private static final long MILLIS = TimeUnit.MILLISECONDS.toNanos(1);
+
+  @Test
+  public void testConcurrencyLimiter() {
+    ConcurrencyLimiter limiter = new ConcurrencyLimiter(10, 2, 40);
+    for (int i = 0; i < 10; i++) {
+      assertTrue(limiter.tryAcquire());
+    }
+    assertFalse(limiter.tryAcquire());
+
+    // no queue at platform, the limit grows up to max
+    for (int i = 0; i < 100; i++) {
+      limiter.release(10 * MILLIS, false);
+      while (limiter.tryAcquire()) {
+        // fill the window
+      }
+    }
+    assertEquals(40, limiter.limit());
+    assertEquals(40, limiter.inFlight());
+
+    // round trip time 10 times the minimal one, the limit shrinks
+    for (int i = 0; i < 10; i++) {
+      limiter.release(100 * MILLIS, false);
+      limiter.tryAcquire();
+    }
+    int limit = limiter.limit();
+    assertTrue(limit < 40);
+
+    // the limit is kept while the window is not used
+    while (limiter.inFlight() > 1) {
+      limiter.release();
+    }
+    limiter.release(100 * MILLIS, false);
+    assertEquals(limit, limiter.limit());
+
+    // dropped submissions shrink the limit down to min
+    for (int i = 0; i < 100; i++) {
+      assertTrue(limiter.tryAcquire());
+      limiter.release(10 * MILLIS, true);
+    }
+    assertEquals(2, limiter.limit());
+    assertEquals(0, limiter.inFlight());
+    assertEquals(10 * MILLIS, limiter.minRtt());
+  }
+
+  @Test
+  public void testConcurrentReleases() throws Exception {
+    ConcurrencyLimiter limiter = new ConcurrencyLimiter(10, 2, 40);
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    List<Future<?>> futures = new ArrayList<>();
+    for (int t = 0; t < 8; t++) {
+      futures.add(
+          executor.submit(
+              () -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < 20000; i++) {
+                  if (limiter.tryAcquire()) {
+                    limiter.release(random.nextLong(1, 100) * MILLIS, random.nextInt(10) == 0);
+                  }
+                }
+              }));
+    }
+    for (Future<?> future : futures) {
+      future.get();
+    }
+    executor.shutdown();
+
+    // the window admits exactly as many as the limit reported
+    int limit = limiter.limit();
+    assertTrue(limit >= 2 && limit <= 40);
+    assertEquals(0, limiter.inFlight());
+    int acquired = 0;
+    while (limiter.tryAcquire()) {
+      acquired++;
+    }
+    assertEquals(limit, acquired);
+  }
+
+  @Test
+  public void testRateLimiter() {
+    RateLimiter limiter = new RateLimiter(10, 5);
+    assertEquals(5, limiter.available());
+    for (int i = 0; i < 5; i++) {
+      assertEquals(0, limiter.reserve(0));
+    }
+    assertEquals(0, limiter.available());
+
+    // the next permit is 100ms away
+    assertEquals(-1, limiter.reserve(0));
+    long wait = limiter.reserve(TimeUnit.SECONDS.toNanos(1));
+    assertTrue(wait > 50 * MILLIS && wait <= 100 * MILLIS);
+    wait = limiter.reserve(TimeUnit.SECONDS.toNanos(1));
+    assertTrue(wait > 150 * MILLIS && wait <= 200 * MILLIS);
+  }
+
+  @Test
+  public void testCircuitBreaker() throws InterruptedException {
+    CircuitBreaker breaker = new CircuitBreaker(3, 50 * MILLIS);
+    CircuitBreaker.State closed = breaker.allow();
+    assertNotNull(closed);
+    breaker.onFailure(closed);
+    breaker.onFailure(closed);
+    breaker.onSuccess(closed);
+    breaker.onFailure(closed);
+    breaker.onFailure(closed);
+    assertEquals(CircuitState.CLOSED, breaker.state());
+    assertNotNull(breaker.allow());
+
+    breaker.onFailure(closed);
+    assertEquals(CircuitState.OPEN, breaker.state());
+    assertNull(breaker.allow());
+
+    // one probe, its failure opens the breaker again
+    Thread.sleep(60);
+    CircuitBreaker.State probe = breaker.allow();
+    assertNotNull(probe);
+    assertNull(breaker.allow());
+    assertEquals(CircuitState.HALF_OPEN, breaker.state());
+    breaker.onFailure(probe);
+    assertEquals(CircuitState.OPEN, breaker.state());
+    assertNull(breaker.allow());
+
+    Thread.sleep(60);
+    probe = breaker.allow();
+    breaker.onSuccess(probe);
+    assertEquals(CircuitState.CLOSED, breaker.state());
+    assertNotNull(breaker.allow());
+  }
+
+  @Test
+  public void testCircuitBreakerLateOutcomes() throws InterruptedException {
+    CircuitBreaker breaker = new CircuitBreaker(3, 50 * MILLIS);
+    CircuitBreaker.State closed = breaker.allow();
+    for (int i = 0; i < 3; i++) {
+      breaker.onFailure(closed);
+    }
+    assertEquals(CircuitState.OPEN, breaker.state());
+
+    // outcomes of submissions admitted before the breaker opened
+    breaker.onSuccess(closed);
+    breaker.onFailure(closed);
+    breaker.onFailure(closed);
+    assertEquals(CircuitState.OPEN, breaker.state());
+    assertNull(breaker.allow());
+
+    // they change nothing while the probe is in flight either
+    Thread.sleep(60);
+    CircuitBreaker.State probe = breaker.allow();
+    breaker.onSuccess(closed);
+    assertEquals(CircuitState.HALF_OPEN, breaker.state());
+    breaker.onFailure(closed);
+    assertEquals(CircuitState.HALF_OPEN, breaker.state());
+    breaker.onSuccess(probe);
+    assertEquals(CircuitState.CLOSED, breaker.state());
+
+    // failures counted while open are not carried over
+    closed = breaker.allow();
+    breaker.onFailure(closed);
+    breaker.onFailure(closed);
+    assertEquals(CircuitState.CLOSED, breaker.state());
+    breaker.onFailure(closed);
+    assertEquals(CircuitState.OPEN, breaker.state());
+
+    // a probe never completed is superseded by the next one
+    Thread.sleep(60);
+    CircuitBreaker.State stale = breaker.allow();
+    Thread.sleep(60);
+    probe = breaker.allow();
+    assertNotNull(probe);
+    breaker.onSuccess(stale);
+    assertEquals(CircuitState.HALF_OPEN, breaker.state());
+    breaker.onFailure(probe);
+    assertEquals(CircuitState.OPEN, breaker.state());
+  }
+}
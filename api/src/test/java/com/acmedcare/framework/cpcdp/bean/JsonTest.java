@@ -22,13 +22,18 @@
 
 package com.acmedcare.framework.cpcdp.bean;
 
+import com.acmedcare.framework.cpcdp.JsonRecordReader;
 import com.acmedcare.framework.cpcdp.Status;
 import com.acmedcare.framework.cpcdp.consts.*;
+import com.acmedcare.framework.cpcdp.gson.BeanMetadata;
 import com.google.common.collect.Lists;
+import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.StringReader;
 import java.util.Date;
+import java.util.List;
 
 import static com.acmedcare.framework.cpcdp.SerializerFactory.*;
 
@@ -136,4 +141,44 @@ public class JsonTest {
 
     System.out.println(treatmentBean.toJson());
   }
+
+  @Test
+  public void test04() throws Exception {
+
+    String json = "[{\"HAS_ECG_IMAGE\":\"1\",\"GENDER\":\"2\"},null,{\"HAS_ECG_IMAGE\":\"0\"}]";
+
+    try (JsonRecordReader<TreatmentBean> records =
+        readRecords(new StringReader(json), TreatmentBean.class)) {
+
+      List<TreatmentBean> beans = Lists.newArrayList(records);
+      Assert.assertEquals(3, beans.size());
+      Assert.assertEquals("1", beans.get(0).getHasEcgImage());
+      Assert.assertNull(beans.get(1));
+      Assert.assertEquals("0", beans.get(2).getHasEcgImage());
+    }
+
+    Assert.assertEquals(0, readRecords(new StringReader(""), TreatmentBean.class).stream().count());
+  }
+
+  @Test
+  public void test05() throws Exception {
+
+    FirstAidBean firstAidBean =
+        fromJson("{\"DISTRESS_CASE_DETAIL\":\"10|99||1\"}", FirstAidBean.class);
+
+    Assert.assertArrayEquals(
+        new DistressCaseDetail[] {DistressCaseDetail.DCD10, DistressCaseDetail.DCD99, DistressCaseDetail.DCD1},
+        firstAidBean.getDistressCaseDetails());
+  }
+
+  @Test
+  public void test06() throws Exception {
+
+    BeanMetadata metadata = BeanMetadata.of(TreatmentBean.class);
+
+    int index = metadata.indexOf("stemiDecisionOperationTime");
+    Assert.assertEquals("STEMI_DECISION_OPERATION_TIME", metadata.name(index));
+    Assert.assertEquals(index, metadata.indexOfName("STEMI_DECISION_OPERATION_TIME"));
+    Assert.assertEquals("IS_DDIMER", metadata.name(metadata.indexOf("isDdimer")));
+  }
 }
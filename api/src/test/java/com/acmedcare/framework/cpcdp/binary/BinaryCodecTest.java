@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2019 Acmedcare+
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.acmedcare.framework.cpcdp.binary;
+
+import com.acmedcare.framework.cpcdp.CpcdpException;
+import com.acmedcare.framework.cpcdp.SerializerFactory;
+import com.acmedcare.framework.cpcdp.bean.Ctntbean;
+import com.acmedcare.framework.cpcdp.bean.TreatmentBean;
+import com.acmedcare.framework.cpcdp.consts.KillipLevel;
+import com.acmedcare.framework.cpcdp.consts.NstemiGraceEstimate;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Date;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * {@link BinaryCodecTest}
+ *
+ * @author <a href="mailto:iskp.me@gmail.com">Elve.Xu</a>
+ * @version ${project.version} - 2019/11/24.
+ */
+public class BinaryCodecTest {
+
+  @Test
+  public void testConvertJson() {
+
+    TreatmentBean treatmentBean =
+        TreatmentBean.builder()
+            .hasEcgImage("1")
+            .stemiKillipLevel(KillipLevel.values()[0])
+            .nstemiGraceEstimates(NstemiGraceEstimate.values())
+            .stemiDecisionOperationTime(new Date(1574524800000L))
+            .ctnts(Arrays.asList(new Ctntbean(), null))
+            .build();
+
+    String json =
+        SerializerFactory.binaryToJson(SerializerFactory.toBinary(treatmentBean), TreatmentBean.class);
+    byte[] bytes = SerializerFactory.jsonToBinary(json, TreatmentBean.class);
+
+    assertArrayEquals(SerializerFactory.toBinary(treatmentBean), bytes);
+    assertEquals(json, SerializerFactory.binaryToJson(bytes, TreatmentBean.class));
+    assertTrue(bytes.length * 4 < json.length());
+  }
+
+  @Test
+  public void testMalformedRejected() {
+
+    byte[] bytes = SerializerFactory.toBinary(TreatmentBean.builder().hasEcgImage("1").build());
+
+    try {
+      SerializerFactory.fromBinary(Arrays.copyOf(bytes, bytes.length - 1), TreatmentBean.class);
+      fail("expect CpcdpException");
+    } catch (CpcdpException e) {
+      assertEquals("反序列化异常", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testSchemaMismatchRejected() {
+
+    Before before = new Before();
+    before.name = "张三";
+    before.age = 30;
+    byte[] bytes = BinaryCodec.of(Before.class).encode(before);
+
+    // same fields in the same order, whatever the class is
+    Same same = BinaryCodec.of(Same.class).decode(bytes);
+    assertEquals("张三", same.name);
+    assertEquals(30, same.age);
+
+    // the ids of reordered fields changed
+    try {
+      BinaryCodec.of(Reordered.class).decode(bytes);
+      fail("expect CpcdpException");
+    } catch (CpcdpException e) {
+      assertEquals("反序列化异常", e.getMessage());
+      assertTrue(e.getCause().getMessage().startsWith("schema mismatch"));
+    }
+  }
+
+  static class Before {
+
+    private String name;
+
+    private int age;
+  }
+
+  static class Same {
+
+    private String name;
+
+    private int age;
+  }
+
+  static class Reordered {
+
+    private int age;
+
+    private String name;
+  }
+}
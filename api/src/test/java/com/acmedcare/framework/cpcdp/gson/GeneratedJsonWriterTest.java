@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2019 Acmedcare+
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.acmedcare.framework.cpcdp.gson;
+
+import com.acmedcare.framework.cpcdp.bean.FirstAidBean;
+import com.acmedcare.framework.cpcdp.bean.PatientRegisterBean;
+import com.acmedcare.framework.cpcdp.bean.TreatmentBean;
+import com.acmedcare.framework.cpcdp.gson.adapter.CpcDateTypeAdapter;
+import com.acmedcare.framework.cpcdp.gson.adapter.InstantTypeAdapter;
+import com.acmedcare.framework.cpcdp.gson.adapter.LocalDateTimeTypeAdapter;
+import com.acmedcare.framework.cpcdp.kits.TimestampCodec;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.junit.Test;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link GeneratedJsonWriterTest}
+ *
+ * <p>The generated writers must write the same bytes as the reflective adapter of gson.
+ *
+ * @author <a href="mailto:iskp.me@gmail.com">Elve.Xu</a>
+ * @version ${project.version} - 2019/11/30.
+ */
+public class GeneratedJsonWriterTest {
+
+  private static final float[] FLOATS = {0.1f, 36.6f, -0f, 1e-7f, 123456.79f, 3.4028235e38f, 72};
+
+  private static final String[] STRINGS = {
+    "患者", "<a href='x'>\"&\"</a>", "tab\t line\n end\\", "  \u0000", "😀 🏥", ""
+  };
+
+  private final Gson generated = gson(true);
+
+  private final Gson reflective = gson(false);
+
+  @Test
+  public void testGeneratedWriterBound() {
+    assertTrue(generated.getAdapter(PatientRegisterBean.class) instanceof GeneratedJsonWriter);
+    assertTrue(generated.getAdapter(FirstAidBean.class) instanceof GeneratedJsonWriter);
+    assertTrue(generated.getAdapter(TreatmentBean.class) instanceof GeneratedJsonWriter);
+  }
+
+  @Test
+  public void testPatientRegisterBean() throws Exception {
+    assertSameJson(PatientRegisterBean.class);
+  }
+
+  @Test
+  public void testFirstAidBean() throws Exception {
+    assertSameJson(FirstAidBean.class);
+  }
+
+  @Test
+  public void testTreatmentBean() throws Exception {
+    assertSameJson(TreatmentBean.class);
+  }
+
+  private void assertSameJson(Class<?> type) throws Exception {
+    // every field populated, then every n-th field left null
+    for (int nulls : new int[] {0, 2, 3, 5}) {
+      Object bean = populate(type, nulls, 0);
+      assertEquals(reflective.toJson(bean), generated.toJson(bean));
+      List<Object> beans = Arrays.asList(bean, null, populate(type, nulls, 1));
+      assertEquals(reflective.toJson(beans), generated.toJson(beans));
+    }
+    Object empty = type.getConstructor().newInstance();
+    assertEquals(reflective.toJson(empty), generated.toJson(empty));
+  }
+
+  /**
+   * Populate serialized fields of bean with deterministic values
+   *
+   * @param type bean class
+   * @param nulls every n-th object field is left null, 0 to populate all of them
+   * @param seed seed of values
+   * @return new bean
+   */
+  private static Object populate(Class<?> type, int nulls, int seed) throws Exception {
+    Object bean = type.getConstructor().newInstance();
+    int index = seed;
+    for (Field field : type.getDeclaredFields()) {
+      if (Modifier.isStatic(field.getModifiers()) || Modifier.isTransient(field.getModifiers())) {
+        continue;
+      }
+      index++;
+      field.setAccessible(true);
+      Class<?> fieldType = field.getType();
+      if (!fieldType.isPrimitive() && nulls > 0 && index % nulls == 0) {
+        continue;
+      }
+      field.set(bean, value(field, fieldType, index, seed));
+    }
+    return bean;
+  }
+
+  private static Object value(Field field, Class<?> fieldType, int index, int seed)
+      throws Exception {
+    if (fieldType == String.class) {
+      return index % 4 == 0 ? STRINGS[index % STRINGS.length] : "V" + index;
+    }
+    if (fieldType == int.class || fieldType == Integer.class) {
+      return index * 37 - 100;
+    }
+    if (fieldType == float.class || fieldType == Float.class) {
+      return FLOATS[index % FLOATS.length];
+    }
+    if (fieldType == Date.class) {
+      long millis = 1574900000000L + index * 3_723_000L;
+      return index % 5 == 0 ? new Timestamp(millis) : new Date(millis);
+    }
+    if (fieldType.isEnum()) {
+      Object[] constants = fieldType.getEnumConstants();
+      return constants[index % constants.length];
+    }
+    if (fieldType.isArray() && fieldType.getComponentType().isEnum()) {
+      Object[] constants = fieldType.getComponentType().getEnumConstants();
+      Object array = Array.newInstance(fieldType.getComponentType(), Math.min(3, constants.length));
+      for (int i = 0; i < Array.getLength(array); i++) {
+        Array.set(array, i, constants[(index + i) % constants.length]);
+      }
+      return array;
+    }
+    if (fieldType == List.class) {
+      Class<?> elementType =
+          (Class<?>) ((ParameterizedType) field.getGenericType()).getActualTypeArguments()[0];
+      List<Object> list = new ArrayList<>();
+      list.add(populate(elementType, 0, seed + index));
+      list.add(null);
+      list.add(populate(elementType, 2, seed + index + 1));
+      return list;
+    }
+    throw new AssertionError("Unexpected field type " + fieldType + " of " + field);
+  }
+
+  private static Gson gson(boolean generated) {
+    TimestampCodec timestampCodec = new TimestampCodec(TimeZone.getDefault());
+    GsonBuilder builder =
+        new GsonBuilder()
+            .setFieldNamingStrategy(new CpcdpFieldNamingStrategy())
+            .registerTypeAdapterFactory(new CpcdpTypeAdapterFactory());
+    if (generated) {
+      builder.registerTypeAdapterFactory(new CpcdpJsonWriterFactory());
+    }
+    return builder
+        .registerTypeAdapter(Date.class, new CpcDateTypeAdapter<>(Date.class, timestampCodec))
+        .registerTypeAdapter(
+            Timestamp.class, new CpcDateTypeAdapter<>(Timestamp.class, timestampCodec))
+        .registerTypeAdapter(Instant.class, new InstantTypeAdapter(timestampCodec))
+        .registerTypeAdapter(LocalDateTime.class, new LocalDateTimeTypeAdapter(timestampCodec))
+        .create();
+  }
+}
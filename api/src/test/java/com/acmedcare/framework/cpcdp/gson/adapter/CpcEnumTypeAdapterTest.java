@@ -0,0 +1,290 @@
+/*
+ * Copyright (c) 2019 Acmedcare+
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.acmedcare.framework.cpcdp.gson.adapter;
+
+import com.acmedcare.framework.cpcdp.SerializerFactory;
+import com.acmedcare.framework.cpcdp.consts.ConsciousnessType;
+import com.acmedcare.framework.cpcdp.consts.CpcEnum;
+import com.acmedcare.framework.cpcdp.gson.CpcdpTypeAdapterFactory;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link CpcEnumTypeAdapterTest}
+ *
+ * @author <a href="mailto:iskp.me@gmail.com">Elve.Xu</a>
+ * @version ${project.version} - 2019/11/30.
+ */
+public class CpcEnumTypeAdapterTest {
+
+  private final Gson gson =
+      new GsonBuilder().registerTypeAdapterFactory(new CpcdpTypeAdapterFactory()).create();
+
+  @Test
+  public void testDenseKeys() throws Exception {
+    CpcEnumTypeAdapter<ConsciousnessType> adapter =
+        new CpcEnumTypeAdapter<>(ConsciousnessType.class);
+    assertNotNull(table(adapter, "dense"));
+
+    for (ConsciousnessType constant : ConsciousnessType.values()) {
+      assertSame(constant, adapter.of(constant.key()));
+    }
+    assertSame(ConsciousnessType.C2, adapter.of("1|2|3", 2, 3));
+    assertNull(adapter.of("0"));
+    assertNull(adapter.of("5"));
+    assertNull(adapter.of("01"));
+    assertNull(adapter.of("1023"));
+    assertNull(adapter.of("99999"));
+    assertNull(adapter.of("-1"));
+    assertNull(adapter.of("x"));
+    assertNull(adapter.of(""));
+    assertNull(adapter.of(null));
+  }
+
+  @Test
+  public void testDenseLeadingZeros() throws Exception {
+    CpcEnumTypeAdapter<Padded> adapter = new CpcEnumTypeAdapter<>(Padded.class);
+    assertNotNull(table(adapter, "dense"));
+
+    assertSame(Padded.P1, adapter.of("01"));
+    assertSame(Padded.P9, adapter.of("09"));
+    assertSame(Padded.P10, adapter.of("10"));
+    // same number, other key
+    assertNull(adapter.of("1"));
+    assertNull(adapter.of("009"));
+  }
+
+  @Test
+  public void testHashedKeys() throws Exception {
+    CpcEnumTypeAdapter<Level> adapter = new CpcEnumTypeAdapter<>(Level.class);
+    assertNull(table(adapter, "dense"));
+    assertNotNull(table(adapter, "hashed"));
+
+    for (Level constant : Level.values()) {
+      assertSame(constant, adapter.of(constant.key()));
+    }
+    // "Aa" & "BB" share the hash code, the second is probed
+    assertEquals("Aa".hashCode(), "BB".hashCode());
+    assertSame(Level.AA, adapter.of("Aa"));
+    assertSame(Level.BB, adapter.of("BB"));
+    assertSame(Level.HIGH, adapter.of("low|high", 4, 8));
+    assertNull(adapter.of("Ab"));
+    assertNull(adapter.of("LOW"));
+    assertNull(adapter.of(""));
+    assertNull(adapter.of(null));
+  }
+
+  @Test
+  public void testHashedNumericKeys() throws Exception {
+    // numbers beyond the dense limit
+    CpcEnumTypeAdapter<Large> large = new CpcEnumTypeAdapter<>(Large.class);
+    assertNull(table(large, "dense"));
+    assertSame(Large.L1, large.of("1"));
+    assertSame(Large.L1024, large.of("1024"));
+    assertNull(large.of("2"));
+
+    // the same number twice can not be indexed by number
+    CpcEnumTypeAdapter<Ambiguous> ambiguous = new CpcEnumTypeAdapter<>(Ambiguous.class);
+    assertNull(table(ambiguous, "dense"));
+    assertSame(Ambiguous.A1, ambiguous.of("1"));
+    assertSame(Ambiguous.A01, ambiguous.of("01"));
+    assertNull(ambiguous.of("001"));
+  }
+
+  @Test
+  public void testReadWrite() {
+
+    assertEquals("\"high\"", gson.toJson(Level.HIGH));
+    assertEquals("null", gson.toJson(null, Level.class));
+    assertSame(Level.HIGH, gson.fromJson("\"high\"", Level.class));
+    assertNull(gson.fromJson("null", Level.class));
+    assertNull(gson.fromJson("\"\"", Level.class));
+    assertNull(gson.fromJson("\"unknown\"", Level.class));
+
+    // numbers are read as their text
+    assertSame(Padded.P10, gson.fromJson("10", Padded.class));
+    assertNull(gson.fromJson("9", Padded.class));
+  }
+
+  @Test
+  public void testRegistration() {
+    assertTrue(gson.getAdapter(Level.class) instanceof CpcEnumTypeAdapter);
+    assertTrue(gson.getAdapter(Level[].class) instanceof CpcEnumArrayTypeAdapter);
+    assertSame(gson.getAdapter(Level.class), gson.getAdapter(Level.class));
+    assertArrayEquals(
+        new Level[] {Level.LOW, Level.BB}, gson.fromJson("\"low|x|BB\"", Level[].class));
+
+    // enums of cpcdp need no adapter of their own
+    assertEquals("\"3\"", SerializerFactory.toJson(ConsciousnessType.C3));
+    assertSame(
+        ConsciousnessType.C4, SerializerFactory.fromJson("\"4\"", ConsciousnessType.class));
+    ConsciousnessType[] constants = {ConsciousnessType.C1, ConsciousnessType.C4};
+    assertEquals("\"1|4\"", SerializerFactory.toJson(constants));
+    assertArrayEquals(
+        new ConsciousnessType[] {ConsciousnessType.C2, ConsciousnessType.C3},
+        SerializerFactory.fromJson("\"2|3\"", ConsciousnessType[].class));
+  }
+
+  @Test
+  public void testConstantWithBody() {
+    // the constant is an anonymous subclass of its enum class
+    assertNotSame(Bodied.class, Bodied.B2.getClass());
+    assertSame(gson.getAdapter(Bodied.class), gson.getAdapter(Bodied.B2.getClass()));
+
+    assertEquals("\"2\"", gson.toJson(Bodied.B2));
+    assertEquals("[\"1\",\"2\"]", gson.toJson(Arrays.asList(Bodied.B1, Bodied.B2)));
+    assertSame(Bodied.B2, gson.fromJson("\"2\"", Bodied.class));
+  }
+
+  private static Object table(CpcEnumTypeAdapter<?> adapter, String name) throws Exception {
+    Field field = CpcEnumTypeAdapter.class.getDeclaredField(name);
+    field.setAccessible(true);
+    return field.get(adapter);
+  }
+
+  private enum Padded implements CpcEnum {
+    P1("01"),
+    P9("09"),
+    P10("10");
+
+    private final String key;
+
+    Padded(String key) {
+      this.key = key;
+    }
+
+    @Override
+    public String key() {
+      return key;
+    }
+
+    @Override
+    public String value() {
+      return name();
+    }
+  }
+
+  private enum Level implements CpcEnum {
+    LOW("low"),
+    HIGH("high"),
+    AA("Aa"),
+    BB("BB"),
+    SEVERE("严重");
+
+    private final String key;
+
+    Level(String key) {
+      this.key = key;
+    }
+
+    @Override
+    public String key() {
+      return key;
+    }
+
+    @Override
+    public String value() {
+      return name();
+    }
+  }
+
+  private enum Large implements CpcEnum {
+    L1("1"),
+    L1024("1024");
+
+    private final String key;
+
+    Large(String key) {
+      this.key = key;
+    }
+
+    @Override
+    public String key() {
+      return key;
+    }
+
+    @Override
+    public String value() {
+      return name();
+    }
+  }
+
+  private enum Ambiguous implements CpcEnum {
+    A1("1"),
+    A01("01");
+
+    private final String key;
+
+    Ambiguous(String key) {
+      this.key = key;
+    }
+
+    @Override
+    public String key() {
+      return key;
+    }
+
+    @Override
+    public String value() {
+      return name();
+    }
+  }
+
+  private enum Bodied implements CpcEnum {
+    B1("1"),
+    B2("2") {
+      @Override
+      public String value() {
+        return "二";
+      }
+    };
+
+    private final String key;
+
+    Bodied(String key) {
+      this.key = key;
+    }
+
+    @Override
+    public String key() {
+      return key;
+    }
+
+    @Override
+    public String value() {
+      return name();
+    }
+  }
+}
@@ -0,0 +1,246 @@
+/*
+ * Copyright (c) 2019 Acmedcare+
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.acmedcare.framework.cpcdp.kits;
+
+import com.acmedcare.framework.cpcdp.gson.adapter.InstantTypeAdapter;
+import com.acmedcare.framework.cpcdp.gson.adapter.LocalDateTimeTypeAdapter;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonSyntaxException;
+import org.junit.Test;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+/**
+ * {@link TimestampCodecTest}
+ *
+ * <p>The codec must format & parse the same as {@link SimpleDateFormat} of its pattern.
+ *
+ * @author <a href="mailto:iskp.me@gmail.com">Elve.Xu</a>
+ * @version ${project.version} - 2019/11/30.
+ */
+public class TimestampCodecTest {
+
+  private static final TimeZone SHANGHAI = TimeZone.getTimeZone("Asia/Shanghai");
+
+  @Test
+  public void testDayRollover() throws ParseException {
+    TimestampCodec codec = new TimestampCodec(SHANGHAI);
+    SimpleDateFormat format = format(SHANGHAI);
+    char[] buffer = new char[TimestampCodec.LENGTH + 3];
+
+    // a few days around new year, the cached day is replaced every day
+    long start = format.parse("2019-12-29 00:00:00").getTime();
+    long end = start + TimeUnit.DAYS.toMillis(5);
+    for (long millis = start; millis < end; millis += 1_057_123) {
+      assertCodec(codec, format, millis);
+      assertEquals(TimestampCodec.LENGTH, codec.format(millis, buffer, 3));
+      assertEquals(format.format(new Date(millis)), new String(buffer, 3, TimestampCodec.LENGTH));
+    }
+
+    // last second of a day, then of the day before
+    long midnight = format.parse("2020-01-01 00:00:00").getTime();
+    for (long millis : new long[] {midnight - 1, midnight, midnight - 86_400_000, midnight + 999}) {
+      assertCodec(codec, format, millis);
+    }
+  }
+
+  @Test
+  public void testOffsetTransitions() throws ParseException {
+    String[][] days = {
+      {"America/New_York", "2019-03-10", "2019-11-03"},
+      {"Australia/Lord_Howe", "2019-04-07", "2019-10-06"},
+      {"Asia/Shanghai", "1988-04-10", "1988-09-11"}
+    };
+    for (String[] zoneDays : days) {
+      TimeZone zone = TimeZone.getTimeZone(zoneDays[0]);
+      TimestampCodec codec = new TimestampCodec(zone);
+      SimpleDateFormat format = format(zone);
+      for (int i = 1; i < zoneDays.length; i++) {
+        // every minute of the day of transition: repeated & skipped local times included
+        long start = format.parse(zoneDays[i] + " 00:00:00").getTime();
+        for (long millis = start; millis < start + 86_400_000; millis += 60_000) {
+          assertCodec(codec, format, millis);
+        }
+        for (int minute = 0; minute < 24 * 60; minute++) {
+          String text = String.format("%s %02d:%02d:00", zoneDays[i], minute / 60, minute % 60);
+          assertEquals(text, format.parse(text).getTime(), codec.parse(text));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testYearsOutOfRange() throws ParseException {
+    String[] texts = {
+      "0001-01-01 00:00:00",
+      "1500-06-15 12:30:45",
+      "1582-10-10 00:00:00",
+      "1599-12-31 23:59:59",
+      "1600-01-01 00:00:00",
+      "1900-01-01 08:00:00",
+      "9999-12-31 23:59:59",
+      "10000-01-01 00:00:00",
+      "12345-06-07 08:09:10"
+    };
+    for (TimeZone zone : new TimeZone[] {TimeZone.getTimeZone("UTC"), SHANGHAI}) {
+      TimestampCodec codec = new TimestampCodec(zone);
+      SimpleDateFormat format = format(zone);
+      for (String text : texts) {
+        long millis = format.parse(text).getTime();
+        assertEquals(text, millis, codec.parse(text));
+        assertCodec(codec, format, millis);
+      }
+    }
+  }
+
+  @Test
+  public void testLenientTexts() throws ParseException {
+    TimestampCodec codec = new TimestampCodec(SHANGHAI);
+    SimpleDateFormat format = format(SHANGHAI);
+    String[] texts = {"2019-02-29 00:00:00", "2019-1-2 3:04:05", "2019-11-30 24:00:00"};
+    for (String text : texts) {
+      assertEquals(text, format.parse(text).getTime(), codec.parse(text));
+    }
+    for (String text : new String[] {"", "2019-11-30", "2019/11/30 12:00:00", "yyyy-MM-dd"}) {
+      try {
+        codec.parse(text);
+        fail("expect ParseException: " + text);
+      } catch (ParseException expected) {
+        // same as SimpleDateFormat
+      }
+    }
+  }
+
+  @Test
+  public void testLocalDateTime() throws ParseException {
+    TimestampCodec codec = new TimestampCodec(SHANGHAI);
+    DateTimeFormatter formatter = DateTimeFormatter.ofPattern(TimestampCodec.PATTERN, Locale.US);
+    LocalDateTime[] dateTimes = {
+      LocalDateTime.of(1, 1, 1, 0, 0),
+      LocalDateTime.of(1500, 6, 15, 12, 30, 45),
+      LocalDateTime.of(2019, 11, 30, 23, 59, 59, 999_999_999),
+      LocalDateTime.of(9999, 12, 31, 23, 59, 59),
+      LocalDateTime.of(10000, 1, 1, 0, 0)
+    };
+    for (LocalDateTime dateTime : dateTimes) {
+      String text = codec.format(dateTime);
+      assertEquals(formatter.format(dateTime), text);
+      assertEquals(dateTime.withNano(0), codec.parseLocalDateTime(text));
+    }
+    try {
+      codec.parseLocalDateTime("2019-13-01 00:00:00");
+      fail("expect ParseException");
+    } catch (ParseException expected) {
+      // month out of range
+    }
+  }
+
+  @Test
+  public void testInstantAdapter() throws ParseException {
+    TimestampCodec codec = new TimestampCodec(SHANGHAI);
+    Gson gson =
+        new GsonBuilder()
+            .registerTypeAdapter(Instant.class, new InstantTypeAdapter(codec))
+            .create();
+    SimpleDateFormat format = format(SHANGHAI);
+
+    long millis = format.parse("2019-11-30 12:34:56").getTime();
+    assertEquals(
+        "\"2019-11-30 12:34:56\"", gson.toJson(Instant.ofEpochMilli(millis + 789), Instant.class));
+    assertEquals(
+        Instant.ofEpochMilli(millis), gson.fromJson("\"2019-11-30 12:34:56\"", Instant.class));
+    // ISO 8601 is read as well
+    assertEquals(
+        Instant.ofEpochMilli(millis), gson.fromJson("\"2019-11-30T04:34:56Z\"", Instant.class));
+    assertNull(gson.fromJson("null", Instant.class));
+    assertEquals("null", gson.toJson(null, Instant.class));
+
+    // out of fast path
+    long ancient = format.parse("1500-06-15 12:30:45").getTime();
+    assertEquals(
+        "\"1500-06-15 12:30:45\"", gson.toJson(Instant.ofEpochMilli(ancient), Instant.class));
+    assertEquals(
+        Instant.ofEpochMilli(ancient), gson.fromJson("\"1500-06-15 12:30:45\"", Instant.class));
+
+    try {
+      gson.fromJson("\"30/11/2019\"", Instant.class);
+      fail("expect JsonSyntaxException");
+    } catch (JsonSyntaxException expected) {
+      // neither timestamp nor ISO 8601
+    }
+  }
+
+  @Test
+  public void testLocalDateTimeAdapter() {
+    Gson gson =
+        new GsonBuilder()
+            .registerTypeAdapter(
+                LocalDateTime.class, new LocalDateTimeTypeAdapter(new TimestampCodec(SHANGHAI)))
+            .create();
+
+    LocalDateTime dateTime = LocalDateTime.of(2019, 11, 30, 12, 34, 56);
+    assertEquals("\"2019-11-30 12:34:56\"", gson.toJson(dateTime.withNano(789_000_000)));
+    assertEquals(dateTime, gson.fromJson("\"2019-11-30 12:34:56\"", LocalDateTime.class));
+    assertNull(gson.fromJson("null", LocalDateTime.class));
+    assertEquals("null", gson.toJson(null, LocalDateTime.class));
+
+    // local times skipped by offset transitions are kept as they are
+    LocalDateTime skipped = LocalDateTime.of(1988, 4, 10, 2, 30);
+    assertEquals("\"1988-04-10 02:30:00\"", gson.toJson(skipped));
+    assertEquals(skipped, gson.fromJson("\"1988-04-10 02:30:00\"", LocalDateTime.class));
+
+    try {
+      gson.fromJson("\"2019-11-30T12:34:56\"", LocalDateTime.class);
+      fail("expect JsonSyntaxException");
+    } catch (JsonSyntaxException expected) {
+      // not in the pattern
+    }
+  }
+
+  private static void assertCodec(TimestampCodec codec, SimpleDateFormat format, long millis)
+      throws ParseException {
+    String expected = format.format(new Date(millis));
+    assertEquals(expected, codec.format(millis));
+    // seconds fraction is truncated
+    assertEquals(expected, format.parse(expected).getTime(), codec.parse(expected));
+  }
+
+  private static SimpleDateFormat format(TimeZone zone) {
+    SimpleDateFormat format = new SimpleDateFormat(TimestampCodec.PATTERN, Locale.US);
+    format.setTimeZone(zone);
+    return format;
+  }
+}
@@ -0,0 +1,413 @@
+/*
+ * Copyright (c) 2019 Acmedcare+
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.acmedcare.framework.cpcdp.validation;
+
+import com.acmedcare.framework.cpcdp.CpcdpException;
+import com.acmedcare.framework.cpcdp.SerializerFactory;
+import com.acmedcare.framework.cpcdp.SerializerFactory.InvalidBeanParameterException;
+import com.acmedcare.framework.cpcdp.Status;
+import com.acmedcare.framework.cpcdp.annotation.Condition;
+import com.acmedcare.framework.cpcdp.annotation.Required;
+import com.acmedcare.framework.cpcdp.bean.EcgBean;
+import com.acmedcare.framework.cpcdp.bean.FirstAidBean;
+import com.acmedcare.framework.cpcdp.bean.PatientRegisterBean;
+import com.acmedcare.framework.cpcdp.bean.TreatmentBean;
+import com.acmedcare.framework.cpcdp.consts.CredentialsType;
+import com.acmedcare.framework.cpcdp.consts.DistressCaseDetail;
+import com.acmedcare.framework.cpcdp.consts.Gender;
+import org.junit.Test;
+
+import javax.validation.Valid;
+import javax.validation.constraints.Pattern;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static com.acmedcare.framework.cpcdp.annotation.Condition.MatchingStrategy.ANY_VALUE_WITHIN_ENUMS_ARRAY;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * {@link ValidationPlanTest}
+ *
+ * @author <a href="mailto:iskp.me@gmail.com">Elve.Xu</a>
+ * @version ${project.version} - 2019/11/13.
+ */
+public class ValidationPlanTest {
+
+  @Test
+  public void testPlanCached() {
+    assertSame(ValidationPlan.of(TreatmentBean.class), ValidationPlan.of(TreatmentBean.class));
+  }
+
+  @Test
+  public void testGeneratedValidatorPreferred() {
+    assertNotNull(GeneratedValidator.find(PatientRegisterBean.class));
+    assertNotNull(GeneratedValidator.find(FirstAidBean.class));
+    assertNotNull(GeneratedValidator.find(TreatmentBean.class));
+  }
+
+  @Test
+  public void testRequiredAndCondition() {
+
+    PatientRegisterBean register =
+        PatientRegisterBean.builder()
+            .hospitalId("1231ujs-88811")
+            .name("Miss")
+            .gender(Gender.MALE)
+            .credentialsType(CredentialsType.ID_CARD)
+            .build();
+
+    assertInvalid(register, "属性: <idCard> 不能为空.");
+
+    register.setIdCard("111123321321321312");
+    ValidationPlan.of(PatientRegisterBean.class).validate(register);
+  }
+
+  @Test
+  public void testAllowValues() {
+
+    TreatmentBean treatmentBean = TreatmentBean.builder().hasEcgImage("2").build();
+
+    assertInvalid(treatmentBean, "属性: <hasEcgImage> 取值范围: 0:无 1:有");
+  }
+
+  @Test
+  public void testReport() {
+
+    PatientRegisterBean register =
+        PatientRegisterBean.builder().credentialsType(CredentialsType.ID_CARD).build();
+
+    ValidationPlan plan = ValidationPlan.of(PatientRegisterBean.class);
+    ValidationReport report = plan.report(register);
+
+    assertFalse(report.isValid());
+    assertTrue(report.getViolations().size() > 1);
+    assertSame(plan.check(register), report.getViolations().get(0));
+
+    for (Violation violation : report.getViolations()) {
+      if ("idCard".equals(violation.getField())) {
+        assertEquals(Violation.Type.CONDITION, violation.getType());
+        assertEquals("ID_CARD", violation.getJsonKey());
+        return;
+      }
+    }
+    fail("expect violation of idCard");
+  }
+
+  @Test
+  public void testSession() {
+
+    PatientRegisterBean register =
+        PatientRegisterBean.builder()
+            .hospitalId("1231ujs-88811")
+            .name("Miss")
+            .gender(Gender.MALE)
+            .build();
+
+    ValidationSession session = ValidationPlan.of(PatientRegisterBean.class).session(register);
+    assertFalse(session.getMissingFields().contains("idCard"));
+
+    register.setCredentialsType(CredentialsType.ID_CARD);
+    assertTrue(session.update("credentialsType").contains("idCard"));
+
+    register.setIdCard("111123321321321312");
+    assertFalse(session.update("idCard").contains("idCard"));
+  }
+
+  @Test
+  public void testMinMax() {
+
+    PatientRegisterBean register =
+        PatientRegisterBean.builder()
+            .hospitalId("1231ujs-88811")
+            .name("Miss")
+            .gender(Gender.MALE)
+            .age(300)
+            .weight(-1f)
+            .credentialsType(CredentialsType.ID_CARD)
+            .idCard("111123321321321312")
+            .build();
+
+    ValidationReport report = ValidationPlan.of(PatientRegisterBean.class).report(register);
+    assertEquals(2, report.getViolations().size());
+    assertEquals("属性: <age> 不能大于 255.", report.getViolations().get(0).getMessage());
+    assertEquals(Violation.Type.MIN, report.getViolations().get(1).getType());
+    assertEquals("属性: <weight> 不能小于 0.", report.getViolations().get(1).getMessage());
+  }
+
+  @Test
+  public void testPattern() {
+
+    PatternBean bean = new PatternBean();
+    bean.phone = "1380013800x";
+    assertInvalid(bean, "属性: <phone> 格式不匹配: \\d{11}");
+
+    bean.phone = "13800138000";
+    ValidationPlan.of(PatternBean.class).validate(bean);
+  }
+
+  @Test
+  public void testProfiles() {
+
+    PatientRegisterBean register =
+        PatientRegisterBean.builder().status(Status.S01).age(300).build();
+
+    ValidationPlan plan = ValidationPlan.select(register);
+    assertSame(ValidationProfile.DRAFT, plan.profile());
+    assertEquals(1, plan.report(register).getViolations().size());
+    assertEquals("属性: <age> 不能大于 255.", plan.check(register).getMessage());
+
+    register.setAge(30);
+    assertTrue(SerializerFactory.validate(register).isValid());
+    assertFalse(SerializerFactory.validate(register, ValidationProfile.FINAL).isValid());
+
+    register.setStatus(Status.S02);
+    assertSame(ValidationProfile.FINAL, ValidationPlan.select(register).profile());
+  }
+
+  @Test
+  public void testSizeOfCollection() {
+
+    TreatmentBean treatmentBean =
+        TreatmentBean.builder()
+            .ecgs(Arrays.asList(new EcgBean(), new EcgBean(), new EcgBean(), new EcgBean()))
+            .build();
+
+    ValidationReport report = ValidationPlan.of(TreatmentBean.class).report(treatmentBean);
+    for (Violation violation : report.getViolations()) {
+      if (violation.getType() == Violation.Type.SIZE) {
+        assertEquals("ecgs", violation.getField());
+        assertEquals("属性: <ecgs> 长度不能大于 3.", violation.getMessage());
+        return;
+      }
+    }
+    fail("expect violation of ecgs size");
+  }
+
+  @Test
+  public void testCascade() {
+
+    CascadeBean bean = new CascadeBean();
+    bean.items = Arrays.asList(new ItemBean("1"), new ItemBean(null));
+
+    ValidationReport report = ValidationPlan.of(CascadeBean.class).report(bean);
+    assertEquals(1, report.getViolations().size());
+
+    Violation violation = report.getViolations().get(0);
+    assertEquals("items[1].fileId", violation.getField());
+    assertEquals("ITEMS[1].FILE_ID", violation.getJsonKey());
+    assertEquals("属性: <items[1].fileId> 不能为空.", violation.getMessage());
+  }
+
+  @Test
+  public void testCascadeCycle() {
+
+    NodeBean root = new NodeBean("root");
+    NodeBean child = new NodeBean(null);
+    root.children = Arrays.asList(child, root);
+    child.children = Collections.singletonList(root);
+
+    // the beans up the path are not validated again
+    ValidationReport report = ValidationPlan.of(NodeBean.class).report(root);
+    assertEquals(1, report.getViolations().size());
+    assertEquals("children[0].name", report.getViolations().get(0).getField());
+  }
+
+  @Test
+  public void testDanglingConditionRejected() {
+    try {
+      ValidationPlan.of(DanglingBean.class);
+      fail("expect CpcdpException");
+    } catch (CpcdpException e) {
+      assertEquals(
+          "条件属性: <undefined> 未定义, 类: " + DanglingBean.class.getName(), e.getMessage());
+    }
+  }
+
+  @Test
+  public void testCyclicConditionRejected() {
+    try {
+      ValidationPlan.of(CyclicBean.class);
+      fail("expect CpcdpException");
+    } catch (CpcdpException e) {
+      assertEquals(
+          "条件属性循环依赖: a -> b -> a, 类: " + CyclicBean.class.getName(), e.getMessage());
+    }
+  }
+
+  @Test
+  public void testCpcEnumCondition() {
+
+    EnumConditionBean bean = new EnumConditionBean();
+    assertEquals(Collections.singletonList("CONDITION_VALUE credentialsType"), violations(bean));
+
+    bean.credentialsType = CredentialsType.NON;
+    assertEquals(Collections.emptyList(), violations(bean));
+
+    // without expect value, the condition never matches
+    bean.credentialsType = CredentialsType.ID_CARD;
+    assertEquals(Collections.singletonList("CONDITION expected"), violations(bean));
+    bean.credentialsType = CredentialsType.PASSPORT;
+    assertEquals(Collections.singletonList("CONDITION expected"), violations(bean));
+
+    bean.expected = "111123321321321312";
+    assertEquals(Collections.emptyList(), violations(bean));
+  }
+
+  @Test
+  public void testAnyValueWithinEnumsArrayCondition() {
+
+    EnumsArrayConditionBean bean = new EnumsArrayConditionBean();
+    assertEquals(Collections.singletonList("CONDITION_VALUE details"), violations(bean));
+
+    // empty array never matches
+    bean.details = new DistressCaseDetail[0];
+    assertEquals(Collections.emptyList(), violations(bean));
+
+    // any non-empty array matches, whatever its elements and the expect value are
+    List<String> both = Arrays.asList("CONDITION expected", "CONDITION any");
+    bean.details = new DistressCaseDetail[] {DistressCaseDetail.DCD1};
+    assertEquals(both, violations(bean));
+    bean.details = new DistressCaseDetail[] {DistressCaseDetail.DCD2};
+    assertEquals(both, violations(bean));
+    bean.details = new DistressCaseDetail[] {null};
+    assertEquals(both, violations(bean));
+    bean.details = new DistressCaseDetail[] {null, DistressCaseDetail.DCD3};
+    assertEquals(both, violations(bean));
+
+    bean.expected = "1";
+    bean.any = "1";
+    assertEquals(Collections.emptyList(), violations(bean));
+  }
+
+  /** Violations of bean, as <code>type field</code> */
+  private static List<String> violations(Object bean) {
+    List<String> violations = new ArrayList<>();
+    for (Violation violation : ValidationPlan.of(bean.getClass()).report(bean).getViolations()) {
+      violations.add(violation.getType() + " " + violation.getField());
+    }
+    return violations;
+  }
+
+  private static void assertInvalid(Object bean, String message) {
+    try {
+      ValidationPlan.of(bean.getClass()).validate(bean);
+      fail("expect InvalidBeanParameterException");
+    } catch (InvalidBeanParameterException e) {
+      assertEquals(message, e.getMessage());
+    }
+  }
+
+  static class PatternBean {
+
+    @Pattern(regexp = "\\d{11}")
+    private String phone;
+  }
+
+  static class CascadeBean {
+
+    @Valid private List<ItemBean> items;
+  }
+
+  static class ItemBean {
+
+    @Required private String fileId;
+
+    ItemBean(String fileId) {
+      this.fileId = fileId;
+    }
+  }
+
+  static class NodeBean {
+
+    @Required private String name;
+
+    @Valid private List<NodeBean> children;
+
+    NodeBean(String name) {
+      this.name = name;
+    }
+  }
+
+  static class DanglingBean {
+
+    @Required
+    @Condition(field = "undefined", expectValue = "1")
+    private String a;
+  }
+
+  static class EnumConditionBean {
+
+    private CredentialsType credentialsType;
+
+    @Required
+    @Condition(
+        field = "credentialsType",
+        type = CredentialsType.class,
+        isCpcEnum = true,
+        expectValue = {"1", "2"})
+    private String expected;
+
+    @Required
+    @Condition(field = "credentialsType", type = CredentialsType.class, isCpcEnum = true)
+    private String none;
+  }
+
+  static class EnumsArrayConditionBean {
+
+    private DistressCaseDetail[] details;
+
+    @Required
+    @Condition(
+        field = "details",
+        type = DistressCaseDetail.class,
+        isCpcEnum = true,
+        expectValue = "1",
+        strategy = ANY_VALUE_WITHIN_ENUMS_ARRAY)
+    private String expected;
+
+    @Required
+    @Condition(
+        field = "details",
+        type = DistressCaseDetail.class,
+        isCpcEnum = true,
+        strategy = ANY_VALUE_WITHIN_ENUMS_ARRAY)
+    private String any;
+  }
+
+  static class CyclicBean {
+
+    @Required
+    @Condition(field = "b", expectValue = "1")
+    private String a;
+
+    @Condition(field = "a", expectValue = "1")
+    private String b;
+  }
+}
@@ -0,0 +1,408 @@
+/*
+ * Copyright (c) 2019 Acmedcare+
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.acmedcare.framework.cpcdp.core.outbox;
+
+import com.acmedcare.framework.cpcdp.CpcdpException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.BiConsumer;
+
+/**
+ * {@link Outbox}
+ *
+ * <p>Durable outbox of serialized submissions, an append-only log of CRC-framed entries in
+ * memory-mapped {@link Segment} files. Every entry gets a monotonic offset, the entry is pending
+ * until its offset is acked:
+ *
+ * <pre>
+ *   Outbox outbox = Outbox.open(directory);
+ *   outbox.replay((offset, payload) -> resubmit(offset, payload)); // unacked entries of last run
+ *   long offset = outbox.append(SerializerFactory.toBinary(bean)); // durable once returned
+ *   ...
+ *   outbox.ack(offset); // platform acknowledged
+ * </pre>
+ *
+ * <p>Concurrent writers share the <code>force()</code> calls (group commit): the writer forcing
+ * the segment makes durable all entries written before, the writers waiting meanwhile return
+ * without another force. Acks are written without force, an ack lost by crash replays its entry
+ * once more, so the delivery is at-least-once.
+ *
+ * <p>A full segment is rolled over to a new one. Old segments whose entries are all acked are
+ * deleted, an old segment keeping only a few pending entries is compacted by copying them (same
+ * offsets) to the current segment.
+ *
+ * @author <a href="mailto:iskp.me@gmail.com">Elve.Xu</a>
+ * @version ${project.version} - 2019/11/27.
+ */
+public final class Outbox implements Closeable {
+
+  private static final Logger log = LoggerFactory.getLogger(Outbox.class);
+
+  /** default segment size: 64MB */
+  public static final int DEFAULT_SEGMENT_SIZE = 64 << 20;
+
+  /** old segment is compacted if its pending entries take less than 1/8 of it */
+  private static final int COMPACT_RATIO = 8;
+
+  private static final byte[] EMPTY = new byte[0];
+
+  private final Path directory;
+
+  private final int segmentSize;
+
+  /** segments by id, the last one is written */
+  private final Deque<Segment> segments = new ArrayDeque<>();
+
+  /** latest copies of pending entries by offset */
+  private final TreeMap<Long, Location> pending = new TreeMap<>();
+
+  /** guards segments, pending entries & the fields below */
+  private final Object lock = new Object();
+
+  /** one writer forces at a time, the others wait for it */
+  private final Object forceLock = new Object();
+
+  private Segment active;
+
+  private long nextOffset;
+
+  /** count of frames written */
+  private long written;
+
+  /** count of frames forced to storage device */
+  private volatile long forced;
+
+  /** count of forces by writers, guarded by force lock */
+  private long commits;
+
+  private boolean closed;
+
+  private Outbox(Path directory, int segmentSize) {
+    this.directory = directory;
+    this.segmentSize = segmentSize;
+  }
+
+  public static Outbox open(Path directory) throws IOException {
+    return open(directory, DEFAULT_SEGMENT_SIZE);
+  }
+
+  /**
+   * Open outbox, the segments of last run are scanned for pending entries
+   *
+   * @param directory directory of segment files, created if absent
+   * @param segmentSize size of new segment files
+   * @return outbox
+   * @throws IOException if segment files can not be read or created
+   */
+  public static Outbox open(Path directory, int segmentSize) throws IOException {
+    if (segmentSize < Segment.HEADER * 2) {
+      throw new IllegalArgumentException("segmentSize: " + segmentSize);
+    }
+    Files.createDirectories(directory);
+    Outbox outbox = new Outbox(directory, segmentSize);
+    try {
+      outbox.recover();
+    } catch (IOException | RuntimeException e) {
+      outbox.close();
+      throw e;
+    }
+    return outbox;
+  }
+
+  private void recover() throws IOException {
+    List<Long> ids = new ArrayList<>();
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+      for (Path file : files) {
+        long id = Segment.idOf(file);
+        if (id >= 0) {
+          ids.add(id);
+        }
+      }
+    }
+    ids.sort(null);
+
+    long maxOffset = -1;
+    for (long id : ids) {
+      Segment segment = Segment.open(directory, id, segmentSize);
+      segments.addLast(segment);
+      long[] max = {maxOffset};
+      segment.scan(
+          (type, offset, start, size) -> {
+            if (type == Segment.DATA) {
+              pending.put(offset, new Location(segment, start, size));
+            } else {
+              pending.remove(offset);
+            }
+            max[0] = Math.max(max[0], offset);
+          });
+      maxOffset = max[0];
+    }
+
+    for (Location location : pending.values()) {
+      location.segment.live++;
+      location.segment.liveBytes += location.size;
+    }
+
+    nextOffset = maxOffset + 1;
+    active = segments.isEmpty() ? null : segments.peekLast();
+    if (active == null) {
+      active = Segment.open(directory, 0, segmentSize);
+      segments.addLast(active);
+    }
+    compact();
+
+    log.info(
+        "Open cpcdp outbox: {}, segments: {}, pending entries: {}",
+        directory,
+        segments.size(),
+        pending.size());
+  }
+
+  /**
+   * Append entry, the entry is durable once returned
+   *
+   * @param payload serialized submission
+   * @return offset of entry
+   * @throws IOException if new segment can not be created
+   */
+  public long append(byte[] payload) throws IOException {
+    if (payload.length > segmentSize - Segment.HEADER) {
+      throw new CpcdpException("记录过大: " + payload.length + " bytes, 分段大小: " + segmentSize);
+    }
+
+    long offset;
+    long frame;
+    synchronized (lock) {
+      ensureOpen();
+      if (!active.fits(payload.length)) {
+        roll();
+      }
+      offset = nextOffset++;
+      int start = active.write(Segment.DATA, offset, payload);
+      active.live++;
+      active.liveBytes += Segment.HEADER + payload.length;
+      pending.put(offset, new Location(active, start, Segment.HEADER + payload.length));
+      frame = ++written;
+    }
+
+    awaitForced(frame);
+    return offset;
+  }
+
+  /**
+   * Ack entry, the entry is no longer pending
+   *
+   * @param offset offset of entry
+   * @return false if entry is not pending, e.g. acked before
+   * @throws IOException if new segment can not be created
+   */
+  public boolean ack(long offset) throws IOException {
+    synchronized (lock) {
+      ensureOpen();
+      Location location = pending.remove(offset);
+      if (location == null) {
+        return false;
+      }
+      location.segment.live--;
+      location.segment.liveBytes -= location.size;
+
+      if (!active.fits(0)) {
+        roll();
+      }
+      active.write(Segment.ACK, offset, EMPTY);
+      written++;
+
+      if (location.segment.live == 0 && location.segment == segments.peekFirst()) {
+        compact();
+      }
+      return true;
+    }
+  }
+
+  /**
+   * Visit pending entries in offset order, e.g. to resubmit the entries of last run on startup
+   *
+   * @param consumer consumer of offset & payload
+   */
+  public void replay(BiConsumer<Long, byte[]> consumer) {
+    List<Map.Entry<Long, Location>> entries;
+    synchronized (lock) {
+      entries = new ArrayList<>(pending.entrySet());
+    }
+    // segments stay mapped after being deleted, payloads can be read without lock
+    for (Map.Entry<Long, Location> entry : entries) {
+      Location location = entry.getValue();
+      consumer.accept(entry.getKey(), location.segment.read(location.start));
+    }
+  }
+
+  /**
+   * Returns count of pending entries
+   *
+   * @return count of entries appended and not acked
+   */
+  public int pendingCount() {
+    synchronized (lock) {
+      return pending.size();
+    }
+  }
+
+  public int segmentCount() {
+    synchronized (lock) {
+      return segments.size();
+    }
+  }
+
+  /**
+   * Returns count of group commits, every one made durable the entries of one or more writers
+   *
+   * @return count of forces by writers
+   */
+  long commitCount() {
+    synchronized (forceLock) {
+      return commits;
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    synchronized (lock) {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      if (active != null) {
+        active.force();
+      }
+      for (Segment segment : segments) {
+        segment.close();
+      }
+    }
+  }
+
+  /**
+   * Wait until the frame is forced, either by this writer or by another one forcing meanwhile
+   *
+   * @param frame count of frames written, including the frame waited
+   */
+  private void awaitForced(long frame) {
+    if (forced >= frame) {
+      return;
+    }
+    synchronized (forceLock) {
+      if (forced >= frame) {
+        return;
+      }
+      Segment segment;
+      long target;
+      synchronized (lock) {
+        segment = active;
+        target = written;
+      }
+      // frames of earlier segments were forced on roll
+      segment.force();
+      commits++;
+      forced = target;
+    }
+  }
+
+  private void ensureOpen() {
+    if (closed) {
+      throw new CpcdpException("Outbox已关闭: " + directory);
+    }
+  }
+
+  /** Force & leave the active segment, then compact old segments. */
+  private void roll() throws IOException {
+    active.force();
+    active = Segment.open(directory, active.id() + 1, segmentSize);
+    segments.addLast(active);
+    compact();
+  }
+
+  /**
+   * Delete old segments from the first one, as long as their entries are all acked or few enough
+   * to be copied to the active segment. An ack frame is always in the segment of its entry or a
+   * later one, so deleting from the first segment never revives acked entries.
+   */
+  private void compact() throws IOException {
+    while (segments.size() > 1) {
+      Segment first = segments.peekFirst();
+      if (first.live > 0) {
+        if (first.liveBytes * COMPACT_RATIO > first.capacity()
+            || !active.fits((int) first.liveBytes)) {
+          break;
+        }
+        copy(first);
+        // copies must be durable before their source is deleted
+        active.force();
+      }
+      segments.pollFirst();
+      first.delete();
+    }
+  }
+
+  private void copy(Segment source) {
+    for (Map.Entry<Long, Location> entry : pending.entrySet()) {
+      Location location = entry.getValue();
+      if (location.segment == source) {
+        byte[] payload = source.read(location.start);
+        int start = active.write(Segment.DATA, entry.getKey(), payload);
+        entry.setValue(new Location(active, start, location.size));
+        active.live++;
+        active.liveBytes += location.size;
+        written++;
+      }
+    }
+    source.live = 0;
+    source.liveBytes = 0;
+  }
+
+  /** Location of the latest copy of pending entry. */
+  private static final class Location {
+
+    private final Segment segment;
+
+    private final int start;
+
+    private final int size;
+
+    Location(Segment segment, int start, int size) {
+      this.segment = segment;
+      this.start = start;
+      this.size = size;
+    }
+  }
+}
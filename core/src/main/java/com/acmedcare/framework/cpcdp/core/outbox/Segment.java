@@ -0,0 +1,266 @@
+/*
+ * Copyright (c) 2019 Acmedcare+
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.acmedcare.framework.cpcdp.core.outbox;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * {@link Segment}
+ *
+ * <p>Memory-mapped segment file of {@link Outbox}, a sequence of frames:
+ *
+ * <pre>
+ *   int  size     size of frame, header included
+ *   int  crc      CRC32 of type, offset & payload
+ *   byte type     {@link #DATA} or {@link #ACK}
+ *   long offset   offset of entry, the acked entry of {@link #ACK} frame
+ *   byte[size-17] payload
+ * </pre>
+ *
+ * The unused tail of file is zero, a zero size ends the frames. Frames are not thread-safe, they
+ * are written under the lock of outbox.
+ *
+ * @author <a href="mailto:iskp.me@gmail.com">Elve.Xu</a>
+ * @version ${project.version} - 2019/11/27.
+ */
+final class Segment {
+
+  static final int HEADER = 17;
+
+  static final byte DATA = 1;
+
+  static final byte ACK = 2;
+
+  private static final String SUFFIX = ".seg";
+
+  private final long id;
+
+  private final Path path;
+
+  private final FileChannel channel;
+
+  private final MappedByteBuffer buffer;
+
+  /** position of next frame */
+  private int position;
+
+  /** count of unacked entries whose latest copy is in this segment */
+  int live;
+
+  /** bytes of frames of live entries */
+  long liveBytes;
+
+  private Segment(long id, Path path, FileChannel channel, MappedByteBuffer buffer) {
+    this.id = id;
+    this.path = path;
+    this.channel = channel;
+    this.buffer = buffer;
+  }
+
+  /**
+   * Create or open segment file, the file is extended to capacity
+   *
+   * @param directory directory of outbox
+   * @param id id of segment, segments are ordered by id
+   * @param capacity bytes of new file, existing file keeps its size
+   * @return segment, positioned at 0
+   * @throws IOException if file can not be mapped
+   */
+  static Segment open(Path directory, long id, int capacity) throws IOException {
+    Path path = directory.resolve(String.format("%016d%s", id, SUFFIX));
+    FileChannel channel =
+        FileChannel.open(
+            path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    try {
+      long size = channel.size() > 0 ? channel.size() : capacity;
+      return new Segment(id, path, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Returns segment id of file name
+   *
+   * @param path segment file
+   * @return id, -1 if not a segment file
+   */
+  static long idOf(Path path) {
+    String name = path.getFileName().toString();
+    if (!name.endsWith(SUFFIX)) {
+      return -1;
+    }
+    try {
+      return Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+
+  long id() {
+    return id;
+  }
+
+  int capacity() {
+    return buffer.capacity();
+  }
+
+  boolean fits(int payloadLength) {
+    return (long) position + HEADER + payloadLength <= buffer.capacity();
+  }
+
+  /**
+   * Write frame at the end of segment
+   *
+   * @param type frame type
+   * @param offset offset of entry
+   * @param payload payload
+   * @return position of frame
+   */
+  int write(byte type, long offset, byte[] payload) {
+    int start = position;
+    int size = HEADER + payload.length;
+    ByteBuffer frame = buffer.duplicate();
+    frame.position(start);
+    frame.putInt(size).putInt(0).put(type).putLong(offset).put(payload);
+    buffer.putInt(start + 4, crc(start, size));
+    position = start + size;
+    return start;
+  }
+
+  /**
+   * Copy payload of frame
+   *
+   * @param start position of frame
+   * @return payload
+   */
+  byte[] read(int start) {
+    byte[] payload = new byte[buffer.getInt(start) - HEADER];
+    ByteBuffer frame = buffer.duplicate();
+    frame.position(start + HEADER);
+    frame.get(payload);
+    return payload;
+  }
+
+  /**
+   * Visit valid frames from the start of segment, the next frame is written after the last valid
+   * one. A zero size or a frame failing its CRC (torn by crash) ends the segment. The bytes after
+   * the end are zeroed: pages are not written back in order, a frame may survive a power loss
+   * beyond an unwritten page, and would be scanned again once new frames reach it.
+   *
+   * @param visitor frame visitor
+   */
+  void scan(FrameVisitor visitor) {
+    int start = 0;
+    int capacity = buffer.capacity();
+    while (start + HEADER <= capacity) {
+      int size = buffer.getInt(start);
+      if (size == 0) {
+        break;
+      }
+      if (size < HEADER
+          || size > capacity - start
+          || buffer.getInt(start + 4) != crc(start, size)) {
+        break;
+      }
+      visitor.visit(buffer.get(start + 8), buffer.getLong(start + 9), start, size);
+      start += size;
+    }
+    clear(start);
+    position = start;
+  }
+
+  /**
+   * Zero the bytes from position on, only the non-zero ones are written
+   *
+   * @param start position of first byte
+   */
+  private void clear(int start) {
+    int capacity = buffer.capacity();
+    int i = start;
+    for (; i < capacity && (i & 7) != 0; i++) {
+      if (buffer.get(i) != 0) {
+        buffer.put(i, (byte) 0);
+      }
+    }
+    for (; i + 8 <= capacity; i += 8) {
+      if (buffer.getLong(i) != 0) {
+        buffer.putLong(i, 0);
+      }
+    }
+    for (; i < capacity; i++) {
+      if (buffer.get(i) != 0) {
+        buffer.put(i, (byte) 0);
+      }
+    }
+  }
+
+  /** Write the mapped bytes to storage device. */
+  void force() {
+    buffer.force();
+  }
+
+  void close() throws IOException {
+    channel.close();
+  }
+
+  /**
+   * Close & delete segment file. The mapping is released by GC, it stays readable till then.
+   *
+   * @throws IOException if file can not be deleted
+   */
+  void delete() throws IOException {
+    channel.close();
+    Files.deleteIfExists(path);
+  }
+
+  private int crc(int start, int size) {
+    ByteBuffer body = buffer.duplicate();
+    body.limit(start + size).position(start + 8);
+    CRC32 crc = new CRC32();
+    crc.update(body);
+    return (int) crc.getValue();
+  }
+
+  @FunctionalInterface
+  interface FrameVisitor {
+
+    /**
+     * Visit valid frame
+     *
+     * @param type frame type
+     * @param offset offset of entry
+     * @param start position of frame
+     * @param size size of frame
+     */
+    void visit(byte type, long offset, int start, int size);
+  }
+}
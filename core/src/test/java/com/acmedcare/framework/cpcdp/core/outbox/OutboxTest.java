@@ -0,0 +1,285 @@
+/*
+ * Copyright (c) 2019 Acmedcare+
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.acmedcare.framework.cpcdp.core.outbox;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link OutboxTest}
+ *
+ * @author <a href="mailto:iskp.me@gmail.com">Elve.Xu</a>
+ * @version ${project.version} - 2019/11/27.
+ */
+public class OutboxTest {
+
+  private Path directory;
+
+  @Before
+  public void setUp() throws IOException {
+    directory = Files.createTempDirectory("cpcdp-outbox");
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    try (Stream<Path> files = Files.list(directory)) {
+      for (Path file : (Iterable<Path>) files::iterator) {
+        Files.delete(file);
+      }
+    }
+    Files.delete(directory);
+  }
+
+  @Test
+  public void testAppendAckReplay() throws IOException {
+    try (Outbox outbox = Outbox.open(directory, 4096)) {
+      for (int i = 0; i < 5; i++) {
+        assertEquals(i, outbox.append(payload(i)));
+      }
+      assertTrue(outbox.ack(1));
+      assertTrue(outbox.ack(3));
+      assertFalse(outbox.ack(3));
+      assertFalse(outbox.ack(99));
+      assertEquals(3, outbox.pendingCount());
+      assertReplay(outbox, 0, 2, 4);
+    }
+
+    // unacked entries of last run are replayed in offset order
+    try (Outbox outbox = Outbox.open(directory, 4096)) {
+      assertReplay(outbox, 0, 2, 4);
+      assertArrayEquals(payload(2), payloads(outbox).get(2L));
+      assertFalse(outbox.ack(1));
+      assertTrue(outbox.ack(0));
+      assertEquals(5, outbox.append(payload(5)));
+    }
+
+    try (Outbox outbox = Outbox.open(directory, 4096)) {
+      assertReplay(outbox, 2, 4, 5);
+    }
+  }
+
+  @Test
+  public void testTornTail() throws IOException {
+    int[] starts = new int[3];
+    try (Outbox outbox = Outbox.open(directory, 4096)) {
+      int start = 0;
+      for (int i = 0; i < 3; i++) {
+        starts[i] = start;
+        outbox.append(payload(i));
+        start += Segment.HEADER + payload(i).length;
+      }
+    }
+
+    // the last frame is torn: its payload differs from its crc
+    try (FileChannel channel = segmentFile(0)) {
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+      int last = starts[2] + Segment.HEADER;
+      buffer.put(last, (byte) (buffer.get(last) + 1));
+      buffer.force();
+    }
+
+    try (Outbox outbox = Outbox.open(directory, 4096)) {
+      assertReplay(outbox, 0, 1);
+      // recovery truncated at the torn frame, new frames are written there
+      assertEquals(2, outbox.append(payload(7)));
+      assertEquals(3, outbox.append(payload(8)));
+    }
+
+    try (Outbox outbox = Outbox.open(directory, 4096)) {
+      assertReplay(outbox, 0, 1, 2, 3);
+      assertArrayEquals(payload(1), payloads(outbox).get(1L));
+      assertArrayEquals(payload(7), payloads(outbox).get(2L));
+    }
+  }
+
+  @Test
+  public void testFrameBeyondUnwrittenPage() throws IOException {
+    int[] starts = new int[3];
+    try (Outbox outbox = Outbox.open(directory, 4096)) {
+      int start = 0;
+      for (int i = 0; i < 3; i++) {
+        starts[i] = start;
+        outbox.append(payload(i));
+        start += Segment.HEADER + payload(i).length;
+      }
+    }
+
+    // the page of frame 1 was never written, frame 2 survived the power loss
+    try (FileChannel channel = segmentFile(0)) {
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+      for (int i = starts[1]; i < starts[2]; i++) {
+        buffer.put(i, (byte) 0);
+      }
+      buffer.force();
+    }
+
+    try (Outbox outbox = Outbox.open(directory, 4096)) {
+      assertReplay(outbox, 0);
+      // as long as the lost frame, the new frame ends right at the old frame 2
+      assertEquals(1, outbox.append(payload(5)));
+    }
+
+    // the old frame 2 never comes back
+    try (Outbox outbox = Outbox.open(directory, 4096)) {
+      assertReplay(outbox, 0, 1);
+      assertEquals(2, outbox.append(payload(9)));
+    }
+  }
+
+  @Test
+  public void testRollingCompaction() throws IOException {
+    Set<Long> pending = new HashSet<>();
+    long last = -1;
+    try (Outbox outbox = Outbox.open(directory, 4096)) {
+      for (int i = 0; i < 1000; i++) {
+        long offset = outbox.append(payload(i));
+        assertTrue(offset > last);
+        last = offset;
+        pending.add(offset);
+        // a few stragglers stay pending, the others are acked soon
+        if (offset >= 3 && (offset - 3) % 199 != 0) {
+          assertTrue(outbox.ack(offset - 3));
+          pending.remove(offset - 3);
+        }
+      }
+      // stragglers are copied to new segments, old segments are deleted
+      assertTrue(outbox.segmentCount() <= 3);
+      assertEquals(pending, new HashSet<>(offsets(outbox)));
+    }
+
+    try (Outbox outbox = Outbox.open(directory, 4096)) {
+      List<Long> offsets = offsets(outbox);
+      // copies keep their offsets, no acked entry comes back
+      assertEquals(pending, new HashSet<>(offsets));
+      assertEquals(sorted(offsets), offsets);
+      Map<Long, byte[]> payloads = payloads(outbox);
+      for (long offset : offsets) {
+        assertArrayEquals(payload((int) offset), payloads.get(offset));
+      }
+      // no offset is reused
+      assertEquals(last + 1, outbox.append(payload(0)));
+    }
+  }
+
+  @Test
+  public void testConcurrentAppends() throws Exception {
+    int threads = 16;
+    int appends = 200;
+    Set<Long> offsets = ConcurrentHashMap.newKeySet();
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try (Outbox outbox = Outbox.open(directory, 64 * 1024)) {
+      CountDownLatch start = new CountDownLatch(1);
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < threads; t++) {
+        futures.add(
+            executor.submit(
+                () -> {
+                  start.await();
+                  for (int i = 0; i < appends; i++) {
+                    offsets.add(outbox.append(payload(i)));
+                  }
+                  return null;
+                }));
+      }
+      start.countDown();
+      for (Future<?> future : futures) {
+        future.get();
+      }
+
+      assertEquals(threads * appends, offsets.size());
+      assertEquals(threads * appends, outbox.pendingCount());
+      // writers waiting for a force are made durable by the force of another one
+      assertTrue(outbox.commitCount() < threads * appends);
+    } finally {
+      executor.shutdown();
+    }
+
+    try (Outbox outbox = Outbox.open(directory, 64 * 1024)) {
+      assertEquals(offsets, new HashSet<>(offsets(outbox)));
+    }
+  }
+
+  private static byte[] payload(int i) {
+    return ("{\"ID\":\"" + i + "\",\"NAME\":\"患者" + i + "\"}").getBytes(StandardCharsets.UTF_8);
+  }
+
+  private FileChannel segmentFile(long id) throws IOException {
+    return FileChannel.open(
+        directory.resolve(String.format("%016d.seg", id)),
+        StandardOpenOption.READ,
+        StandardOpenOption.WRITE);
+  }
+
+  private static void assertReplay(Outbox outbox, long... expected) {
+    List<Long> offsets = offsets(outbox);
+    assertEquals(expected.length, offsets.size());
+    for (int i = 0; i < expected.length; i++) {
+      assertEquals(expected[i], (long) offsets.get(i));
+    }
+  }
+
+  private static List<Long> offsets(Outbox outbox) {
+    List<Long> offsets = new ArrayList<>();
+    outbox.replay((offset, payload) -> offsets.add(offset));
+    return offsets;
+  }
+
+  private static Map<Long, byte[]> payloads(Outbox outbox) {
+    Map<Long, byte[]> payloads = new HashMap<>();
+    outbox.replay(payloads::put);
+    return payloads;
+  }
+
+  private static List<Long> sorted(List<Long> offsets) {
+    List<Long> sorted = new ArrayList<>(offsets);
+    Collections.sort(sorted);
+    return sorted;
+  }
+}
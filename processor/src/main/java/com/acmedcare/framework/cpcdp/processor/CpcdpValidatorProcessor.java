@@ -0,0 +1,610 @@
+/*
+ * Copyright (c) 2019 Acmedcare+
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.acmedcare.framework.cpcdp.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.*;
+
+/**
+ * {@link CpcdpValidatorProcessor}
+ *
+ * <p>Generate a <code>XxxValidator</code> class for every bean class declaring CPCDP validation
+ * annotation(s). The generated class extends <code>
+ * com.acmedcare.framework.cpcdp.validation.GeneratedValidator</code>, reads the bean fields with
+ * direct getter calls and the keys of cpc enums with direct <code>key()</code> calls, so the
+ * validation plan of bean doesn't need reflection any more.
+ *
+ * <p>If <code>com.acmedcare.framework.cpcdp.gson.GeneratedJsonWriter</code> is present, a <code>
+ * XxxJsonWriter</code> class is generated as well, which writes the bean fields straight to gson's
+ * <code>JsonWriter</code>.
+ *
+ * <p>Only top level, non-generic bean classes with getters (declared or generated by lombok) are
+ * processed, others keep using the reflection based validation.
+ *
+ * @author <a href="mailto:iskp.me@gmail.com">Elve.Xu</a>
+ * @version ${project.version} - 2019/11/14.
+ */
+@SupportedAnnotationTypes({
+  "com.acmedcare.framework.cpcdp.annotation.Required",
+  "com.acmedcare.framework.cpcdp.annotation.AllowValues",
+  "com.acmedcare.framework.cpcdp.annotation.Condition",
+  "com.acmedcare.framework.cpcdp.annotation.Conditions",
+  "com.acmedcare.framework.cpcdp.annotation.ComplexCondition",
+  "javax.validation.Valid",
+  "javax.validation.constraints.Size",
+  "javax.validation.constraints.Min",
+  "javax.validation.constraints.Max",
+  "javax.validation.constraints.DecimalMin",
+  "javax.validation.constraints.DecimalMax",
+  "javax.validation.constraints.Positive",
+  "javax.validation.constraints.PositiveOrZero",
+  "javax.validation.constraints.Negative",
+  "javax.validation.constraints.NegativeOrZero",
+  "javax.validation.constraints.Pattern"
+})
+public class CpcdpValidatorProcessor extends AbstractProcessor {
+
+  private static final String GENERATED_VALIDATOR_CLASS =
+      "com.acmedcare.framework.cpcdp.validation.GeneratedValidator";
+
+  private static final String SUFFIX = "Validator";
+
+  private static final String GENERATED_JSON_WRITER_CLASS =
+      "com.acmedcare.framework.cpcdp.gson.GeneratedJsonWriter";
+
+  private static final String JSON_WRITER_SUFFIX = "JsonWriter";
+
+  private static final String JSON_WRITER_CLASS = "com.google.gson.stream.JsonWriter";
+
+  private static final String VALIDATION_PASS_CLASS =
+      "com.acmedcare.framework.cpcdp.validation.ValidationPass";
+
+  private static final String CPC_ENUM_KEY_METHOD_NAME = "key";
+
+  private static final String[] GENERATED_ANNOTATIONS = {
+    "javax.annotation.Generated", "javax.annotation.processing.Generated"
+  };
+
+  private static final Set<String> LOMBOK_GETTER_ANNOTATIONS =
+      new HashSet<>(Arrays.asList("lombok.Getter", "lombok.Data", "lombok.Value"));
+
+  /** processed bean classes, a bean is generated only once across rounds */
+  private final Set<String> processed = new HashSet<>();
+
+  @Override
+  public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override
+  public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+
+    Set<TypeElement> beans = new LinkedHashSet<>();
+
+    for (TypeElement annotation : annotations) {
+      for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+        if (element.getKind() == ElementKind.FIELD
+            && element.getEnclosingElement().getKind() == ElementKind.CLASS) {
+          beans.add((TypeElement) element.getEnclosingElement());
+        }
+      }
+    }
+
+    for (TypeElement bean : beans) {
+      if (processed.add(bean.getQualifiedName().toString())) {
+        generate(bean);
+      }
+    }
+
+    // never claim the annotations
+    return false;
+  }
+
+  private void generate(TypeElement bean) {
+
+    Messager messager = processingEnv.getMessager();
+
+    if (bean.getNestingKind() != NestingKind.TOP_LEVEL || !bean.getTypeParameters().isEmpty()) {
+      messager.printMessage(
+          Diagnostic.Kind.NOTE,
+          "Skip validator generation of nested or generic class " + bean.getQualifiedName(),
+          bean);
+      return;
+    }
+
+    List<VariableElement> fields = new ArrayList<>();
+    for (VariableElement field : ElementFilter.fieldsIn(bean.getEnclosedElements())) {
+      if (!field.getModifiers().contains(Modifier.STATIC)) {
+        fields.add(field);
+      }
+    }
+
+    boolean lombokGetters = hasLombokGetters(bean);
+    List<String> getters = new ArrayList<>(fields.size());
+
+    for (VariableElement field : fields) {
+      String getter = getterName(field);
+      if (!lombokGetters && !hasLombokGetters(field) && !hasGetter(bean, getter)) {
+        messager.printMessage(
+            Diagnostic.Kind.NOTE,
+            "Skip validator generation of "
+                + bean.getQualifiedName()
+                + ", getter not found: "
+                + getter
+                + "()",
+            bean);
+        return;
+      }
+      getters.add(getter);
+    }
+
+    String packageName =
+        processingEnv.getElementUtils().getPackageOf(bean).getQualifiedName().toString();
+    String beanName = bean.getSimpleName().toString();
+    String validatorName = beanName + SUFFIX;
+
+    StringBuilder source = new StringBuilder(4096 + fields.size() * 128);
+
+    if (!packageName.isEmpty()) {
+      source.append("package ").append(packageName).append(";\n\n");
+    }
+
+    source
+        .append("import ")
+        .append(GENERATED_VALIDATOR_CLASS)
+        .append(";\n\n")
+        .append("/**\n")
+        .append(" * Generated validator of {@link ")
+        .append(beanName)
+        .append("}, DO NOT EDIT.\n")
+        .append(" */\n");
+
+    String generatedAnnotation = generatedAnnotation();
+    if (generatedAnnotation != null) {
+      source
+          .append('@')
+          .append(generatedAnnotation)
+          .append("(\"")
+          .append(CpcdpValidatorProcessor.class.getName())
+          .append("\")\n");
+    }
+
+    source
+        .append("public final class ")
+        .append(validatorName)
+        .append(" extends GeneratedValidator<")
+        .append(beanName)
+        .append("> {\n\n");
+
+    // slots
+    appendFields(source, fields);
+
+    source
+        .append("  public ")
+        .append(validatorName)
+        .append("() {\n")
+        .append("    super(")
+        .append(beanName)
+        .append(".class, FIELDS);\n")
+        .append("  }\n\n");
+
+    // read(bean, slot)
+    source
+        .append("  @Override\n")
+        .append("  protected Object read(")
+        .append(beanName)
+        .append(" bean, int slot) {\n")
+        .append("    switch (slot) {\n");
+    for (int i = 0; i < fields.size(); i++) {
+      source
+          .append("      case ")
+          .append(i)
+          .append(":\n")
+          .append("        return bean.")
+          .append(getters.get(i))
+          .append("();\n");
+    }
+    source
+        .append("      default:\n")
+        .append("        throw new IndexOutOfBoundsException(\"slot: \" + slot);\n")
+        .append("    }\n")
+        .append("  }\n\n");
+
+    // readLong(bean, slot) & readDouble(bean, slot) of primitive numeric fields
+    appendPrimitiveRead(source, beanName, fields, getters, "long", "readLong", true);
+    appendPrimitiveRead(source, beanName, fields, getters, "double", "readDouble", false);
+
+    // key(slot, value)
+    source
+        .append("  @Override\n")
+        .append("  protected Object key(int slot, Object value) {\n")
+        .append("    switch (slot) {\n");
+    for (int i = 0; i < fields.size(); i++) {
+      TypeMirror type = fields.get(i).asType();
+      if (isCpcEnum(type)) {
+        source
+            .append("      case ")
+            .append(i)
+            .append(":\n")
+            .append("        return ((")
+            .append(processingEnv.getTypeUtils().erasure(type))
+            .append(") value).")
+            .append(CPC_ENUM_KEY_METHOD_NAME)
+            .append("();\n");
+      }
+    }
+    source
+        .append("      default:\n")
+        .append("        return super.key(slot, value);\n")
+        .append("    }\n")
+        .append("  }\n")
+        .append("}\n");
+
+    writeSource(bean, packageName, validatorName, source);
+
+    if (processingEnv.getElementUtils().getTypeElement(GENERATED_JSON_WRITER_CLASS) != null) {
+      generateJsonWriter(bean, packageName, fields, getters);
+    }
+  }
+
+  /**
+   * Generate <code>XxxJsonWriter</code> of bean, fields are written in declaration order, same as
+   * the reflective adapter of gson. Transient fields are skipped, beans inheriting fields are not
+   * generated.
+   */
+  private void generateJsonWriter(
+      TypeElement bean, String packageName, List<VariableElement> fields, List<String> getters) {
+
+    if (hasInheritedFields(bean)) {
+      processingEnv
+          .getMessager()
+          .printMessage(
+              Diagnostic.Kind.NOTE,
+              "Skip json writer generation of " + bean.getQualifiedName() + ", fields inherited",
+              bean);
+      return;
+    }
+
+    String beanName = bean.getSimpleName().toString();
+    String writerName = beanName + JSON_WRITER_SUFFIX;
+
+    List<VariableElement> serialized = new ArrayList<>(fields.size());
+    List<String> serializedGetters = new ArrayList<>(fields.size());
+    for (int i = 0; i < fields.size(); i++) {
+      if (!fields.get(i).getModifiers().contains(Modifier.TRANSIENT)) {
+        serialized.add(fields.get(i));
+        serializedGetters.add(getters.get(i));
+      }
+    }
+
+    StringBuilder source = new StringBuilder(4096 + serialized.size() * 128);
+
+    if (!packageName.isEmpty()) {
+      source.append("package ").append(packageName).append(";\n\n");
+    }
+
+    source
+        .append("import ")
+        .append(GENERATED_JSON_WRITER_CLASS)
+        .append(";\n")
+        .append("import ")
+        .append(JSON_WRITER_CLASS)
+        .append(";\n")
+        .append("import ")
+        .append(VALIDATION_PASS_CLASS)
+        .append(";\n\n")
+        .append("import java.io.IOException;\n\n")
+        .append("/**\n")
+        .append(" * Generated json writer of {@link ")
+        .append(beanName)
+        .append("}, DO NOT EDIT.\n")
+        .append(" */\n");
+
+    String generatedAnnotation = generatedAnnotation();
+    if (generatedAnnotation != null) {
+      source
+          .append('@')
+          .append(generatedAnnotation)
+          .append("(\"")
+          .append(CpcdpValidatorProcessor.class.getName())
+          .append("\")\n");
+    }
+
+    source
+        .append("public final class ")
+        .append(writerName)
+        .append(" extends GeneratedJsonWriter<")
+        .append(beanName)
+        .append("> {\n\n");
+
+    appendFields(source, serialized);
+
+    source
+        .append("  public ")
+        .append(writerName)
+        .append("() {\n")
+        .append("    super(")
+        .append(beanName)
+        .append(".class, FIELDS);\n")
+        .append("  }\n\n");
+
+    // writeFields(out, bean, pass)
+    source
+        .append("  @Override\n")
+        .append("  protected void writeFields(JsonWriter out, ")
+        .append(beanName)
+        .append(" bean, ValidationPass pass)\n")
+        .append("      throws IOException {\n");
+    for (int i = 0; i < serialized.size(); i++) {
+      TypeMirror type = serialized.get(i).asType();
+      String getter = "bean." + serializedGetters.get(i) + "()";
+
+      source
+          .append("    if (!name(out, ")
+          .append(i)
+          .append(", pass)) {\n")
+          .append("      return;\n")
+          .append("    }\n");
+      switch (type.getKind()) {
+        case BOOLEAN:
+        case BYTE:
+        case SHORT:
+        case INT:
+        case LONG:
+          source.append("    out.value(").append(getter).append(");\n");
+          break;
+        case CHAR:
+          source.append("    out.value(String.valueOf(").append(getter).append("));\n");
+          break;
+        case FLOAT:
+          source.append("    writeFloat(out, ").append(getter).append(");\n");
+          break;
+        case DOUBLE:
+          source.append("    writeDouble(out, ").append(getter).append(");\n");
+          break;
+        default:
+          if (isString(type)) {
+            source.append("    out.value(").append(getter).append(");\n");
+          } else if (isCpcEnum(type)) {
+            String variable = "value" + i;
+            source
+                .append("    ")
+                .append(processingEnv.getTypeUtils().erasure(type))
+                .append(' ')
+                .append(variable)
+                .append(" = ")
+                .append(getter)
+                .append(";\n")
+                .append("    if (keyed(")
+                .append(i)
+                .append(", ")
+                .append(variable)
+                .append(")) {\n")
+                .append("      out.value(")
+                .append(variable)
+                .append('.')
+                .append(CPC_ENUM_KEY_METHOD_NAME)
+                .append("());\n")
+                .append("    } else {\n")
+                .append("      write(out, ")
+                .append(i)
+                .append(", ")
+                .append(variable)
+                .append(");\n")
+                .append("    }\n");
+          } else {
+            source
+                .append("    write(out, ")
+                .append(i)
+                .append(", ")
+                .append(getter)
+                .append(");\n");
+          }
+      }
+    }
+    source.append("  }\n").append("}\n");
+
+    writeSource(bean, packageName, writerName, source);
+  }
+
+  private static void appendFields(StringBuilder source, List<VariableElement> fields) {
+    source.append("  private static final String[] FIELDS = {\n");
+    for (int i = 0; i < fields.size(); i++) {
+      source
+          .append("    \"")
+          .append(fields.get(i).getSimpleName())
+          .append(i == fields.size() - 1 ? "\"\n" : "\",\n");
+    }
+    source.append("  };\n\n");
+  }
+
+  private void writeSource(
+      TypeElement bean, String packageName, String className, StringBuilder source) {
+
+    String qualifiedName = packageName.isEmpty() ? className : packageName + "." + className;
+
+    Filer filer = processingEnv.getFiler();
+    try {
+      JavaFileObject file = filer.createSourceFile(qualifiedName, bean);
+      try (Writer writer = file.openWriter()) {
+        writer.write(source.toString());
+      }
+    } catch (IOException e) {
+      processingEnv
+          .getMessager()
+          .printMessage(
+              Diagnostic.Kind.ERROR,
+              "Generate " + qualifiedName + " failed: " + e.getMessage(),
+              bean);
+    }
+  }
+
+  private static void appendPrimitiveRead(
+      StringBuilder source,
+      String beanName,
+      List<VariableElement> fields,
+      List<String> getters,
+      String returnType,
+      String methodName,
+      boolean integralOnly) {
+
+    StringBuilder cases = new StringBuilder();
+    for (int i = 0; i < fields.size(); i++) {
+      TypeKind kind = fields.get(i).asType().getKind();
+      boolean integral =
+          kind == TypeKind.BYTE
+              || kind == TypeKind.SHORT
+              || kind == TypeKind.INT
+              || kind == TypeKind.LONG;
+      boolean floating = kind == TypeKind.FLOAT || kind == TypeKind.DOUBLE;
+      if (integral || !integralOnly && floating) {
+        cases
+            .append("      case ")
+            .append(i)
+            .append(":\n")
+            .append("        return bean.")
+            .append(getters.get(i))
+            .append("();\n");
+      }
+    }
+
+    if (cases.length() == 0) {
+      return;
+    }
+
+    source
+        .append("  @Override\n")
+        .append("  protected ")
+        .append(returnType)
+        .append(' ')
+        .append(methodName)
+        .append('(')
+        .append(beanName)
+        .append(" bean, int slot) {\n")
+        .append("    switch (slot) {\n")
+        .append(cases)
+        .append("      default:\n")
+        .append("        return super.")
+        .append(methodName)
+        .append("(bean, slot);\n")
+        .append("    }\n")
+        .append("  }\n\n");
+  }
+
+  /** <code>@Generated</code> moved to <code>javax.annotation.processing</code> since JDK 9 */
+  private String generatedAnnotation() {
+    for (String name : GENERATED_ANNOTATIONS) {
+      if (processingEnv.getElementUtils().getTypeElement(name) != null) {
+        return name;
+      }
+    }
+    return null;
+  }
+
+  /** Lombok naming: <code>isXxx</code> for primitive boolean, otherwise <code>getXxx</code>. */
+  private static String getterName(VariableElement field) {
+    String name = field.getSimpleName().toString();
+    if (field.asType().getKind() == TypeKind.BOOLEAN) {
+      if (name.length() > 2 && name.startsWith("is") && Character.isUpperCase(name.charAt(2))) {
+        return name;
+      }
+      return "is" + Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    }
+    return "get" + Character.toUpperCase(name.charAt(0)) + name.substring(1);
+  }
+
+  private static boolean hasLombokGetters(Element element) {
+    for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+      Element type = annotation.getAnnotationType().asElement();
+      if (LOMBOK_GETTER_ANNOTATIONS.contains(((TypeElement) type).getQualifiedName().toString())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean hasGetter(TypeElement bean, String getter) {
+    for (ExecutableElement method : ElementFilter.methodsIn(bean.getEnclosedElements())) {
+      if (method.getSimpleName().contentEquals(getter)
+          && method.getParameters().isEmpty()
+          && !method.getModifiers().contains(Modifier.PRIVATE)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** Check is any super class (except <code>Object</code>) declaring instance field(s) */
+  private boolean hasInheritedFields(TypeElement bean) {
+    TypeMirror superclass = bean.getSuperclass();
+    while (superclass.getKind() == TypeKind.DECLARED) {
+      TypeElement element = (TypeElement) processingEnv.getTypeUtils().asElement(superclass);
+      for (VariableElement field : ElementFilter.fieldsIn(element.getEnclosedElements())) {
+        if (!field.getModifiers().contains(Modifier.STATIC)) {
+          return true;
+        }
+      }
+      superclass = element.getSuperclass();
+    }
+    return false;
+  }
+
+  private boolean isString(TypeMirror type) {
+    Element element = processingEnv.getTypeUtils().asElement(type);
+    return element instanceof TypeElement
+        && ((TypeElement) element).getQualifiedName().contentEquals(String.class.getName());
+  }
+
+  /** Check type is an enum declaring a <code>key()</code> method */
+  private boolean isCpcEnum(TypeMirror type) {
+    if (type.getKind() != TypeKind.DECLARED) {
+      return false;
+    }
+    Element element = processingEnv.getTypeUtils().asElement(type);
+    if (element == null || element.getKind() != ElementKind.ENUM) {
+      return false;
+    }
+    for (ExecutableElement method : ElementFilter.methodsIn(element.getEnclosedElements())) {
+      if (method.getSimpleName().contentEquals(CPC_ENUM_KEY_METHOD_NAME)
+          && method.getParameters().isEmpty()
+          && !method.getModifiers().contains(Modifier.STATIC)
+          && !method.getModifiers().contains(Modifier.PRIVATE)) {
+        return true;
+      }
+    }
+    return false;
+  }
+}